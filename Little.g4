@@ -5,12 +5,14 @@
 
 
 //Parser (Non-Terminal) rules 
+//Repetition is written as loops (*, ?) instead of recursive rules with empty alternatives, the language accepted is the same
+//as the CFG in LanguageDocs/grammar.txt but prediction only has to decide whether a loop continues.
 
 //Program structure rules.
 program : 'PROGRAM' id 'BEGIN' pgm_body 'END' + EOF;
 id : IDENTIFIER;
 pgm_body : decl func_declarations;
-decl : string_decl decl | var_decl decl | ;
+decl : (string_decl | var_decl)*;
 
 //String Declaration rules
 string_decl : 'STRING' id ':=' str ';';
@@ -20,21 +22,19 @@ str : STRINGLITERAL;
 var_decl: var_type id_list ';';
 var_type: 'FLOAT' | 'INT';
 any_type: var_type | 'VOID';
-id_list: id id_tail;
-id_tail: ',' id id_tail | ;
+id_list: id (',' id)*;
 
 //Function Parameter Rules
-param_decl_list: param_decl param_decl_tail | ;
+param_decl_list: (param_decl (',' param_decl)*)?;
 param_decl: var_type id;
-param_decl_tail: ',' param_decl param_decl_tail | ;
 
 //Function Declaration rules
-func_declarations: func_decl func_declarations | ;
+func_declarations: func_decl*;
 func_decl: 'FUNCTION' any_type id '(' param_decl_list ')' 'BEGIN' func_body 'END';
 func_body: decl stmt_list;
 
 //High level (general) statement Rules
-stmt_list: stmt stmt_list | ;
+stmt_list: stmt*;
 stmt: base_stmt | if_stmt | while_stmt;
 base_stmt: assign_stmt | read_stmt | write_stmt | return_stmt;
 
@@ -46,21 +46,18 @@ write_stmt: 'WRITE' '(' id_list ')' ';';
 return_stmt: 'RETURN' expr ';';
 
 //Expression Rules
-expr: expr_prefix factor;
-expr_prefix: expr_prefix factor addop | ;
-factor: factor_prefix postfix_expr;
-factor_prefix: factor_prefix postfix_expr mulop | ;
+expr: factor (addop factor)*;
+factor: postfix_expr (mulop postfix_expr)*;
 postfix_expr: primary | call_expr;
 call_expr: id '(' expr_list ')';
-expr_list: expr expr_list_tail | ;
-expr_list_tail: ',' expr expr_list_tail | ;
+expr_list: (expr (',' expr)*)?;
 primary: '(' expr ')' | id| INTLITERAL | FLOATLITERAL;
 addop: '+' | '-';
 mulop: '*' | '/';
 
 //Complex Statements and Conditional Statements.
 if_stmt: 'IF' '(' cond ')' decl stmt_list else_part 'ENDIF';
-else_part: 'ELSE' decl stmt_list | ;
+else_part: ('ELSE' decl stmt_list)?;
 cond: expr compop expr;
 compop: '<' | '>' | '=' | '!=' | '<=' | '>=';
 
@@ -1,4 +1,5 @@
 #include <list>
+#include <map>
 #include <vector>
 #include <string>
 #include <fstream>
@@ -320,6 +321,10 @@ class opcode {
   opcodes::optype typ;
   operand op1,op2;
   list<opcode>::iterator jumptarget; //for jump instructions
+  // vvvvvvvvvvvvvvvvvvvvvvvv Profile vvvvvvvvvvvvvvvvv
+  long executed; // times the instruction was executed
+  long taken;    // times a jump was taken
+  // ^^^^^^^^^^^^^^^^^^^^^^^^ Profile ^^^^^^^^^^^^^^^^^
   string opname(opcodes::optype t){
     switch (t) {
     case opcodes::var: {return "var";}
@@ -356,7 +361,7 @@ class opcode {
     }
   }
 public:
-  opcode(opcodes::optype t,operand o1, operand o2): typ(t),op1(o1),op2(o2),srcline(line){}
+  opcode(opcodes::optype t,operand o1, operand o2): typ(t),op1(o1),op2(o2),srcline(line){executed=0; taken=0;}
   int src(){return srcline;}
   void settarget(list<opcode>::iterator pc){jumptarget=pc;}
   list<opcode>::iterator target(){return jumptarget;}
@@ -364,6 +369,12 @@ public:
   opcodes::optype code(){return typ;}
   operand & o1(){return op1;}
   operand & o2(){return op2;}
+  // vvvvvvvvvvvvvvvvvvvvvvvv Profile vvvvvvvvvvvvvvvvv
+  void hit(){executed++;}
+  void take(){taken++;}
+  long hits(){return executed;}
+  long takes(){return taken;}
+  // ^^^^^^^^^^^^^^^^^^^^^^^^ Profile ^^^^^^^^^^^^^^^^^
   void print(){
     cout<<"line:"<<srcline<<"  "<<opname(typ)<<"  ";
     op1.print(); cout<<"  ";
@@ -538,9 +549,64 @@ void linkvariable(list<Symbol>&table, operand & o, int srcline){
   }
 }
 
+// vvvvvvvvvvvvvvvvvvvvvvvv Profile vvvvvvvvvvvvvvvvv
+bool isbranch(opcodes::optype t){
+  return t==opcodes::jgt || t==opcodes::jlt || t==opcodes::jge ||
+    t==opcodes::jle || t==opcodes::jeq || t==opcodes::jne;
+}
+
+void writeprofile(list<opcode> & program, string filename){
+  // Each instruction is counted under the nearest label before it in the
+  // program, instructions before the first label are counted under "-".
+  //   label  <label> <entries> <instructions executed under the label>
+  //   call   <label> <calls>
+  //   var    <name> <accesses by executed instructions>
+  //   line   <srcline> <label> <opcode> <executions>
+  //   branch <srcline> <label> <taken> <executions>
+  ofstream out(filename.c_str());
+  if (!out) {cerr<<filename<<" can not be written\n"; return;}
+  vector<string> labels;
+  map<string,long> entries;
+  map<string,long> instructions;
+  map<string,long> calls;
+  map<string,long> accesses;
+  string region = "-";
+  for (list<opcode>::iterator it=program.begin();it!=program.end();it++){
+    if (it->code()==opcodes::label) {
+      region = it->o1().name();
+      labels.push_back(region);
+      entries[region] = it->hits();
+      continue;
+    }
+    if (it->hits()==0) continue;
+    if (region=="-" && instructions.count(region)==0) labels.insert(labels.begin(),region);
+    instructions[region] += it->hits();
+    if (it->code()==opcodes::jsr) calls[it->o1().name()] += it->hits();
+    // label operands of jumps and the call name of sys are not variables
+    if (it->code()==opcodes::jmp || it->code()==opcodes::jsr || isbranch(it->code())) continue;
+    if (it->code()!=opcodes::sys && it->o1().type()==id) accesses[it->o1().name()] += it->hits();
+    if (it->o2().type()==id) accesses[it->o2().name()] += it->hits();
+  }
+  for (vector<string>::iterator it=labels.begin();it!=labels.end();it++)
+    out<<"label "<<*it<<' '<<entries[*it]<<' '<<instructions[*it]<<'\n';
+  for (map<string,long>::iterator it=calls.begin();it!=calls.end();it++)
+    out<<"call "<<it->first<<' '<<it->second<<'\n';
+  for (map<string,long>::iterator it=accesses.begin();it!=accesses.end();it++)
+    out<<"var "<<it->first<<' '<<it->second<<'\n';
+  region = "-";
+  for (list<opcode>::iterator it=program.begin();it!=program.end();it++){
+    if (it->code()==opcodes::label) region = it->o1().name();
+    if (it->hits()==0) continue;
+    out<<"line "<<it->src()<<' '<<region<<' '<<it->name()<<' '<<it->hits()<<'\n';
+    if (isbranch(it->code()))
+      out<<"branch "<<it->src()<<' '<<region<<' '<<it->takes()<<' '<<it->hits()<<'\n';
+  }
+}
+// ^^^^^^^^^^^^^^^^^^^^^^^^ Profile ^^^^^^^^^^^^^^^^^
+
 
 int main(int argc, char *argv[]){
-  if (argc==1) {cerr<<"usage: tiny srcfile [stats|nostats|d1|d2|d3 [mix]]\n"; exit(1);}
+  if (argc==1) {cerr<<"usage: tiny srcfile [stats|nostats|d1|d2|d3 [mix]] [profile=file]\n"; exit(1);}
 
   bool mix = false; // allow mixed declarations and code
   debug = 0;
@@ -557,6 +623,11 @@ int main(int argc, char *argv[]){
   if (argc>=4){
     if (string(argv[3])=="mix") mix=true;
   }
+  // the profile file can follow any of the other arguments
+  string profilefile = "";
+  for (int a=2;a<argc;a++){
+    if (string(argv[a]).compare(0,8,"profile=")==0) profilefile = string(argv[a]).substr(8);
+  }
   ifstream src(argv[1]);
   if (!src) {cerr<<argv[1]<<" not found\n"; exit(1);}
 
@@ -811,6 +882,10 @@ int main(int argc, char *argv[]){
 	  }
       }
     line = pc->src();
+    // vvvvvvvvvvvvvvvvvvvvvvvv Profile vvvvvvvvvvvvvvvvv
+    list<opcode>::iterator current = pc;
+    current->hit();
+    // ^^^^^^^^^^^^^^^^^^^^^^^^ Profile ^^^^^^^^^^^^^^^^^
     // vvvvvvvvvvvvvvvvvvvvvvvv Statistics vvvvvvvvvvvvvvvvv
     if(stats) {
     // I just do statistics in this first switch statement
@@ -1349,7 +1424,11 @@ int main(int argc, char *argv[]){
       }
     }
     }
+    // vvvvvvvvvvvvvvvvvvvvvvvv Profile vvvvvvvvvvvvvvvvv
+    if (isbranch(current->code()) && pc==current->target()) current->take();
+    // ^^^^^^^^^^^^^^^^^^^^^^^^ Profile ^^^^^^^^^^^^^^^^^
   }  
+  if (profilefile!="") writeprofile(program,profilefile);
   // vvvvvvvvvvvvvvvvvvvvvvvv Statistics: Print vvvvvvvvvvvvvvvvv
   if(stats) {
   cout << "\nSTATISTICS _____________________________\n";
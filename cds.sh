@@ -0,0 +1,19 @@
+#!/bin/bash
+# Builds the startup optimized distribution in dist/: the compiler jar and an application class data sharing (AppCDS)
+# archive trained by compiling every sample program. Run littlec to use it.
+# ANTLR_JAR must point to the ANTLR 4 complete jar, littlec must be run with the same jar.
+set -e
+ANTLR_JAR=${ANTLR_JAR:?"set ANTLR_JAR to the ANTLR 4 complete jar"}
+CP=dist/little.jar:$ANTLR_JAR
+rm -rf dist
+mkdir -p dist/classes
+java -cp "$ANTLR_JAR" org.antlr.v4.Tool Little.g4 -o src
+# String concatenation is compiled inline, bootstrapping the invokedynamic version costs more than compiling a small program.
+javac -XDstringConcat=inline -cp "$ANTLR_JAR" src/*.java -d dist/classes
+jar cf dist/little.jar -C dist/classes .
+# Training run, records the classes loaded while compiling each sample.
+for sample in Samples/*.tiny; do
+	java -Xshare:off -XX:DumpLoadedClassList=dist/$(basename $sample).classlist -cp "$CP" Driver < $sample > /dev/null
+done
+sort -u dist/*.tiny.classlist > dist/little.classlist
+java -Xshare:dump -XX:SharedClassListFile=dist/little.classlist -XX:SharedArchiveFile=dist/little.jsa -cp "$CP"
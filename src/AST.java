@@ -1,93 +1,290 @@
 //Standard Libraries
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 
-// Abstract Syntax Tree class contains the root node to all necessary nodes that contain information.
+/*
+ * Abstract Syntax Tree class, stored as a struct of arrays. A node is an index into parallel arrays that hold its fields,
+ * parent and children are node indexes with NIL for no node. The strings of the nodes (identifiers, literals, operators and
+ * temporaries) are interned in a pool and a node holds the id of its string. The arrays grow as nodes are added. The root
+ * of each statement is kept in program order in an int list, with the source line and column the statement starts at.
+ */
 class AST{
 	
-	private LinkedList<ASTNode> root;
+	// Index used for a missing node.
+	public static final int NIL = -1;
+	
+	private static final int INITIAL_CAPACITY = 64;
+	
+	private static final CodeType[] CODE_TYPES = CodeType.values();
+	
+	private static final ValueKind[] VALUE_KINDS = ValueKind.values();
+	
+	// The type for the code in the node, CodeType ordinal.
+	private byte[] type;
+	
+	// The token kind of a value (identifier or literal), ValueKind ordinal or -1 for operators.
+	private byte[] kind;
+	
+	// String pool id of the code in the node.
+	private int[] code;
+	
+	// String pool id of the resolved data type (INT or FLOAT) of the value or of the result of an operator, NIL if unresolved.
+	private int[] dataType;
+	
+	private int[] parent;
+	
+	private int[] lChild;
+	
+	private int[] rChild;
+	
+	// Number of registers needed to evaluate the subtree rooted at the node (Sethi-Ullman number).
+	private int[] registerNeed;
+	
+	// Number of nodes created.
+	private int size;
+	
+	// Statement roots in program order.
+	private int[] root;
+	
+	private int rootCount;
+	
+	// Source line and column of each statement root, from 1.
+	private int[] rootLine;
+	
+	private int[] rootColumn;
+	
+	// Source line and column the unit starts at, its function declaration or the program.
+	private int line;
+	
+	private int column;
+	
+	// Interned strings, the id of a string is its index.
+	private ArrayList<String> strings;
+	
+	private HashMap<String, Integer> stringIds;
 	
 	public AST() {
-		this.root = new LinkedList<ASTNode>();
+		
+		this.type = new byte[INITIAL_CAPACITY];
+		this.kind = new byte[INITIAL_CAPACITY];
+		this.code = new int[INITIAL_CAPACITY];
+		this.dataType = new int[INITIAL_CAPACITY];
+		this.parent = new int[INITIAL_CAPACITY];
+		this.lChild = new int[INITIAL_CAPACITY];
+		this.rChild = new int[INITIAL_CAPACITY];
+		this.registerNeed = new int[INITIAL_CAPACITY];
+		this.size = 0;
+		
+		this.root = new int[INITIAL_CAPACITY];
+		this.rootCount = 0;
+		this.rootLine = new int[INITIAL_CAPACITY];
+		this.rootColumn = new int[INITIAL_CAPACITY];
+		
+		this.strings = new ArrayList<String>();
+		this.stringIds = new HashMap<String, Integer>();
 	}
 	
-	public LinkedList<ASTNode> getRoot() {
-		return this.root;
+	// Creates a node with no parent or children and returns its index.
+	public int addNode(CodeType t, String s) {
+		
+		if(this.size == this.type.length) {
+			this.grow();
+		}
+		
+		int node = this.size++;
+		
+		this.type[node] = (byte) t.ordinal();
+		this.kind[node] = -1;
+		this.code[node] = this.intern(s);
+		this.dataType[node] = NIL;
+		this.parent[node] = NIL;
+		this.lChild[node] = NIL;
+		this.rChild[node] = NIL;
+		this.registerNeed[node] = 0;
+		
+		return node;
 	}
-}
-
-// A node for the AST these nodes are binary as they only need handle simple expressions.
-class ASTNode{
-	
-	private ASTNode parent;
 	
-	private ASTNode lChild;
-	
-	private ASTNode rChild;
+	// Returns a copy of the AST with the same node indexes, changes to either do not change the other.
+	public AST copy() {
+		
+		AST copy = new AST();
+		
+		copy.type = Arrays.copyOf(this.type, this.type.length);
+		copy.kind = Arrays.copyOf(this.kind, this.kind.length);
+		copy.code = Arrays.copyOf(this.code, this.code.length);
+		copy.dataType = Arrays.copyOf(this.dataType, this.dataType.length);
+		copy.parent = Arrays.copyOf(this.parent, this.parent.length);
+		copy.lChild = Arrays.copyOf(this.lChild, this.lChild.length);
+		copy.rChild = Arrays.copyOf(this.rChild, this.rChild.length);
+		copy.registerNeed = Arrays.copyOf(this.registerNeed, this.registerNeed.length);
+		copy.size = this.size;
+		
+		copy.root = Arrays.copyOf(this.root, this.root.length);
+		copy.rootLine = Arrays.copyOf(this.rootLine, this.rootLine.length);
+		copy.rootColumn = Arrays.copyOf(this.rootColumn, this.rootColumn.length);
+		copy.rootCount = this.rootCount;
+		copy.line = this.line;
+		copy.column = this.column;
+		
+		copy.strings = new ArrayList<String>(this.strings);
+		copy.stringIds = new HashMap<String, Integer>(this.stringIds);
+		
+		return copy;
+	}
 	
-	private CodeObject data;
+	// Returns the number of nodes created.
+	public int size() {
+		return this.size;
+	}
 	
-	public ASTNode(CodeType type, String code) {
+	// Adds a statement root after all others, starting at a source line and column.
+	public void addRoot(int node, int line, int column) {
 		
-		this.parent = null;
-		this.lChild = null;
-		this.rChild = null;
-		this.data = new CodeObject(type, code);
+		if(this.rootCount == this.root.length) {
+			this.root = Arrays.copyOf(this.root, this.root.length * 2);
+			this.rootLine = Arrays.copyOf(this.rootLine, this.root.length);
+			this.rootColumn = Arrays.copyOf(this.rootColumn, this.root.length);
+		}
 		
+		this.rootLine[this.rootCount] = line;
+		this.rootColumn[this.rootCount] = column;
+		this.root[this.rootCount++] = node;
 	}
 	
-	public CodeObject getData() {
-		return this.data;
+	// Removes every statement root, the nodes are kept so the statements can be added again in another order.
+	public void clearRoots() {
+		this.rootCount = 0;
 	}
 	
-	public void setParent(ASTNode p) {
-		this.parent = p;
+	public int getRootCount() {
+		return this.rootCount;
 	}
 	
-	public ASTNode getParent() {
-		return this.parent;
+	public int getRoot(int i) {
+		return this.root[i];
 	}
 	
-	public void setLChild(ASTNode l) {
-		this.lChild = l;
+	public void setRoot(int i, int node) {
+		this.root[i] = node;
 	}
 	
-	public ASTNode getLChild() {
-		return this.lChild;
+	public int getLastRoot() {
+		return this.root[this.rootCount - 1];
 	}
 	
-	public void setRChild(ASTNode r) {
-		this.rChild = r;
+	public int getRootLine(int i) {
+		return this.rootLine[i];
 	}
 	
-	public ASTNode getRChild() {
-		return this.rChild;
+	public int getRootColumn(int i) {
+		return this.rootColumn[i];
 	}
-}
-
-// Holds code data in an AST node.
-class CodeObject{
 	
-	// The type for the code in the node.
-	CodeType type;
+	public void setPosition(int line, int column) {
+		this.line = line;
+		this.column = column;
+	}
 	
-	String code;
+	public int getLine() {
+		return this.line;
+	}
 	
-	public CodeObject(CodeType type, String code) {
-		
-		this.type = type;
-		this.code = code;
+	public int getColumn() {
+		return this.column;
+	}
+	
+	public CodeType getCodeType(int node) {
+		return CODE_TYPES[this.type[node]];
+	}
+	
+	public void setCodeType(int node, CodeType t) {
+		this.type[node] = (byte) t.ordinal();
+	}
+	
+	public ValueKind getKind(int node) {
+		return (this.kind[node] < 0) ? null : VALUE_KINDS[this.kind[node]];
+	}
+	
+	public void setKind(int node, ValueKind k) {
+		this.kind[node] = (byte) ((k == null) ? -1 : k.ordinal());
+	}
+	
+	public String getDataType(int node) {
+		return (this.dataType[node] == NIL) ? null : this.strings.get(this.dataType[node]);
+	}
+	
+	public void setDataType(int node, String t) {
+		this.dataType[node] = (t == null) ? NIL : this.intern(t);
+	}
+	
+	public String getCode(int node) {
+		return this.strings.get(this.code[node]);
+	}
+	
+	public void setCode(int node, String s) {
+		this.code[node] = this.intern(s);
+	}
+	
+	public void setParent(int node, int p) {
+		this.parent[node] = p;
+	}
+	
+	public int getParent(int node) {
+		return this.parent[node];
 	}
 	
-	public CodeType getCodeType() {
-		return this.type;
+	public void setLChild(int node, int l) {
+		this.lChild[node] = l;
 	}
 	
-	public String getCode() {
-		return this.code;
+	public int getLChild(int node) {
+		return this.lChild[node];
 	}
 	
-	public void setCode(String s) {
-		this.code = s;
+	public void setRChild(int node, int r) {
+		this.rChild[node] = r;
 	}
 	
+	public int getRChild(int node) {
+		return this.rChild[node];
+	}
+	
+	public void setRegisterNeed(int node, int n) {
+		this.registerNeed[node] = n;
+	}
+	
+	public int getRegisterNeed(int node) {
+		return this.registerNeed[node];
+	}
+	
+	// Returns the pool id of a string, adding it to the pool if it is new.
+	private int intern(String s) {
+		
+		Integer id = this.stringIds.get(s);
+		
+		if(id == null) {
+			id = this.strings.size();
+			this.strings.add(s);
+			this.stringIds.put(s, id);
+		}
+		
+		return id;
+	}
+	
+	// Doubles the capacity of the node arrays.
+	private void grow() {
+		
+		int capacity = this.type.length * 2;
+		
+		this.type = Arrays.copyOf(this.type, capacity);
+		this.kind = Arrays.copyOf(this.kind, capacity);
+		this.code = Arrays.copyOf(this.code, capacity);
+		this.dataType = Arrays.copyOf(this.dataType, capacity);
+		this.parent = Arrays.copyOf(this.parent, capacity);
+		this.lChild = Arrays.copyOf(this.lChild, capacity);
+		this.rChild = Arrays.copyOf(this.rChild, capacity);
+		this.registerNeed = Arrays.copyOf(this.registerNeed, capacity);
+	}
 }
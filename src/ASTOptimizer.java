@@ -0,0 +1,471 @@
+//Standard Libraries
+import java.util.LinkedList;
+
+/*
+ * Simplifies the expression trees of the AST before any IR is generated. Constant subtrees are evaluated with the Little
+ * INT and FLOAT semantics, algebraic identities are removed and INT sums and products are reassociated so that all of their
+ * constants are folded into a single literal. e.g. a + 1 + 2 + b + 3 becomes a + b + 6.
+ */
+class ASTOptimizer{
+	
+	//Tiny reads a literal as a float, an INT literal of a larger magnitude loses its low bits so none is created.
+	private static final int MAX_EXACT_LITERAL = 1 << 24;
+	
+	//Digits of an INT literal that surely fits in an INT.
+	private static final int MAX_LITERAL_DIGITS = 9;
+	
+	private AST ast;
+	
+	public ASTOptimizer(AST ast) {
+		this.ast = ast;
+	}
+	
+	// Simplifies the expression of every assignment and return and both operands of every condition in the AST.
+	public void optimize() {
+		
+		for(int i = 0; i < this.ast.getRootCount(); i++) {
+			
+			int subTreeRoot = this.ast.getRoot(i);
+			
+			switch(this.ast.getCodeType(subTreeRoot)) {
+				
+				case Operator:
+					this.simplifyChild(subTreeRoot, false);
+					break;
+					
+				case Return:
+					this.simplifyChild(subTreeRoot, true);
+					break;
+					
+				case If:
+				case While:
+					this.simplifyChild(this.ast.getLChild(subTreeRoot), true);
+					this.simplifyChild(this.ast.getLChild(subTreeRoot), false);
+					break;
+					
+				default:
+					break;
+			}
+		}
+	}
+	
+	// Simplifies the expression that is a child of a node. An expression with a call is left as it is, removing or reordering
+	// its operands could drop a call or change the order of their effects.
+	private void simplifyChild(int parent, boolean isLeft) {
+		
+		int child = isLeft ? this.ast.getLChild(parent) : this.ast.getRChild(parent);
+		
+		if(child == AST.NIL || this.hasCall(child)) {
+			return;
+		}
+		
+		int expression = this.simplify(child);
+		
+		if(isLeft) {
+			this.ast.setLChild(parent, expression);
+		}
+		else {
+			this.ast.setRChild(parent, expression);
+		}
+		
+		this.ast.setParent(expression, parent);
+	}
+	
+	// Check if an expression has a call anywhere in it.
+	private boolean hasCall(int root) {
+		
+		LinkedList<Integer> stack = new LinkedList<Integer>();
+		
+		stack.push(root);
+		
+		while(!stack.isEmpty()) {
+			
+			int node = stack.pop();
+			
+			if(this.ast.getCodeType(node) == CodeType.Call) {
+				return true;
+			}
+			
+			if(this.ast.getCodeType(node) == CodeType.Operator) {
+				stack.push(this.ast.getLChild(node));
+				stack.push(this.ast.getRChild(node));
+			}
+		}
+		
+		return false;
+	}
+	
+	// Check if an expression has an INT division anywhere in it whose divisor is not a nonzero literal.
+	private boolean hasTrappingDivision(int root) {
+		
+		LinkedList<Integer> stack = new LinkedList<Integer>();
+		
+		stack.push(root);
+		
+		while(!stack.isEmpty()) {
+			
+			int node = stack.pop();
+			
+			if(this.ast.getCodeType(node) != CodeType.Operator) {
+				continue;
+			}
+			
+			int rChild = this.ast.getRChild(node);
+			
+			if(this.ast.getCode(node).equals("/") && this.ast.getDataType(node).equals("INT") && !(this.isIntLiteral(rChild) && !this.isLiteralValue(rChild, 0))) {
+				return true;
+			}
+			
+			stack.push(this.ast.getLChild(node));
+			stack.push(rChild);
+		}
+		
+		return false;
+	}
+	
+	// Simplifies an expression bottom up and returns the root of the simplified expression.
+	private int simplify(int root) {
+		
+		if(this.ast.getCodeType(root) != CodeType.Operator) {
+			return root;
+		}
+		
+		int lChild = this.simplify(this.ast.getLChild(root));
+		int rChild = this.simplify(this.ast.getRChild(root));
+		
+		this.setChildren(root, lChild, rChild);
+		
+		String operator = this.ast.getCode(root);
+		String type = this.ast.getDataType(root);
+		
+		// Both operands are constant, evaluate the operation.
+		if(this.isLiteral(lChild) && this.isLiteral(rChild)) {
+			
+			String value = this.fold(lChild, rChild, operator, type);
+			
+			if(value != null) {
+				return this.createLiteral(value, type);
+			}
+		}
+		
+		// INT arithmetic wraps around so sums and products can be reordered freely.
+		if(type.equals("INT") && !operator.equals("/")) {
+			
+			int reassociated = operator.equals("*") ? this.reassociateProduct(root) : this.reassociateSum(root);
+			
+			if(reassociated != AST.NIL) {
+				return reassociated;
+			}
+		}
+		
+		return this.removeIdentity(root, type);
+	}
+	
+	// Removes operations that do not change their operand. For FLOAT only the identities that are exact for every value
+	// are used, x + 0 and x * 0 can change the sign of a zero.
+	private int removeIdentity(int root, String type) {
+		
+		String operator = this.ast.getCode(root);
+		
+		int lChild = this.ast.getLChild(root);
+		int rChild = this.ast.getRChild(root);
+		
+		if((operator.equals("-") || (operator.equals("+") && type.equals("INT"))) && this.isLiteralValue(rChild, 0)) {
+			return lChild;
+		}
+		
+		if(operator.equals("+") && type.equals("INT") && this.isLiteralValue(lChild, 0)) {
+			return rChild;
+		}
+		
+		if((operator.equals("*") || operator.equals("/")) && this.isLiteralValue(rChild, 1)) {
+			return lChild;
+		}
+		
+		if(operator.equals("*") && this.isLiteralValue(lChild, 1)) {
+			return rChild;
+		}
+		
+		return root;
+	}
+	
+	// Flattens a chain of INT additions and subtractions into signed terms, folds all constant terms into one and cancels
+	// variables that are both added and subtracted. Returns NIL when the chain has a non INT term.
+	private int reassociateSum(int root) {
+		
+		LinkedList<Integer> positives = new LinkedList<Integer>();
+		LinkedList<Integer> negatives = new LinkedList<Integer>();
+		
+		if(!this.flattenSum(root, true, positives, negatives)) {
+			return AST.NIL;
+		}
+		
+		int constant = 0;
+		boolean isExact = true;
+		
+		// Fold the constant terms.
+		for(Integer term: new LinkedList<Integer>(positives)) {
+			if(this.isLiteral(term)) {
+				constant += Integer.parseInt(this.ast.getCode(term));
+				isExact = isExact && this.isExact(Integer.parseInt(this.ast.getCode(term))) && this.isExact(constant);
+				positives.remove(term);
+			}
+		}
+		
+		for(Integer term: new LinkedList<Integer>(negatives)) {
+			if(this.isLiteral(term)) {
+				constant -= Integer.parseInt(this.ast.getCode(term));
+				isExact = isExact && this.isExact(Integer.parseInt(this.ast.getCode(term))) && this.isExact(constant);
+				negatives.remove(term);
+			}
+		}
+		
+		if(!isExact) {
+			return AST.NIL;
+		}
+		
+		// Cancel x - x.
+		for(Integer term: new LinkedList<Integer>(negatives)) {
+			
+			for(Integer positive: positives) {
+				
+				if(this.ast.getCodeType(positive) == CodeType.RValue && this.ast.getCode(positive).equals(this.ast.getCode(term))) {
+					
+					positives.remove(positive);
+					negatives.remove(term);
+					break;
+				}
+			}
+		}
+		
+		// Rebuild the sum, added terms first then subtracted terms and the constant last.
+		int result = AST.NIL;
+		
+		for(int term: positives) {
+			result = (result == AST.NIL) ? term : this.createOperator("+", result, term);
+		}
+		
+		if(result == AST.NIL) {
+			result = this.createLiteral(Integer.toString(constant), "INT");
+			constant = 0;
+		}
+		
+		for(int term: negatives) {
+			result = this.createOperator("-", result, term);
+		}
+		
+		if(constant < 0 && constant != Integer.MIN_VALUE) {
+			result = this.createOperator("-", result, this.createLiteral(Integer.toString(-constant), "INT"));
+		}
+		else if(constant != 0) {
+			result = this.createOperator("+", result, this.createLiteral(Integer.toString(constant), "INT"));
+		}
+		
+		return result;
+	}
+	
+	// Collects the terms of an INT sum into the added and subtracted lists. Returns false if a term is not INT.
+	private boolean flattenSum(int node, boolean isAdded, LinkedList<Integer> positives, LinkedList<Integer> negatives) {
+		
+		String code = this.ast.getCode(node);
+		
+		if(this.ast.getCodeType(node) == CodeType.Operator && (code.equals("+") || code.equals("-"))) {
+			
+			return this.flattenSum(this.ast.getLChild(node), isAdded, positives, negatives) &&
+					this.flattenSum(this.ast.getRChild(node), code.equals("+") ? isAdded : !isAdded, positives, negatives);
+		}
+		
+		if(!"INT".equals(this.ast.getDataType(node)) || (this.isLiteral(node) && !this.isIntLiteral(node))) {
+			return false;
+		}
+		
+		if(isAdded) {
+			positives.add(node);
+		}
+		else {
+			negatives.add(node);
+		}
+		
+		return true;
+	}
+	
+	// Flattens a chain of INT multiplications and folds all constant factors into one. Returns NIL when the chain has a non
+	// INT factor.
+	private int reassociateProduct(int root) {
+		
+		LinkedList<Integer> factors = new LinkedList<Integer>();
+		
+		if(!this.flattenProduct(root, factors)) {
+			return AST.NIL;
+		}
+		
+		int constant = 1;
+		boolean isExact = true;
+		
+		for(int factor: factors) {
+			if(this.isLiteral(factor)) {
+				constant *= Integer.parseInt(this.ast.getCode(factor));
+				isExact = isExact && this.isExact(Integer.parseInt(this.ast.getCode(factor))) && this.isExact(constant);
+			}
+		}
+		
+		if(!isExact) {
+			return AST.NIL;
+		}
+		
+		int result = AST.NIL;
+		
+		for(int factor: factors) {
+			if(!this.isLiteral(factor)) {
+				result = (result == AST.NIL) ? factor : this.createOperator("*", result, factor);
+			}
+		}
+		
+		// x * 0, the other factors can be dropped when none of them can stop the program, an INT division by a divisor that
+		// may be zero traps at run time and is kept as x * 0.
+		if(result == AST.NIL || (constant == 0 && !this.hasTrappingDivision(result))) {
+			return this.createLiteral(Integer.toString(constant), "INT");
+		}
+		
+		if(constant != 1) {
+			result = this.createOperator("*", result, this.createLiteral(Integer.toString(constant), "INT"));
+		}
+		
+		return result;
+	}
+	
+	// Collects the factors of an INT product. Returns false if a factor is not INT.
+	private boolean flattenProduct(int node, LinkedList<Integer> factors) {
+		
+		if(this.ast.getCodeType(node) == CodeType.Operator && this.ast.getCode(node).equals("*")) {
+			
+			return this.flattenProduct(this.ast.getLChild(node), factors) && this.flattenProduct(this.ast.getRChild(node), factors);
+		}
+		
+		if(!"INT".equals(this.ast.getDataType(node)) || (this.isLiteral(node) && !this.isIntLiteral(node))) {
+			return false;
+		}
+		
+		factors.add(node);
+		
+		return true;
+	}
+	
+	// Evaluates an operation on two literals. Returns null when the result can not be computed at compile time, a division
+	// by zero, an INT literal out of range or a FLOAT result that is not finite.
+	private String fold(int lChild, int rChild, String operator, String type) {
+		
+		if(type.equals("INT")) {
+			
+			if(!this.isIntLiteral(lChild) || !this.isIntLiteral(rChild)) {
+				return null;
+			}
+			
+			int val1 = Integer.parseInt(this.ast.getCode(lChild));
+			int val2 = Integer.parseInt(this.ast.getCode(rChild));
+			
+			if(val2 == 0 && operator.equals("/") || !this.isExact(val1) || !this.isExact(val2)) {
+				return null;
+			}
+			
+			int result = 0;
+			
+			switch(operator) {
+				case "+":
+					result = val1 + val2;
+					break;
+				case "-":
+					result = val1 - val2;
+					break;
+				case "*":
+					result = val1 * val2;
+					break;
+				case "/":
+					result = val1 / val2;
+					break;
+			}
+			
+			return this.isExact(result) ? Integer.toString(result) : null;
+		}
+		
+		// FLOAT values are single precision in tiny, a literal too large for a float reads as infinity.
+		float val1 = Float.parseFloat(this.ast.getCode(lChild));
+		float val2 = Float.parseFloat(this.ast.getCode(rChild));
+		float result = 0;
+		
+		switch(operator) {
+			case "+":
+				result = val1 + val2;
+				break;
+			case "-":
+				result = val1 - val2;
+				break;
+			case "*":
+				result = val1 * val2;
+				break;
+			case "/":
+				result = val1 / val2;
+				break;
+		}
+		
+		return Float.isFinite(result) ? Float.toString(result) : null;
+	}
+	
+	// Check if an INT value is read back exactly from a tiny literal.
+	private boolean isExact(int value) {
+		return value >= -MAX_EXACT_LITERAL && value <= MAX_EXACT_LITERAL;
+	}
+	
+	// Creates an operator node with the given operands, the operation has the type of its left operand.
+	private int createOperator(String operator, int lChild, int rChild) {
+		
+		int node = this.ast.addNode(CodeType.Operator, operator);
+		
+		this.ast.setDataType(node, this.ast.getDataType(lChild));
+		
+		this.setChildren(node, lChild, rChild);
+		
+		return node;
+	}
+	
+	// Creates a literal node for a folded value.
+	private int createLiteral(String value, String type) {
+		
+		int node = this.ast.addNode(CodeType.RValue, value);
+		
+		this.ast.setKind(node, type.equals("INT") ? ValueKind.IntLiteral : ValueKind.FloatLiteral);
+		this.ast.setDataType(node, type);
+		
+		return node;
+	}
+	
+	// Sets both children of a node and their parent.
+	private void setChildren(int node, int lChild, int rChild) {
+		
+		this.ast.setLChild(node, lChild);
+		this.ast.setRChild(node, rChild);
+		this.ast.setParent(lChild, node);
+		this.ast.setParent(rChild, node);
+	}
+	
+	// Check if a node is an INT or FLOAT literal.
+	private boolean isLiteral(int node) {
+		
+		return this.ast.getCodeType(node) == CodeType.RValue && this.ast.getKind(node) != ValueKind.Identifier;
+	}
+	
+	// Check if a node is an INT literal of few enough digits to fit in an INT, its kind is set by the lexer or the fold.
+	private boolean isIntLiteral(int node) {
+		
+		String code = this.ast.getCode(node);
+		
+		return this.isLiteral(node) && this.ast.getKind(node) == ValueKind.IntLiteral &&
+				code.length() - (code.startsWith("-") ? 1 : 0) <= MAX_LITERAL_DIGITS;
+	}
+	
+	// Check if a node is a literal with the given value.
+	private boolean isLiteralValue(int node, int value) {
+		
+		return this.isLiteral(node) && Float.parseFloat(this.ast.getCode(node)) == value;
+	}
+}
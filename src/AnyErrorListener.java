@@ -0,0 +1,12 @@
+//ANTLR runtime libraries:
+import org.antlr.v4.runtime.*;
+
+//Class to change the standard ANTLR error handling, catches parser errors.
+class AnyErrorListener extends BaseErrorListener{
+	
+	//Overrides the syntaxError method to throw an exception that is not caught by ANTLR and will be identified by the Driver class.
+	@Override
+	public void syntaxError(Recognizer<?,?> recognizer, Object offendingSymbol, int line, int charPositionLine, String msg, RecognitionException e){
+		throw new RuntimeException(e);
+	}
+}
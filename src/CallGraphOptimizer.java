@@ -0,0 +1,779 @@
+//Standard Libraries
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+
+/*
+ * Whole program optimizations on the units of a program before any of them is compiled, on the call graph of the call nodes
+ * in their ASTs. The program calls main, a function main can not reach is removed with its symbol tables. A parameter that
+ * every call passes the same literal is replaced by the literal in the function, and a call of a function with no effects
+ * that returns the same literal on every path is replaced by the literal. A small function that some calls pass literals is
+ * cloned for the literals passed most often, the clone has the literals in place of its parameters and those calls call the
+ * clone. Every call still pushes all of its arguments so no frame changes, the literals are folded by the AST simplification.
+ * With a profile of an earlier run only the functions called in that run are cloned, for the literals passed by the calls
+ * in functions that ran. A program with no main is left as it is.
+ */
+class CallGraphOptimizer{
+	
+	//A function is cloned when its AST has at most this many nodes, at most this many times.
+	private static final int MAX_CLONE_SIZE = 200;
+	
+	private static final int MAX_CLONES = 3;
+	
+	//Units in program order.
+	private ArrayList<FunctionUnit> units;
+	
+	//Unit of each function by name.
+	private HashMap<String, FunctionUnit> functions;
+	
+	//Profile of an earlier run choosing the functions to clone, null when there is none.
+	private ExecutionProfile profile;
+	
+	public CallGraphOptimizer(ArrayList<FunctionUnit> units, ExecutionProfile profile) {
+		
+		this.units = units;
+		this.profile = profile;
+		this.functions = new HashMap<String, FunctionUnit>();
+		
+		for(FunctionUnit unit: units) {
+			this.functions.put(unit.getScope(), unit);
+		}
+	}
+	
+	//Removes the functions main can not reach and returns the units left.
+	public ArrayList<FunctionUnit> eliminateDeadFunctions() {
+		
+		HashSet<String> reached = this.findReachable();
+		
+		if(reached == null) {
+			return this.units;
+		}
+		
+		ArrayList<FunctionUnit> live = new ArrayList<FunctionUnit>();
+		
+		for(FunctionUnit unit: this.units) {
+			
+			if(unit.getScope().equals("GLOBAL") || reached.contains(unit.getScope())) {
+				live.add(unit);
+			}
+		}
+		
+		return this.link(live);
+	}
+	
+	//Replaces the parameters every call passes the same literal and the calls of functions with a constant result, until
+	//neither finds any more. A replaced call can leave the arguments of other calls literals.
+	public ArrayList<FunctionUnit> propagateConstants() {
+		
+		HashSet<String> reached = this.findReachable();
+		
+		if(reached == null) {
+			return this.units;
+		}
+		
+		boolean isChanged = true;
+		
+		while(isChanged) {
+			
+			LinkedHashMap<String, ArrayList<CallSite>> sites = this.findCallSites(reached);
+			
+			int replaced = this.substituteArguments(sites);
+			
+			replaced += this.replaceConstantResults(sites);
+			
+			isChanged = replaced > 0;
+		}
+		
+		return this.units;
+	}
+	
+	//Clones the small functions that calls pass literals in different ways, a clone is placed after its function and named
+	//by it and a number, f.1, which no Little identifier can be.
+	public ArrayList<FunctionUnit> cloneFunctions() {
+		
+		HashSet<String> reached = this.findReachable();
+		
+		if(reached == null) {
+			return this.units;
+		}
+		
+		LinkedHashMap<String, ArrayList<CallSite>> sites = this.findCallSites(reached);
+		
+		ArrayList<FunctionUnit> cloned = new ArrayList<FunctionUnit>();
+		
+		for(FunctionUnit unit: this.units) {
+			
+			cloned.add(unit);
+			
+			String function = unit.getScope();
+			
+			if(function.equals("GLOBAL") || function.equals("main") || !sites.containsKey(function) || !this.isClonable(unit)) {
+				continue;
+			}
+			
+			//A function that did not run in the profiled run gains nothing from a clone. It may have run without being called,
+			//a tail call jumps to it.
+			if(this.profile != null && this.profile.getFunctionInstructions(function) == 0) {
+				continue;
+			}
+			
+			cloned.addAll(this.specialize(unit, this.getHotSites(sites.get(function))));
+		}
+		
+		return this.link(cloned);
+	}
+	
+	//Functions called by each function of the units, by the calls in its AST. The IR generation replaces the calls of an AST
+	//so the call graph of a unit has to be taken before.
+	public HashMap<String, HashSet<String>> getCallGraph() {
+		
+		HashMap<String, HashSet<String>> callGraph = new HashMap<String, HashSet<String>>();
+		
+		for(FunctionUnit unit: this.units) {
+			
+			HashSet<String> callees = new HashSet<String>();
+			
+			for(CallSite site: this.findCalls(unit)) {
+				callees.add(site.getFunction());
+			}
+			
+			callGraph.put(unit.getScope(), callees);
+		}
+		
+		return callGraph;
+	}
+	
+	//Functions main reaches in a call graph, main with them. Null when the program has no main.
+	public static HashSet<String> findReachable(HashMap<String, HashSet<String>> callGraph) {
+		
+		if(!callGraph.containsKey("main")) {
+			return null;
+		}
+		
+		HashSet<String> reached = new HashSet<String>();
+		LinkedList<String> work = new LinkedList<String>();
+		
+		reached.add("main");
+		work.add("main");
+		
+		while(!work.isEmpty()) {
+			
+			HashSet<String> callees = callGraph.get(work.pop());
+			
+			//A call of a function that is not declared.
+			if(callees == null) {
+				continue;
+			}
+			
+			for(String callee: callees) {
+				
+				if(reached.add(callee)) {
+					work.add(callee);
+				}
+			}
+		}
+		
+		return reached;
+	}
+	
+	//Functions main reaches by calls, main with them. Null when the program has no main.
+	private HashSet<String> findReachable() {
+		
+		return findReachable(this.getCallGraph());
+	}
+	
+	//Calls made by the functions main reaches, by the function called in program order.
+	private LinkedHashMap<String, ArrayList<CallSite>> findCallSites(HashSet<String> reached) {
+		
+		LinkedHashMap<String, ArrayList<CallSite>> sites = new LinkedHashMap<String, ArrayList<CallSite>>();
+		
+		for(FunctionUnit unit: this.units) {
+			
+			if(!reached.contains(unit.getScope())) {
+				continue;
+			}
+			
+			for(CallSite site: this.findCalls(unit)) {
+				
+				if(!sites.containsKey(site.getFunction())) {
+					sites.put(site.getFunction(), new ArrayList<CallSite>());
+				}
+				
+				sites.get(site.getFunction()).add(site);
+			}
+		}
+		
+		return sites;
+	}
+	
+	//Calls in the statements of a unit.
+	private ArrayList<CallSite> findCalls(FunctionUnit unit) {
+		
+		ArrayList<CallSite> calls = new ArrayList<CallSite>();
+		
+		for(int node: this.findNodes(unit.getAST())) {
+			
+			if(unit.getAST().getCodeType(node) == CodeType.Call) {
+				calls.add(new CallSite(unit.getAST(), node, unit.getScope()));
+			}
+		}
+		
+		return calls;
+	}
+	
+	//Calls made by functions that ran in the profiled run, all of them when there is no profile. The calls in functions
+	//that did not run keep calling the function.
+	private ArrayList<CallSite> getHotSites(ArrayList<CallSite> sites) {
+		
+		if(this.profile == null) {
+			return sites;
+		}
+		
+		ArrayList<CallSite> hot = new ArrayList<CallSite>();
+		
+		for(CallSite site: sites) {
+			
+			if(this.profile.getFunctionInstructions(site.getCaller()) > 0) {
+				hot.add(site);
+			}
+		}
+		
+		return hot;
+	}
+	
+	//Nodes of the statements of an AST, each root followed by its subtree in pre order.
+	private ArrayList<Integer> findNodes(AST ast) {
+		
+		ArrayList<Integer> nodes = new ArrayList<Integer>();
+		LinkedList<Integer> stack = new LinkedList<Integer>();
+		
+		for(int i = 0; i < ast.getRootCount(); i++) {
+			
+			stack.push(ast.getRoot(i));
+			
+			while(!stack.isEmpty()) {
+				
+				int node = stack.pop();
+				
+				nodes.add(node);
+				
+				if(ast.getRChild(node) != AST.NIL) {
+					stack.push(ast.getRChild(node));
+				}
+				
+				if(ast.getLChild(node) != AST.NIL) {
+					stack.push(ast.getLChild(node));
+				}
+			}
+		}
+		
+		return nodes;
+	}
+	
+	//Replaces each parameter that every call passes the same literal and the function never writes. Returns the number of
+	//reads replaced.
+	private int substituteArguments(LinkedHashMap<String, ArrayList<CallSite>> sites) {
+		
+		int replaced = 0;
+		
+		for(String function: sites.keySet()) {
+			
+			FunctionUnit unit = this.functions.get(function);
+			
+			if(unit == null || function.equals("main")) {
+				continue;
+			}
+			
+			ArrayList<SymbolAttibutes> parameters = this.getParameters(unit);
+			
+			for(int i = 0; i < parameters.size(); i++) {
+				
+				String literal = null;
+				
+				for(CallSite site: sites.get(function)) {
+					
+					ArrayList<Integer> arguments = site.getArguments();
+					
+					String argument = (arguments.size() == parameters.size()) ? this.getLiteral(site.getAST(), arguments.get(i), parameters.get(i).getType()) : null;
+					
+					if(argument == null || (literal != null && !literal.equals(argument))) {
+						literal = null;
+						break;
+					}
+					
+					literal = argument;
+				}
+				
+				if(literal != null && !this.isWritten(unit.getAST(), parameters.get(i).getStorage())) {
+					replaced += this.replaceReads(unit.getAST(), parameters.get(i), literal);
+				}
+			}
+		}
+		
+		return replaced;
+	}
+	
+	//Replaces the calls of each function with a constant result by the result, when its arguments have no effects either.
+	//Returns the number of calls replaced.
+	private int replaceConstantResults(LinkedHashMap<String, ArrayList<CallSite>> sites) {
+		
+		int replaced = 0;
+		
+		for(String function: sites.keySet()) {
+			
+			FunctionUnit unit = this.functions.get(function);
+			
+			if(unit == null || function.equals("main")) {
+				continue;
+			}
+			
+			int result = this.getConstantResult(unit);
+			
+			if(result == AST.NIL) {
+				continue;
+			}
+			
+			AST resultAST = unit.getAST();
+			
+			for(CallSite site: sites.get(function)) {
+				
+				AST ast = site.getAST();
+				int call = site.getCall();
+				
+				//A call of an unknown type takes the type of the result, one of another type reads the slot as that type.
+				if(ast.getDataType(call) != null && !ast.getDataType(call).equals(resultAST.getDataType(result))) {
+					continue;
+				}
+				
+				if(!this.hasNoEffects(ast, call)) {
+					continue;
+				}
+				
+				ast.setCodeType(call, CodeType.RValue);
+				ast.setKind(call, resultAST.getKind(result));
+				ast.setCode(call, resultAST.getCode(result));
+				ast.setDataType(call, resultAST.getDataType(result));
+				ast.setLChild(call, AST.NIL);
+				
+				replaced++;
+			}
+		}
+		
+		return replaced;
+	}
+	
+	//Literal returned by a function on every path, the value node of its returns, when the function reads nothing but its
+	//parameters and locals, writes nothing but them and always returns. NIL when it has no constant result.
+	private int getConstantResult(FunctionUnit unit) {
+		
+		AST ast = unit.getAST();
+		
+		if(ast.getRootCount() == 0) {
+			return AST.NIL;
+		}
+		
+		//The last statement is a return outside any if, every path reaches a return.
+		int depth = 0;
+		
+		for(int i = 0; i < ast.getRootCount(); i++) {
+			
+			CodeType type = ast.getCodeType(ast.getRoot(i));
+			
+			if(type == CodeType.If) {
+				depth++;
+			}
+			else if(type == CodeType.EndIf) {
+				depth--;
+			}
+		}
+		
+		int last = ast.getLastRoot();
+		
+		if(depth != 0 || ast.getCodeType(last) != CodeType.Return) {
+			return AST.NIL;
+		}
+		
+		int result = ast.getLChild(last);
+		
+		if(this.getLiteral(ast, result, ast.getDataType(last)) == null) {
+			return AST.NIL;
+		}
+		
+		for(int i = 0; i < ast.getRootCount(); i++) {
+			
+			int root = ast.getRoot(i);
+			
+			switch(ast.getCodeType(root)) {
+				
+				case Read:
+				case Write:
+				case While:
+					return AST.NIL;
+					
+				case Return:
+					if(!ast.getCode(ast.getLChild(root)).equals(ast.getCode(result)) || ast.getKind(ast.getLChild(root)) != ast.getKind(result) ||
+							ast.getCodeType(ast.getLChild(root)) != CodeType.RValue || !ast.getDataType(root).equals(ast.getDataType(last))) {
+						return AST.NIL;
+					}
+					break;
+					
+				case Operator:
+					if(!ast.getCode(ast.getLChild(root)).startsWith("$") || !this.hasNoEffects(ast, root)) {
+						return AST.NIL;
+					}
+					break;
+					
+				default:
+					if(!this.hasNoEffects(ast, root)) {
+						return AST.NIL;
+					}
+					break;
+			}
+		}
+		
+		return result;
+	}
+	
+	//Check if an expression has no call in it below its root and no division, which stops the program when it divides by zero.
+	private boolean hasNoEffects(AST ast, int expression) {
+		
+		LinkedList<Integer> stack = new LinkedList<Integer>();
+		
+		stack.push(expression);
+		
+		while(!stack.isEmpty()) {
+			
+			int node = stack.pop();
+			
+			if((node != expression && ast.getCodeType(node) == CodeType.Call) || (ast.getCodeType(node) == CodeType.Operator && ast.getCode(node).equals("/"))) {
+				return false;
+			}
+			
+			if(ast.getLChild(node) != AST.NIL) {
+				stack.push(ast.getLChild(node));
+			}
+			
+			if(ast.getRChild(node) != AST.NIL) {
+				stack.push(ast.getRChild(node));
+			}
+		}
+		
+		return true;
+	}
+	
+	//Check if a function is small enough to clone and has only parameters and locals, a global or string declared in it
+	//would be declared again by the clone.
+	private boolean isClonable(FunctionUnit unit) {
+		
+		if(unit.getAST().size() > MAX_CLONE_SIZE) {
+			return false;
+		}
+		
+		for(SymbolTable symTab: unit.getSymbolTables()) {
+			
+			for(String symbol: symTab.getSymbols()) {
+				
+				if(symTab.getSymbolData(symbol).getStorage() == null || symTab.getSymbolData(symbol).getType().equals("STRING")) {
+					return false;
+				}
+			}
+		}
+		
+		return true;
+	}
+	
+	//Clones a function for the literals its calls pass most often, the calls are grouped by the literals they pass to the
+	//parameters that can be folded. When all of them pass the same there is nothing to clone. Returns the clones.
+	private ArrayList<FunctionUnit> specialize(FunctionUnit unit, ArrayList<CallSite> sites) {
+		
+		ArrayList<FunctionUnit> clones = new ArrayList<FunctionUnit>();
+		
+		ArrayList<SymbolAttibutes> parameters = this.getParameters(unit);
+		
+		//Parameters never written and read by an operator or passed to a call, a literal in their place can be folded. The
+		//recursive calls pass each of them on as it is, so the recursive calls of a clone can call the clone.
+		boolean[] isFoldable = new boolean[parameters.size()];
+		
+		for(int i = 0; i < parameters.size(); i++) {
+			isFoldable[i] = !this.isWritten(unit.getAST(), parameters.get(i).getStorage()) && this.isFoldedRead(unit.getAST(), parameters.get(i).getStorage());
+		}
+		
+		for(CallSite site: this.findCalls(unit)) {
+			
+			if(!site.getFunction().equals(unit.getScope())) {
+				continue;
+			}
+			
+			ArrayList<Integer> arguments = site.getArguments();
+			
+			for(int i = 0; i < parameters.size(); i++) {
+				
+				int argument = (i < arguments.size()) ? arguments.get(i) : AST.NIL;
+				
+				if(argument == AST.NIL || unit.getAST().getCodeType(argument) != CodeType.RValue || !unit.getAST().getCode(argument).equals(parameters.get(i).getStorage())) {
+					isFoldable[i] = false;
+				}
+			}
+		}
+		
+		//Calls by the literals they pass, "-" for an argument that is not one, in the order they are first passed.
+		LinkedHashMap<String, ArrayList<CallSite>> groups = new LinkedHashMap<String, ArrayList<CallSite>>();
+		HashMap<String, String[]> literals = new HashMap<String, String[]>();
+		
+		for(CallSite site: sites) {
+			
+			ArrayList<Integer> arguments = site.getArguments();
+			
+			if(arguments.size() != parameters.size()) {
+				return clones;
+			}
+			
+			String[] passed = new String[parameters.size()];
+			String signature = "";
+			
+			for(int i = 0; i < parameters.size(); i++) {
+				
+				passed[i] = isFoldable[i] ? this.getLiteral(site.getAST(), arguments.get(i), parameters.get(i).getType()) : null;
+				
+				signature += ((passed[i] == null) ? "-" : passed[i]) + " ";
+			}
+			
+			if(!groups.containsKey(signature)) {
+				groups.put(signature, new ArrayList<CallSite>());
+				literals.put(signature, passed);
+			}
+			
+			groups.get(signature).add(site);
+		}
+		
+		if(groups.size() == 1) {
+			return clones;
+		}
+		
+		//Most calls first, a stable sort keeps the groups of as many calls in the order they are first passed.
+		ArrayList<String> signatures = new ArrayList<String>(groups.keySet());
+		
+		final LinkedHashMap<String, ArrayList<CallSite>> callsOf = groups;
+		
+		Collections.sort(signatures, new Comparator<String>() {
+			
+			@Override
+			public int compare(String a, String b) {
+				return Integer.compare(callsOf.get(b).size(), callsOf.get(a).size());
+			}
+		});
+		
+		int number = 0;
+		
+		for(String signature: signatures) {
+			
+			if(clones.size() == MAX_CLONES) {
+				break;
+			}
+			
+			if(signature.replace("- ", "").isEmpty()) {
+				continue;
+			}
+			
+			String name;
+			
+			do {
+				name = unit.getScope() + "." + ++number;
+			}while(this.functions.containsKey(name));
+			
+			FunctionUnit clone = this.copyFunction(unit, name);
+			
+			for(int i = 0; i < parameters.size(); i++) {
+				
+				if(literals.get(signature)[i] != null) {
+					this.replaceReads(clone.getAST(), parameters.get(i), literals.get(signature)[i]);
+				}
+			}
+			
+			//The recursive calls of the clone pass the same literals.
+			for(CallSite site: this.findCalls(clone)) {
+				
+				if(site.getFunction().equals(unit.getScope())) {
+					site.getAST().setCode(site.getCall(), name);
+				}
+			}
+			
+			clones.add(clone);
+			
+			for(CallSite site: groups.get(signature)) {
+				site.getAST().setCode(site.getCall(), name);
+			}
+		}
+		
+		return clones;
+	}
+	
+	//Copy of a function under another name, its AST and the symbol table of its scope are its own, the symbol tables of its
+	//blocks and the attributes of its symbols are shared.
+	private FunctionUnit copyFunction(FunctionUnit unit, String name) {
+		
+		LinkedList<SymbolTable> symTabs = new LinkedList<SymbolTable>(unit.getSymbolTables());
+		
+		SymbolTable original = symTabs.removeFirst();
+		SymbolTable scope = new SymbolTable(name);
+		
+		for(String symbol: original.getSymbols()) {
+			scope.addSymbol(symbol, original.getSymbolData(symbol));
+		}
+		
+		symTabs.addFirst(scope);
+		
+		FunctionUnit clone = new FunctionUnit(symTabs, unit.getAST().copy());
+		
+		this.functions.put(name, clone);
+		
+		return clone;
+	}
+	
+	//Attributes of the parameters of a function in order, they are declared first in its scope and have the positive slots.
+	private ArrayList<SymbolAttibutes> getParameters(FunctionUnit unit) {
+		
+		ArrayList<SymbolAttibutes> parameters = new ArrayList<SymbolAttibutes>();
+		
+		SymbolTable symTab = unit.getSymbolTables().getFirst();
+		
+		for(String symbol: symTab.getSymbols()) {
+			
+			String storage = symTab.getSymbolData(symbol).getStorage();
+			
+			if(storage != null && !storage.startsWith("$-")) {
+				parameters.add(symTab.getSymbolData(symbol));
+			}
+		}
+		
+		return parameters;
+	}
+	
+	//Literal an argument is when it can stand for a parameter of a type, null when it is not a literal of that type.
+	private String getLiteral(AST ast, int expression, String type) {
+		
+		if(ast.getCodeType(expression) != CodeType.RValue) {
+			return null;
+		}
+		
+		ValueKind kind = type.equals("INT") ? ValueKind.IntLiteral : ValueKind.FloatLiteral;
+		
+		return (ast.getKind(expression) == kind) ? ast.getCode(expression) : null;
+	}
+	
+	//Check if a variable is assigned or read into anywhere in an AST.
+	private boolean isWritten(AST ast, String storage) {
+		
+		for(int node: this.findNodes(ast)) {
+			
+			if((ast.getCodeType(node) == CodeType.LValue || ast.getCodeType(node) == CodeType.Read) && ast.getCode(node).equals(storage)) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	//Check if a variable is an operand of an operator other than an assignment or an argument of a call.
+	private boolean isFoldedRead(AST ast, String storage) {
+		
+		for(int node: this.findNodes(ast)) {
+			
+			if(ast.getCodeType(node) != CodeType.RValue || ast.getKind(node) != ValueKind.Identifier || !ast.getCode(node).equals(storage)) {
+				continue;
+			}
+			
+			int parent = ast.getParent(node);
+			
+			if(parent != AST.NIL && (ast.getCodeType(parent) == CodeType.Argument || (ast.getCodeType(parent) == CodeType.Operator && !ast.getCode(parent).equals(":=")))) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	//Replaces the reads of a parameter in the expressions of an AST by a literal, a write statement still writes the
+	//parameter. Returns the number of reads replaced.
+	private int replaceReads(AST ast, SymbolAttibutes parameter, String literal) {
+		
+		int replaced = 0;
+		
+		for(int node: this.findNodes(ast)) {
+			
+			if(ast.getCodeType(node) == CodeType.RValue && ast.getKind(node) == ValueKind.Identifier && ast.getCode(node).equals(parameter.getStorage())) {
+				
+				ast.setKind(node, parameter.getType().equals("INT") ? ValueKind.IntLiteral : ValueKind.FloatLiteral);
+				ast.setCode(node, literal);
+				
+				replaced++;
+			}
+		}
+		
+		return replaced;
+	}
+	
+	//Takes units in a new order as the units of the program. Returns the units.
+	private ArrayList<FunctionUnit> link(ArrayList<FunctionUnit> units) {
+		
+		this.functions.clear();
+		
+		for(FunctionUnit unit: units) {
+			this.functions.put(unit.getScope(), unit);
+		}
+		
+		this.units = units;
+		
+		return units;
+	}
+}
+
+//A call node in the AST of a unit.
+class CallSite{
+	
+	private AST ast;
+	
+	private int call;
+	
+	//Function making the call.
+	private String caller;
+	
+	public CallSite(AST ast, int call, String caller) {
+		this.ast = ast;
+		this.call = call;
+		this.caller = caller;
+	}
+	
+	public AST getAST() {
+		return this.ast;
+	}
+	
+	public int getCall() {
+		return this.call;
+	}
+	
+	public String getCaller() {
+		return this.caller;
+	}
+	
+	//Returns the name of the function called.
+	public String getFunction() {
+		return this.ast.getCode(this.call);
+	}
+	
+	//Returns the expressions of the arguments in order.
+	public ArrayList<Integer> getArguments() {
+		
+		ArrayList<Integer> arguments = new ArrayList<Integer>();
+		
+		for(int argument = this.ast.getLChild(this.call); argument != AST.NIL; argument = this.ast.getRChild(argument)) {
+			arguments.add(this.ast.getLChild(argument));
+		}
+		
+		return arguments;
+	}
+}
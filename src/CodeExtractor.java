@@ -1,11 +1,19 @@
 //Standard Libraries
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.Stack;
+import java.util.concurrent.BlockingQueue;
+
+//ANTLR runtime libraries:
+import org.antlr.v4.runtime.Token;
 
 /* 
  * An extension of the ANTLR listener class for the Little grammar. This class overrides parser rules associated with symbols, assignments,
- * simple expressions, and syscalls. This class implements the symbol table construction, expressions, assignment, and syscall semantic actions
- *  and accordingly uses a symbol table, ASTs, and a queue of generated code.
+ * expressions, calls, control flow and syscalls. This class implements the symbol table construction, expressions, assignment, and syscall semantic actions
+ *  and accordingly uses a symbol table, ASTs, and a queue of generated code. Each function is handed to the later phases as
+ *  soon as it has been extracted, as a unit of its symbol tables and AST. Parameters and locals are given a slot in the
+ *  stack frame of their function, nodes name a variable by its storage. Each statement keeps the source line and column it
+ *  starts at.
  */
 class CodeExtractor extends LittleBaseListener {
 	
@@ -18,19 +26,51 @@ class CodeExtractor extends LittleBaseListener {
 	// Queue of symbol tables, new table created per scope. Used to output symbol tables in order they are made.
 	private LinkedList<SymbolTable> symbolTables;
 	
-	// Holds generated AST.
+	// Holds the AST of the function being extracted.
 	private AST tree;
 	
+	// Symbol tables of the function being extracted, the function scope then its blocks.
+	private LinkedList<SymbolTable> unitSymbolTables;
+	
+	// Queue the extracted units are handed to, the global declarations first then each function in order.
+	private BlockingQueue<FunctionUnit> units;
+	
+	// Expression nodes not yet combined into an operator or taken by their statement, the innermost operands on top.
+	private Stack<Integer> operands;
+	
+	// Return type of each function declared so far, by name.
+	private HashMap<String, String> functionTypes;
+	
+	// Return type of the function being extracted.
+	private String functionType;
+	
+	// Stack reference of the slot the caller reserves for the return value of the function being extracted.
+	private String returnSlot;
+	
+	// Number of local variables of the function being extracted, each has a slot in its stack frame.
+	private int localCount = 0;
+	
 	// Counts the number of block statement scopes encountered.
 	private int blockCounter = 0;
 	
-	// Constructor tracks symbol tables and builds an AST with a root that has no children.
-	public CodeExtractor() {
-
+	// Source line and column of the statement being extracted, from 1.
+	private int line = 0;
+	
+	private int column = 0;
+	
+	// Constructor tracks symbol tables, an AST is built for each function.
+	public CodeExtractor(BlockingQueue<FunctionUnit> units) {
+		
 		this.symbolTableStack = new Stack<SymbolTable>();
 		this.currentSymbolTable = null;
 		this.symbolTables = new LinkedList<SymbolTable>();
-		this.tree = new AST();
+		this.tree = null;
+		this.unitSymbolTables = null;
+		this.operands = new Stack<Integer>();
+		this.functionTypes = new HashMap<String, String>();
+		this.functionType = null;
+		this.returnSlot = null;
+		this.units = units;
 	}
 	
 	// Returns all the symbol tables in scope order.
@@ -38,20 +78,12 @@ class CodeExtractor extends LittleBaseListener {
 		return this.symbolTables;
 	}
 	
-	// Returns the AST all relevant expressions can be accessed from here.
-	public AST getAST(){
-		return this.tree;
-	}
-	
 	
 	// Enters at the start rule program for extraction. A new symbol table of scope global is created and queued.
 	@Override
 	public void enterProgram(LittleParser.ProgramContext ctx) {
-		
-		this.symbolTableStack.push(new SymbolTable("GLOBAL"));
-		this.currentSymbolTable = symbolTableStack.peek();
-		this.symbolTables.addLast(this.currentSymbolTable);
-		
+		this.setPosition(ctx.getStart());
+		this.startProgram();
 	}
 	
 	// Exits the entry point (the start rule) now all symbol tables in the queue will be output.
@@ -67,15 +99,19 @@ class CodeExtractor extends LittleBaseListener {
 	// Used to enter the deceleration branches of the tree and exit as needed items are under these nodes.
 	@Override 
 	public void enterDecl(LittleParser.DeclContext ctx) { }
+	// The global declarations are complete at the end of the program level declarations, they are handed off as a unit.
 	@Override 
-	public void exitDecl(LittleParser.DeclContext ctx) { }
+	public void exitDecl(LittleParser.DeclContext ctx) {
+		
+		if(ctx.getParent() instanceof LittleParser.Pgm_bodyContext) {
+			this.endGlobalDeclarations();
+		}
+	}
 	
 	// Enters a string declaration, gets the identifier and value, then the structure is added to the current symbol table.
 	@Override 
 	public void enterString_decl(LittleParser.String_declContext ctx){
-		
-		this.currentSymbolTable.addSymbol(ctx.id().IDENTIFIER().getText(), new SymbolAttibutes("STRING", ctx.str().STRINGLITERAL().getText()));
-		
+		this.declareString(ctx.id().IDENTIFIER().getText(), ctx.str().STRINGLITERAL().getText());
 	}
 	
 	// Used to exit the string deceleration branches of the tree as needed items are under these nodes.
@@ -83,55 +119,59 @@ class CodeExtractor extends LittleBaseListener {
 	public void exitString_decl(LittleParser.String_declContext ctx) { }
 	
 	// Enters a variable declaration, gets the type then all declared values (1 - many). Then these values are added to 
-	// the symbol table along with the type in the order they are encountered.
+	// the symbol table along with the type in the order they are encountered. A variable declared in a function, in its
+	// scope or one of its blocks, is stored in the next local slot of the stack frame, $-1 then $-2 and so on.
 	@Override 
 	public void enterVar_decl(LittleParser.Var_declContext ctx) { 
-		
-		String type = ctx.var_type().getText();
-		
-		String[] ids = ctx.id_list().getText().split(",");
-		
-		int i = 0;
-		for(; i < ids.length; i++) {
-			
-			this.currentSymbolTable.addSymbol(ids[i], new SymbolAttibutes(type, null));
-		}	
+		this.declareVariables(ctx.var_type().getText(), ctx.id_list().getText().split(","));
 	}
 	
 	// Used to exit the variable deceleration branches of the tree as needed items are under these nodes.
 	@Override 
 	public void exitVar_decl(LittleParser.Var_declContext ctx) { }
 	
+	// Enters a statement, the nodes it adds start at its first token.
+	@Override
+	public void enterStmt(LittleParser.StmtContext ctx) {
+		this.setPosition(ctx.getStart());
+	}
+	
 	// Enters an assignment statement creates a binary sub tree root with the left node as the result and assignment operator as the root.
 	@Override public void enterAssign_expr(LittleParser.Assign_exprContext ctx) { 
-		
-		ASTNode lValue = new ASTNode(CodeType.LValue, ctx.id().IDENTIFIER().getText());
-		ASTNode operator = new ASTNode(CodeType.Operator, ":=");
-		
-		operator.setLChild(lValue);
-		lValue.setParent(operator);
+		this.startAssignment(ctx.id().IDENTIFIER().getText());
+	}
 	
-		this.tree.getRoot().add(operator);
+	// Exits an assignment statement, the expression tree is complete so it becomes the right child of the assignment and the
+	// result type of each operator is computed.
+	@Override public void exitAssign_expr(LittleParser.Assign_exprContext ctx) { 
+		this.endAssignment();
 	}
 	
-	// Used to exit the assignment expression branches of the tree as needed items are under these nodes.
-	@Override public void exitAssign_expr(LittleParser.Assign_exprContext ctx) { }
+	// Exits a return statement, the value is stored to the return slot of the frame. A return node with the value as its
+	// left child is added, its code is the return slot.
+	@Override public void exitReturn_stmt(LittleParser.Return_stmtContext ctx) {
+		this.addReturn();
+	}
+	
+	// Exits the condition of an if or while, its operands are combined into a compare operator that becomes the left child
+	// of the if or while node. The compare has the type of its operands.
+	@Override public void exitCond(LittleParser.CondContext ctx) {
+		this.addCondition(ctx.compop().getText(), ctx.getParent() instanceof LittleParser.While_stmtContext);
+	}
 	
-	// Enters a read statement and creates a node with all values to be read.
+	// Enters a read statement and creates a node for each value to be read.
 	@Override public void enterRead_stmt(LittleParser.Read_stmtContext ctx) { 
 		
-		ASTNode readNode = new ASTNode(CodeType.Read, ctx.id_list().getText());
-		this.tree.getRoot().add(readNode);
+		this.addSyscallNodes(CodeType.Read, ctx.id_list().getText().split(","));
 	}
 	
 	// Used to exit the read branches of the tree as needed items are under these nodes.
 	@Override public void exitRead_stmt(LittleParser.Read_stmtContext ctx) { }
 	
-	// Enters a write statement and creates a node with all values to be written to output.
+	// Enters a write statement and creates a node for each value to be written to output.
 	@Override public void enterWrite_stmt(LittleParser.Write_stmtContext ctx) { 
 		
-		ASTNode readNode = new ASTNode(CodeType.Write, ctx.id_list().getText());
-		this.tree.getRoot().add(readNode);	
+		this.addSyscallNodes(CodeType.Write, ctx.id_list().getText().split(","));
 	}
 	
 	// Used to exit the write branches of the tree as needed items are under these nodes.
@@ -140,197 +180,582 @@ class CodeExtractor extends LittleBaseListener {
 	
 	// For the following methods no explicit action occurs, but they are needed to walk to methods where actions do occur.
 	@Override public void enterExpr(LittleParser.ExprContext ctx) { }
-	@Override public void exitExpr(LittleParser.ExprContext ctx) { }
-	@Override public void enterExpr_prefix(LittleParser.Expr_prefixContext ctx) { }
-	@Override public void exitExpr_prefix(LittleParser.Expr_prefixContext ctx) { }
 	@Override public void enterFactor(LittleParser.FactorContext ctx) { }
-	@Override public void exitFactor(LittleParser.FactorContext ctx) { }
-	@Override public void enterFactor_prefix(LittleParser.Factor_prefixContext ctx) { }
-	@Override public void exitFactor_prefix(LittleParser.Factor_prefixContext ctx) { }
 	@Override public void enterExpr_list(LittleParser.Expr_listContext ctx) { }
 	@Override public void exitExpr_list(LittleParser.Expr_listContext ctx) { }
-	@Override public void enterExpr_list_tail(LittleParser.Expr_list_tailContext ctx) { }
-	@Override public void exitExpr_list_tail(LittleParser.Expr_list_tailContext ctx) { }
+	@Override public void enterPrimary(LittleParser.PrimaryContext ctx) { }
+	@Override public void enterAddop(LittleParser.AddopContext ctx) { }
+	@Override public void exitAddop(LittleParser.AddopContext ctx) { }
+	@Override public void enterMulop(LittleParser.MulopContext ctx) { }
+	@Override public void exitMulop(LittleParser.MulopContext ctx) { }
 	
-	// Creates nodes for the right hand side of assignments.
-	@Override public void enterPrimary(LittleParser.PrimaryContext ctx) {
-		
-		// Does not create extra nodes for ( or ) and processes the contents.
-		if(ctx.getText().contains("(")){
-			return;
-		}
-		
-		ASTNode rValue = new ASTNode(CodeType.RValue, ctx.getText());
+	// Combines the terms of an expression into add and subtract operators, left to right.
+	@Override public void exitExpr(LittleParser.ExprContext ctx) {
 		
-		ASTNode walker  = this.tree.getRoot().getLast();
+		LinkedList<String> operators = new LinkedList<String>();
 		
-		while(walker.getRChild() != null) {
-			walker = walker.getRChild();
+		for(LittleParser.AddopContext addop: ctx.addop()) {
+			operators.add(addop.getText());
 		}
 		
-		walker.setRChild(rValue);
-		rValue.setParent(walker);
+		this.combineOperands(operators);
 	}
 	
-	// Used to exit the write branches of the tree as needed items are under these nodes.
-	@Override public void exitPrimary(LittleParser.PrimaryContext ctx) { }
-	
-	// Creates an operator node for an add or subtract.
-	@Override public void enterAddop(LittleParser.AddopContext ctx) {
+	// Combines the operands of a term into multiply and divide operators, left to right.
+	@Override public void exitFactor(LittleParser.FactorContext ctx) {
 		
-		ASTNode operator = new ASTNode(CodeType.Operator, ctx.getText());
+		LinkedList<String> operators = new LinkedList<String>();
 		
-		ASTNode walker  = this.tree.getRoot().getLast();
-		
-		while(walker.getRChild() != null && walker.getLChild() != null) {
-			walker = walker.getRChild();
+		for(LittleParser.MulopContext mulop: ctx.mulop()) {
+			operators.add(mulop.getText());
 		}
 		
-		operator.setLChild(walker);
-		walker.getParent().setRChild(operator);
-		walker.setParent(operator);
-		
-		
+		this.combineOperands(operators);
 	}
-
-	// Used to exit the add and subtract branches of the tree as needed items are under these nodes.
-	@Override public void exitAddop(LittleParser.AddopContext ctx) { }
 	
-	// Creates an operator node for an multiply or divide.
-	@Override public void enterMulop(LittleParser.MulopContext ctx) {
-		
-		ASTNode operator = new ASTNode(CodeType.Operator, ctx.getText());
-		
-		ASTNode walker  = this.tree.getRoot().getLast();
+	// Creates nodes for the right hand side of assignments.
+	@Override public void exitPrimary(LittleParser.PrimaryContext ctx) {
 		
-		while(walker.getRChild() != null && walker.getLChild() != null) {
-			walker = walker.getRChild();
+		// Does not create extra nodes for ( or ), the node of the contents is already an operand.
+		if(ctx.expr() != null){
+			return;
 		}
 		
-		operator.setLChild(walker);
-		walker.getParent().setRChild(operator);
-		walker.setParent(operator);
+		// The kind of value is known from its token.
+		if(ctx.INTLITERAL() != null) {
+			this.addValue(ValueKind.IntLiteral, ctx.getText());
+		}
+		else if(ctx.FLOATLITERAL() != null) {
+			this.addValue(ValueKind.FloatLiteral, ctx.getText());
+		}
+		else {
+			this.addValue(ValueKind.Identifier, ctx.getText());
+		}
 	}
 	
-	// Used to exit the multiply and divide branches of the tree as needed items are under these nodes.
-	@Override public void exitMulop(LittleParser.MulopContext ctx) { }
+	// Creates a call node with its arguments, the operands on top.
+	@Override public void exitCall_expr(LittleParser.Call_exprContext ctx) {
+		this.addCall(ctx.id().IDENTIFIER().getText(), ctx.expr_list().expr().size());
+	}
 	
 	/*
 	 * The following are leftover from Step 3 we kept them in case we want to make a full version.
 	 */
-
+	
 	// Used to enter the function decelerations branches of the tree and exit as needed items are under these nodes.
 	@Override 
 	public void enterFunc_declarations(LittleParser.Func_declarationsContext ctx) { }
 	@Override 
 	public void exitFunc_declarations(LittleParser.Func_declarationsContext ctx) { }
 	
-	// Enters an individual function declaration branch, a new symbol table is created as a new scope of <functionName> is encountered.
+	// Enters an individual function declaration branch, its scope and AST are started.
 	@Override 
 	public void enterFunc_decl(LittleParser.Func_declContext ctx) { 
-		
-		this.symbolTableStack.push(new SymbolTable(ctx.id().getText()));
-		this.currentSymbolTable = this.symbolTableStack.peek();
-		this.symbolTables.addLast(this.currentSymbolTable);
+		this.setPosition(ctx.getStart());
+		this.startFunction(ctx.any_type().getText(), ctx.id().getText());
 	}
-
-	// Exits an individual function declaration branch, the current symbol table is removed from the stack as it is finished, and 
-	// the current symbol table is the new top of the stack.
+	
+	// Exits an individual function declaration branch, the function is handed off as a unit.
 	@Override
 	public void exitFunc_decl(LittleParser.Func_declContext ctx) {
-		
-		this.symbolTableStack.pop();
-		this.currentSymbolTable = this.symbolTableStack.peek();
+		this.endFunction();
 	}
 	
 	// Used to enter the parameter deceleration list branches of the tree and exit as needed items are under these nodes.
 	@Override 
 	public void enterParam_decl_list(LittleParser.Param_decl_listContext ctx) { }
-	@Override 
-	public void exitParam_decl_list(LittleParser.Param_decl_listContext ctx) { }
 	
-	// Enters a parameter declaration branch, gets a single parameter from a function parameter list and adds its name and type to the symbol table.
+	// Exits the parameter list, each parameter is given its stack slot.
 	@Override 
-	public void enterParam_decl(LittleParser.Param_declContext ctx) { 
+	public void exitParam_decl_list(LittleParser.Param_decl_listContext ctx) {
 		
-		this.currentSymbolTable.addSymbol(ctx.id().IDENTIFIER().getText(), new SymbolAttibutes(ctx.var_type().getText(), null));
+		String[] ids = new String[ctx.param_decl().size()];
 		
+		for(int i = 0; i < ids.length; i++) {
+			ids[i] = ctx.param_decl(i).id().IDENTIFIER().getText();
+		}
+		
+		this.endParameters(ids);
+	}
+	
+	// Enters a parameter declaration branch, gets a single parameter from a function parameter list.
+	@Override 
+	public void enterParam_decl(LittleParser.Param_declContext ctx) { 
+		this.declareParameter(ctx.var_type().getText(), ctx.id().IDENTIFIER().getText());
 	}
 	
 	// Used to exit the parameter declaration branches of the tree as needed items are under these nodes.
 	@Override 
 	public void exitParam_decl(LittleParser.Param_declContext ctx) { }
-
-	// Used to enter the parameter decelerations tail branches of the tree and exit as needed items are under these nodes.
-	@Override 
-	public void enterParam_decl_tail(LittleParser.Param_decl_tailContext ctx) { }
-	@Override 
-	public void exitParam_decl_tail(LittleParser.Param_decl_tailContext ctx) { }
-
-	// Enters an if statement branch since this is a conditional block the block counter is incremented, a new symbol table is also created 
-	// for the scope of the conditional block with the name BLOCK<numBlocksEncountred>.
+	
+	// Enters an if statement branch, the block gets its own scope.
 	@Override 
 	public void enterIf_stmt(LittleParser.If_stmtContext ctx) {
+		this.startBlock();
+	}
+	
+	// Exits an if statement branch and its scope.
+	@Override public void exitIf_stmt(LittleParser.If_stmtContext ctx) { 
+		this.setPosition(ctx.getStop());
+		this.endIf();
+	}
+	
+	// Enters an else statement branch, because an else statement does not need to exist as part of an if statement, if the
+	// node has no children i.e. the node is empty text nothing is done.
+	@Override public void enterElse_part(LittleParser.Else_partContext ctx) {
 		
-		this.blockCounter++;
+		if(ctx.getText() != "") {
+			this.setPosition(ctx.getStart());
+			this.startElse();
+		}
+	}
+	
+	// Exits an else statement branch and its scope, if there is one.
+	@Override public void exitElse_part(LittleParser.Else_partContext ctx) { 
 		
-		this.symbolTableStack.push(new SymbolTable("BLOCK "+this.blockCounter));
-		this.currentSymbolTable = this.symbolTableStack.peek();
+		if(ctx.getText() != "") {
+			this.endBlock();
+		}
+	}
+	
+	// Enters a while statement branch, the block gets its own scope.
+	@Override public void enterWhile_stmt(LittleParser.While_stmtContext ctx) {
+		this.startBlock();
+	}
+	
+	// Exits a while statement branch and its scope.
+	@Override public void exitWhile_stmt(LittleParser.While_stmtContext ctx) {
+		this.setPosition(ctx.getStop());
+		this.endWhile();
+	}
+	
+	// Sets the position of the nodes that follow to the start of a token, ANTLR counts columns from 0.
+	private void setPosition(Token token) {
+		this.setPosition(token.getLine(), token.getCharPositionInLine() + 1);
+	}
+	
+	/*
+	 * Semantic actions, called by the listener methods above on the parse tree and by LittleDescentParser as it parses
+	 * with no parse tree. Each is named for the part of the program it completes.
+	 */
+	
+	// The statement, ELSE, ENDIF or ENDWHILE extracted next starts at a source line and column.
+	void setPosition(int line, int column) {
+		
+		this.line = line;
+		this.column = column;
+	}
+	
+	// Opens the global scope, a new symbol table of scope global is created and queued.
+	void startProgram() {
+		
+		this.symbolTableStack.push(new SymbolTable("GLOBAL"));
+		this.currentSymbolTable = symbolTableStack.peek();
 		this.symbolTables.addLast(this.currentSymbolTable);
+	}
+	
+	// The global declarations are complete at the end of the program level declarations, they are handed off as a unit.
+	void endGlobalDeclarations() {
 		
+		LinkedList<SymbolTable> globalSymbolTables = new LinkedList<SymbolTable>();
+		globalSymbolTables.add(this.currentSymbolTable);
+		
+		AST globalTree = new AST();
+		globalTree.setPosition(this.line, this.column);
+		
+		this.handOff(new FunctionUnit(globalSymbolTables, globalTree));
 	}
 	
-	// Exits an if statement branch, the current symbol table is removed from the stack as it is finished, and 
-	// the current symbol table is the new top of the stack.
-	@Override public void exitIf_stmt(LittleParser.If_stmtContext ctx) { 
-		this.symbolTableStack.pop();
-		this.currentSymbolTable = this.symbolTableStack.peek();
+	// A string declaration, the identifier and value are added to the current symbol table. A string declared in a function
+	// is stored under the name of the function and its own, main.sep, or in a block also the number of the block,
+	// main.2.sep, so strings of the same name in different scopes are told apart. No identifier has a dot.
+	void declareString(String id, String value) {
+		
+		SymbolAttibutes attributes = new SymbolAttibutes("STRING", value);
+		
+		if(this.tree != null) {
+			
+			String scope = this.currentSymbolTable.getScope();
+			String function = this.unitSymbolTables.getFirst().getScope();
+			
+			attributes.setStorage(function + "." + (scope.startsWith("BLOCK ") ? scope.substring(6) + "." : "") + id);
+		}
+		
+		this.currentSymbolTable.addSymbol(id, attributes);
 	}
 	
-	// Enters an if statement branch, because an else statement does not need to exist as part of an else statement, if the node has no
-	// children i.e. the node is empty text nothing is done. Otherwise since, this is a conditional block the block counter is incremented,
-	// a new symbol table is also created for the scope of the conditional block with the name BLOCK<numBlocksEncountred>.
-	@Override public void enterElse_part(LittleParser.Else_partContext ctx) {
+	// A variable declaration, the declared values (1 - many) are added to the symbol table along with the type in the order
+	// they are encountered. A variable declared in a function, in its scope or one of its blocks, is stored in the next local
+	// slot of the stack frame, $-1 then $-2 and so on.
+	void declareVariables(String type, String[] ids) {
 		
-		if(ctx.getText() != "") {
+		int i = 0;
+		for(; i < ids.length; i++) {
+			
+			SymbolAttibutes attributes = new SymbolAttibutes(type, null);
+			
+			if(this.tree != null) {
+				attributes.setStorage("$-" + ++this.localCount);
+			}
+			
+			this.currentSymbolTable.addSymbol(ids[i], attributes);
+		}	
+	}
+	
+	// Starts an assignment statement, creates a binary sub tree root with the left node as the result and assignment operator as the root.
+	void startAssignment(String id) {
+		
+		int lValue = this.tree.addNode(CodeType.LValue, this.getSymbolStorage(id));
+		int operator = this.tree.addNode(CodeType.Operator, ":=");
+		
+		this.tree.setKind(lValue, ValueKind.Identifier);
+		this.tree.setDataType(lValue, this.getSymbolType(id));
+		
+		this.tree.setLChild(operator, lValue);
+		this.tree.setParent(lValue, operator);
+		
+		this.tree.addRoot(operator, this.line, this.column);
+		
+		this.operands.clear();
+	}
+	
+	// Ends an assignment statement, the expression tree is complete so it becomes the right child of the assignment and the
+	// result type of each operator is computed.
+	void endAssignment() {
+		
+		int operator = this.tree.getLastRoot();
+		int expression = this.operands.pop();
+		
+		this.tree.setRChild(operator, expression);
+		this.tree.setParent(expression, operator);
+		
+		this.annotateType(expression, this.tree.getDataType(this.tree.getLChild(operator)));
+	}
+	
+	// A return statement, the value is stored to the return slot of the frame. A return node with the value as its left
+	// child is added, its code is the return slot.
+	void addReturn() {
+		
+		int expression = this.operands.pop();
+		int node = this.tree.addNode(CodeType.Return, this.returnSlot);
+		
+		String type = this.annotateType(expression, this.functionType.equals("VOID") ? null : this.functionType);
 		
-			this.blockCounter++;
+		this.tree.setDataType(node, this.functionType.equals("VOID") ? ((type == null) ? "INT" : type) : this.functionType);
+		this.tree.setLChild(node, expression);
+		this.tree.setParent(expression, node);
+		
+		this.tree.addRoot(node, this.line, this.column);
+	}
+	
+	// The condition of an if or while, its operands are combined into a compare operator that becomes the left child of the
+	// if or while node. The compare has the type of its operands.
+	void addCondition(String compop, boolean isWhile) {
+		
+		int right = this.operands.pop();
+		int left = this.operands.pop();
+		int compare = this.tree.addNode(CodeType.Operator, compop);
+		
+		String type = this.annotateType(left, null);
+		String rightType = this.annotateType(right, type);
+		
+		if(type == null) {
+			type = (rightType == null) ? "INT" : rightType;
+			this.annotateType(left, type);
+			this.annotateType(right, type);
+		}
+		
+		this.tree.setDataType(compare, type);
+		this.tree.setLChild(compare, left);
+		this.tree.setRChild(compare, right);
+		this.tree.setParent(left, compare);
+		this.tree.setParent(right, compare);
+		
+		int node = this.tree.addNode(isWhile ? CodeType.While : CodeType.If, isWhile ? "WHILE" : "IF");
+		
+		this.tree.setLChild(node, compare);
+		this.tree.setParent(compare, node);
+		
+		this.tree.addRoot(node, this.line, this.column);
+	}
+	
+	// Creates a node for a value of an expression, a literal or an identifier with the type of its declaration.
+	void addValue(ValueKind kind, String text) {
+		
+		int rValue = this.tree.addNode(CodeType.RValue, text);
+		
+		this.tree.setKind(rValue, kind);
+		
+		if(kind == ValueKind.IntLiteral) {
+			this.tree.setDataType(rValue, "INT");
+		}
+		else if(kind == ValueKind.FloatLiteral) {
+			this.tree.setDataType(rValue, "FLOAT");
+		}
+		else {
+			this.tree.setDataType(rValue, this.getSymbolType(text));
+			this.tree.setCode(rValue, this.getSymbolStorage(text));
+		}
+		
+		this.operands.push(rValue);
+	}
+	
+	// Creates a call node named by the function, its arguments are a chain of argument nodes in order. Each argument node has
+	// the expression as its left child and the next argument as its right child. The call has the return type of the function,
+	// a function declared later is not known yet and its call gets the type of the expression around it.
+	void addCall(String function, int argumentCount) {
+		
+		int call = this.tree.addNode(CodeType.Call, function);
+		int next = AST.NIL;
+		
+		for(int i = 0; i < argumentCount; i++) {
+			
+			int expression = this.operands.pop();
+			int argument = this.tree.addNode(CodeType.Argument, ",");
+			
+			this.annotateType(expression, "INT");
+			
+			this.tree.setLChild(argument, expression);
+			this.tree.setRChild(argument, next);
+			this.tree.setParent(expression, argument);
 			
-			this.symbolTableStack.push(new SymbolTable("BLOCK "+this.blockCounter));
-			this.currentSymbolTable = this.symbolTableStack.peek();
-			this.symbolTables.addLast(this.currentSymbolTable);
+			if(next != AST.NIL) {
+				this.tree.setParent(next, argument);
+			}
+			
+			next = argument;
+		}
+		
+		this.tree.setKind(call, ValueKind.Identifier);
+		this.tree.setDataType(call, this.functionTypes.get(function));
+		this.tree.setLChild(call, next);
 		
+		if(next != AST.NIL) {
+			this.tree.setParent(next, call);
 		}
+		
+		this.operands.push(call);
 	}
 	
-	// Exits an else statement branch, because an else statement does not need to exist as part of an else statement, if the node has no
-	// children i.e. the node is empty text nothing is done. Otherwise the current symbol table is removed from the stack as it is finished, and 
-	// the current symbol table is the new top of the stack.
-	@Override public void exitElse_part(LittleParser.Else_partContext ctx) { 
+	// Starts a function declaration, a new symbol table is created as a new scope of <functionName> is encountered. The
+	// function gets a new AST for its statements and its return type is recorded for the calls that follow, its own included.
+	void startFunction(String type, String name) {
 		
-		if(ctx.getText() != "") {
+		this.functionType = type;
+		this.functionTypes.put(name, this.functionType);
+		this.localCount = 0;
+		
+		this.symbolTableStack.push(new SymbolTable(name));
+		this.currentSymbolTable = this.symbolTableStack.peek();
+		this.symbolTables.addLast(this.currentSymbolTable);
+		
+		this.tree = new AST();
+		this.tree.setPosition(this.line, this.column);
+		this.unitSymbolTables = new LinkedList<SymbolTable>();
+		this.unitSymbolTables.add(this.currentSymbolTable);
+	}
+	
+	// Ends a function declaration, the function is complete and handed off as a unit. The current symbol table is removed
+	// from the stack as it is finished, and the current symbol table is the new top of the stack.
+	void endFunction() {
+		
+		this.handOff(new FunctionUnit(this.unitSymbolTables, this.tree));
+		
+		this.tree = null;
+		this.unitSymbolTables = null;
+		
+		this.symbolTableStack.pop();
+		this.currentSymbolTable = this.symbolTableStack.peek();
+	}
+	
+	// A parameter declaration, adds its name and type to the symbol table.
+	void declareParameter(String type, String id) {
+		
+		this.currentSymbolTable.addSymbol(id, new SymbolAttibutes(type, null));
+	}
+	
+	// Ends the parameter list, each parameter is given the slot its argument is pushed to by the caller. The caller pushes a
+	// slot for the return value then the arguments in order and the call pushes the return address, so with n parameters the
+	// first is at $(n+1), the last at $2 and the return value at $(n+2).
+	void endParameters(String[] ids) {
+		
+		int count = ids.length;
+		
+		for(int i = 0; i < count; i++) {
 			
-			this.symbolTableStack.pop();
-			this.currentSymbolTable = this.symbolTableStack.peek();
+			this.currentSymbolTable.getSymbolData(ids[i]).setStorage("$" + (count + 1 - i));
 		}
+		
+		this.returnSlot = "$" + (count + 2);
 	}
 	
-	// Enters an while statement branch since this is a conditional block the block counter is incremented, a new symbol table is also created 
-	// for the scope of the conditional block with the name BLOCK<numBlocksEncountred>.
-	@Override public void enterWhile_stmt(LittleParser.While_stmtContext ctx) {
+	// Starts an if or while statement, since this is a conditional block the block counter is incremented, a new symbol table
+	// is also created for the scope of the conditional block with the name BLOCK<numBlocksEncountred>.
+	void startBlock() {
 		
 		this.blockCounter++;
 		
 		this.symbolTableStack.push(new SymbolTable("BLOCK "+this.blockCounter));
 		this.currentSymbolTable = this.symbolTableStack.peek();
 		this.symbolTables.addLast(this.currentSymbolTable);
+		this.unitSymbolTables.addLast(this.currentSymbolTable);
 	}
 	
-	// Exits an while statement branch, the current symbol table is removed from the stack as it is finished, and 
-	// the current symbol table is the new top of the stack.
-	@Override public void exitWhile_stmt(LittleParser.While_stmtContext ctx) {
+	// Starts an else part, the else node starts the statements of the block, which has its own scope.
+	void startElse() {
+		
+		this.tree.addRoot(this.tree.addNode(CodeType.Else, "ELSE"), this.line, this.column);
+		
+		this.startBlock();
+	}
+	
+	// Ends a block, the current symbol table is removed from the stack as it is finished, and the current symbol table is
+	// the new top of the stack.
+	void endBlock() {
 		
 		this.symbolTableStack.pop();
 		this.currentSymbolTable = this.symbolTableStack.peek();
 	}
+	
+	// Ends an if statement and its block.
+	void endIf() {
+		
+		this.tree.addRoot(this.tree.addNode(CodeType.EndIf, "ENDIF"), this.line, this.column);
+		
+		this.endBlock();
+	}
+	
+	// Ends a while statement and its block.
+	void endWhile() {
+		
+		this.tree.addRoot(this.tree.addNode(CodeType.EndWhile, "ENDWHILE"), this.line, this.column);
+		
+		this.endBlock();
+	}
+	
+	// Adds a read or write node for each identifier in a list, with the type of its declaration.
+	void addSyscallNodes(CodeType type, String[] ids) {
+		
+		for(String id: ids) {
+			
+			int node = this.tree.addNode(type, this.getSymbolStorage(id));
+			
+			this.tree.setKind(node, ValueKind.Identifier);
+			this.tree.setDataType(node, this.getSymbolType(id));
+			
+			this.tree.addRoot(node, this.line, this.column);
+		}
+	}
+	
+	// Pops the operands of a chain of operators and combines them left to right, the first operator gets the first two
+	// operands and each following operator the result so far and the next operand. The result is pushed as one operand.
+	void combineOperands(LinkedList<String> operators) {
+		
+		LinkedList<Integer> chain = new LinkedList<Integer>();
+		
+		for(int i = 0; i <= operators.size(); i++) {
+			chain.addFirst(this.operands.pop());
+		}
+		
+		int result = chain.removeFirst();
+		
+		for(String code: operators) {
+			
+			int operator = this.tree.addNode(CodeType.Operator, code);
+			int operand = chain.removeFirst();
+			
+			this.tree.setLChild(operator, result);
+			this.tree.setRChild(operator, operand);
+			this.tree.setParent(result, operator);
+			this.tree.setParent(operand, operator);
+			
+			result = operator;
+		}
+		
+		this.operands.push(result);
+	}
+	
+	// Hands a unit to the later phases, waits while the queue is full.
+	private void handOff(FunctionUnit unit) {
+		
+		try {
+			this.units.put(unit);
+			
+		}catch(InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	// Computes the result type of every operator in an expression, an operation has the type of its left operand or of the
+	// right one when the left is a call to a function declared later. An operation on two such calls has the type expected by
+	// the context. Walks the expression in reverse pre order so both operands are typed before their operator. Returns the
+	// type of the expression, null if it is unknown.
+	private String annotateType(int expression, String contextType) {
+		
+		if(expression == AST.NIL) {
+			return contextType;
+		}
+		
+		Stack<Integer> stack = new Stack<Integer>();
+		Stack<Integer> order = new Stack<Integer>();
+		
+		stack.push(expression);
+		
+		while(!stack.isEmpty()) {
+			
+			int node = stack.pop();
+			
+			if(this.tree.getCodeType(node) == CodeType.Operator) {
+				order.push(node);
+				stack.push(this.tree.getLChild(node));
+				stack.push(this.tree.getRChild(node));
+			}
+		}
+		
+		while(!order.isEmpty()) {
+			
+			int node = order.pop();
+			
+			String type = this.tree.getDataType(this.tree.getLChild(node));
+			
+			if(type == null) {
+				type = this.tree.getDataType(this.tree.getRChild(node));
+			}
+			
+			this.tree.setDataType(node, (type == null) ? contextType : type);
+		}
+		
+		return (this.tree.getDataType(expression) == null) ? contextType : this.tree.getDataType(expression);
+	}
+	
+	// Gets the type of a symbol, searching the active scopes from the innermost out.
+	private String getSymbolType(String symbolName) {
+		
+		SymbolAttibutes symbol = this.getSymbol(symbolName);
+		
+		return (symbol == null) ? null : symbol.getType();
+	}
+	
+	// Gets where a symbol is stored, its stack slot or its own name for a global.
+	private String getSymbolStorage(String symbolName) {
+		
+		SymbolAttibutes symbol = this.getSymbol(symbolName);
+		
+		return (symbol == null || symbol.getStorage() == null) ? symbolName : symbol.getStorage();
+	}
+	
+	// Gets a symbol, searching the active scopes from the innermost out.
+	private SymbolAttibutes getSymbol(String symbolName) {
+		
+		for(int i = this.symbolTableStack.size() - 1; i >= 0; i--) {
+			
+			SymbolAttibutes symbol = this.symbolTableStack.get(i).getSymbolData(symbolName);
+			
+			if(symbol != null) {
+				return symbol;
+			}
+		}
+		
+		return null;
+	}
 }
\ No newline at end of file
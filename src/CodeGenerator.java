@@ -1,308 +1,625 @@
 //Standard Libraries
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.BitSet;
 import java.util.LinkedList;
+import java.util.Stack;
 
 /*
- * Walks the AST created from the code extraction of the full parse tree and using the AST and symbol table generates an
- * intermediate representation of the target instructions. IR is represented in 3 address code.
+ * Walks the AST of each function created from the code extraction of the parse tree and using the AST and symbol tables
+ * generates an intermediate representation of the target instructions. IR is represented in 3 address code.
+ * Functions are called with a stack frame, the caller pushes a slot for the return value and the arguments, and the callee
+ * links a frame for its locals and the results of the calls in a statement. A function only reads and writes its own frame
+ * and the globals, so it can call itself. For a source map the code of each statement, and of the start of each unit, follows
+ * a LINE line:column of its source position, which is not an instruction and only marks the code after it.
  */
 class CodeGenerator{
 	
-	private LinkedList<SymbolTable> symbolTables;
-	
 	private AST ast;
 	
-	//Sequential order of IR instructions.
-	private ArrayList<String> IRCode;
+	//Sequential order of IR instructions of the unit being generated.
+	private LinkedList<String> IRCode;
+	
+	//Temporaries for result storage, numbered within a unit and reused once their value is read.
+	private TemporaryPool temporaries;
+	
+	//Operands are evaluated in the order using the fewest registers (RegisterOrdering), otherwise left to right.
+	private boolean isRegisterOrdered;
+	
+	//The code of each statement is marked with its source position.
+	private boolean isMapping;
+	
+	//Scope of the unit being generated, control flow labels are named after it.
+	private String scope;
+	
+	//Counts the labels of the unit, <function>_<n> can not be an identifier.
+	private int labelCounter = 0;
+	
+	//Number of local variable slots of the frame, the call result slots follow them.
+	private int localCount = 0;
 	
-	//Counts the use of temporaries for result storage, no limit on the number.
-	private int temporaryCounter = 0;
+	//Number of calls made so far by the statement being generated, each call result has a slot of its own.
+	private int callCount = 0;
 	
-	public CodeGenerator(LinkedList<SymbolTable> symTabs, AST ast) {
-		this.symbolTables = symTabs;
-		this.ast = ast;
-		this.IRCode = new ArrayList<String>();
+	//Number of slots the frame links, the locals and the most call results of any statement.
+	private int frameSize = 0;
+	
+	//Source position last marked.
+	private String lastPosition = null;
+	
+	public CodeGenerator(boolean isRegisterOrdered, boolean isMapping) {
+		this.ast = null;
+		this.IRCode = null;
+		this.isRegisterOrdered = isRegisterOrdered;
+		this.isMapping = isMapping;
+	}
+	
+	// Generate IR instructions for a unit from its symbol tables and AST. A generator is used for one unit, the unit does not
+	// depend on the IR of any other so units can be generated in any order.
+	public LinkedList<String> generateIR(FunctionUnit unit) {
+		
+		this.ast = unit.getAST();
+		this.IRCode = new LinkedList<String>();
+		this.temporaries = new TemporaryPool();
+		this.scope = unit.getScope();
+		
+		// Creates a label for a function along with link and return, a body ending in a return needs none after it. The size
+		// of the frame is known once the body is generated.
+		if(!this.scope.equals("GLOBAL")) {
+			this.localCount = this.countLocals(unit);
+			this.frameSize = this.localCount;
+			
+			this.markPosition(this.ast.getLine(), this.ast.getColumn());
+			
+			this.IRCode.add("LABEL " + this.scope);
+			
+			int link = this.IRCode.size();
+			
+			this.IRCode.add("LINK");
+			this.generate();
+			
+			if(!this.IRCode.getLast().equals("RETURN")) {
+				this.IRCode.add("RETURN");
+			}
+			
+			this.IRCode.set(link, "LINK " + this.frameSize);
+		}
+		
+		for(SymbolTable symTab: unit.getSymbolTables()) {
+			
+			// Creates IR code for variable and constant declarations.
+			for(String symbol: symTab.getSymbols()) {
+				
+				SymbolAttibutes data = symTab.getSymbolData(symbol);
+				
+				//STRING, under the name of its function when it is declared in one.
+				if(data.getType().equals("STRING")) {
+					this.IRCode.add("STRING " + ((data.getStorage() != null) ? data.getStorage() : symbol) + " " + data.getValue());
+				}
+				
+				// INT and FLOAT, parameters and locals are in the stack frame.
+				else if(data.getStorage() == null) {
+					this.IRCode.add("VAR " + symbol);
+				}
+			}
+		}
+		
+		// The program calls main with a slot for its return value and halts when it returns.
+		if(this.scope.equals("GLOBAL")) {
+			this.markPosition(this.ast.getLine(), this.ast.getColumn());
+			this.IRCode.add("PUSH");
+			this.IRCode.add("JSR main");
+			this.IRCode.add("HALT");
+		}
+		
+		return this.IRCode;
 	}
 	
-	// Returns the generated IR, in linked list form for future conversion.
-	public LinkedList<String> getIR(){
+	//Generates the IR of each statement in order. Assignments, reads and writes are generated by a post order walk of their
+	//tree, after the calls in them are made. An if branches to its else or end when its condition is false and a while
+	//branches to its end, its end jumps back to the condition.
+	private void generate() {
 		
-		LinkedList<String> irCodeQueue = new LinkedList<String>();
+		//Labels of the if and while statements the statement is in, innermost on top. An if has the label of its else and of
+		//its end once it has an else, a while the label of its condition and of its end.
+		Stack<String[]> blocks = new Stack<String[]>();
 		
-		for(String line: this.IRCode) {
+		for(int i = 0; i < this.ast.getRootCount(); i++) {
+			
+			int subTreeRoot = this.ast.getRoot(i);
+			
+			this.callCount = 0;
+			
+			this.markPosition(this.ast.getRootLine(i), this.ast.getRootColumn(i));
+			
+			switch(this.ast.getCodeType(subTreeRoot)) {
+				
+				case If:
+					blocks.push(new String[] {this.newLabel(), null});
+					this.generateBranch(this.ast.getLChild(subTreeRoot), blocks.peek()[0]);
+					break;
+					
+				case Else:
+					blocks.peek()[1] = this.newLabel();
+					this.IRCode.add("JUMP " + blocks.peek()[1]);
+					this.IRCode.add("LABEL " + blocks.peek()[0]);
+					break;
+					
+				case EndIf:
+					this.IRCode.add("LABEL " + ((blocks.peek()[1] == null) ? blocks.peek()[0] : blocks.peek()[1]));
+					blocks.pop();
+					break;
+					
+				case While:
+					blocks.push(new String[] {this.newLabel(), this.newLabel()});
+					this.IRCode.add("LABEL " + blocks.peek()[0]);
+					this.generateBranch(this.ast.getLChild(subTreeRoot), blocks.peek()[1]);
+					break;
+					
+				case EndWhile:
+					this.IRCode.add("JUMP " + blocks.peek()[0]);
+					this.IRCode.add("LABEL " + blocks.peek()[1]);
+					blocks.pop();
+					break;
+					
+				//The value is stored to the return slot and the frame is left.
+				case Return:
+					this.hoistCalls(this.ast.getLChild(subTreeRoot));
+					
+					String value = this.generateValue(this.ast.getLChild(subTreeRoot));
+					
+					this.IRCode.add("STORE" + (this.ast.getDataType(subTreeRoot).equals("INT") ? "I " : "F ") + value + " " + this.ast.getCode(subTreeRoot));
+					this.temporaries.release(value);
+					this.IRCode.add("RETURN");
+					break;
+					
+				default:
+					if(this.ast.getCodeType(subTreeRoot) == CodeType.Operator) {
+						this.hoistCalls(this.ast.getRChild(subTreeRoot));
+					}
+					
+					//Label the tree with register needs so operands are evaluated in the order using the fewest registers. An
+					//unlabeled tree needs no registers anywhere and is evaluated left to right.
+					if(this.isRegisterOrdered) {
+						this.labelRegisterNeed(subTreeRoot);
+					}
+					
+					this.postOrder(subTreeRoot);
+					break;
+			}
 			
-			irCodeQueue.add(line);
+			this.frameSize = Math.max(this.frameSize, this.localCount + this.callCount);
 		}
+	}
+	
+	//Branches to a label when a condition is false. The calls of the condition are made first, then both operands are
+	//evaluated and compared by the inverse of the condition.
+	private void generateBranch(int compare, String label) {
+		
+		this.hoistCalls(compare);
+		
+		String left = this.generateValue(this.ast.getLChild(compare));
+		String right = this.generateValue(this.ast.getRChild(compare));
 		
-		return irCodeQueue;
+		String type = this.ast.getDataType(compare).equals("INT") ? "I " : "F ";
+		
+		this.IRCode.add(this.getInverseBranch(this.ast.getCode(compare)) + type + left + " " + right + " " + label);
+		
+		this.temporaries.release(left);
+		this.temporaries.release(right);
 	}
 	
-	// Generate IR instructions from the symbol table and AST.
-	public void generateIR() {
+	//IR branch taken when a compare operator is false.
+	private String getInverseBranch(String operator) {
 		
-		LinkedList<String> scopes = new LinkedList<String>();
+		switch(operator) {
+			case "<":
+				return "GE";
+			case ">":
+				return "LE";
+			case "=":
+				return "NE";
+			case "!=":
+				return "EQ";
+			case "<=":
+				return "GT";
+			default:
+				return "LT";
+		}
+	}
+	
+	//Makes the calls in an expression before it is evaluated, innermost first and left to right. For each call a slot is
+	//pushed for the return value, then each argument is evaluated and pushed. After the call the arguments are popped and the
+	//return value is popped into the next call result slot of the frame, the call node becomes a value of that slot.
+	private void hoistCalls(int expression) {
+		
+		if(expression == AST.NIL) {
+			return;
+		}
 		
-		SymbolTable prevSymTab = null;
+		//Calls in post order, the reverse of a pre order walk visiting the right child first.
+		LinkedList<Integer> calls = new LinkedList<Integer>();
+		Stack<Integer> stack = new Stack<Integer>();
 		
-		// Creates a label, for each scope along with link and returns for functions.
-		for(SymbolTable symTab: this.symbolTables) {
+		stack.push(expression);
+		
+		while(!stack.isEmpty()) {
 			
-			String currentScope = symTab.getScope();
+			int node = stack.pop();
 			
-			if(!currentScope.equals("GLOBAL")) {
-				this.IRCode.add("LABEL " + currentScope);
-				this.IRCode.add("LINK");
-				this.generate();
-				this.IRCode.add("RETURN");
+			if(this.ast.getCodeType(node) == CodeType.Call) {
+				calls.addFirst(node);
 			}
 			
-			scopes.addLast(currentScope);
+			if(this.ast.getLChild(node) != AST.NIL) {
+				stack.push(this.ast.getLChild(node));
+			}
 			
-			// Creates IR code for variable and constant declarations.
-			for(String symbol: symTab.getSymbols()) {
+			if(this.ast.getRChild(node) != AST.NIL) {
+				stack.push(this.ast.getRChild(node));
+			}
+		}
+		
+		for(int call: calls) {
+			
+			int argumentCount = 0;
+			
+			this.IRCode.add("PUSH");
+			
+			for(int argument = this.ast.getLChild(call); argument != AST.NIL; argument = this.ast.getRChild(argument)) {
 				
-				if(prevSymTab != null && prevSymTab.getSymbolData(symbol) != null) {
-					continue;
-				}
+				String value = this.generateValue(this.ast.getLChild(argument));
 				
-				SymbolAttibutes data = symTab.getSymbolData(symbol);
+				this.IRCode.add("PUSH " + value);
+				this.temporaries.release(value);
 				
-				// INT and FLOAT
-				if(!data.getType().equals("STRING")) {
-					this.IRCode.add("VAR " + symbol);
-				}
-				//STRING
-				else {
-					this.IRCode.add("STRING " + symbol + " " + data.getValue());
-				}
+				argumentCount++;
+			}
+			
+			this.IRCode.add("JSR " + this.ast.getCode(call));
+			
+			for(int i = 0; i < argumentCount; i++) {
+				this.IRCode.add("POP");
 			}
 			
-			prevSymTab = symTab;
+			String slot = "$-" + (this.localCount + ++this.callCount);
+			
+			this.IRCode.add("POP " + slot);
+			
+			this.ast.setCodeType(call, CodeType.RValue);
+			this.ast.setCode(call, slot);
+			this.ast.setLChild(call, AST.NIL);
 		}
 	}
 	
-	//Performs a post order walk of the AST to generate IR code.
-	private void generate() {
+	//Generates the IR of an expression with no calls left in it and returns the operand holding its value, a temporary or
+	//a variable.
+	private String generateValue(int expression) {
 		
-		HashMap<String, Integer> isValueLoaded = new HashMap<String, Integer>();
+		if(this.isRegisterOrdered) {
+			this.labelRegisterNeed(expression);
+		}
 		
-		for(ASTNode subTreeRoot: this.ast.getRoot()) {
+		this.postOrder(expression);
+		
+		return this.ast.getCode(expression);
+	}
+	
+	//Marks the code that follows with a source position, a statement of several roots (one for each variable read or
+	//written) is marked once.
+	private void markPosition(int line, int column) {
 		
-			this.postOrder(subTreeRoot, isValueLoaded);
+		String position = "LINE " + line + ":" + column;
+		
+		if(this.isMapping && !position.equals(this.lastPosition)) {
+			this.IRCode.add(position);
+			this.lastPosition = position;
+		}
+	}
+	
+	//Creates a new control flow label of the unit.
+	private String newLabel() {
+		
+		return this.scope + "_" + ++this.labelCounter;
+	}
+	
+	//Counts the locals of a function unit, the symbols stored in a local slot of its frame.
+	private int countLocals(FunctionUnit unit) {
+		
+		int count = 0;
+		
+		for(SymbolTable symTab: unit.getSymbolTables()) {
+			
+			for(String symbol: symTab.getSymbols()) {
+				
+				String storage = symTab.getSymbolData(symbol).getStorage();
+				
+				if(storage != null && storage.startsWith("$-")) {
+					count++;
+				}
+			}
 		}
+		
+		return count;
 	}
 	
-	//Post order walk of the AST (left to right then root).
-	private void postOrder(ASTNode root, HashMap<String, Integer> temporaryMap) {
+	//Labels each node with the number of registers needed to evaluate its subtree (Sethi-Ullman numbering).
+	//A left operand is accumulated into so it must be in a register, a right operand variable can be used from memory.
+	//Literals are always loaded into a temporary and need a register on either side. The nodes are labeled in reverse pre
+	//order so both children are labeled before their parent.
+	private void labelRegisterNeed(int subTreeRoot) {
+		
+		Stack<Integer> stack = new Stack<Integer>();
+		Stack<Integer> order = new Stack<Integer>();
 		
-		//Recursively walk the tree until a leaf node is reached and walk back up to process the node.
-		if(root != null) {
+		stack.push(subTreeRoot);
+		
+		while(!stack.isEmpty()) {
 			
-			//Left
-			this.postOrder(root.getLChild(), temporaryMap);
+			int node = stack.pop();
 			
-			//Right
-			this.postOrder(root.getRChild(), temporaryMap);
+			order.push(node);
 			
-			//Root
-			CodeObject code = root.getData();
+			if(this.ast.getLChild(node) != AST.NIL) {
+				stack.push(this.ast.getLChild(node));
+			}
 			
-			//Processing of L-Values nothing occurs, L-Values are handled during a := operator processing.
-			if(code.getCodeType() == CodeType.LValue) {
-				return;
+			if(this.ast.getRChild(node) != AST.NIL) {
+				stack.push(this.ast.getRChild(node));
 			}
+		}
+		
+		while(!order.isEmpty()) {
 			
-			//Processing of R-Values generates store instructions and a associated temporary then reformats the node
-			//as a data object. These values are literals, variables are handled by arithmetic operators.
-			else if(code.getCodeType() == CodeType.RValue) {
+			int node = order.pop();
+			
+			int need = 0;
+			
+			if(this.ast.getCodeType(node) == CodeType.Operator) {
 				
-				//Checks if a value is in temporary.
-				if(temporaryMap.get(code.getCode()) != null) {
-					return;
-				}
+				int lNeed = this.getRegisterNeed(this.ast.getLChild(node));
+				int rNeed = this.getRegisterNeed(this.ast.getRChild(node));
 				
-				//Store IR instruction, building.
-				String instruction = "STORE";
+				//Equal needs require an extra register to hold the first result while the second is evaluated.
+				need = (lNeed == rNeed) ? lNeed + 1 : Math.max(lNeed, rNeed);
+			}
+			
+			else if(this.ast.getCodeType(node) == CodeType.RValue) {
 				
-				SymbolAttibutes symbol = this.getSymbol(code.getCode());
+				boolean isLeftOperand = (node == subTreeRoot || this.ast.getLChild(this.ast.getParent(node)) == node);
 				
-				String dataType = "";
+				need = (isLeftOperand || this.ast.getKind(node) != ValueKind.Identifier) ? 1 : 0;
+			}
+			
+			this.ast.setRegisterNeed(node, need);
+		}
+	}
+	
+	//Register need of a node, a missing node needs none.
+	private int getRegisterNeed(int node) {
+		
+		return (node == AST.NIL) ? 0 : this.ast.getRegisterNeed(node);
+	}
+	
+	//Post order walk of the AST (heavier operand first then root). The walk is iterative, a node is pushed once to order its
+	//operands and again, complemented, to be processed after both of them.
+	private void postOrder(int subTreeRoot) {
+		
+		Stack<Integer> stack = new Stack<Integer>();
+		
+		stack.push(subTreeRoot);
+		
+		while(!stack.isEmpty()) {
+			
+			int root = stack.pop();
+			
+			//Walk down until a leaf node is reached, the node is processed when it is popped again.
+			if(root >= 0) {
 				
-				//Verifies value is not a symbol or a temporary.
-				if(symbol != null) {
-					return;
-				}
-				else if(code.getCodeType() == CodeType.Temporary) {
-					return;
-				}
+				int first = this.ast.getLChild(root);
+				int second = this.ast.getRChild(root);
 				
-				//Parse the value as either a FLOAT or INT. 
-				else {
+				//The operand needing more registers is evaluated first so its result only holds one register while the
+				//other is evaluated. Commutative operators swap their operands instead, keeping the heavier one on the left
+				//where the result is accumulated.
+				if(first != AST.NIL && second != AST.NIL && this.ast.getRegisterNeed(second) > this.ast.getRegisterNeed(first)) {
 					
-					try {
-						Float.parseFloat(code.getCode());
-						dataType = "F";
-					} catch (Exception e) {
-						System.exit(1);
-					}
-					try {
-						Integer.parseInt(code.getCode());
-						dataType = "I";
-					} catch (Exception e) {
+					if(this.isCommutative(root)) {
+						
+						this.ast.setLChild(root, second);
+						this.ast.setRChild(root, first);
 					}
 					
-					instruction = instruction.concat(dataType);
+					int heavier = second;
+					second = first;
+					first = heavier;
 				}
 				
-				//Build the IR instruction for store of INT or FLOAT.
+				stack.push(~root);
+				
+				//Lighter (Right by default)
+				if(second != AST.NIL) {
+					stack.push(second);
+				}
+				
+				//Heavier (Left by default)
+				if(first != AST.NIL) {
+					stack.push(first);
+				}
+				
+				continue;
+			}
+			
+			root = ~root;
+			
+			//Root
+			//Processing of L-Values nothing occurs, L-Values are handled during a := operator processing.
+			if(this.ast.getCodeType(root) == CodeType.LValue) {
+				continue;
+			}
+			
+			//Processing of R-Values generates store instructions and a associated temporary then reformats the node
+			//as a data object. These values are literals, variables are handled by arithmetic operators.
+			else if(this.ast.getCodeType(root) == CodeType.RValue) {
+				
+				//Verifies value is not a symbol, variables are used directly by the operators.
+				if(this.ast.getKind(root) == ValueKind.Identifier) {
+					continue;
+				}
+				
+				//Store IR instruction, building. The literal type is known from its token.
+				String instruction = "STORE";
 				
-				String temporaryTarget = "$T" + ++this.temporaryCounter;
+				String dataType = this.ast.getDataType(root).equals("INT") ? "I" : "F";
 				
-				instruction = instruction.concat(" " + code.getCode() + " " + temporaryTarget);
+				instruction = instruction.concat(dataType);
 				
-				root.getData().setCode(temporaryTarget);
+				//Build the IR instruction for store of INT or FLOAT.
+				
+				String temporaryTarget = this.temporaries.acquire();
 				
-				this.symbolTables.get(0).addSymbol(temporaryTarget, new SymbolAttibutes(dataType.equals("I") ? "INT":"FLOAT", null));
+				instruction = instruction.concat(" " + this.ast.getCode(root) + " " + temporaryTarget);
+				
+				//The node now holds the temporary the literal is stored in.
+				this.ast.setCode(root, temporaryTarget);
+				this.ast.setCodeType(root, CodeType.Temporary);
 				
 				//Add generates IR.
 				this.IRCode.add(instruction);
-				
-				//Places value in temporary tracker.
-				temporaryMap.put(code.getCode(), this.temporaryCounter);
 			}
 			
 			//Operator IR code generation handles operator and variable nodes.
-			else if(code.getCodeType() == CodeType.Operator){
+			else if(this.ast.getCodeType(root) == CodeType.Operator){
+				
+				String operator = this.ast.getCode(root);
 				
 				String instruction = "";
 				
 				//Assignment operator, stores right node into left node value L-Value processing occurs here.
-				if(code.getCode().equals(":=")) {
+				if(operator.equals(":=")) {
 					
 					instruction = "STORE";
 					
-					SymbolAttibutes symbol = this.getSymbol(root.getLChild().getData().getCode());
-					
-					instruction = instruction.concat(symbol.getType().equals("INT") ? "I " : "F ");	
+					instruction = instruction.concat(this.ast.getDataType(this.ast.getLChild(root)).equals("INT") ? "I " : "F ");	
 					
-					instruction = instruction.concat(root.getRChild().getData().getCode() + " " + root.getLChild().getData().getCode());
+					instruction = instruction.concat(this.ast.getCode(this.ast.getRChild(root)) + " " + this.ast.getCode(this.ast.getLChild(root)));
 					
 					//Add operation IR instruction.
 					this.IRCode.add(instruction);
 					
-					return;
+					this.temporaries.release(this.ast.getCode(this.ast.getRChild(root)));
+					
+					continue;
 				}
 				
 				//Build a operator instruction first get operand.
 				
-				else if(code.getCode().equals("+")) {
+				else if(operator.equals("+")) {
 					
 					instruction = "ADD";
-							
+					
 				}
 				
-				else if(code.getCode().equals("-")) {
+				else if(operator.equals("-")) {
 					
 					instruction = "SUB";
-		
+					
 				}
 				
-				else if(code.getCode().equals("*")) {
+				else if(operator.equals("*")) {
 					
 					instruction = "MUL";
-							
+					
 				}
 				
-				else if(code.getCode().equals("/")) {
+				else if(operator.equals("/")) {
 					
 					instruction = "DIV";
-							
+					
 				}
 				
-				//Get symbol data and specify operation type INT or FLOAT>
-				SymbolAttibutes symbol = this.getSymbol(root.getLChild().getData().getCode());
+				//Specify operation type INT or FLOAT from the type computed for the operator.
+				instruction = instruction.concat(this.ast.getDataType(root).equals("INT") ? "I " : "F ");	
+				
+				String operandL = this.ast.getCode(this.ast.getLChild(root));
+				String operandR = this.ast.getCode(this.ast.getRChild(root));
 				
-				//Create operation instruction.
-				instruction = instruction.concat(symbol.getType().equals("INT") ? "I " : "F ");	
+				//The operands are read by the operation, the result can reuse one of their temporaries.
+				this.temporaries.release(operandL);
+				this.temporaries.release(operandR);
 				
-				String operandL = root.getLChild().getData().getCode();
-				String operandR = root.getRChild().getData().getCode();
-				String temporaryTarget = "$T" + ++this.temporaryCounter;
+				String temporaryTarget = this.temporaries.acquire();
 				
 				instruction = instruction.concat(operandL + " " + operandR + " " + temporaryTarget);
 				
-				root.getData().setCode(temporaryTarget);
+				this.ast.setCode(root, temporaryTarget);
 				
 				//Add operation IR instruction.
 				this.IRCode.add(instruction);
-					
+				
 			}
 			
-			//Processes read nodes.
-			else if(code.getCodeType() == CodeType.Read) {
+			//Processes read nodes, one for each variable read.
+			else if(this.ast.getCodeType(root) == CodeType.Read) {
 				
-				//Get all variables to be read to, and split into individual operands.
-				String vars[] = code.getCode().split(",");
+				String instruction = "READ";
 				
-				//Generate a READ IR instruction for each operand.
-				for(String var: vars) {
-					
-					String instruction = "READ";
-					
-					SymbolAttibutes symbol = this.getSymbol(var);
-					
-					//Specify read type INT or FLOAT.
-					instruction = instruction.concat(symbol.getType().equals("INT") ? "I " : "F ");
-					
-					instruction = instruction.concat(var);
-					
-					this.IRCode.add(instruction);
-					
-				}
+				//Specify read type INT or FLOAT.
+				instruction = instruction.concat(this.ast.getDataType(root).equals("INT") ? "I " : "F ");
 				
+				instruction = instruction.concat(this.ast.getCode(root));
+				
+				this.IRCode.add(instruction);
 			}
 			
-			//Processes write nodes.
-			else if(code.getCodeType() == CodeType.Write) {
+			//Processes write nodes, one for each variable written.
+			else if(this.ast.getCodeType(root) == CodeType.Write) {
 				
-				//Get all variables to be written out, and split into individual operands.
-				String vars[] = code.getCode().split(",");
+				String instruction = "WRITE";
 				
-				//Generate a WRITE IR instruction for each operand.
-				for(String var: vars) {
-					
-					String instruction = "WRITE";
-					
-					SymbolAttibutes symbol = this.getSymbol(var);
-					
-					String symType = symbol.getType();
-					
-					//Specify write type INT or FLOAT.
-					instruction = instruction.concat(symType.charAt(0) + " ");
-					
-					instruction = instruction.concat(var);
-					
-					this.IRCode.add(instruction);
-					
-				}
+				//Specify write type INT, FLOAT or STRING.
+				instruction = instruction.concat(this.ast.getDataType(root).charAt(0) + " ");
+				
+				instruction = instruction.concat(this.ast.getCode(root));
 				
+				this.IRCode.add(instruction);
 			}
 		}
 	}
 	
-	//Get a symbol from the set of symbol tables. Looks through all valid symbol tables.
-	private SymbolAttibutes getSymbol(String symbolName) {
+	//Check if an operator node is commutative (+ or *) so its operands can be swapped.
+	private boolean isCommutative(int node) {
 		
-		for(SymbolTable symTab: this.symbolTables) {
-			
-			SymbolAttibutes symbol = symTab.getSymbolData(symbolName);
-			
-			if(symbol != null) {
-				return symbol;
-			}
-		}
+		String operator = this.ast.getCode(node);
 		
-		return null;
+		return this.ast.getCodeType(node) == CodeType.Operator && (operator.equals("+") || operator.equals("*"));
+	}
+}
+
+//Numbers of the temporaries of a unit, a compact pool of the numbers in use. Each temporary is read once, by the operation,
+//store, push or branch consuming it, and is released then. The lowest free number is taken for a new temporary so the numbers
+//only grow to the most temporaries live at once in a statement.
+class TemporaryPool{
+	
+	private BitSet inUse;
+	
+	public TemporaryPool() {
+		this.inUse = new BitSet();
+	}
+	
+	//Takes the lowest free temporary, $T1 first.
+	public String acquire() {
+		
+		int number = this.inUse.nextClearBit(1);
+		
+		this.inUse.set(number);
+		
+		return "$T" + number;
+	}
+	
+	//Frees a temporary once its value has been read, any other operand is ignored.
+	public void release(String operand) {
+		
+		if(operand.startsWith("$T")) {
+			this.inUse.clear(Integer.parseInt(operand.substring(2)));
+		}
 	}
-}
\ No newline at end of file
+}
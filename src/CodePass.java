@@ -0,0 +1,12 @@
+//Standard Libraries
+import java.util.LinkedList;
+
+/*
+ * Optimization pass over the IR or the tiny assembly of one unit. A pass only sees the code of its unit, so passes of
+ * different units can run at the same time.
+ */
+interface CodePass{
+	
+	//Returns the optimized code, the code given may be consumed.
+	LinkedList<String> run(LinkedList<String> code);
+}
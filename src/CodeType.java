@@ -7,4 +7,12 @@ public enum CodeType {
 	Operator,
 	Read,
 	Write,
+	Call,
+	Argument,
+	Return,
+	If,
+	Else,
+	EndIf,
+	While,
+	EndWhile,
 }
\ No newline at end of file
@@ -0,0 +1,9 @@
+/*
+ * Cost of tiny instructions. The instruction selection chooses between instruction forms by their cost and the cycle
+ * estimate of the generated code charges each instruction by it. A model can match the simulator or any other target.
+ */
+interface CostModel{
+	
+	//Cycles until the result of an instruction can be used, from the kinds of its operands. A missing operand is null.
+	int latency(String opcode, OperandKind op1, OperandKind op2);
+}
@@ -0,0 +1,149 @@
+//Standard Libraries
+import java.util.HashMap;
+
+/*
+ * Estimates the cycles of tiny code the way the simulator statistics count them. Instructions issue one per cycle in order,
+ * an instruction waits until its operands are free and its target is free again after the latency of the instruction. A
+ * compare holds the following conditional jump, a return and the halt wait until every variable has been written. The code
+ * is counted once in listing order, each jump or call is charged as a single instruction.
+ */
+class CycleEstimator{
+	
+	private CostModel costModel;
+	
+	//Cycle each register, variable or stack slot is free at.
+	private HashMap<String, Integer> freeTime;
+	
+	//Cycle the next instruction issues at.
+	private int cycles;
+	
+	//Cycle the result of the last compare is known.
+	private int compareTime;
+	
+	//Cycle the last variable write is done.
+	private int latestTime;
+	
+	public CycleEstimator(CostModel costModel) {
+		this.costModel = costModel;
+		this.freeTime = new HashMap<String, Integer>();
+		this.cycles = 0;
+		this.compareTime = 0;
+		this.latestTime = 0;
+	}
+	
+	//Counts one tiny instruction.
+	public void add(String instruction) {
+		
+		String[] elements = instruction.split(" ");
+		
+		String opcode = elements[0];
+		String op1 = (elements.length > 1) ? elements[1] : null;
+		String op2 = (elements.length > 2) ? elements[2] : null;
+		
+		switch(opcode) {
+			
+			//Declarations and source positions are not executed.
+			case "var":
+			case "str":
+			case ";line":
+				return;
+				
+			case "move":
+			case "addi":
+			case "subi":
+			case "muli":
+			case "divi":
+			case "addr":
+			case "subr":
+			case "mulr":
+			case "divr":
+				this.issue(opcode, op1, op2, op2);
+				break;
+				
+			case "inci":
+			case "deci":
+			case "pop":
+				this.issue(opcode, op1, null, op1);
+				break;
+				
+			case "push":
+				this.issue(opcode, op1, null, null);
+				break;
+				
+			case "cmpi":
+			case "cmpr":
+				this.cycles = Math.max(this.cycles, Math.max(this.getFreeTime(op1), this.getFreeTime(op2)));
+				this.compareTime = this.cycles + this.costModel.latency(opcode, this.getKind(op1), this.getKind(op2));
+				break;
+				
+			case "jgt":
+			case "jlt":
+			case "jge":
+			case "jle":
+			case "jeq":
+			case "jne":
+				this.cycles = Math.max(this.cycles, this.compareTime);
+				break;
+				
+			case "ret":
+				this.cycles = Math.max(this.cycles, this.latestTime);
+				break;
+				
+			case "sys":
+				if(op1.equals("halt")) {
+					this.cycles = Math.max(this.cycles, this.latestTime);
+				}
+				break;
+		}
+		
+		this.cycles++;
+	}
+	
+	//Cycles of the instructions counted so far.
+	public int getCycles() {
+		return this.cycles;
+	}
+	
+	//Issues an instruction once its operands are free and marks its target busy for the latency of the instruction.
+	private void issue(String opcode, String op1, String op2, String target) {
+		
+		this.cycles = Math.max(this.cycles, Math.max(this.getFreeTime(op1), this.getFreeTime(op2)));
+		
+		if(target == null) {
+			return;
+		}
+		
+		int free = this.cycles + this.costModel.latency(opcode, this.getKind(op1), this.getKind(op2));
+		
+		this.freeTime.put(target, free);
+		
+		if(Character.isLetter(target.charAt(0)) && this.getKind(target) == OperandKind.Memory) {
+			this.latestTime = Math.max(this.latestTime, free);
+		}
+	}
+	
+	private int getFreeTime(String operand) {
+		
+		Integer free = (operand == null) ? null : this.freeTime.get(operand);
+		
+		return (free == null) ? 0 : free;
+	}
+	
+	//Kind of an operand from its form, r# is a register, a number is a literal and variables and stack slots are memory.
+	private OperandKind getKind(String operand) {
+		
+		if(operand == null) {
+			return null;
+		}
+		
+		if(operand.matches("[rR][0-9]+")) {
+			return OperandKind.Register;
+		}
+		
+		if(Character.isDigit(operand.charAt(0)) || operand.charAt(0) == '-' || operand.charAt(0) == '+' || operand.charAt(0) == '.') {
+			return OperandKind.Literal;
+		}
+		
+		return OperandKind.Memory;
+	}
+}
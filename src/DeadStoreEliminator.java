@@ -0,0 +1,165 @@
+//Standard Libraries
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/*
+ * Removes IR instructions whose result is never read. A store to a variable is dead when the variable is stored again
+ * before anything reads it, and an operation is dead when its temporary is not read, which can leave the operations of its
+ * operands dead in turn. The IR is walked backwards in a single pass. Variables are live at the end of the unit and at
+ * any instruction other than a store, operation, READ or WRITE, so only straight line code is changed. An expression with
+ * an INT division is kept unless the divisor is a literal that is not zero, a division by zero stops the program.
+ */
+class DeadStoreEliminator implements CodePass{
+	
+	//Digits of an INT literal that surely fits in an INT.
+	private static final int MAX_LITERAL_DIGITS = 9;
+	
+	@Override
+	public LinkedList<String> run(LinkedList<String> ir) {
+		
+		LinkedList<String> result = new LinkedList<String>();
+		
+		LinkedList<Boolean> trapping = this.findTrapping(ir);
+		Iterator<Boolean> isTrapping = trapping.descendingIterator();
+		
+		//Variables stored again later before being read.
+		HashSet<String> overwritten = new HashSet<String>();
+		
+		//Temporaries read later.
+		HashSet<String> liveTemporaries = new HashSet<String>();
+		
+		for(Iterator<String> instructions = ir.descendingIterator(); instructions.hasNext();) {
+			
+			String instruction = instructions.next();
+			String[] elements = instruction.split(" ");
+			
+			boolean isTrappingValue = isTrapping.next();
+			
+			String written = null;
+			LinkedList<String> read = new LinkedList<String>();
+			boolean isRemovable = false;
+			
+			if(elements[0].startsWith("STORE")) {
+				read.add(elements[1]);
+				written = elements[2];
+				isRemovable = !isTrappingValue;
+			}
+			else if(elements[0].startsWith("ADD") || elements[0].startsWith("SUB") || elements[0].startsWith("MUL") || elements[0].startsWith("DIV")) {
+				read.add(elements[1]);
+				read.add(elements[2]);
+				written = elements[3];
+				isRemovable = !isTrappingValue;
+			}
+			else if(elements[0].startsWith("READ")) {
+				written = elements[1];
+			}
+			else if(elements[0].startsWith("WRITE")) {
+				read.add(elements[1]);
+			}
+			else if(!elements[0].equals("VAR") && !elements[0].equals("STRING") && !elements[0].equals("LINE")) {
+				
+				//Anything else may read any variable.
+				overwritten.clear();
+				
+				for(int i = 1; i < elements.length; i++) {
+					read.add(elements[i]);
+				}
+			}
+			
+			if(isRemovable && (this.isTemporary(written) ? !liveTemporaries.contains(written) : overwritten.contains(written))) {
+				continue;
+			}
+			
+			result.addFirst(instruction);
+			
+			if(written != null) {
+				
+				if(this.isTemporary(written)) {
+					liveTemporaries.remove(written);
+				}
+				else {
+					overwritten.add(written);
+				}
+			}
+			
+			for(String operand: read) {
+				
+				if(this.isTemporary(operand)) {
+					liveTemporaries.add(operand);
+				}
+				else {
+					overwritten.remove(operand);
+				}
+			}
+		}
+		
+		return result;
+	}
+	
+	//Finds for each instruction if the value it stores or computes has an INT division that may be by zero. A temporary is
+	//reused once it is read, so whether it traps is known from the last expression written to it.
+	private LinkedList<Boolean> findTrapping(LinkedList<String> ir) {
+		
+		LinkedList<Boolean> isTrapping = new LinkedList<Boolean>();
+		
+		HashSet<String> trapping = new HashSet<String>();
+		
+		for(String instruction: ir) {
+			
+			String[] elements = instruction.split(" ");
+			
+			if(elements[0].startsWith("ADD") || elements[0].startsWith("SUB") || elements[0].startsWith("MUL") || elements[0].startsWith("DIV")) {
+				
+				if(trapping.contains(elements[1]) || trapping.contains(elements[2]) || (elements[0].equals("DIVI") && !this.isNonZeroLiteral(elements[2]))) {
+					trapping.add(elements[3]);
+				}
+				else {
+					trapping.remove(elements[3]);
+				}
+				
+				isTrapping.add(trapping.contains(elements[3]));
+			}
+			else if(elements[0].startsWith("STORE")) {
+				
+				isTrapping.add(trapping.contains(elements[1]));
+				
+				trapping.remove(elements[2]);
+			}
+			else {
+				isTrapping.add(false);
+			}
+		}
+		
+		return isTrapping;
+	}
+	
+	//Check if an operand is a temporary ($T#).
+	private boolean isTemporary(String operand) {
+		return operand != null && operand.startsWith("$T");
+	}
+	
+	//Check if an operand is an INT literal other than zero. The IR keeps no kind of its operands so the literal is told by its
+	//syntax, a sign and digits like an INTLITERAL. One of more digits than surely fit in an INT is taken as possibly zero.
+	private boolean isNonZeroLiteral(String operand) {
+		
+		String digits = operand.startsWith("-") ? operand.substring(1) : operand;
+		
+		if(digits.isEmpty() || digits.length() > MAX_LITERAL_DIGITS) {
+			return false;
+		}
+		
+		boolean isZero = true;
+		
+		for(char digit: digits.toCharArray()) {
+			
+			if(digit < '0' || digit > '9') {
+				return false;
+			}
+			
+			isZero = isZero && digit == '0';
+		}
+		
+		return !isZero;
+	}
+}
@@ -1,83 +1,132 @@
 //Standard Libraries
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.LinkedList;
 
 //ANTLR runtime libraries:
 import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import org.antlr.v4.runtime.tree.*;
 
 //Driver for the parsing of Little language source.
 public class Driver {
-
+	
 	public static void main(String[] args) throws Exception{
 		
 		try {
-		
-			//Creates an ANTLR character input stream from standard input (console).
-			@SuppressWarnings("deprecation")
-			ANTLRInputStream input = new ANTLRInputStream(System.in);
 			
-			//Creates a lexer object generated by ANTLR that recognizes and classifies the tokens specified by the Little.g4 file.
-			LittleLexer lexer = new LittleLexer(input);
+			LittleParser parser = null;
 			
-			//Removes the standard error handling (would recover on errors)
-			lexer.removeErrorListeners();
-			//Customer error handler throws an RuntimeException on error so scanning will stop and the program will exit.
-			lexer.addErrorListener(new AnyErrorListener());
+			//Tokens of the recursive descent parser, which builds the units with no parse tree.
+			LittleScanner tokens = null;
 			
-			//Converts lexer validated tokens to a stream of tokens as input to the parser stage.
-			TokenStream tokens = new CommonTokenStream(lexer);
+			if(Arrays.asList(args).contains("-hand-parser")) {
+				
+				tokens = new LittleScanner(System.in);
+			}
 			
-			//Creates a parser object generated by ANTLR for constructing a parse tree for a given input, given its tokens are valid.
-			LittleParser parser = new LittleParser(tokens);
+			//Hand written lexer over the bytes of standard input, the tokens are the same as those of the ANTLR lexer.
+			else if(Arrays.asList(args).contains("-hand-lexer")) {
+				
+				parser = createParser(new LittleScanner(System.in).getTokenSource());
+			}
 			
-			//Removes the standard error handling (would recover on errors)
-			parser.removeErrorListeners();
-			//Customer error handler throws an RuntimeException on error so parsing will stop and the program will exit.
-			parser.addErrorListener(new AnyErrorListener());
+			else {
+				
+				//Creates an ANTLR character input stream from standard input (console).
+				@SuppressWarnings("deprecation")
+				ANTLRInputStream input = new ANTLRInputStream(System.in);
+				
+				parser = createParser(input);
+			}
 			
-			//Starts parsing at the program rule. i.e. Start rule = program and ParseTree root = program.
-			ParseTree tree = parser.program();
+			//Profile of an earlier run of the program given with -profile <file>, recorded by the tiny simulator.
+			int profileArgument = Arrays.asList(args).indexOf("-profile");
 			
-			//Generic parse tree walker used to trigger callbacks.
-			ParseTreeWalker walker = new ParseTreeWalker();
+			ExecutionProfile profile = (profileArgument >= 0) ? new ExecutionProfile(args[profileArgument + 1]) : null;
 			
-			//The code generation object.
-			CodeExtractor littleExtractor = new CodeExtractor();
+			//Optimization passes by -O level and -f flags.
+			PassManager passManager = createPassManager(args);
 			
-			//A walker to perform a depth first walk of the parse tree, the CodeGenerator object will generate code.
-			//from the tree to build a and IR and then tiny architecture assembly code.
-			walker.walk(littleExtractor, tree);
+			//Runs the phases after lexing on the program, from the parse through to Tiny Assembly.
+			PhasePipeline littlePipeline = new PhasePipeline(profile, new TinyCostModel(), passManager);
 			
-			//Get the symbol table and AST from the parse tree walk.
-			LinkedList<SymbolTable> symTabs = littleExtractor.getSymbolTables();
-			AST ast = littleExtractor.getAST();
+			//Source map of the tiny code given with -source-map <file>, mapping each instruction to the file, line and column
+			//of the statement it was generated from. The source is named by -source-name <name>. With -source-comments the
+			//source positions are also printed in the listing as comments.
+			int sourceMapArgument = Arrays.asList(args).indexOf("-source-map");
+			boolean isSourceComments = Arrays.asList(args).contains("-source-comments");
 			
-			//IR Code generator.
-			CodeGenerator littleGenerator = new CodeGenerator(symTabs, ast);
+			passManager.setMapping(sourceMapArgument >= 0 || isSourceComments);
+			littlePipeline.setListingPositions(isSourceComments);
 			
-			//Uses the symbols and the AST to generate IR Code from the high level language.
-			littleGenerator.generateIR();
-
-			//Tiny Assembly code generator.
-			InstructionConverter tinyConverter = new InstructionConverter(littleGenerator.getIR());
+			//Recursive descent front end, the units are extracted as the program is parsed.
+			if(tokens != null) {
+				
+				if(Arrays.asList(args).contains("-parallel")) {
+					
+					littlePipeline.compileParallel(tokens);
+				}
+				
+				else {
+					
+					littlePipeline.compile(tokens);
+				}
+			}
+			
+			//Pipelined mode, the later phases run concurrently with the parse each on their own thread.
+			else if(Arrays.asList(args).contains("-pipeline")) {
+				
+				littlePipeline.compileConcurrent(parser);
+			}
+			
+			else {
+				
+				//Starts parsing at the program rule. i.e. Start rule = program and ParseTree root = program.
+				ParseTree tree = parse(parser);
+				
+				//Parallel mode, the functions are compiled in parallel once all are extracted.
+				if(Arrays.asList(args).contains("-parallel")) {
+					
+					littlePipeline.compileParallel(tree);
+				}
+				
+				//Extracts the symbol tables and the AST of each function, then generates IR Code and Tiny Assembly code.
+				else {
+					
+					littlePipeline.compile(tree);
+				}
+			}
 			
-			//Converts the internal IR Code into Tiny Assembly.
-			tinyConverter.convertToAssembly();
+			//Prints all the generated IR Code then all the Tiny Assembly code.
+			littlePipeline.write(System.out);
 			
-			//Prints all the generated IR Code.
-			System.out.println(";"+"IR Code");
+			if(sourceMapArgument >= 0) {
+				
+				int sourceNameArgument = Arrays.asList(args).indexOf("-source-name");
+				
+				littlePipeline.writeSourceMap(args[sourceMapArgument + 1], (sourceNameArgument >= 0) ? args[sourceNameArgument + 1] : "stdin");
+			}
 			
-			for(String irLine: littleGenerator.getIR()) {
+			//Binary object of the Tiny Assembly code given with -object <file>, for runs that skip parsing and linking.
+			int objectArgument = Arrays.asList(args).indexOf("-object");
+			
+			if(objectArgument >= 0) {
 				
-				System.out.println(";"+irLine);
+				littlePipeline.writeObject(args[objectArgument + 1]);
 			}
 			
-			//Prints all the Tiny Assembly code.
-			System.out.println(";"+"Tiny Code");
+			//Estimated cycles of each function, on standard error so the listing is unchanged.
+			if(Arrays.asList(args).contains("-cycles")) {
+				
+				littlePipeline.writeCycleReport(System.err);
+			}
 			
-			for(String instruction: tinyConverter.getAssemblyCode()) {
+			//Time and code size change of each pass, on standard error.
+			if(Arrays.asList(args).contains("-time-passes")) {
 				
-				System.out.println(instruction);
+				passManager.writeReport(System.err);
 			}
 			
 		// Catches any lexer, parser, or semantic errors.
@@ -85,14 +134,139 @@ public class Driver {
 			e.printStackTrace();
 		}
 	}
-}
-
-//Class to change the standard ANTLR error handling, catches parser errors.
-class AnyErrorListener extends BaseErrorListener{
 	
-	//Overrides the syntaxError method to throw an exception that is not caught by ANTLR and will be identified by the Driver class.
-	@Override
-	public void syntaxError(Recognizer<?,?> recognizer, Object offendingSymbol, int line, int charPositionLine, String msg, RecognitionException e){
-		throw new RuntimeException(e);
+	//Creates the lexer and parser for an input, both throw a RuntimeException on the first error.
+	static LittleParser createParser(CharStream input) {
+		
+		//Creates a lexer object generated by ANTLR that recognizes and classifies the tokens specified by the Little.g4 file.
+		LittleLexer lexer = new LittleLexer(input);
+		
+		//Removes the standard error handling (would recover on errors)
+		lexer.removeErrorListeners();
+		//Customer error handler throws an RuntimeException on error so scanning will stop and the program will exit.
+		lexer.addErrorListener(new AnyErrorListener());
+		
+		return createParser((TokenSource) lexer);
+	}
+	
+	//Creates the parser for the tokens of a lexer.
+	static LittleParser createParser(TokenSource lexer) {
+		
+		//Converts lexer validated tokens to a stream of tokens as input to the parser stage.
+		TokenStream tokens = new CommonTokenStream(lexer);
+		
+		//Creates a parser object generated by ANTLR for constructing a parse tree for a given input, given its tokens are valid.
+		return new LittleParser(tokens);
+	}
+	
+	//Creates the pass manager of the options. The optimizations start from the -O0, -O1, -O2 or -Os level, -O2 when none is
+	//given, then -f<flag> turns one on and -fno-<flag> off in order. -passes=<flag>,... sets the passes and the order they run
+	//in within their stage. -Os selects instructions by size and -verify checks the code after every pass. -unroll-factor=<n>
+	//sets the copies of the body in each trip of a partly unrolled loop.
+	static PassManager createPassManager(String[] args) {
+		
+		EnumSet<Optimization> optimizations = Optimization.forLevel("2");
+		CostModel costModel = new TinyCostModel();
+		LinkedList<Optimization> passes = null;
+		String unrollFactor = null;
+		
+		for(String arg: args) {
+			
+			if(arg.startsWith("-O")) {
+				
+				optimizations = Optimization.forLevel(arg.substring(2));
+				
+				if(optimizations == null) {
+					throw new RuntimeException("Unknown optimization level " + arg);
+				}
+				
+				costModel = arg.equals("-Os") ? new SizeCostModel() : new TinyCostModel();
+			}
+			
+			else if(arg.startsWith("-passes=")) {
+				
+				passes = new LinkedList<Optimization>();
+				
+				for(String flag: arg.substring(8).split(",")) {
+					passes.add(getOptimization(flag, arg));
+				}
+			}
+			
+			else if(arg.startsWith("-unroll-factor=")) {
+				
+				unrollFactor = arg.substring(15);
+			}
+			
+			else if(arg.startsWith("-fno-")) {
+				
+				optimizations.remove(getOptimization(arg.substring(5), arg));
+			}
+			
+			else if(arg.startsWith("-f")) {
+				
+				optimizations.add(getOptimization(arg.substring(2), arg));
+			}
+		}
+		
+		PassManager passManager = new PassManager(optimizations, costModel, Arrays.asList(args).contains("-verify"));
+		
+		if(passes != null) {
+			passManager.setPasses(passes);
+		}
+		
+		if(unrollFactor != null) {
+			passManager.setUnrollFactor(Integer.parseInt(unrollFactor));
+		}
+		
+		return passManager;
+	}
+	
+	//Gets the optimization of a flag, an unknown flag stops the compile.
+	private static Optimization getOptimization(String flag, String arg) {
+		
+		Optimization optimization = Optimization.fromFlag(flag);
+		
+		if(optimization == null) {
+			throw new RuntimeException("Unknown optimization " + flag + " in " + arg);
+		}
+		
+		return optimization;
+	}
+	
+	//Two stage parse. The input is first parsed with the faster SLL prediction and an error strategy that bails out on the first
+	//error. SLL can fail on input that is valid, so only then is the input parsed again with full LL prediction and the standard
+	//error handling, which reports real syntax errors.
+	static ParseTree parse(LittleParser parser) {
+		
+		setBailingSLL(parser);
+		
+		try {
+			return parser.program();
+			
+		}catch(ParseCancellationException e) {
+			
+			return parseLL(parser);
+		}
+	}
+	
+	//Stage 1: SLL, errors cancel the parse instead of being reported.
+	static void setBailingSLL(LittleParser parser) {
+		
+		parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+		parser.removeErrorListeners();
+		parser.setErrorHandler(new BailErrorStrategy());
+	}
+	
+	//Stage 2: rewind the tokens and parse with LL.
+	static ParseTree parseLL(LittleParser parser) {
+		
+		parser.reset();
+		
+		parser.getInterpreter().setPredictionMode(PredictionMode.LL);
+		//Customer error handler throws an RuntimeException on error so parsing will stop and the program will exit.
+		parser.addErrorListener(new AnyErrorListener());
+		parser.setErrorHandler(new DefaultErrorStrategy());
+		
+		return parser.program();
 	}
 }
@@ -0,0 +1,111 @@
+//Standard Libraries
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.HashMap;
+
+/*
+ * Execution counts of a compiled program recorded by the tiny simulator in profile mode (tiny out.tiny profile=file).
+ * Counts are keyed by label, each function starts with a label of its name, and by variable name. A profile guides the
+ * compiler towards the code and variables that were hot in the recorded run, a name that is not in the profile never ran.
+ * It picks the functions to clone and the loops to unroll and the registers to give up when all are in use, it does not
+ * order blocks or inline functions. Only global variables are counted, locals in stack slots ($-k) have no counts and
+ * their registers are given up least recently used first.
+ */
+class ExecutionProfile{
+	
+	//Times each label was reached and instructions executed after it before the next label.
+	private HashMap<String, Long> labelEntries;
+	
+	private HashMap<String, Long> labelInstructions;
+	
+	//Calls (jsr) of each label.
+	private HashMap<String, Long> calls;
+	
+	//Executed instructions that read or wrote each variable.
+	private HashMap<String, Long> variableAccesses;
+	
+	//Loads a profile written by the simulator. Per line and per branch records are only for reading, they are skipped.
+	public ExecutionProfile(String fileName) throws IOException {
+		
+		this.labelEntries = new HashMap<String, Long>();
+		this.labelInstructions = new HashMap<String, Long>();
+		this.calls = new HashMap<String, Long>();
+		this.variableAccesses = new HashMap<String, Long>();
+		
+		BufferedReader reader = new BufferedReader(new FileReader(fileName));
+		
+		try {
+			
+			for(String line = reader.readLine(); line != null; line = reader.readLine()) {
+				
+				String[] record = line.trim().split(" ");
+				
+				switch(record[0]) {
+					case "label":
+						this.labelEntries.put(record[1], Long.parseLong(record[2]));
+						this.labelInstructions.put(record[1], Long.parseLong(record[3]));
+						break;
+					case "call":
+						this.calls.put(record[1], Long.parseLong(record[2]));
+						break;
+					case "var":
+						this.variableAccesses.put(record[1], Long.parseLong(record[2]));
+						break;
+				}
+			}
+			
+		}finally {
+			reader.close();
+		}
+	}
+	
+	public long getLabelEntries(String label) {
+		return this.count(this.labelEntries, label);
+	}
+	
+	public long getLabelInstructions(String label) {
+		return this.count(this.labelInstructions, label);
+	}
+	
+	public long getCalls(String label) {
+		return this.count(this.calls, label);
+	}
+	
+	public long getVariableAccesses(String variable) {
+		return this.count(this.variableAccesses, variable);
+	}
+	
+	//Instructions executed in a function, under its own label and the labels of its blocks. A clone, f.1, is counted with
+	//the function it was cloned from, the clones of a build may not be those of the run that was recorded.
+	public long getFunctionInstructions(String function) {
+		
+		long count = 0;
+		
+		for(String label: this.labelInstructions.keySet()) {
+			
+			if(this.isOfFunction(label, function)) {
+				count += this.labelInstructions.get(label);
+			}
+		}
+		
+		return count;
+	}
+	
+	//Check if a label is in a function or one of its clones. A function starts with a label of its name and the labels of
+	//its blocks are its name, _ and a number, an identifier has neither _ nor . so no other function has them.
+	private boolean isOfFunction(String label, String function) {
+		
+		String name = function.contains(".") ? function.substring(0, function.indexOf('.')) : function;
+		
+		return label.equals(name) || label.startsWith(name + "_") || label.startsWith(name + ".");
+	}
+	
+	//Count of a name, zero when the name was never executed.
+	private long count(HashMap<String, Long> counts, String name) {
+		
+		Long count = counts.get(name);
+		
+		return (count == null) ? 0 : count;
+	}
+}
@@ -0,0 +1,32 @@
+//Standard Libraries
+import java.util.LinkedList;
+
+// A function handed from the code extraction to the later phases. Holds the symbol tables of the function, its own scope
+// followed by the scopes of its blocks, and the AST of its statements. The global declarations are a unit with no statements.
+// A unit is compiled on its own and needs nothing from the units before it, the strings declared in functions are named by
+// their function and their declarations are moved before all code when the units are joined.
+class FunctionUnit{
+	
+	private LinkedList<SymbolTable> symbolTables;
+	
+	private AST ast;
+	
+	public FunctionUnit(LinkedList<SymbolTable> symTabs, AST ast) {
+		this.symbolTables = symTabs;
+		this.ast = ast;
+	}
+	
+	// Returns the scope of the unit, the function name or GLOBAL.
+	public String getScope() {
+		return this.symbolTables.getFirst().getScope();
+	}
+	
+	public LinkedList<SymbolTable> getSymbolTables() {
+		return this.symbolTables;
+	}
+	
+	public AST getAST() {
+		return this.ast;
+	}
+
+}
@@ -0,0 +1,1154 @@
+//Standard Libraries
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+//ANTLR runtime libraries:
+import org.antlr.v4.runtime.CharStreams;
+
+/*
+ * Differential fuzzing of the optimizations. Random well typed Little programs are compiled with no optimizations, with all
+ * of them and with all but one. Each build is run in the tiny simulator on the same random input and its output compared to
+ * the unoptimized build. A failing program is shrunk to a minimal repro: functions and statements are removed and operations
+ * replaced by one of their operands as long as the same build still fails. The instructions and cycles each optimization
+ * saves, against the build with all but that one, are summed over the programs that pass.
+ *
+ *     java Fuzzer <tiny simulator> [programs] [seed] [repro directory]
+ */
+public class Fuzzer {
+	
+	//Numbers given as input to each run, read by READ in order.
+	private static final int INPUT_VALUES = 64;
+	
+	private static final int SIMULATOR_TIMEOUT_SECONDS = 10;
+	
+	static final Pattern INSTRUCTIONS = Pattern.compile("#Instructions:(\\d+)");
+	
+	static final Pattern CYCLES = Pattern.compile("Total Cycles = (\\d+)");
+	
+	private String simulator;
+	
+	private File reproDirectory;
+	
+	//Optimizations of each build by name, the first is the unoptimized reference.
+	private LinkedHashMap<String, EnumSet<Optimization>> builds;
+	
+	//Instructions and cycles of each build summed over the passing programs.
+	private LinkedHashMap<String, long[]> totals;
+	
+	public Fuzzer(String simulator, File reproDirectory) {
+		
+		this.simulator = simulator;
+		this.reproDirectory = reproDirectory;
+		this.builds = new LinkedHashMap<String, EnumSet<Optimization>>();
+		this.totals = new LinkedHashMap<String, long[]>();
+		
+		this.builds.put("O0", EnumSet.noneOf(Optimization.class));
+		this.builds.put("all", EnumSet.allOf(Optimization.class));
+		
+		for(Optimization optimization: Optimization.values()) {
+			
+			EnumSet<Optimization> optimizations = EnumSet.allOf(Optimization.class);
+			optimizations.remove(optimization);
+			
+			this.builds.put("no-" + optimization.getFlag(), optimizations);
+		}
+		
+		for(String build: this.builds.keySet()) {
+			this.totals.put(build, new long[2]);
+		}
+	}
+	
+	public static void main(String[] args) throws Exception {
+		
+		if(args.length < 1) {
+			System.err.println("usage: java Fuzzer <tiny simulator> [programs] [seed] [repro directory]");
+			System.exit(1);
+		}
+		
+		int programs = (args.length > 1) ? Integer.parseInt(args[1]) : 100;
+		long seed = (args.length > 2) ? Long.parseLong(args[2]) : System.currentTimeMillis();
+		File reproDirectory = new File((args.length > 3) ? args[3] : "fuzz-repros");
+		
+		System.out.println("seed " + seed);
+		
+		Fuzzer fuzzer = new Fuzzer(args[0], reproDirectory);
+		
+		int failures = 0;
+		
+		for(int i = 0; i < programs; i++) {
+			
+			//Each program has its own seed so a failure can be generated again on its own.
+			if(!fuzzer.test(seed + i)) {
+				failures++;
+			}
+		}
+		
+		System.out.println(programs + " programs, " + failures + " failed");
+		
+		fuzzer.writeSavings(System.out);
+	}
+	
+	//Tests the program of a seed in every build. Returns false if a build fails, its repro is then written.
+	public boolean test(long seed) throws IOException, InterruptedException {
+		
+		Random random = new Random(seed);
+		
+		FuzzProgram program = FuzzProgram.generate(random);
+		String input = this.createInput(random);
+		
+		LinkedHashMap<String, FuzzRun> runs = new LinkedHashMap<String, FuzzRun>();
+		
+		for(String build: this.builds.keySet()) {
+			
+			FuzzRun run = this.run(program.toString(), input, this.builds.get(build));
+			
+			runs.put(build, run);
+			
+			if(this.isFailure(run, runs.get("O0"))) {
+				
+				FuzzProgram repro = this.shrink(program, build, input);
+				
+				File file = this.writeRepro(seed, build, repro, input, this.run(repro.toString(), input, this.builds.get(build)));
+				
+				System.out.println("seed " + seed + " fails in build " + build + ": " + ((run.getFailure() != null) ? run.getFailure() : "output differs") + ", repro " + file);
+				
+				return false;
+			}
+		}
+		
+		for(String build: runs.keySet()) {
+			this.totals.get(build)[0] += runs.get(build).getInstructions();
+			this.totals.get(build)[1] += runs.get(build).getCycles();
+		}
+		
+		return true;
+	}
+	
+	//Prints the instructions and cycles of each build and the savings of each optimization.
+	public void writeSavings(PrintStream out) {
+		
+		long[] all = this.totals.get("all");
+		long[] none = this.totals.get("O0");
+		
+		out.println(String.format("%-28s %14s %14s", "build", "instructions", "cycles"));
+		
+		for(String build: this.totals.keySet()) {
+			out.println(String.format("%-28s %14d %14d", build, this.totals.get(build)[0], this.totals.get(build)[1]));
+		}
+		
+		out.println(String.format("%-28s %14s %14s", "saved by", "instructions", "cycles"));
+		out.println(String.format("%-28s %14s %14s", "all optimizations", this.saving(none[0], all[0]), this.saving(none[1], all[1])));
+		
+		for(Optimization optimization: Optimization.values()) {
+			
+			long[] without = this.totals.get("no-" + optimization.getFlag());
+			
+			out.println(String.format("%-28s %14s %14s", optimization.getFlag(), this.saving(without[0], all[0]), this.saving(without[1], all[1])));
+		}
+	}
+	
+	//Amount saved and its percentage of the larger count.
+	private String saving(long without, long with) {
+		
+		return String.format("%d (%.1f%%)", without - with, (without == 0) ? 0.0 : 100.0 * (without - with) / without);
+	}
+	
+	//Random whole numbers, read as INT or FLOAT.
+	private String createInput(Random random) {
+		
+		StringBuilder input = new StringBuilder();
+		
+		for(int i = 0; i < INPUT_VALUES; i++) {
+			input.append(random.nextInt(101) - 50).append('\n');
+		}
+		
+		return input.toString();
+	}
+	
+	//A run fails if the compiler or simulator fails or, for an optimized build, its output differs from the reference.
+	private boolean isFailure(FuzzRun run, FuzzRun reference) {
+		
+		return run.getFailure() != null || (run != reference && !run.getOutput().equals(reference.getOutput()));
+	}
+	
+	//Check if a program still fails in a build, its reference has to pass for an optimized build to fail.
+	private boolean fails(FuzzProgram program, String build, String input) throws IOException, InterruptedException {
+		
+		FuzzRun reference = this.run(program.toString(), input, this.builds.get("O0"));
+		
+		if(build.equals("O0")) {
+			return reference.getFailure() != null;
+		}
+		
+		return reference.getFailure() == null && this.isFailure(this.run(program.toString(), input, this.builds.get(build)), reference);
+	}
+	
+	//Reduces a failing program one step at a time, taking the first reduction that still fails, until none does.
+	private FuzzProgram shrink(FuzzProgram program, String build, String input) throws IOException, InterruptedException {
+		
+		boolean isReduced = true;
+		
+		while(isReduced) {
+			
+			isReduced = false;
+			
+			for(FuzzProgram reduction: program.getReductions()) {
+				
+				if(this.fails(reduction, build, input)) {
+					program = reduction;
+					isReduced = true;
+					break;
+				}
+			}
+		}
+		
+		return program;
+	}
+	
+	//Writes a repro, the program with its build, input and failure in comments.
+	private File writeRepro(long seed, String build, FuzzProgram repro, String input, FuzzRun run) throws IOException {
+		
+		this.reproDirectory.mkdirs();
+		
+		File file = new File(this.reproDirectory, "seed" + seed + "-" + build + ".little");
+		
+		FileWriter writer = new FileWriter(file);
+		
+		try {
+			writer.write("-- build " + build + " (" + this.builds.get(build) + ")\n");
+			writer.write("-- input " + input.replace('\n', ' ').trim() + "\n");
+			writer.write("-- failure " + ((run.getFailure() != null) ? run.getFailure() : "output differs") + "\n");
+			writer.write(repro.toString());
+			
+		}finally {
+			writer.close();
+		}
+		
+		return file;
+	}
+	
+	//Compiles a program with a set of optimizations and runs it in the simulator.
+	private FuzzRun run(String source, String input, EnumSet<Optimization> optimizations) throws IOException, InterruptedException {
+		
+		ByteArrayOutputStream listing = new ByteArrayOutputStream();
+		
+		try {
+			//Each pass is verified, a pass that leaves invalid code fails the build.
+			PhasePipeline pipeline = new PhasePipeline(null, new TinyCostModel(), new PassManager(EnumSet.copyOf(optimizations), new TinyCostModel(), true));
+			
+			pipeline.compile(Driver.parse(Driver.createParser(CharStreams.fromString(source))));
+			pipeline.write(new PrintStream(listing));
+			
+		}catch(RuntimeException e) {
+			return new FuzzRun("compiler " + e);
+		}
+		
+		File tiny = File.createTempFile("fuzz", ".tiny");
+		
+		try {
+			FileWriter writer = new FileWriter(tiny);
+			writer.write(listing.toString());
+			writer.close();
+			
+			Process process = new ProcessBuilder(this.simulator, tiny.getPath(), "stats", "mix").redirectErrorStream(true).start();
+			
+			OutputStream stdin = process.getOutputStream();
+			
+			try {
+				stdin.write(input.getBytes());
+				stdin.close();
+				
+			}catch(IOException e) {
+				//The simulator stopped before reading all of the input, its output tells why.
+			}
+			
+			String output = this.readAll(process.getInputStream());
+			
+			if(!process.waitFor(SIMULATOR_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+				process.destroy();
+				return new FuzzRun("simulator timed out");
+			}
+			
+			//A trap such as an INT division by zero kills the simulator with a signal.
+			if(process.exitValue() != 0) {
+				return new FuzzRun("simulator exited with " + process.exitValue());
+			}
+			
+			return FuzzRun.parse(output);
+			
+		}finally {
+			tiny.delete();
+		}
+	}
+	
+	private String readAll(InputStream in) throws IOException {
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		
+		for(int n = in.read(buffer); n > 0; n = in.read(buffer)) {
+			bytes.write(buffer, 0, n);
+		}
+		
+		return bytes.toString();
+	}
+}
+
+//Result of running a build, the output of the program and the simulator statistics, or why it failed.
+class FuzzRun{
+	
+	private String output;
+	
+	private long instructions;
+	
+	private long cycles;
+	
+	private String failure;
+	
+	public FuzzRun(String failure) {
+		this.failure = failure;
+	}
+	
+	private FuzzRun(String output, long instructions, long cycles) {
+		this.output = output;
+		this.instructions = instructions;
+		this.cycles = cycles;
+	}
+	
+	//Splits the simulator output into the output of the program and its statistics, which the simulator prints last.
+	public static FuzzRun parse(String simulatorOutput) {
+		
+		int statistics = simulatorOutput.lastIndexOf("\nSTATISTICS");
+		
+		if(statistics < 0 || simulatorOutput.contains("error on line")) {
+			return new FuzzRun("simulator " + simulatorOutput.trim().split("\n")[0]);
+		}
+		
+		Matcher instructions = Fuzzer.INSTRUCTIONS.matcher(simulatorOutput);
+		Matcher cycles = Fuzzer.CYCLES.matcher(simulatorOutput);
+		
+		if(!instructions.find(statistics) || !cycles.find(statistics)) {
+			return new FuzzRun("simulator printed no statistics");
+		}
+		
+		return new FuzzRun(simulatorOutput.substring(0, statistics), Long.parseLong(instructions.group(1)), Long.parseLong(cycles.group(1)));
+	}
+	
+	public String getOutput() {
+		return this.output;
+	}
+	
+	public long getInstructions() {
+		return this.instructions;
+	}
+	
+	public long getCycles() {
+		return this.cycles;
+	}
+	
+	//Why the run failed, null if it did not.
+	public String getFailure() {
+		return this.failure;
+	}
+}
+
+//Random Little program within the subset the compiler generates code for: INT, FLOAT and STRING declarations, functions
+//with parameters and a return value, assignments, READ, WRITE, IF and WHILE. A function calls the functions declared before
+//it, the only recursion is a call in tail position at the end of a function while a depth parameter is above 0, of itself or
+//of the next function, which then calls it back. Each call passes the depth less one, so every program ends. Every variable
+//has a unique name, the locals and parameters of a function are prefixed by its name.
+class FuzzProgram{
+	
+	private static final String[] INT_LITERALS = {"0", "1", "2", "3", "7", "10", "100", "65535"};
+	
+	private static final String[] FLOAT_LITERALS = {"0.0", "1.0", ".5", "2.25", "3.14159", "100.0", "0.001"};
+	
+	private static final String[] STRINGS = {"\"\\n\"", "\"x = \"", "\"a b  c\"", "\"\""};
+	
+	private LinkedList<String> globals;
+	
+	private LinkedList<FuzzFunction> functions;
+	
+	private FuzzProgram(LinkedList<String> globals, LinkedList<FuzzFunction> functions) {
+		this.globals = globals;
+		this.functions = functions;
+	}
+	
+	public static FuzzProgram generate(Random random) {
+		
+		LinkedList<String> globals = new LinkedList<String>();
+		LinkedList<FuzzFunction> functions = new LinkedList<FuzzFunction>();
+		
+		ArrayList<String> ints = names("i", 1 + random.nextInt(4));
+		ArrayList<String> floats = names("f", random.nextInt(4));
+		ArrayList<String> strings = names("s", 1 + random.nextInt(STRINGS.length));
+		
+		addDeclaration(globals, "INT", ints);
+		addDeclaration(globals, "FLOAT", floats);
+		
+		for(int i = 0; i < strings.size(); i++) {
+			globals.add("STRING " + strings.get(i) + " := " + STRINGS[i] + ";");
+		}
+		
+		int functionCount = 1 + random.nextInt(4);
+		
+		//The last function calls this one in tail position.
+		boolean isCalledBack = false;
+		
+		for(int i = 0; i < functionCount; i++) {
+			
+			boolean isMain = (i == functionCount - 1);
+			String name = isMain ? "main" : "fn" + i;
+			
+			//A function called in tail position by the last one takes the same parameters and returns the same type, and its
+			//statements do not call the last one, that call would start the recursion again.
+			FuzzFunction caller = isCalledBack ? functions.getLast() : null;
+			
+			ArrayList<String> localInts = names(name + "i", random.nextInt(3));
+			ArrayList<String> localFloats = names(name + "f", random.nextInt(2));
+			
+			LinkedList<String> locals = new LinkedList<String>();
+			addDeclaration(locals, "INT", localInts);
+			addDeclaration(locals, "FLOAT", localFloats);
+			
+			ArrayList<Boolean> parameterTypes = new ArrayList<Boolean>();
+			
+			if(caller != null) {
+				parameterTypes.addAll(caller.getParameterTypes());
+			}
+			else {
+				
+				int parameterCount = isMain ? 0 : random.nextInt(3);
+				
+				for(int j = 0; j < parameterCount; j++) {
+					parameterTypes.add(random.nextBoolean());
+				}
+			}
+			
+			ArrayList<String> parameters = new ArrayList<String>();
+			ArrayList<String> parameterNames = names(name + "p", parameterTypes.size());
+			
+			for(int j = 0; j < parameterNames.size(); j++) {
+				
+				boolean isInt = parameterTypes.get(j);
+				
+				parameters.add((isInt ? "INT " : "FLOAT ") + parameterNames.get(j));
+				(isInt ? localInts : localFloats).add(parameterNames.get(j));
+			}
+			
+			localInts.addAll(ints);
+			localFloats.addAll(floats);
+			
+			LinkedList<FuzzFunction> callable = new LinkedList<FuzzFunction>(functions);
+			
+			if(caller != null) {
+				callable.remove(caller);
+			}
+			
+			FuzzScope scope = new FuzzScope(name, localInts, localFloats, strings, callable);
+			
+			LinkedList<FuzzStatement> statements = new LinkedList<FuzzStatement>();
+			
+			int statementCount = 1 + random.nextInt(20);
+			
+			for(int j = 0; j < statementCount; j++) {
+				statements.add(FuzzStatement.generate(random, scope, 0));
+			}
+			
+			addDeclaration(locals, "INT", scope.getCounters());
+			
+			String returnType = isMain ? "VOID" : ((caller != null) ? (caller.isInt() ? "INT" : "FLOAT") : (random.nextBoolean() ? "INT" : "FLOAT"));
+			FuzzExpression result = isMain ? null : FuzzExpression.generate(random, scope, returnType.equals("INT"), 3);
+			
+			String depth = null;
+			String tailCall = null;
+			
+			isCalledBack = false;
+			
+			//Calls back the last function, itself or the next in tail position, with its parameters in a random order, so
+			//the arguments are taken from the slots they replace.
+			if(caller != null || (!isMain && random.nextInt(3) == 0)) {
+				
+				String callee = name;
+				
+				if(caller != null) {
+					callee = caller.getName();
+				}
+				else if(i + 2 < functionCount && random.nextBoolean()) {
+					callee = "fn" + (i + 1);
+					isCalledBack = true;
+				}
+				
+				//Parameters of each type shuffled, the arguments take them in turn, or a few an expression instead.
+				LinkedList<String> intParameters = new LinkedList<String>();
+				LinkedList<String> floatParameters = new LinkedList<String>();
+				
+				for(int j = 0; j < parameterNames.size(); j++) {
+					(parameterTypes.get(j) ? intParameters : floatParameters).add(parameterNames.get(j));
+				}
+				
+				Collections.shuffle(intParameters, random);
+				Collections.shuffle(floatParameters, random);
+				
+				ArrayList<String> arguments = new ArrayList<String>();
+				
+				for(boolean isInt: parameterTypes) {
+					
+					String parameter = (isInt ? intParameters : floatParameters).removeFirst();
+					
+					arguments.add((random.nextInt(4) > 0) ? parameter : FuzzExpression.generate(random, scope, isInt, 1).toString());
+				}
+				
+				depth = name + "d";
+				
+				parameters.add("INT " + depth);
+				arguments.add(depth + " - 1");
+				
+				tailCall = callee + "(" + String.join(", ", arguments) + ")";
+			}
+			
+			functions.add(new FuzzFunction(name, returnType, parameters, locals, statements, result, depth, tailCall));
+		}
+		
+		return new FuzzProgram(globals, functions);
+	}
+	
+	//Programs with one reduction each: a function no other calls removed, a statement removed or an operation replaced by an
+	//operand.
+	public LinkedList<FuzzProgram> getReductions() {
+		
+		LinkedList<FuzzProgram> reductions = new LinkedList<FuzzProgram>();
+		
+		for(int i = 0; i < this.functions.size() && this.functions.size() > 1; i++) {
+			
+			if(this.isCalled(this.functions.get(i).getName())) {
+				continue;
+			}
+			
+			LinkedList<FuzzFunction> functions = new LinkedList<FuzzFunction>(this.functions);
+			functions.remove(i);
+			
+			reductions.add(new FuzzProgram(this.globals, functions));
+		}
+		
+		for(int i = 0; i < this.functions.size(); i++) {
+			
+			for(FuzzFunction reduced: this.functions.get(i).getReductions()) {
+				
+				LinkedList<FuzzFunction> functions = new LinkedList<FuzzFunction>(this.functions);
+				functions.set(i, reduced);
+				
+				reductions.add(new FuzzProgram(this.globals, functions));
+			}
+		}
+		
+		return reductions;
+	}
+	
+	@Override
+	public String toString() {
+		
+		StringBuilder source = new StringBuilder("PROGRAM fuzz\nBEGIN\n");
+		
+		for(String global: this.globals) {
+			source.append('\t').append(global).append('\n');
+		}
+		
+		for(FuzzFunction function: this.functions) {
+			source.append(function);
+		}
+		
+		return source.append("END\n").toString();
+	}
+	
+	//Check if any function calls a function.
+	private boolean isCalled(String name) {
+		
+		for(FuzzFunction function: this.functions) {
+			
+			if(function.toString().contains(name + "(") && !function.getName().equals(name)) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	static ArrayList<String> names(String prefix, int count) {
+		
+		ArrayList<String> names = new ArrayList<String>();
+		
+		for(int i = 0; i < count; i++) {
+			names.add(prefix + i);
+		}
+		
+		return names;
+	}
+	
+	//Adds the declaration of a list of variables, if there are any.
+	private static void addDeclaration(LinkedList<String> declarations, String type, ArrayList<String> names) {
+		
+		if(!names.isEmpty()) {
+			declarations.add(type + " " + String.join(", ", names) + ";");
+		}
+	}
+	
+	static String pick(Random random, String[] values) {
+		return values[random.nextInt(values.length)];
+	}
+	
+	static String pick(Random random, ArrayList<String> values) {
+		return values.get(random.nextInt(values.size()));
+	}
+	
+	//Literal of a type for an operand.
+	static String literal(Random random, boolean isInt) {
+		return isInt ? pick(random, INT_LITERALS) : pick(random, FLOAT_LITERALS);
+	}
+}
+
+//What the statements of a function being generated can use: the INT and FLOAT variables they assign and read, the strings,
+//and the functions declared before it. A function makes a few calls and none in a loop so the calls of a program stay few.
+//Each loop has a counter of its own that no other statement assigns.
+class FuzzScope{
+	
+	private static final int CALLS_PER_FUNCTION = 3;
+	
+	private String function;
+	
+	private ArrayList<String> ints;
+	
+	private ArrayList<String> floats;
+	
+	private ArrayList<String> strings;
+	
+	private LinkedList<FuzzFunction> callable;
+	
+	private ArrayList<String> counters;
+	
+	private int calls;
+	
+	//Number of loops the statement being generated is in.
+	private int loopDepth;
+	
+	public FuzzScope(String function, ArrayList<String> ints, ArrayList<String> floats, ArrayList<String> strings, LinkedList<FuzzFunction> callable) {
+		this.function = function;
+		this.ints = ints;
+		this.floats = floats;
+		this.strings = strings;
+		this.callable = new LinkedList<FuzzFunction>(callable);
+		this.counters = new ArrayList<String>();
+		this.calls = 0;
+		this.loopDepth = 0;
+	}
+	
+	public ArrayList<String> getInts() {
+		return this.ints;
+	}
+	
+	public ArrayList<String> getFloats() {
+		return this.floats;
+	}
+	
+	public ArrayList<String> getStrings() {
+		return this.strings;
+	}
+	
+	//Loop counters of the function, declared as INT locals.
+	public ArrayList<String> getCounters() {
+		return this.counters;
+	}
+	
+	//Starts a loop and returns its counter.
+	public String enterLoop() {
+		
+		this.loopDepth++;
+		this.counters.add(this.function + "w" + this.counters.size());
+		
+		return this.counters.get(this.counters.size() - 1);
+	}
+	
+	public void exitLoop() {
+		this.loopDepth--;
+	}
+	
+	//Picks a function returning a type to call, null when no more calls are made here.
+	public FuzzFunction pickCall(Random random, boolean isInt) {
+		
+		if(this.loopDepth > 0 || this.calls >= CALLS_PER_FUNCTION) {
+			return null;
+		}
+		
+		LinkedList<FuzzFunction> candidates = new LinkedList<FuzzFunction>();
+		
+		for(FuzzFunction function: this.callable) {
+			
+			if(function.isInt() == isInt) {
+				candidates.add(function);
+			}
+		}
+		
+		if(candidates.isEmpty()) {
+			return null;
+		}
+		
+		this.calls++;
+		
+		return candidates.get(random.nextInt(candidates.size()));
+	}
+}
+
+//Function of a random program, main is the last and calls the others.
+class FuzzFunction{
+	
+	private String name;
+	
+	//INT, FLOAT or VOID.
+	private String returnType;
+	
+	//Declarations of the parameters, type and name.
+	private ArrayList<String> parameters;
+	
+	private LinkedList<String> locals;
+	
+	private LinkedList<FuzzStatement> statements;
+	
+	//Value returned at the end, null for VOID.
+	private FuzzExpression result;
+	
+	//Last parameter, an INT the call in tail position is made while it is above 0, and the call, both null when there is none.
+	private String depth;
+	
+	private String tailCall;
+	
+	public FuzzFunction(String name, String returnType, ArrayList<String> parameters, LinkedList<String> locals, LinkedList<FuzzStatement> statements, FuzzExpression result, String depth, String tailCall) {
+		this.name = name;
+		this.returnType = returnType;
+		this.parameters = parameters;
+		this.locals = locals;
+		this.statements = statements;
+		this.result = result;
+		this.depth = depth;
+		this.tailCall = tailCall;
+	}
+	
+	public String getName() {
+		return this.name;
+	}
+	
+	public boolean isInt() {
+		return this.returnType.equals("INT");
+	}
+	
+	//Check if each parameter but the depth is an INT, in order.
+	public ArrayList<Boolean> getParameterTypes() {
+		
+		ArrayList<Boolean> types = new ArrayList<Boolean>();
+		
+		for(String parameter: this.parameters) {
+			
+			if(!parameter.equals("INT " + this.depth)) {
+				types.add(parameter.startsWith("INT"));
+			}
+		}
+		
+		return types;
+	}
+	
+	//Check if the function ends in a call in tail position, it then takes a depth after its other parameters.
+	public boolean isTailCalling() {
+		return this.tailCall != null;
+	}
+	
+	//Copies of the function with one statement removed or reduced, or with an operation of its result replaced by an operand.
+	public LinkedList<FuzzFunction> getReductions() {
+		
+		LinkedList<FuzzFunction> reductions = new LinkedList<FuzzFunction>();
+		
+		for(LinkedList<FuzzStatement> statements: FuzzStatement.getReductions(this.statements)) {
+			reductions.add(new FuzzFunction(this.name, this.returnType, this.parameters, this.locals, statements, this.result, this.depth, this.tailCall));
+		}
+		
+		for(int i = 0; this.result != null && i < this.result.getOperationCount(); i++) {
+			
+			reductions.add(new FuzzFunction(this.name, this.returnType, this.parameters, this.locals, this.statements, this.result.reduce(i, true), this.depth, this.tailCall));
+			reductions.add(new FuzzFunction(this.name, this.returnType, this.parameters, this.locals, this.statements, this.result.reduce(i, false), this.depth, this.tailCall));
+		}
+		
+		return reductions;
+	}
+	
+	@Override
+	public String toString() {
+		
+		StringBuilder source = new StringBuilder("\tFUNCTION " + this.returnType + " " + this.name + "(" + String.join(", ", this.parameters) + ")\n\tBEGIN\n");
+		
+		for(String local: this.locals) {
+			source.append("\t\t").append(local).append('\n');
+		}
+		
+		for(FuzzStatement statement: this.statements) {
+			source.append(statement.toString("\t\t"));
+		}
+		
+		if(this.tailCall != null) {
+			source.append("\t\tIF (").append(this.depth).append(" > 0)\n\t\t\tRETURN ").append(this.tailCall).append(";\n\t\tENDIF\n");
+		}
+		
+		if(this.result != null) {
+			source.append("\t\tRETURN ").append(this.result).append(";\n");
+		}
+		
+		return source.append("\tEND\n").toString();
+	}
+}
+
+//Statement of a random program, an assignment, a READ, a WRITE, an IF with an optional ELSE or a WHILE. A WHILE counts its
+//own counter from 0 to a small bound, so it always ends.
+class FuzzStatement{
+	
+	private static final String[] COMPARES = {"<", ">", "=", "!=", "<=", ">="};
+	
+	//Depth of IF and WHILE statements in each other.
+	private static final int MAX_DEPTH = 2;
+	
+	//Assigned variable, null for READ and WRITE.
+	private String variable;
+	
+	private FuzzExpression expression;
+	
+	//READ, WRITE, IF or WHILE and the operands of a READ or WRITE.
+	private String call;
+	
+	private ArrayList<String> operands;
+	
+	//Condition of an IF, or counter and bound of a WHILE.
+	private String condition;
+	
+	private String counter;
+	
+	private LinkedList<FuzzStatement> body;
+	
+	//Statements of the ELSE part, null if there is none.
+	private LinkedList<FuzzStatement> elseBody;
+	
+	private FuzzStatement(String variable, FuzzExpression expression, String call, ArrayList<String> operands) {
+		this.variable = variable;
+		this.expression = expression;
+		this.call = call;
+		this.operands = operands;
+	}
+	
+	private FuzzStatement(String call, String condition, String counter, LinkedList<FuzzStatement> body, LinkedList<FuzzStatement> elseBody) {
+		this.call = call;
+		this.condition = condition;
+		this.counter = counter;
+		this.body = body;
+		this.elseBody = elseBody;
+	}
+	
+	public static FuzzStatement generate(Random random, FuzzScope scope, int depth) {
+		
+		int kind = random.nextInt(12);
+		
+		ArrayList<String> ints = scope.getInts();
+		ArrayList<String> floats = scope.getFloats();
+		
+		ArrayList<String> variables = new ArrayList<String>(ints);
+		variables.addAll(floats);
+		
+		ArrayList<String> operands = new ArrayList<String>();
+		
+		//READ of one or two variables.
+		if(kind == 0) {
+			
+			for(int i = 0; i <= random.nextInt(2); i++) {
+				operands.add(FuzzProgram.pick(random, variables));
+			}
+			
+			return new FuzzStatement(null, null, "READ", operands);
+		}
+		
+		//WRITE of variables and strings, each value followed by a string so the values are kept apart.
+		if(kind <= 2) {
+			
+			for(int i = 0; i <= random.nextInt(3); i++) {
+				operands.add(FuzzProgram.pick(random, variables));
+				operands.add(scope.getStrings().get(0));
+			}
+			
+			if(random.nextBoolean()) {
+				operands.add(FuzzProgram.pick(random, scope.getStrings()));
+			}
+			
+			return new FuzzStatement(null, null, "WRITE", operands);
+		}
+		
+		//IF comparing two expressions of a type.
+		if(kind == 3 && depth < MAX_DEPTH) {
+			
+			boolean isInt = floats.isEmpty() || random.nextBoolean();
+			
+			String condition = FuzzExpression.generate(random, scope, isInt, 2) + " " + FuzzProgram.pick(random, COMPARES) + " " + FuzzExpression.generate(random, scope, isInt, 2);
+			
+			LinkedList<FuzzStatement> body = generateBody(random, scope, depth);
+			LinkedList<FuzzStatement> elseBody = random.nextBoolean() ? generateBody(random, scope, depth) : null;
+			
+			return new FuzzStatement("IF", condition, null, body, elseBody);
+		}
+		
+		//WHILE running its body up to three times.
+		if(kind == 4 && depth < MAX_DEPTH) {
+			
+			String counter = scope.enterLoop();
+			String condition = counter + " < " + random.nextInt(4);
+			
+			LinkedList<FuzzStatement> body = generateBody(random, scope, depth);
+			
+			scope.exitLoop();
+			
+			return new FuzzStatement("WHILE", condition, counter, body, null);
+		}
+		
+		boolean isInt = floats.isEmpty() || random.nextInt(3) > 0;
+		
+		String variable = FuzzProgram.pick(random, isInt ? ints : floats);
+		
+		return new FuzzStatement(variable, FuzzExpression.generate(random, scope, isInt, 4), null, null);
+	}
+	
+	//Statements of an IF or WHILE.
+	private static LinkedList<FuzzStatement> generateBody(Random random, FuzzScope scope, int depth) {
+		
+		LinkedList<FuzzStatement> body = new LinkedList<FuzzStatement>();
+		
+		for(int i = 0; i <= random.nextInt(4); i++) {
+			body.add(generate(random, scope, depth + 1));
+		}
+		
+		return body;
+	}
+	
+	//Copies of a list of statements with one statement removed or reduced.
+	public static LinkedList<LinkedList<FuzzStatement>> getReductions(LinkedList<FuzzStatement> statements) {
+		
+		LinkedList<LinkedList<FuzzStatement>> reductions = new LinkedList<LinkedList<FuzzStatement>>();
+		
+		for(int i = 0; i < statements.size(); i++) {
+			
+			LinkedList<FuzzStatement> reduced = new LinkedList<FuzzStatement>(statements);
+			reduced.remove(i);
+			
+			reductions.add(reduced);
+		}
+		
+		for(int i = 0; i < statements.size(); i++) {
+			
+			for(FuzzStatement statement: statements.get(i).getReductions()) {
+				
+				LinkedList<FuzzStatement> reduced = new LinkedList<FuzzStatement>(statements);
+				reduced.set(i, statement);
+				
+				reductions.add(reduced);
+			}
+		}
+		
+		return reductions;
+	}
+	
+	//Copies of the statement with one operation of its expression replaced by an operand, or with its ELSE part removed or
+	//a statement of its body removed or reduced.
+	public LinkedList<FuzzStatement> getReductions() {
+		
+		LinkedList<FuzzStatement> reductions = new LinkedList<FuzzStatement>();
+		
+		if(this.body != null) {
+			
+			if(this.elseBody != null) {
+				
+				reductions.add(new FuzzStatement(this.call, this.condition, this.counter, this.body, null));
+				
+				for(LinkedList<FuzzStatement> elseBody: getReductions(this.elseBody)) {
+					reductions.add(new FuzzStatement(this.call, this.condition, this.counter, this.body, elseBody));
+				}
+			}
+			
+			for(LinkedList<FuzzStatement> body: getReductions(this.body)) {
+				reductions.add(new FuzzStatement(this.call, this.condition, this.counter, body, this.elseBody));
+			}
+			
+			return reductions;
+		}
+		
+		if(this.expression == null) {
+			return reductions;
+		}
+		
+		for(int i = 0; i < this.expression.getOperationCount(); i++) {
+			
+			reductions.add(new FuzzStatement(this.variable, this.expression.reduce(i, true), null, null));
+			reductions.add(new FuzzStatement(this.variable, this.expression.reduce(i, false), null, null));
+		}
+		
+		return reductions;
+	}
+	
+	//Source of the statement, each line indented and ended.
+	public String toString(String indent) {
+		
+		if(this.body == null) {
+			return indent + this + "\n";
+		}
+		
+		StringBuilder source = new StringBuilder();
+		
+		if(this.counter != null) {
+			source.append(indent).append(this.counter).append(" := 0;\n");
+		}
+		
+		source.append(indent).append(this.call).append(" (").append(this.condition).append(")\n");
+		
+		for(FuzzStatement statement: this.body) {
+			source.append(statement.toString(indent + "\t"));
+		}
+		
+		if(this.counter != null) {
+			source.append(indent).append('\t').append(this.counter).append(" := ").append(this.counter).append(" + 1;\n");
+			source.append(indent).append("ENDWHILE\n");
+			
+			return source.toString();
+		}
+		
+		if(this.elseBody != null) {
+			
+			source.append(indent).append("ELSE\n");
+			
+			for(FuzzStatement statement: this.elseBody) {
+				source.append(statement.toString(indent + "\t"));
+			}
+		}
+		
+		return source.append(indent).append("ENDIF\n").toString();
+	}
+	
+	@Override
+	public String toString() {
+		
+		if(this.variable != null) {
+			return this.variable + " := " + this.expression + ";";
+		}
+		
+		return this.call + "(" + String.join(", ", this.operands) + ");";
+	}
+}
+
+//Expression of a random program, a variable, literal or call or an operation on two expressions of the same type. An INT is
+//only divided by a literal that is not zero, the simulator traps on an INT division by zero. A call is a leaf, its arguments
+//are generated with it and are not reduced, the depth of a function calling in tail position is a small literal.
+class FuzzExpression{
+	
+	private static final String[] OPERATORS = {"+", "-", "*", "/"};
+	
+	private static final String[] DIVISORS = {"1", "2", "3", "7"};
+	
+	private static final String[] DEPTHS = {"0", "1", "3", "10"};
+	
+	//Variable or literal of a leaf, operator of an operation.
+	private String value;
+	
+	private FuzzExpression left;
+	
+	private FuzzExpression right;
+	
+	private boolean isParenthesized;
+	
+	private FuzzExpression(String value, FuzzExpression left, FuzzExpression right, boolean isParenthesized) {
+		this.value = value;
+		this.left = left;
+		this.right = right;
+		this.isParenthesized = isParenthesized;
+	}
+	
+	public static FuzzExpression generate(Random random, FuzzScope scope, boolean isInt, int depth) {
+		
+		if(depth == 0 || random.nextInt(3) == 0) {
+			
+			ArrayList<String> variables = isInt ? scope.getInts() : scope.getFloats();
+			FuzzFunction callee = (random.nextInt(4) == 0) ? scope.pickCall(random, isInt) : null;
+			
+			if(callee != null) {
+				
+				ArrayList<String> arguments = new ArrayList<String>();
+				
+				for(boolean isIntArgument: callee.getParameterTypes()) {
+					arguments.add(generate(random, scope, isIntArgument, 1).toString());
+				}
+				
+				if(callee.isTailCalling()) {
+					arguments.add(FuzzProgram.pick(random, DEPTHS));
+				}
+				
+				return new FuzzExpression(callee.getName() + "(" + String.join(", ", arguments) + ")", null, null, false);
+			}
+			
+			String leaf = (!variables.isEmpty() && random.nextBoolean()) ? FuzzProgram.pick(random, variables) : FuzzProgram.literal(random, isInt);
+			
+			return new FuzzExpression(leaf, null, null, false);
+		}
+		
+		String operator = FuzzProgram.pick(random, OPERATORS);
+		
+		FuzzExpression left = generate(random, scope, isInt, depth - 1);
+		FuzzExpression right = (isInt && operator.equals("/")) ?
+				new FuzzExpression(FuzzProgram.pick(random, DIVISORS), null, null, false) : generate(random, scope, isInt, depth - 1);
+				
+		return new FuzzExpression(operator, left, right, random.nextBoolean());
+	}
+	
+	public int getOperationCount() {
+		
+		return (this.left == null) ? 0 : 1 + this.left.getOperationCount() + this.right.getOperationCount();
+	}
+	
+	//Copy of the expression with its operation at a pre order index replaced by its left or right operand.
+	public FuzzExpression reduce(int index, boolean isLeft) {
+		
+		if(index == 0) {
+			return isLeft ? this.left : this.right;
+		}
+		
+		int leftCount = this.left.getOperationCount();
+		
+		if(index <= leftCount) {
+			return new FuzzExpression(this.value, this.left.reduce(index - 1, isLeft), this.right, this.isParenthesized);
+		}
+		
+		return new FuzzExpression(this.value, this.left, this.right.reduce(index - 1 - leftCount, isLeft), this.isParenthesized);
+	}
+	
+	@Override
+	public String toString() {
+		
+		if(this.left == null) {
+			return this.value;
+		}
+		
+		String operation = this.left + " " + this.value + " " + this.right;
+		
+		return this.isParenthesized ? "(" + operation + ")" : operation;
+	}
+}
@@ -1,47 +1,88 @@
 //Standard Libraries
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.HashMap;
 
 /*
  * Converts IR code into tiny architecture instructions. Allocates registers and
- * performs several optimizations.
+ * performs several optimizations. The instructions for an expression are selected
+ * by a cost model once its whole tree has been read from the IR.
  */
 public class InstructionConverter {
 	
+	//Registers of the tiny simulator, r0 to r199.
+	private static final int REGISTER_COUNT = 200;
+	
+	//Largest INT a tiny literal holds exactly.
+	private static final int MAX_EXACT_LITERAL = 1 << 24;
+	
 	private LinkedList<String> IRCode;
 	
 	private LinkedList<String> assemblyCode;
 	
-	//Holds items in a register. Maps register to item in register.
+	//Holds items in a register. Maps register to item in register, either a live temporary or a variable the register mirrors.
+	//NOTE: A register is reused once the temporary it holds has been consumed, a mirror is given up when all are in use.
 	private HashMap<String, String> registers;
 	
-	//Holds value of a given variable or temporary. Maps variable / temporary to its value.
-	private HashMap<String, String> varValues;
+	//Last use of each register, the count of registers allocated or looked up before it.
+	private HashMap<String, Integer> registerUse;
+	
+	private int useCount;
+	
+	//Profile of an earlier run choosing the mirrors to keep, null when there is none.
+	private ExecutionProfile profile;
+	
+	//Cost of the instruction forms the selection chooses between.
+	private CostModel costModel;
+	
+	//Expression trees of the statement being converted, by the temporary holding their value.
+	private HashMap<String, ExpressionNode> expressions;
 	
-	//Counts current register. NOTE: Naive allocation is used operations on the idea of infinite registers.
-	private int registerCounter;
+	//Operations added to expression trees so far, the position of each operation in the IR.
+	private int operationCount;
+	
+	//Known values of variables are used and constant operations folded (ConstantPropagation).
+	private boolean isPropagating;
+	
+	//Instruction forms are chosen by cost (CostSelection), otherwise every operation accumulates into its left operand loaded
+	//from memory or a literal and registers mirroring variables are not read.
+	private boolean isSelecting;
+	
+	//Holds the known value of a variable. Maps variable to its constant value.
+	private HashMap<String, String> varValues;
 	
 	//Initialize all containers.
-	public InstructionConverter(LinkedList<String> ir) {
-		this.IRCode = ir;
-		this.assemblyCode = new LinkedList<String>();
+	public InstructionConverter(ExecutionProfile profile, CostModel costModel, EnumSet<Optimization> optimizations) {
+		this.IRCode = null;
+		this.assemblyCode = null;
 		this.registers = new HashMap<String, String>();
+		this.registerUse = new HashMap<String, Integer>();
+		this.useCount = 0;
 		this.varValues = new HashMap<String, String>();
-		this.registerCounter = 0;
+		this.profile = profile;
+		this.costModel = costModel;
+		this.expressions = new HashMap<String, ExpressionNode>();
+		this.operationCount = 0;
+		this.isPropagating = optimizations.contains(Optimization.ConstantPropagation);
+		this.isSelecting = optimizations.contains(Optimization.CostSelection);
 	}
 	
-	//Get the tiny assembly code.
-	public LinkedList<String> getAssemblyCode(){
-		return this.assemblyCode;
-	}
-	
-	//Converts IR Code to assembly
+	//Converts IR Code to assembly, returns the assembly for the IR given. A converter is used for the IR of one function,
+	//registers are numbered within the function. The IR given is consumed.
 	/*
 	 * Optimizations are performed in this method. They include:
-	 * 1) Peep-hole optimizations
-	 * 2) Constant folding
+	 * 1) Instruction selection by cost, reusing registers mirroring variables
+	 * 2) Constant folding and propagation
 	 */
-	public void convertToAssembly() {
+	public LinkedList<String> convertToAssembly(LinkedList<String> ir) {
+		
+		this.IRCode = ir;
+		this.assemblyCode = new LinkedList<String>();
+		
+		//Variables each instruction reads that are read again later, consumed along with the IR.
+		LinkedList<HashSet<String>> readLaterByInstruction = this.findReadLater(ir);
 		
 		//While the IR has instructions consume and convert.
 		while(!this.IRCode.isEmpty()) {
@@ -52,67 +93,237 @@ public class InstructionConverter {
 			//Gets the operands in the 3AC code.
 			String[] irInstructionElements = irInstruction.split(" ");
 			
+			HashSet<String> readLater = readLaterByInstruction.remove();
+			
 			//Instruction and its elements.
 			String assemblyInstruction = "";
-			String targetRegister = null;
-			String operand = null;
+			
+			//For a LABEL IR instruction create a tiny label, the start of a function or a target of a jump. The label can be
+			//reached from elsewhere so nothing is known of registers or values.
+			if(irInstruction.startsWith("LABEL")) {
+				
+				this.assemblyCode.add("label " + irInstructionElements[1]);
+				
+				this.registers.clear();
+				this.varValues.clear();
+			}
+			
+			//The source position of the code that follows, kept as a comment. Nothing is known or forgotten.
+			else if(irInstruction.startsWith("LINE ")) {
+				
+				this.assemblyCode.add(";line " + irInstructionElements[1]);
+			}
+			
+			//Link the stack frame of a function with its slots.
+			else if(irInstruction.startsWith("LINK")) {
+				
+				this.assemblyCode.add("link " + irInstructionElements[1]);
+			}
+			
+			//Leave the stack frame and return to the caller.
+			else if(irInstruction.startsWith("RETURN")) {
+				
+				this.assemblyCode.add("unlnk");
+				this.assemblyCode.add("ret");
+			}
+			
+			//Leave the stack frame without returning, a tail call jumps to its callee next. The slots are those of the caller's
+			//frame after it.
+			else if(irInstruction.startsWith("UNLINK")) {
+				
+				this.assemblyCode.add("unlnk");
+				
+				this.registers.clear();
+				this.varValues.clear();
+			}
+			
+			//Push an empty slot or a value, an expression is evaluated into a register first.
+			else if(irInstruction.startsWith("PUSH")) {
+				
+				if(irInstructionElements.length == 1) {
+					this.assemblyCode.add("push");
+				}
+				
+				else if(this.isTemporary(irInstructionElements[1])) {
+					
+					ExpressionNode root = this.expressions.remove(irInstructionElements[1]);
+					
+					if(root.isLiteral()) {
+						this.assemblyCode.add("push " + root.getValue());
+					}
+					
+					else {
+						
+						String register = this.emitExpression(root);
+						
+						this.assemblyCode.add("push " + register);
+						
+						this.registers.remove(register);
+					}
+				}
+				
+				else {
+					
+					String valueOperand = irInstructionElements[1];
+					String constant = this.isLiteral(valueOperand) ? this.formatLiteral(valueOperand) : this.getConstantValue(valueOperand);
+					
+					if(constant != null) {
+						this.assemblyCode.add("push " + constant);
+					}
+					
+					else {
+						this.assemblyCode.add("push " + (this.isMirrored(valueOperand) ? this.getRegisterFromValue(valueOperand) : valueOperand));
+					}
+				}
+			}
+			
+			//Pop and discard the top of the stack or pop it into a variable.
+			else if(irInstruction.startsWith("POP")) {
+				
+				if(irInstructionElements.length == 1) {
+					this.assemblyCode.add("pop");
+				}
+				
+				else {
+					
+					this.assemblyCode.add("pop " + irInstructionElements[1]);
+					
+					this.invalidateVariable(irInstructionElements[1]);
+					this.varValues.remove(irInstructionElements[1]);
+				}
+			}
+			
+			//Call a function. It uses any register and may write any global, the slots of the frame are its own.
+			else if(irInstruction.startsWith("JSR")) {
+				
+				this.assemblyCode.add("jsr " + irInstructionElements[1]);
+				
+				this.registers.clear();
+				
+				for(String variable: new LinkedList<String>(this.varValues.keySet())) {
+					
+					if(!variable.startsWith("$")) {
+						this.varValues.remove(variable);
+					}
+				}
+			}
+			
+			else if(irInstruction.startsWith("JUMP")) {
+				
+				this.assemblyCode.add("jmp " + irInstructionElements[1]);
+			}
+			
+			else if(irInstruction.startsWith("HALT")) {
+				
+				this.assemblyCode.add("sys halt");
+			}
+			
+			//Compare two operands and branch, tiny compares its first operand to a register.
+			else if(irInstructionElements[0].matches("(GT|GE|LT|LE|EQ|NE)[IF]")) {
+				
+				this.emitBranch(irInstructionElements, readLater);
+			}
 			
 			//For a VAR IR instruction create a tiny var declaration.
-			if(irInstruction.contains("VAR")) {
+			else if(irInstruction.startsWith("VAR")) {
 				
 				this.assemblyCode.add("var " + irInstructionElements[1]);
 			}
 			
-			//For a STRING IR declaration create a tiny str declaration.
-			else if(irInstruction.contains("STRING")) {
+			//For a STRING IR declaration create a tiny str declaration, the value can hold spaces.
+			else if(irInstruction.startsWith("STRING")) {
 				
-				this.assemblyCode.add("str " + irInstructionElements[1] +" " + irInstructionElements[2]);
+				this.assemblyCode.add("str " + irInstructionElements[1] +" " + irInstruction.split(" ", 3)[2]);
 			}
 			
-			//Process a store instruction two types, store a value into a register and store a value to memory.
-			else if(irInstruction.contains("STORE")) {
+			//Process a store instruction three types, store an expression to a variable, load a literal for an expression and
+			//store a variable or literal to a variable.
+			else if(irInstruction.startsWith("STORE")) {
 				
-				//The register and operand, positions can flip.
-				String registerTarget = null;
-				String valueOperand = null;
-				
-				//Store to memory instruction creates a tiny move register to variable instruction.
-				if(irInstructionElements[1].contains("$T")) {
-					registerTarget = this.convertTemporaryToReg(irInstructionElements[1]);
-					valueOperand = irInstructionElements[2];
+				//Store of an expression, its instructions are selected and it is moved from its register to the variable.
+				if(this.isTemporary(irInstructionElements[1])) {
 					
-					this.assemblyCode.add("move " + registerTarget + " " + valueOperand);
+					ExpressionNode root = this.expressions.remove(irInstructionElements[1]);
+					String variable = irInstructionElements[2];
 					
-					//Store the variables value for look up.
-					this.varValues.put(valueOperand, this.registers.get(registerTarget));
+					//A constant is moved straight to memory.
+					if(root.isLiteral()) {
+						
+						this.invalidateVariable(variable);
+						
+						this.assemblyCode.add("move " + root.getValue() + " " + variable);
+						this.varValues.put(variable, root.getValue());
+					}
 					
-					//Track the value in the register used.
-					this.registers.put(registerTarget, valueOperand);
+					else {
+						
+						String register = this.emitExpression(root);
+						
+						this.assemblyCode.add("move " + register + " " + variable);
+						
+						//Registers holding the old value of the variable are stale.
+						this.invalidateVariable(variable);
+						this.varValues.remove(variable);
+						
+						//The temporary is consumed, the register now mirrors the variable.
+						this.registers.put(register, variable);
+					}
+				}
+				
+				//Load of a literal for an expression, the literal becomes a leaf of the expression tree.
+				else if(this.isTemporary(irInstructionElements[2])) {
 					
-					this.registerCounter++;
+					this.expressions.put(irInstructionElements[2], this.leaf(new ExpressionNode(this.formatLiteral(irInstructionElements[1]), true)));
 				}
 				
-				//Store to register instruction loads a variable or literal into a register.
+				//Store of a variable or literal directly into a variable. Tiny cannot move memory to memory so a variable is
+				//moved from the register mirroring it, or through a new register.
 				else {
-					valueOperand = irInstructionElements[1];
-					registerTarget = this.convertTemporaryToReg(irInstructionElements[2]);
 					
-					this.assemblyCode.add("move " + valueOperand + " " + registerTarget);
+					String valueOperand = irInstructionElements[1];
+					String variable = irInstructionElements[2];
 					
-					this.registers.put(registerTarget, valueOperand);
+					String constant = this.isLiteral(valueOperand) ? this.formatLiteral(valueOperand) : this.getConstantValue(valueOperand);
 					
-					String[] lookAhead = this.IRCode.peek().split(" ");
+					//Assigning a variable to itself changes nothing.
+					if(valueOperand.equals(variable)) {
+						continue;
+					}
 					
-					//Check if the next instruction is not part of a load store pair, if not increment the register counter.
-					if(!lookAhead[0].contains("STORE") || !lookAhead[1].equals(irInstructionElements[2])) {
-						this.registerCounter++;
+					if(constant != null) {
+						
+						this.invalidateVariable(variable);
+						
+						this.assemblyCode.add("move " + constant + " " + variable);
+						this.varValues.put(variable, constant);
+					}
+					
+					else if(this.isMirrored(valueOperand)) {
+						
+						this.invalidateVariable(variable);
+						
+						this.assemblyCode.add("move " + this.getRegisterFromValue(valueOperand) + " " + variable);
+						this.varValues.remove(variable);
+					}
+					
+					else {
+						
+						String registerTarget = this.allocateRegister();
+						
+						this.invalidateVariable(variable);
+						
+						this.assemblyCode.add("move " + valueOperand + " " + registerTarget);
+						this.assemblyCode.add("move " + registerTarget + " " + variable);
+						
+						this.registers.put(registerTarget, variable);
+						this.varValues.remove(variable);
 					}
 				}
 				
 			}
 			
 			//Process a READ IR instruction.
-			else if(irInstruction.contains("READ")) {
+			else if(irInstruction.startsWith("READ")) {
 				
 				//Creates a tiny system call read instruction (i for INT or r for FLOAT).
 				assemblyInstruction = "sys read";
@@ -128,7 +339,7 @@ public class InstructionConverter {
 				
 				else if(type == 'F') {
 					
-					assemblyInstruction = assemblyInstruction.concat("f ");
+					assemblyInstruction = assemblyInstruction.concat("r ");
 					
 				}
 				
@@ -136,10 +347,14 @@ public class InstructionConverter {
 				
 				this.assemblyCode.add(assemblyInstruction);
 				
+				//The read overwrites the variable, forget any known value or register copy.
+				this.invalidateVariable(irInstructionElements[1]);
+				this.varValues.remove(irInstructionElements[1]);
+				
 			}
 			
 			//Process a WRITE IR instruction.
-			else if(irInstruction.contains("WRITE")) {
+			else if(irInstruction.startsWith("WRITE")) {
 				
 				//Creates a tiny system call read instruction (i for INT or r for FLOAT or s for STRING).
 				assemblyInstruction = "sys write";
@@ -169,434 +384,150 @@ public class InstructionConverter {
 				this.assemblyCode.add(assemblyInstruction);
 			}
 			
-			//Generate an instruction for a mathematical operation.
-			else if(irInstruction.contains("ADD") || irInstruction.contains("SUB") || irInstruction.contains("MUL") || irInstruction.contains("DIV")) {
+			//Add an operation to the expression tree of the statement, its instructions are selected once the whole tree
+			//is known. An operation on two constants is folded.
+			else if(irInstruction.startsWith("ADD") || irInstruction.startsWith("SUB") || irInstruction.startsWith("MUL") || irInstruction.startsWith("DIV")) {
 				
-				//Process an ADD IR instruction and apply optimizations.
-				if(irInstruction.contains("ADD")) {
-							
-					//Get the operands.
-					String opVal1 = this.varValues.get(irInstructionElements[1]);
-					String opVal2 = this.varValues.get(irInstructionElements[2]);
-					
-					//Used to check if constant for constant folding.
-					boolean isConstant = false;
-					
-					//The assembly instruction to be built.	
-					assemblyInstruction = "";
-					
-					//Get the operation type, int or real (FLOAT)
-					char type = irInstruction.charAt(3);
-		
-					//Value of possible constants.
-					Integer val1I = 0;
-					Integer val2I = 0;
-					Double val1F = 0.0;
-					Double val2F = 0.0;
+				//Tiny opcode, i for INT or r for FLOAT.
+				String opcode = irInstructionElements[0].substring(0, 3).toLowerCase() + ((irInstruction.charAt(3) == 'I') ? "i" : "r");
+				
+				ExpressionNode left = this.getOperandNode(irInstructionElements[1], irInstructionElements[2], readLater);
+				ExpressionNode right = this.getOperandNode(irInstructionElements[2], irInstructionElements[1], readLater);
+				
+				String constant = (this.isPropagating && left.isLiteral() && right.isLiteral()) ? this.fold(opcode, left.getValue(), right.getValue()) : null;
+				
+				if(constant != null) {
+					this.expressions.put(irInstructionElements[3], this.leaf(new ExpressionNode(constant, true)));
+				}
+				
+				else {
+					this.expressions.put(irInstructionElements[3], this.tile(new ExpressionNode(opcode, irInstructionElements[3], left, right, ++this.operationCount)));
+				}
+			}
+		}
 		
-					//Check if integer constants and integer type.
-					if(type == 'I') {
-						
-						assemblyInstruction = "addi ";
-		
-						try {
-							val1I = Integer.parseInt(opVal1);
-							val2I = Integer.parseInt(opVal2);
-							isConstant = true;
-						}catch(Exception e) {
-						}	
-					}
+		return this.assemblyCode;
+	}
+	
+	//Emits a compare of two operands and a branch to a label when the compare holds. The second operand is put in a register
+	//and the first is used as an operand, evaluated into a register first when it is an expression.
+	private void emitBranch(String[] irInstructionElements, HashSet<String> readLater) {
 		
-					//Check if floating point constant and floating point type.
-					else if (type == 'F') {
-							
-						assemblyInstruction = "addr ";
-	
-						try {
-							val1F = Double.parseDouble(opVal1);
-							val2F = Double.parseDouble(opVal2);
-							isConstant = true;
-						}catch(Exception e) {
-							
-						}
-					}
+		String opcode = (irInstructionElements[0].charAt(2) == 'I') ? "cmpi" : "cmpr";
+		String jump = "j" + irInstructionElements[0].substring(0, 2).toLowerCase();
 		
-					//If the expression is constant perform constant folding.
-					if(isConstant && type == 'I') {
+		ExpressionNode left = this.getOperandNode(irInstructionElements[1], irInstructionElements[2], readLater);
+		ExpressionNode right = this.getOperandNode(irInstructionElements[2], irInstructionElements[1], readLater);
 		
-						this.constantFolding(val1I, val2I, '+');
-						continue;
-					}
-					
-					else if(isConstant && type == 'F') {
-	
-						this.constantFolding(val1F, val2F, '+');
-						continue;
-					}
+		//A left expression holds its register as a temporary while the right one is evaluated.
+		String leftRegister = left.isLeaf() ? null : this.emitExpression(left);
+		String rightRegister = right.isLeaf() ? this.loadLeaf(right) : this.emitExpression(right);
 		
-					//Not constant attempt other construction of instruction.
-					else {
-								
-						//Perform peep-hole optimizations and constant peep-hole optimization.
-						
-						targetRegister = null;
-						operand = null;
-						RegisterOperandPair regOp;
-						
-						regOp = this.peepholeReduction(targetRegister, operand, irInstructionElements, true);
-						
-						targetRegister = regOp.getRegister();
-						operand = regOp.getOperand();
-						
-						regOp = this.TemporaryPeepholeReduction(targetRegister, operand, irInstructionElements, true);
-						
-						targetRegister = regOp.getRegister();
-						operand = regOp.getOperand();
-								
-						if(targetRegister != null) {
-										
-							assemblyInstruction = assemblyInstruction.concat(operand + " " + targetRegister);
-										
-						}
-						
-						//If no optimization can be performed generate a standard instruction(s)
-						else {
-						
-							targetRegister = "r" + this.registerCounter;
-							
-							this.assemblyCode.add("move " + irInstructionElements[1] + " " + targetRegister); 
-							
-							assemblyInstruction = assemblyInstruction.concat(irInstructionElements[2] + " " + targetRegister);
-							
-						}
-					}
-				}
-					
-				//Process an SUB IR instruction and apply optimizations.
-				else if(irInstruction.contains("SUB")) {
-							
-					//Get the operands.
-					String opVal1 = this.varValues.get(irInstructionElements[1]);
-					String opVal2 = this.varValues.get(irInstructionElements[2]);
-					
-					//Used to check if constant for constant folding.
-					boolean isConstant = false;
-					
-					//The assembly instruction to be built.	
-					assemblyInstruction = "";
-					
-					//Get the operation type, int or real (FLOAT)
-					char type = irInstruction.charAt(3);
+		String operand = left.isLeaf() ? this.getLeafOperand(left) : leftRegister;
 		
-					//Value of possible constants.
-					Integer val1I = 0;
-					Integer val2I = 0;
-					Double val1F = 0.0;
-					Double val2F = 0.0;
+		this.assemblyCode.add(opcode + " " + operand + " " + rightRegister);
+		this.assemblyCode.add(jump + " " + irInstructionElements[3]);
 		
-					//Check if integer constants and integer type.
-					if(type == 'I') {
-						
-						assemblyInstruction = "subi ";
-		
-						try {
-							val1I = Integer.parseInt(opVal1);
-							val2I = Integer.parseInt(opVal2);
-							isConstant = true;
-						}catch(Exception e) {
-						}	
-					}
+		//The temporaries are consumed.
+		if(leftRegister != null) {
+			this.registers.remove(leftRegister);
+		}
 		
-					//Check if floating point constant and floating point type.
-					else if (type == 'F') {
-							
-						assemblyInstruction = "subr ";
-	
-						try {
-							val1F = Double.parseDouble(opVal1);
-							val2F = Double.parseDouble(opVal2);
-							isConstant = true;
-						}catch(Exception e) {
-							
-						}
-					}
+		if(!right.isLeaf()) {
+			this.registers.remove(rightRegister);
+		}
+	}
+	
+	//Allocates the lowest numbered register that holds nothing. Registers holding a live temporary or mirroring a variable
+	//are kept, so only released registers are reused before a new one is handed out. When all registers are taken a mirror
+	//is given up, its variable is always up to date in memory.
+	private String allocateRegister() {
 		
-					//If the expression is constant perform constant folding.
-					if(isConstant && type == 'I') {
+		for(int registerNumber = 0; registerNumber < REGISTER_COUNT; registerNumber++) {
+			
+			if(this.registers.get("r" + registerNumber) == null) {
+				return this.useRegister("r" + registerNumber);
+			}
+		}
 		
-						this.constantFolding(val1I, val2I, '-');
-						continue;
-					}
-					
-					else if(isConstant && type == 'F') {
+		return this.useRegister(this.evictMirror());
+	}
 	
-						this.constantFolding(val1F, val2F, '-');
-						continue;
-					}
-		
-					//Not constant attempt other construction of instruction.
-					else {
-								
-						//Perform peep-hole optimizations and constant peep-hole optimization.
-						
-						targetRegister = null;
-						operand = null;
-						RegisterOperandPair regOp;
-						
-						regOp = this.peepholeReduction(targetRegister, operand, irInstructionElements, false);
-						
-						targetRegister = regOp.getRegister();
-						operand = regOp.getOperand();
-						
-						regOp = this.TemporaryPeepholeReduction(targetRegister, operand, irInstructionElements, false);
-						
-						targetRegister = regOp.getRegister();
-						operand = regOp.getOperand();
-								
-						if(targetRegister != null) {
-										
-							assemblyInstruction = assemblyInstruction.concat(operand + " " + targetRegister);
-										
-						}
-						
-						//If no optimization can be performed generate a standard instruction(s)
-						else {
-						
-							targetRegister = "r" + this.registerCounter;
-							
-							this.assemblyCode.add("move " + irInstructionElements[1] + " " + targetRegister); 
-							
-							assemblyInstruction = assemblyInstruction.concat(irInstructionElements[2] + " " + targetRegister);
-							
-						}
-					}
-				}
-				
-				//Process an MUL IR instruction and apply optimizations.
-				else if(irInstruction.contains("MUL")) {
-							
-					//Get the operands.
-					String opVal1 = this.varValues.get(irInstructionElements[1]);
-					String opVal2 = this.varValues.get(irInstructionElements[2]);
-					
-					//Used to check if constant for constant folding.
-					boolean isConstant = false;
-					
-					//The assembly instruction to be built.	
-					assemblyInstruction = "";
-					
-					//Get the operation type, int or real (FLOAT)
-					char type = irInstruction.charAt(3);
+	//Frees the register mirroring the coldest variable. With a profile that is the variable accessed the fewest times in the
+	//profiled run, without one or between equal counts it is the register used least recently.
+	private String evictMirror() {
 		
-					//Value of possible constants.
-					Integer val1I = 0;
-					Integer val2I = 0;
-					Double val1F = 0.0;
-					Double val2F = 0.0;
+		String victim = null;
+		long victimAccesses = 0;
 		
-					//Check if integer constants and integer type.
-					if(type == 'I') {
+		for(String register: this.registers.keySet()) {
+			
+			String value = this.registers.get(register);
+			
+			//Live temporaries have no other copy.
+			if(this.isTemporary(value)) {
+				continue;
+			}
+			
+			long accesses = (this.profile == null) ? 0 : this.profile.getVariableAccesses(value);
+			
+			if(victim == null || accesses < victimAccesses ||
+					(accesses == victimAccesses && this.registerUse.get(register) < this.registerUse.get(victim))) {
 						
-						assemblyInstruction = "muli ";
-		
-						try {
-							val1I = Integer.parseInt(opVal1);
-							val2I = Integer.parseInt(opVal2);
-							isConstant = true;
-						}catch(Exception e) {
-						}	
-					}
+				victim = register;
+				victimAccesses = accesses;
+			}
+		}
 		
-					//Check if floating point constant and floating point type.
-					else if (type == 'F') {
-							
-						assemblyInstruction = "mulr ";
-	
-						try {
-							val1F = Double.parseDouble(opVal1);
-							val2F = Double.parseDouble(opVal2);
-							isConstant = true;
-						}catch(Exception e) {
-							
-						}
-					}
+		if(victim == null) {
+			throw new RuntimeException("More than " + REGISTER_COUNT + " temporaries are live at once.");
+		}
 		
-					//If the expression is constant perform constant folding.
-					if(isConstant && type == 'I') {
+		this.registers.remove(victim);
 		
-						this.constantFolding(val1I, val2I, '*');
-						continue;
-					}
-					
-					else if(isConstant && type == 'F') {
+		return victim;
+	}
 	
-						this.constantFolding(val1F, val2F, '*');
-						continue;
-					}
+	//Records a use of a register for the least recently used order and returns it.
+	private String useRegister(String register) {
 		
-					//Not constant attempt other construction of instruction.
-					else {
-								
-						//Perform peep-hole optimizations and constant peep-hole optimization.
-						
-						targetRegister = null;
-						operand = null;
-						RegisterOperandPair regOp;
-						
-						regOp = this.peepholeReduction(targetRegister, operand, irInstructionElements, true);
-						
-						targetRegister = regOp.getRegister();
-						operand = regOp.getOperand();
-						
-						regOp = this.TemporaryPeepholeReduction(targetRegister, operand, irInstructionElements, true);
-						
-						targetRegister = regOp.getRegister();
-						operand = regOp.getOperand();
-								
-						if(targetRegister != null) {
-										
-							assemblyInstruction = assemblyInstruction.concat(operand + " " + targetRegister);
-										
-						}
-						
-						//If no optimization can be performed generate a standard instruction(s)
-						else {
-						
-							targetRegister = "r" + this.registerCounter;
-							
-							this.assemblyCode.add("move " + irInstructionElements[1] + " " + targetRegister); 
-							
-							assemblyInstruction = assemblyInstruction.concat(irInstructionElements[2] + " " + targetRegister);
-							
-						}
-					}
-				}
-				
-				//Process an DIV IR instruction and apply optimizations.
-				else if(irInstruction.contains("DIV")) {
-							
-					//Get the operands.
-					String opVal1 = this.varValues.get(irInstructionElements[1]);
-					String opVal2 = this.varValues.get(irInstructionElements[2]);
-					
-					//Used to check if constant for constant folding.
-					boolean isConstant = false;
-					
-					//The assembly instruction to be built.	
-					assemblyInstruction = "";
-					
-					//Get the operation type, int or real (FLOAT)
-					char type = irInstruction.charAt(3);
-		
-					//Value of possible constants.
-					Integer val1I = 0;
-					Integer val2I = 0;
-					Double val1F = 0.0;
-					Double val2F = 0.0;
-		
-					//Check if integer constants and integer type.
-					if(type == 'I') {
-						
-						assemblyInstruction = "divi ";
-		
-						try {
-							val1I = Integer.parseInt(opVal1);
-							val2I = Integer.parseInt(opVal2);
-							isConstant = true;
-						}catch(Exception e) {
-						}	
-					}
-		
-					//Check if floating point constant and floating point type.
-					else if (type == 'F') {
-							
-						assemblyInstruction = "divr ";
-	
-						try {
-							val1F = Double.parseDouble(opVal1);
-							val2F = Double.parseDouble(opVal2);
-							isConstant = true;
-						}catch(Exception e) {
-							
-						}
-					}
+		this.registerUse.put(register, ++this.useCount);
 		
-					//If the expression is constant perform constant folding.
-					if(isConstant && type == 'I') {
-		
-						this.constantFolding(val1I, val2I, '/');
-						continue;
-					}
-					
-					else if(isConstant && type == 'F') {
+		return register;
+	}
 	
-						this.constantFolding(val1F, val2F, '/');
-						continue;
-					}
+	//Removes any register mirroring a variable whose value is being overwritten.
+	private void invalidateVariable(String variable) {
 		
-					//Not constant attempt other construction of instruction.
-					else {
-								
-						//Perform peep-hole optimizations and constant peep-hole optimization.
-						
-						targetRegister = null;
-						operand = null;		
-						RegisterOperandPair regOp;
-						
-						regOp = this.peepholeReduction(targetRegister, operand, irInstructionElements, false);
-						
-						targetRegister = regOp.getRegister();
-						operand = regOp.getOperand();
-						
-						regOp = this.TemporaryPeepholeReduction(targetRegister, operand, irInstructionElements, false);
-						
-						targetRegister = regOp.getRegister();
-						operand = regOp.getOperand();
-								
-						if(targetRegister != null) {
-										
-							assemblyInstruction = assemblyInstruction.concat(operand + " " + targetRegister);
-										
-						}
-						
-						//If no optimization can be performed generate a standard instruction(s)
-						else {
-						
-							targetRegister = "r" + this.registerCounter;
-							
-							this.assemblyCode.add("move " + irInstructionElements[1] + " " + targetRegister); 
-							
-							assemblyInstruction = assemblyInstruction.concat(irInstructionElements[2] + " " + targetRegister);
-							
-						}
-						
-					}
-				}
-				
-				//Create and add the tiny instruction.
-				this.assemblyCode.add(assemblyInstruction);
-				
-				String nextIRInstruction = this.IRCode.remove();
-				
-				String[] nextIRInstructionElements = nextIRInstruction.split(" ");
-				
-				this.assemblyCode.add("move " + targetRegister + " " + nextIRInstructionElements[2]);
-				
-				//Sets the register with its current new value and the variables computed value.
-				this.registers.put(targetRegister, nextIRInstructionElements[2]);
-				this.varValues.put(nextIRInstructionElements[2], "r"+this.registerCounter);
-				this.registerCounter++;
+		for(String register: new LinkedList<String>(this.registers.keySet())) {
+			
+			if(this.registers.get(register).equals(variable)) {
+				this.registers.remove(register);
 			}
 		}
-			
-		//Processing of instructions is over generate a tiny system call to exit the program.
-		this.assemblyCode.add("sys halt");
 	}
 	
-	//Converts a temporary ($T#) to a register (r#).
-	private String convertTemporaryToReg(String temporary){
-				
-		return "r" + this.registerCounter;			
+	//Check if an operand is a temporary ($T#).
+	private boolean isTemporary(String operand) {
+		
+		return operand.startsWith("$T");
+	}
+	
+	//Check if an operand is an INT or FLOAT literal, identifiers always begin with a letter.
+	private boolean isLiteral(String operand) {
+		
+		return Character.isDigit(operand.charAt(0)) || operand.charAt(0) == '.' || operand.charAt(0) == '-';
+	}
+	
+	//Gets the known constant value of a variable for constant folding. Temporaries are excluded, the value of an expression
+	//is held by its tree.
+	private String getConstantValue(String operand) {
+		
+		if(!this.isPropagating || this.isTemporary(operand)) {
+			return null;
+		}
+		
+		return this.varValues.get(operand);
 	}
 	
 	//Check if a value is in a given register.
@@ -605,167 +536,466 @@ public class InstructionConverter {
 		return this.registers.containsValue(value);
 	}
 	
+	//Check if a variable can be read from the register mirroring it.
+	private boolean isMirrored(String variable) {
+		
+		return this.isSelecting && this.inRegister(variable);
+	}
+	
 	//Given a value that exists in a register retrieve the register number it belongs to.
 	private String getRegisterFromValue(String value) {
 		
 		for(String register: this.registers.keySet()) {
 			
 			if(this.registers.get(register).equals(value)) {
-				return register;
+				return this.useRegister(register);
 			}
 		}
 		
 		return null;
 	}
 	
-	//Constant folding optimization for integers.
-	private void constantFolding(Integer operand1, Integer operand2, char operation){
-
-		Integer constantVal = null;
-
-		switch (operation) {
-
-			case '+':
-				constantVal = operand1 + operand2;
-				break;
-
-			case '-':
-				constantVal = operand1 - operand2;
-				break;
-
-			case '*':
-				constantVal = operand1 * operand2;
-				break;
-
-			case '/':
-				constantVal = operand1 / operand2;
-				break;
-
+	//Folds an operation on two constants with the semantics of its tiny opcode. Returns null when the result is left for
+	//run time, a division by zero, an INT operand or result a literal does not hold exactly or a FLOAT result that is not
+	//finite.
+	private String fold(String opcode, String operand1, String operand2) {
+		
+		if(opcode.endsWith("i")) {
+			
+			//A literal of more digits may not fit an INT.
+			if(!this.isIntLiteral(operand1) || !this.isIntLiteral(operand2)) {
+				return null;
+			}
+			
+			int val1 = Integer.parseInt(operand1);
+			int val2 = Integer.parseInt(operand2);
+			long result = 0;
+			
+			//Tiny reads a literal as a single precision float, a larger INT operand is not the value the simulator uses.
+			if(!this.isExact(val1) || !this.isExact(val2)) {
+				return null;
+			}
+			
+			switch(opcode) {
+				case "addi":
+					result = val1 + val2;
+					break;
+				case "subi":
+					result = val1 - val2;
+					break;
+				case "muli":
+					result = (long) val1 * val2;
+					break;
+				default:
+					if(val2 == 0) {
+						return null;
+					}
+					result = val1 / val2;
+					break;
+			}
+			
+			//A larger INT result would lose its low bits as a literal.
+			return this.isExact(result) ? Long.toString(result) : null;
 		}
 		
-		//Generate the constant folding instructions.
-		constantFoldInstruction(constantVal);
-	}
-	
-	//Constant folding optimization for floats.
-	private void constantFolding(Double operand1, Double operand2, char operation){
-
-		Double constantVal = null;
-
-		switch (operation) {
-
-			case '+':
-				constantVal = operand1 + operand2;
+		//FLOAT values are single precision in tiny.
+		float val1 = Float.parseFloat(operand1);
+		float val2 = Float.parseFloat(operand2);
+		float result = 0;
+		
+		switch(opcode) {
+			case "addr":
+				result = val1 + val2;
 				break;
-
-			case '-':
-				constantVal = operand1 - operand2;
+			case "subr":
+				result = val1 - val2;
 				break;
-
-			case '*':
-				constantVal = operand1 * operand2;
+			case "mulr":
+				result = val1 * val2;
 				break;
-
-			case '/':
-				constantVal = operand1 / operand2;
+			default:
+				result = val1 / val2;
 				break;
-
 		}
 		
-		//Generate the constant folding instructions.
-		constantFoldInstruction(constantVal);
+		return Float.isFinite(result) ? Float.toString(result) : null;
 	}
 	
-	//Generates instructions for a constant fold optimization.
-	private void constantFoldInstruction(Number constantVal) {
-		
-		//Move constant into register for storing.
-		this.assemblyCode.add("move " + constantVal + " " + "r" + this.registerCounter);
+	//Check if a constant is an INT literal of few enough digits to fit in an INT.
+	private boolean isIntLiteral(String operand) {
+		return operand.matches("-?[0-9]{1,9}");
+	}
+	
+	//Check if an INT value is read back exactly from a tiny literal.
+	private boolean isExact(long value) {
+		return value >= -MAX_EXACT_LITERAL && value <= MAX_EXACT_LITERAL;
+	}
+	
+	//Creates the tree node of an operand. A temporary is the tree of an earlier operation, a variable with a known value
+	//becomes a literal. The register mirroring a variable may be taken over for a result when the variable is not read
+	//again, by the other operand or by a later instruction.
+	private ExpressionNode getOperandNode(String operand, String otherOperand, HashSet<String> readLater) {
 		
-		String nextIRInstruction = this.IRCode.remove();
+		if(this.isTemporary(operand)) {
+			return this.expressions.remove(operand);
+		}
 		
-		String[] nextIRInstructionElements = nextIRInstruction.split(" ");
+		if(this.isLiteral(operand)) {
+			return this.leaf(new ExpressionNode(this.formatLiteral(operand), true));
+		}
 		
-		//Move constant into memory for loading.
-		this.assemblyCode.add("move " + "r" + this.registerCounter + " " + nextIRInstructionElements[2]);
+		if(this.getConstantValue(operand) != null) {
+			return this.leaf(new ExpressionNode(this.getConstantValue(operand), true));
+		}
 		
-		this.registers.put("r"+this.registerCounter, nextIRInstructionElements[2]);
-		this.varValues.put(nextIRInstructionElements[2], constantVal.toString());
+		ExpressionNode node = new ExpressionNode(operand, false);
 		
+		node.setConsumable(!operand.equals(otherOperand) && !readLater.contains(operand));
 		
-		this.registerCounter++;
+		return this.leaf(node);
 	}
 	
-	//Peep-hole optimization for register reuse, containing variables.
-	private RegisterOperandPair peepholeReduction(String targetRegister, String operand, String[] irInstructionElements, boolean isCom){
+	//Costs a leaf. As an operand a literal and a mirrored variable are used as they are and any other variable from memory.
+	//Accumulating into a leaf needs it in a register of its own, a mirror is taken over or copied.
+	private ExpressionNode leaf(ExpressionNode node) {
 		
-		//Reuse register with needed variable.
-		if(this.inRegister(irInstructionElements[1])) {
-								
-			targetRegister = this.getRegisterFromValue(irInstructionElements[1]);
-			operand = irInstructionElements[2];
-			
-			return new RegisterOperandPair(targetRegister, operand);
+		if(node.isLiteral()) {
+			node.setOperandCost(0, OperandKind.Literal);
+			node.setRegisterCost(this.costModel.latency("move", OperandKind.Literal, OperandKind.Register), false);
+		}
+		
+		else if(this.isMirrored(node.getValue())) {
+			node.setOperandCost(0, OperandKind.Register);
+			node.setRegisterCost(node.isConsumable() ? 0 : this.costModel.latency("move", OperandKind.Register, OperandKind.Register), false);
+		}
+		
+		else {
+			node.setOperandCost(0, OperandKind.Memory);
+			node.setRegisterCost(this.costModel.latency("move", OperandKind.Memory, OperandKind.Register), false);
 		}
 		
-		//Reuse second operand if possible, if commutative.
-		else if(isCom && this.inRegister(irInstructionElements[2])) {
+		return node;
+	}
+	
+	//Selects the tile of an operation by dynamic programming over its tree. The children are costed when they are created,
+	//before their parent, so the cheapest way to evaluate each child is known. The result is accumulated into a register
+	//holding the left operand, or the right one if the operation commutes, and the other operand is used in the form
+	//costed for it.
+	private ExpressionNode tile(ExpressionNode node) {
+		
+		ExpressionNode left = node.getLeft();
+		ExpressionNode right = node.getRight();
+		
+		int cost = left.getRegisterCost() + right.getOperandCost() + this.costModel.latency(node.getValue(), right.getOperandKind(), OperandKind.Register);
+		boolean isSwapped = false;
+		
+		if(this.isSelecting && this.isCommutative(node.getValue())) {
 			
-			targetRegister = this.getRegisterFromValue(irInstructionElements[2]);
-			operand = irInstructionElements[1];
+			int swappedCost = right.getRegisterCost() + left.getOperandCost() + this.costModel.latency(node.getValue(), left.getOperandKind(), OperandKind.Register);
 			
-			return new RegisterOperandPair(targetRegister, operand);
+			if(swappedCost < cost) {
+				cost = swappedCost;
+				isSwapped = true;
+			}
 		}
 		
-		return new RegisterOperandPair(targetRegister, operand);
+		node.setRegisterCost(cost, isSwapped);
+		node.setOperandCost(cost, OperandKind.Register);
 		
+		return node;
 	}
 	
-	//Peep-hole optimization for register reuse containing temporaries, along with constant operation optimization for temporaries.
-	private RegisterOperandPair TemporaryPeepholeReduction(String targetRegister, String operand, String[] irInstructionElements, boolean isCom){
+	//Emits the instructions of an expression tree by the selected tiles and returns the register holding its value. The
+	//tree is walked iteratively, a node is pushed once to evaluate its operations first and again to be emitted. Operands
+	//that are operations are evaluated in the order of the IR, the order using the fewest registers (RegisterOrdering) or
+	//left to right. The register of the first one holds a temporary so it is kept while the other is evaluated.
+	private String emitExpression(ExpressionNode root) {
 		
-		if(irInstructionElements[1].contains("$T")){
+		LinkedList<ExpressionNode> stack = new LinkedList<ExpressionNode>();
+		LinkedList<Boolean> isExpanded = new LinkedList<Boolean>();
+		
+		stack.push(root);
+		isExpanded.push(false);
+		
+		while(!stack.isEmpty()) {
+			
+			ExpressionNode node = stack.pop();
 			
-			//For double constant operations use correct registers and reuse.
-			if(targetRegister == null) {
-				if(irInstructionElements[2].contains("$T")) {
-					targetRegister = "r" + (this.registerCounter - 2);
-					operand = "r" + (this.registerCounter - 1);
+			if(!isExpanded.pop()) {
+				
+				stack.push(node);
+				isExpanded.push(true);
+				
+				ExpressionNode first = node.getLeft();
+				ExpressionNode second = node.getRight();
+				
+				if(!first.isLeaf() && !second.isLeaf() && second.getOrder() < first.getOrder()) {
+					first = node.getRight();
+					second = node.getLeft();
 				}
 				
-				//Reuse register with constant.
-				else {
-					
-					targetRegister = "r" + (this.registerCounter - 1);
-					operand = irInstructionElements[2];
+				if(!second.isLeaf()) {
+					stack.push(second);
+					isExpanded.push(false);
+				}
+				
+				if(!first.isLeaf()) {
+					stack.push(first);
+					isExpanded.push(false);
 				}
+				
+				continue;
 			}
 			
-			//Use constant value stored in a register.
-			else {
-				operand = "r" + (this.registerCounter - 1);
+			ExpressionNode accumulator = node.getAccumulator();
+			ExpressionNode operandNode = node.getOperand();
+			
+			String register = accumulator.isLeaf() ? this.loadLeaf(accumulator) : accumulator.getRegister();
+			
+			//Hold the register while the operand is resolved, a mirror it names can not be given up for it.
+			this.registers.put(register, node.getTemporary());
+			
+			String operand = operandNode.isLeaf() ? this.getLeafOperand(operandNode) : operandNode.getRegister();
+			
+			this.assemblyCode.add(node.getValue() + " " + operand + " " + register);
+			
+			//A temporary used as the operand is consumed by the operation, its register is free for reuse.
+			if(!operandNode.isLeaf()) {
+				this.registers.remove(operand);
 			}
 			
-			return new RegisterOperandPair(targetRegister, operand);
+			node.setRegister(register);
 		}
-				
-		//Check if second elements in a temporary.
-		else if(irInstructionElements[2].contains("$T")){
+		
+		return root.getRegister();
+	}
+	
+	//Puts a leaf in a register to accumulate into. A mirror of a variable that is not read again is taken over, otherwise
+	//the value is moved into a new register from the mirror, memory or the literal.
+	private String loadLeaf(ExpressionNode leaf) {
+		
+		String value = leaf.getValue();
+		
+		if(!leaf.isLiteral() && leaf.isConsumable() && this.isMirrored(value)) {
+			return this.getRegisterFromValue(value);
+		}
+		
+		String register = this.allocateRegister();
+		
+		//Looked up after the allocation, which can give up the mirror.
+		String mirror = (leaf.isLiteral() || !this.isMirrored(value)) ? null : this.getRegisterFromValue(value);
+		
+		this.assemblyCode.add("move " + ((mirror == null) ? value : mirror) + " " + register);
+		
+		return register;
+	}
+	
+	//Operand form of a leaf, a literal, the register mirroring a variable or the variable in memory.
+	private String getLeafOperand(ExpressionNode leaf) {
+		
+		if(!leaf.isLiteral() && this.isMirrored(leaf.getValue())) {
+			return this.getRegisterFromValue(leaf.getValue());
+		}
+		
+		return leaf.getValue();
+	}
+	
+	//Check if a tiny operation commutes so its operands can be swapped.
+	private boolean isCommutative(String opcode) {
+		
+		return opcode.startsWith("add") || opcode.startsWith("mul");
+	}
+	
+	//Tiny only reads a literal that starts with a digit or sign, .5 is written 0.5.
+	private String formatLiteral(String literal) {
+		
+		return literal.startsWith(".") ? "0" + literal : literal;
+	}
+	
+	//Finds the variables each IR instruction reads that are read again by a later instruction before being overwritten. The
+	//IR is walked backwards keeping the variables read further on.
+	private LinkedList<HashSet<String>> findReadLater(LinkedList<String> ir) {
+		
+		LinkedList<HashSet<String>> readLater = new LinkedList<HashSet<String>>();
+		
+		HashSet<String> readAfter = new HashSet<String>();
+		
+		for(Iterator<String> instructions = ir.descendingIterator(); instructions.hasNext();) {
+			
+			String[] elements = instructions.next().split(" ");
+			
+			String read1 = null;
+			String read2 = null;
+			String written = null;
+			
+			if(elements[0].startsWith("ADD") || elements[0].startsWith("SUB") || elements[0].startsWith("MUL") || elements[0].startsWith("DIV")) {
+				read1 = elements[1];
+				read2 = elements[2];
+			}
+			else if(elements[0].startsWith("STORE")) {
+				read1 = elements[1];
+				written = elements[2];
+			}
+			else if(elements[0].startsWith("WRITE") || (elements[0].equals("PUSH") && elements.length > 1)) {
+				read1 = elements[1];
+			}
+			else if(elements[0].startsWith("READ") || (elements[0].equals("POP") && elements.length > 1)) {
+				written = elements[1];
+			}
+			else if(elements[0].matches("(GT|GE|LT|LE|EQ|NE)[IF]")) {
+				read1 = elements[1];
+				read2 = elements[2];
+			}
+			
+			HashSet<String> instructionReadLater = new HashSet<String>();
 			
-			//If commutative reuse if not cannot reuse due to operation difference.
-			if(isCom && targetRegister == null) {
-				targetRegister = "r" + (this.registerCounter - 1);
-				operand = irInstructionElements[1];
+			for(String read: new String[] {read1, read2}) {
+				
+				if(read != null && readAfter.contains(read)) {
+					instructionReadLater.add(read);
+				}
 			}
 			
-			//Use constant value in register.
-			else {
-				operand = "r" + (this.registerCounter - 1);
+			readLater.addFirst(instructionReadLater);
+			
+			if(written != null) {
+				readAfter.remove(written);
 			}
 			
-			return new RegisterOperandPair(targetRegister, operand);
+			for(String read: new String[] {read1, read2}) {
+				
+				if(read != null && !this.isTemporary(read) && !this.isLiteral(read)) {
+					readAfter.add(read);
+				}
+			}
 		}
 		
-		return new RegisterOperandPair(targetRegister, operand);
+		return readLater;
+	}
+}
+
+//Node of an expression tree in the instruction selection. A leaf is a variable or literal, an operation holds its tiny
+//opcode and the temporary of its result. Each node has the cost of evaluating it into a register of its own, to be
+//accumulated into, and of using it as the operand of its parent.
+class ExpressionNode{
+	
+	private String value;
+	
+	private String temporary;
+	
+	private ExpressionNode left;
+	
+	private ExpressionNode right;
+	
+	private boolean isLiteral;
+	
+	//A leaf variable whose mirror register can be taken over for the result.
+	private boolean isConsumable;
+	
+	private int registerCost;
+	
+	private int operandCost;
+	
+	private OperandKind operandKind;
+	
+	//Selected tile, the result is accumulated into the right operand.
+	private boolean isSwapped;
+	
+	//Register holding the value once emitted.
+	private String register;
+	
+	//Position of an operation in the IR, the operations of the operand evaluated first by the IR come first.
+	private int order;
+	
+	//Creates a leaf.
+	public ExpressionNode(String value, boolean isLiteral) {
+		this.value = value;
+		this.isLiteral = isLiteral;
+	}
+	
+	//Creates an operation.
+	public ExpressionNode(String opcode, String temporary, ExpressionNode left, ExpressionNode right, int order) {
+		this.value = opcode;
+		this.temporary = temporary;
+		this.left = left;
+		this.right = right;
+		this.order = order;
+	}
+	
+	public boolean isLeaf() {
+		return this.left == null;
+	}
+	
+	public boolean isLiteral() {
+		return this.isLiteral;
+	}
+	
+	//Variable name or literal of a leaf, opcode of an operation.
+	public String getValue() {
+		return this.value;
+	}
+	
+	public String getTemporary() {
+		return this.temporary;
+	}
+	
+	public ExpressionNode getLeft() {
+		return this.left;
+	}
+	
+	public ExpressionNode getRight() {
+		return this.right;
+	}
+	
+	//Child the result is accumulated into by the selected tile.
+	public ExpressionNode getAccumulator() {
+		return this.isSwapped ? this.right : this.left;
+	}
+	
+	//Child used as the operand by the selected tile.
+	public ExpressionNode getOperand() {
+		return this.isSwapped ? this.left : this.right;
+	}
+	
+	public boolean isConsumable() {
+		return this.isConsumable;
+	}
+	
+	public void setConsumable(boolean isConsumable) {
+		this.isConsumable = isConsumable;
+	}
+	
+	public int getRegisterCost() {
+		return this.registerCost;
+	}
+	
+	public void setRegisterCost(int cost, boolean isSwapped) {
+		this.registerCost = cost;
+		this.isSwapped = isSwapped;
+	}
+	
+	public int getOperandCost() {
+		return this.operandCost;
+	}
+	
+	public OperandKind getOperandKind() {
+		return this.operandKind;
+	}
+	
+	public void setOperandCost(int cost, OperandKind kind) {
+		this.operandCost = cost;
+		this.operandKind = kind;
+	}
+	
+	public String getRegister() {
+		return this.register;
+	}
+	
+	public int getOrder() {
+		return this.order;
+	}
+	
+	public void setRegister(String register) {
+		this.register = register;
 	}
 }
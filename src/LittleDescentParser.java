@@ -0,0 +1,687 @@
+//Standard Libraries
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.concurrent.LinkedBlockingQueue;
+
+//ANTLR runtime libraries:
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.tree.*;
+
+/*
+ * Recursive descent parser for Little, a front end in place of LittleParser and the walk of its parse tree (Driver
+ * -hand-parser). It reads the packed tokens of LittleScanner and runs the semantic actions of a CodeExtractor as it
+ * recognizes each part of the program, in the order the listener methods are called on the parse tree, so the symbol tables
+ * and the AST of each function are built in one pass with no parse tree and no token objects. Each rule of Little.g4 is a
+ * method and each loop of a rule a loop, deciding on the next token or, between a call and a value, the one after it. As
+ * with AnyErrorListener the first syntax error throws a RuntimeException and nothing is recovered. The units are handed off
+ * as each is parsed, so a declaration error before a syntax error is reported first, the same as in the -pipeline mode.
+ *
+ * The main method builds the units of each file with both front ends, checks that their symbol tables and ASTs are the same
+ * and that both reject the same files, then times both.
+ *
+ *     java LittleDescentParser <source file>...
+ */
+public class LittleDescentParser {
+	
+	private static final int PROGRAM = LittleScanner.getLiteralType("PROGRAM");
+	private static final int BEGIN = LittleScanner.getLiteralType("BEGIN");
+	private static final int END = LittleScanner.getLiteralType("END");
+	private static final int FUNCTION = LittleScanner.getLiteralType("FUNCTION");
+	private static final int READ = LittleScanner.getLiteralType("READ");
+	private static final int WRITE = LittleScanner.getLiteralType("WRITE");
+	private static final int RETURN = LittleScanner.getLiteralType("RETURN");
+	private static final int IF = LittleScanner.getLiteralType("IF");
+	private static final int ELSE = LittleScanner.getLiteralType("ELSE");
+	private static final int ENDIF = LittleScanner.getLiteralType("ENDIF");
+	private static final int WHILE = LittleScanner.getLiteralType("WHILE");
+	private static final int ENDWHILE = LittleScanner.getLiteralType("ENDWHILE");
+	private static final int STRING = LittleScanner.getLiteralType("STRING");
+	private static final int INT = LittleScanner.getLiteralType("INT");
+	private static final int FLOAT = LittleScanner.getLiteralType("FLOAT");
+	private static final int VOID = LittleScanner.getLiteralType("VOID");
+	private static final int ASSIGN = LittleScanner.getLiteralType(":=");
+	private static final int SEMICOLON = LittleScanner.getLiteralType(";");
+	private static final int COMMA = LittleScanner.getLiteralType(",");
+	private static final int OPEN = LittleScanner.getLiteralType("(");
+	private static final int CLOSE = LittleScanner.getLiteralType(")");
+	private static final int PLUS = LittleScanner.getLiteralType("+");
+	private static final int MINUS = LittleScanner.getLiteralType("-");
+	private static final int TIMES = LittleScanner.getLiteralType("*");
+	private static final int DIVIDE = LittleScanner.getLiteralType("/");
+	
+	//Compare operators of compop.
+	private static final int[] COMPARES = {LittleScanner.getLiteralType("<"), LittleScanner.getLiteralType(">"),
+			LittleScanner.getLiteralType("="), LittleScanner.getLiteralType("!="), LittleScanner.getLiteralType("<="),
+			LittleScanner.getLiteralType(">=")};
+			
+	private LittleScanner tokens;
+	
+	private CodeExtractor extractor;
+	
+	//Index of the next token.
+	private int position = 0;
+	
+	public LittleDescentParser(LittleScanner tokens, CodeExtractor extractor) {
+		this.tokens = tokens;
+		this.extractor = extractor;
+	}
+	
+	public static void main(String[] args) throws IOException {
+		
+		if(args.length < 1) {
+			System.err.println("usage: java LittleDescentParser <source file>...");
+			System.exit(1);
+		}
+		
+		for(String file: args) {
+			
+			byte[] source = Files.readAllBytes(Paths.get(file));
+			String text = new String(source, StandardCharsets.UTF_8);
+			
+			LinkedList<FunctionUnit> expected = null;
+			LinkedList<FunctionUnit> actual = null;
+			String expectedError = null;
+			String actualError = null;
+			
+			try {
+				expected = extractTree(text);
+				
+			}catch(RuntimeException e) {
+				expectedError = String.valueOf(e.getMessage());
+			}
+			
+			try {
+				actual = extractDescent(source);
+				
+			}catch(RuntimeException e) {
+				actualError = e.getMessage();
+			}
+			
+			if(expected == null || actual == null) {
+				
+				if(expected == null && actual == null) {
+					System.out.println(file + ": both reject, " + actualError);
+				}
+				else {
+					System.out.println(file + ": " + ((expected == null) ? "only LittleParser rejects, " + expectedError : "only LittleDescentParser rejects, " + actualError));
+				}
+				
+				continue;
+			}
+			
+			String difference = compare(expected, actual);
+			
+			if(difference != null) {
+				System.out.println(file + ": " + difference);
+				continue;
+			}
+			
+			//Repeats each front end for about a second after a run to warm up.
+			long descentTime = 0;
+			long treeTime = 0;
+			int descents = 0;
+			int trees = 0;
+			
+			for(long start = System.nanoTime(), end = start; end - start < 1000000000L || descents < 2; descents++) {
+				
+				extractDescent(source);
+				
+				long now = System.nanoTime();
+				
+				if(descents > 0) {
+					descentTime += now - end;
+				}
+				
+				end = now;
+			}
+			
+			for(long start = System.nanoTime(), end = start; end - start < 1000000000L || trees < 2; trees++) {
+				
+				extractTree(text);
+				
+				long now = System.nanoTime();
+				
+				if(trees > 0) {
+					treeTime += now - end;
+				}
+				
+				end = now;
+			}
+			
+			double descentMillis = descentTime / 1000000.0 / (descents - 1);
+			double treeMillis = treeTime / 1000000.0 / (trees - 1);
+			
+			System.out.println(String.format("%s: %d units the same, LittleDescentParser %.2f ms, LittleParser and CodeExtractor %.2f ms, %.1fx",
+					file, actual.size(), descentMillis, treeMillis, treeMillis / descentMillis));
+		}
+	}
+	
+	//Units of a source from the ANTLR lexer and parser and a walk of the parse tree.
+	static LinkedList<FunctionUnit> extractTree(String source) {
+		
+		LinkedBlockingQueue<FunctionUnit> units = new LinkedBlockingQueue<FunctionUnit>();
+		
+		new ParseTreeWalker().walk(new CodeExtractor(units), Driver.parse(Driver.createParser(CharStreams.fromString(source))));
+		
+		return new LinkedList<FunctionUnit>(units);
+	}
+	
+	//Units of a source from LittleScanner and LittleDescentParser.
+	static LinkedList<FunctionUnit> extractDescent(byte[] source) {
+		
+		LinkedBlockingQueue<FunctionUnit> units = new LinkedBlockingQueue<FunctionUnit>();
+		
+		new LittleDescentParser(new LittleScanner(source), new CodeExtractor(units)).parseProgram();
+		
+		return new LinkedList<FunctionUnit>(units);
+	}
+	
+	//Compares the units of both front ends, returns the first difference or null if there is none.
+	static String compare(LinkedList<FunctionUnit> expected, LinkedList<FunctionUnit> actual) {
+		
+		if(expected.size() != actual.size()) {
+			return actual.size() + " units, LittleParser has " + expected.size();
+		}
+		
+		for(int u = 0; u < expected.size(); u++) {
+			
+			FunctionUnit expectedUnit = expected.get(u);
+			FunctionUnit actualUnit = actual.get(u);
+			
+			String unit = "unit " + expectedUnit.getScope();
+			
+			if(expectedUnit.getSymbolTables().size() != actualUnit.getSymbolTables().size()) {
+				return unit + " symbol tables differ";
+			}
+			
+			for(int t = 0; t < expectedUnit.getSymbolTables().size(); t++) {
+				
+				SymbolTable expectedTable = expectedUnit.getSymbolTables().get(t);
+				SymbolTable actualTable = actualUnit.getSymbolTables().get(t);
+				
+				if(!expectedTable.getScope().equals(actualTable.getScope()) || !expectedTable.getSymbols().equals(actualTable.getSymbols())) {
+					return unit + " scope " + expectedTable.getScope() + " differs";
+				}
+				
+				for(String symbol: expectedTable.getSymbols()) {
+					
+					SymbolAttibutes e = expectedTable.getSymbolData(symbol);
+					SymbolAttibutes a = actualTable.getSymbolData(symbol);
+					
+					if(!equal(e.getType(), a.getType()) || !equal(e.getValue(), a.getValue()) || !equal(e.getStorage(), a.getStorage())) {
+						return unit + " symbol " + symbol + " differs";
+					}
+				}
+			}
+			
+			String difference = compare(expectedUnit.getAST(), actualUnit.getAST());
+			
+			if(difference != null) {
+				return unit + " " + difference;
+			}
+		}
+		
+		return null;
+	}
+	
+	//Compares two ASTs node by node, the nodes are numbered in the order they are made.
+	private static String compare(AST expected, AST actual) {
+		
+		if(expected.getLine() != actual.getLine() || expected.getColumn() != actual.getColumn()) {
+			return "AST starts at " + actual.getLine() + ":" + actual.getColumn() + ", LittleParser " + expected.getLine() + ":" + expected.getColumn();
+		}
+		
+		if(expected.size() != actual.size() || expected.getRootCount() != actual.getRootCount()) {
+			return "AST has " + actual.size() + " nodes and " + actual.getRootCount() + " statements, LittleParser " + expected.size() + " and " + expected.getRootCount();
+		}
+		
+		for(int node = 0; node < expected.size(); node++) {
+			
+			if(expected.getCodeType(node) != actual.getCodeType(node) || expected.getKind(node) != actual.getKind(node) ||
+					!equal(expected.getCode(node), actual.getCode(node)) || !equal(expected.getDataType(node), actual.getDataType(node)) ||
+					expected.getParent(node) != actual.getParent(node) || expected.getLChild(node) != actual.getLChild(node) ||
+					expected.getRChild(node) != actual.getRChild(node)) {
+						
+				return "AST node " + node + " differs";
+			}
+		}
+		
+		for(int i = 0; i < expected.getRootCount(); i++) {
+			
+			if(expected.getRoot(i) != actual.getRoot(i) || expected.getRootLine(i) != actual.getRootLine(i) || expected.getRootColumn(i) != actual.getRootColumn(i)) {
+				return "AST statement " + i + " differs";
+			}
+		}
+		
+		return null;
+	}
+	
+	private static boolean equal(String a, String b) {
+		return (a == null) ? b == null : a.equals(b);
+	}
+	
+	//program : 'PROGRAM' id 'BEGIN' pgm_body 'END' + EOF; and pgm_body : decl func_declarations;
+	public void parseProgram() {
+		
+		this.extractor.startProgram();
+		
+		this.setPosition(this.match(PROGRAM));
+		this.matchIdentifier();
+		this.match(BEGIN);
+		
+		this.parseDecl();
+		
+		this.extractor.endGlobalDeclarations();
+		
+		while(this.isNext(FUNCTION)) {
+			this.parseFuncDecl();
+		}
+		
+		this.match(END);
+		
+		while(this.isNext(END)) {
+			this.position++;
+		}
+		
+		this.match(Token.EOF);
+	}
+	
+	//decl : (string_decl | var_decl)*;
+	private void parseDecl() {
+		
+		while(true) {
+			
+			if(this.isNext(STRING)) {
+				
+				//string_decl : 'STRING' id ':=' str ';';
+				this.position++;
+				
+				String id = this.matchIdentifier();
+				
+				this.match(ASSIGN);
+				
+				String value = this.tokens.getText(this.match(LittleParser.STRINGLITERAL));
+				
+				this.match(SEMICOLON);
+				
+				this.extractor.declareString(id, value);
+			}
+			
+			else if(this.isNext(INT) || this.isNext(FLOAT)) {
+				
+				//var_decl: var_type id_list ';';
+				String type = this.tokens.getText(this.position++);
+				String[] ids = this.parseIdList();
+				
+				this.match(SEMICOLON);
+				
+				this.extractor.declareVariables(type, ids);
+			}
+			
+			else {
+				return;
+			}
+		}
+	}
+	
+	//id_list: id (',' id)*;
+	private String[] parseIdList() {
+		
+		ArrayList<String> ids = new ArrayList<String>();
+		
+		ids.add(this.matchIdentifier());
+		
+		while(this.isNext(COMMA)) {
+			
+			this.position++;
+			
+			ids.add(this.matchIdentifier());
+		}
+		
+		return ids.toArray(new String[ids.size()]);
+	}
+	
+	//func_decl: 'FUNCTION' any_type id '(' param_decl_list ')' 'BEGIN' func_body 'END';
+	private void parseFuncDecl() {
+		
+		this.setPosition(this.match(FUNCTION));
+		
+		if(!this.isNext(INT) && !this.isNext(FLOAT) && !this.isNext(VOID)) {
+			throw this.syntaxError("a type");
+		}
+		
+		String type = this.tokens.getText(this.position++);
+		String name = this.matchIdentifier();
+		
+		this.extractor.startFunction(type, name);
+		
+		this.match(OPEN);
+		
+		//param_decl_list: (param_decl (',' param_decl)*)?; and param_decl: var_type id;
+		ArrayList<String> ids = new ArrayList<String>();
+		
+		if(!this.isNext(CLOSE)) {
+			
+			while(true) {
+				
+				String parameterType = this.matchVarType();
+				String id = this.matchIdentifier();
+				
+				this.extractor.declareParameter(parameterType, id);
+				
+				ids.add(id);
+				
+				if(!this.isNext(COMMA)) {
+					break;
+				}
+				
+				this.position++;
+			}
+		}
+		
+		this.extractor.endParameters(ids.toArray(new String[ids.size()]));
+		
+		this.match(CLOSE);
+		this.match(BEGIN);
+		
+		//func_body: decl stmt_list;
+		this.parseDecl();
+		this.parseStmtList();
+		
+		this.match(END);
+		
+		this.extractor.endFunction();
+	}
+	
+	//stmt_list: stmt*; with stmt: base_stmt | if_stmt | while_stmt; and base_stmt: assign_stmt | read_stmt | write_stmt | return_stmt;
+	private void parseStmtList() {
+		
+		while(true) {
+			
+			int type = this.peek(0);
+			
+			if(type == LittleParser.IDENTIFIER) {
+				
+				//assign_stmt: assign_expr ';'; and assign_expr: id ':=' expr;
+				this.setPosition(this.position);
+				
+				this.extractor.startAssignment(this.matchIdentifier());
+				
+				this.match(ASSIGN);
+				this.parseExpr();
+				
+				this.extractor.endAssignment();
+				
+				this.match(SEMICOLON);
+			}
+			
+			else if(type == READ || type == WRITE) {
+				
+				//read_stmt: 'READ' '(' id_list ')' ';'; and write_stmt: 'WRITE' '(' id_list ')' ';';
+				this.setPosition(this.position++);
+				
+				this.match(OPEN);
+				
+				String[] ids = this.parseIdList();
+				
+				this.match(CLOSE);
+				this.match(SEMICOLON);
+				
+				this.extractor.addSyscallNodes((type == READ) ? CodeType.Read : CodeType.Write, ids);
+			}
+			
+			else if(type == RETURN) {
+				
+				//return_stmt: 'RETURN' expr ';';
+				this.setPosition(this.position++);
+				
+				this.parseExpr();
+				
+				this.match(SEMICOLON);
+				
+				this.extractor.addReturn();
+			}
+			
+			else if(type == IF) {
+				
+				//if_stmt: 'IF' '(' cond ')' decl stmt_list else_part 'ENDIF'; and else_part: ('ELSE' decl stmt_list)?;
+				this.setPosition(this.position++);
+				
+				this.extractor.startBlock();
+				
+				this.parseCond(false);
+				
+				this.parseDecl();
+				this.parseStmtList();
+				
+				if(this.isNext(ELSE)) {
+					
+					this.setPosition(this.position++);
+					
+					this.extractor.startElse();
+					
+					this.parseDecl();
+					this.parseStmtList();
+					
+					this.extractor.endBlock();
+				}
+				
+				this.setPosition(this.match(ENDIF));
+				
+				this.extractor.endIf();
+			}
+			
+			else if(type == WHILE) {
+				
+				//while_stmt: 'WHILE' '(' cond ')' decl stmt_list 'ENDWHILE';
+				this.setPosition(this.position++);
+				
+				this.extractor.startBlock();
+				
+				this.parseCond(true);
+				
+				this.parseDecl();
+				this.parseStmtList();
+				
+				this.setPosition(this.match(ENDWHILE));
+				
+				this.extractor.endWhile();
+			}
+			
+			else {
+				return;
+			}
+		}
+	}
+	
+	//'(' cond ')' of an if or while, with cond: expr compop expr;
+	private void parseCond(boolean isWhile) {
+		
+		this.match(OPEN);
+		
+		this.parseExpr();
+		
+		int type = this.peek(0);
+		
+		boolean isCompare = false;
+		
+		for(int compare: COMPARES) {
+			isCompare |= (type == compare);
+		}
+		
+		if(!isCompare) {
+			throw this.syntaxError("a compare operator");
+		}
+		
+		String compop = this.tokens.getText(this.position++);
+		
+		this.parseExpr();
+		
+		this.extractor.addCondition(compop, isWhile);
+		
+		this.match(CLOSE);
+	}
+	
+	//expr: factor (addop factor)*; a single factor is already the operand of the expression.
+	private void parseExpr() {
+		
+		this.parseFactor();
+		
+		LinkedList<String> operators = null;
+		
+		while(this.isNext(PLUS) || this.isNext(MINUS)) {
+			
+			if(operators == null) {
+				operators = new LinkedList<String>();
+			}
+			
+			operators.add(this.tokens.getText(this.position++));
+			
+			this.parseFactor();
+		}
+		
+		if(operators != null) {
+			this.extractor.combineOperands(operators);
+		}
+	}
+	
+	//factor: postfix_expr (mulop postfix_expr)*;
+	private void parseFactor() {
+		
+		this.parsePostfixExpr();
+		
+		LinkedList<String> operators = null;
+		
+		while(this.isNext(TIMES) || this.isNext(DIVIDE)) {
+			
+			if(operators == null) {
+				operators = new LinkedList<String>();
+			}
+			
+			operators.add(this.tokens.getText(this.position++));
+			
+			this.parsePostfixExpr();
+		}
+		
+		if(operators != null) {
+			this.extractor.combineOperands(operators);
+		}
+	}
+	
+	//postfix_expr: primary | call_expr; with primary: '(' expr ')' | id | INTLITERAL | FLOATLITERAL;
+	private void parsePostfixExpr() {
+		
+		int type = this.peek(0);
+		
+		if(type == OPEN) {
+			
+			this.position++;
+			
+			this.parseExpr();
+			
+			this.match(CLOSE);
+		}
+		
+		else if(type == LittleParser.IDENTIFIER && this.peek(1) == OPEN) {
+			
+			//call_expr: id '(' expr_list ')'; and expr_list: (expr (',' expr)*)?;
+			String function = this.tokens.getText(this.position);
+			
+			this.position += 2;
+			
+			int count = 0;
+			
+			if(!this.isNext(CLOSE)) {
+				
+				this.parseExpr();
+				count++;
+				
+				while(this.isNext(COMMA)) {
+					
+					this.position++;
+					
+					this.parseExpr();
+					count++;
+				}
+			}
+			
+			this.match(CLOSE);
+			
+			this.extractor.addCall(function, count);
+		}
+		
+		else if(type == LittleParser.IDENTIFIER) {
+			
+			this.extractor.addValue(ValueKind.Identifier, this.tokens.getText(this.position++));
+		}
+		
+		else if(type == LittleParser.INTLITERAL) {
+			
+			this.extractor.addValue(ValueKind.IntLiteral, this.tokens.getText(this.position++));
+		}
+		
+		else if(type == LittleParser.FLOATLITERAL) {
+			
+			this.extractor.addValue(ValueKind.FloatLiteral, this.tokens.getText(this.position++));
+		}
+		
+		else {
+			throw this.syntaxError("an expression");
+		}
+	}
+	
+	//var_type: 'FLOAT' | 'INT';
+	private String matchVarType() {
+		
+		if(!this.isNext(INT) && !this.isNext(FLOAT)) {
+			throw this.syntaxError("INT or FLOAT");
+		}
+		
+		return this.tokens.getText(this.position++);
+	}
+	
+	//id : IDENTIFIER;
+	private String matchIdentifier() {
+		return this.tokens.getText(this.match(LittleParser.IDENTIFIER));
+	}
+	
+	//Type of a token after the position, EOF after the last one.
+	private int peek(int ahead) {
+		return (this.position + ahead < this.tokens.getTokenCount()) ? this.tokens.getType(this.position + ahead) : Token.EOF;
+	}
+	
+	//Check if the next token is of a type.
+	private boolean isNext(int type) {
+		return this.peek(0) == type;
+	}
+	
+	//Takes the next token, which has to be of a type, and returns its index.
+	private int match(int type) {
+		
+		if(!this.isNext(type)) {
+			throw this.syntaxError((type == Token.EOF) ? "<EOF>" : LittleParser.VOCABULARY.getDisplayName(type));
+		}
+		
+		return this.position++;
+	}
+	
+	//The statement extracted next starts at a token, LittleScanner counts columns from 0 as ANTLR does.
+	private void setPosition(int token) {
+		this.extractor.setPosition(this.tokens.getLine(token), this.tokens.getColumn(token) + 1);
+	}
+	
+	//The error at the next token, stops the parse as AnyErrorListener does.
+	private RuntimeException syntaxError(String expected) {
+		
+		if(this.position == this.tokens.getTokenCount()) {
+			return new RuntimeException("line " + this.tokens.getEndLine() + ":" + this.tokens.getEndColumn() + " mismatched input <EOF> expecting " + expected);
+		}
+		
+		return new RuntimeException("line " + this.tokens.getLine(this.position) + ":" + this.tokens.getColumn(this.position) + " mismatched input '" +
+				this.tokens.getText(this.position) + "' expecting " + expected);
+	}
+}
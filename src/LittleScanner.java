@@ -0,0 +1,680 @@
+//Standard Libraries
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+
+//ANTLR runtime libraries:
+import org.antlr.v4.runtime.*;
+import org.antlr.v4.runtime.misc.Pair;
+
+/*
+ * Hand written lexer for Little, the tokens of LanguageDocs/tokens.txt with the token types of the generated LittleLexer.
+ * The bytes of the source run through a DFA given by tables, the class of each byte and the next state of each state and
+ * class, and the tokens are kept in packed int arrays (type, start, length, line) instead of an object each. Like the
+ * ANTLR lexer it takes the longest match, backing up to the last accepting state, a reserved word or operator has the type
+ * of its literal in the grammar, and CONTINUE and BREAK, which no rule uses, are KEYWORD. Comments and whitespace are
+ * skipped and the first character that starts no token stops the scan. Columns are in bytes, the same as ANTLR's for ASCII.
+ * getTokenSource adapts the tokens for LittleParser (Driver -hand-lexer).
+ *
+ * The main method checks that the tokens of each file are the same as those of LittleLexer and times both, keeping the
+ * tokens of each as the token stream of the parser does.
+ *
+ *     java LittleScanner <source file>...
+ */
+public class LittleScanner {
+	
+	//Character classes, every byte outside of them is OTHER.
+	private static final int OTHER = 0;
+	private static final int LETTER = 1;
+	private static final int DIGIT = 2;
+	private static final int DOT = 3;
+	private static final int QUOTE = 4;
+	private static final int SPACE = 5;
+	private static final int NEWLINE = 6;
+	private static final int MINUS = 7;
+	private static final int COLON = 8;
+	private static final int BANG = 9;
+	private static final int COMPARE = 10;
+	private static final int EQUAL = 11;
+	private static final int SINGLE = 12;
+	private static final int CLASS_COUNT = 13;
+	
+	//States of the DFA, a token starts at START and no transition is ERROR.
+	private static final int ERROR = -1;
+	private static final int START = 0;
+	private static final int NAME = 1;
+	private static final int INTEGER = 2;
+	private static final int POINT = 3;
+	private static final int FRACTION = 4;
+	private static final int STRING = 5;
+	private static final int STRING_END = 6;
+	private static final int DASH = 7;
+	private static final int COMMENT = 8;
+	private static final int COMMENT_END = 9;
+	private static final int ASSIGN = 10;
+	private static final int NOT = 11;
+	private static final int RELATION = 12;
+	private static final int OPERATOR_END = 13;
+	private static final int STATE_COUNT = 14;
+	
+	//Token accepted in a state, the type of a name and an operator is looked up from its text.
+	private static final int NONE = 0;
+	private static final int ACCEPT_NAME = 1;
+	private static final int ACCEPT_INTEGER = 2;
+	private static final int ACCEPT_FLOAT = 3;
+	private static final int ACCEPT_STRING = 4;
+	private static final int ACCEPT_OPERATOR = 5;
+	private static final int ACCEPT_COMMENT = 6;
+	
+	//Reserved words and operators of LanguageDocs/tokens.txt.
+	private static final String[] KEYWORDS = {"PROGRAM", "BEGIN", "END", "FUNCTION", "READ", "WRITE", "IF", "ELSE", "ENDIF",
+			"WHILE", "ENDWHILE", "CONTINUE", "BREAK", "RETURN", "INT", "VOID", "STRING", "FLOAT"};
+	private static final String[] OPERATORS = {":=", "+", "-", "*", "/", "=", "!=", "<", ">", "(", ")", ";", ",", "<=", ">="};
+	
+	private static final byte[] CLASSES = new byte[256];
+	
+	//Next state at index state * CLASS_COUNT + class, the next state is also times CLASS_COUNT.
+	private static final int[] TRANSITIONS = new int[STATE_COUNT * CLASS_COUNT];
+	
+	//Token accepted in each state, at the index of the state in TRANSITIONS.
+	private static final int[] ACCEPTS = new int[STATE_COUNT * CLASS_COUNT];
+	
+	//Type of an operator of one byte by the byte, of two bytes (the second is always '=') by the first.
+	private static final int[] SINGLE_TYPES = new int[256];
+	private static final int[] DOUBLE_TYPES = new int[256];
+	
+	//Reserved words by their first letter, the bytes of each word and its type.
+	private static final byte[][][] KEYWORD_BYTES = new byte[26][][];
+	private static final int[][] KEYWORD_TYPES = new int[26][];
+	
+	//Types of the literals of the grammar, 'PROGRAM' and ':=' are implicit tokens of the parser rules. The types are taken
+	//from the parser, the same as the lexer's, so the lexer and its ATN are not loaded.
+	private static final HashMap<String, Integer> LITERAL_TYPES = new HashMap<String, Integer>();
+	
+	static {
+		
+		for(int c = 'a'; c <= 'z'; c++) {
+			CLASSES[c] = LETTER;
+			CLASSES[c - 'a' + 'A'] = LETTER;
+		}
+		
+		for(int c = '0'; c <= '9'; c++) {
+			CLASSES[c] = DIGIT;
+		}
+		
+		CLASSES['.'] = DOT;
+		CLASSES['"'] = QUOTE;
+		CLASSES[' '] = SPACE;
+		CLASSES['\t'] = SPACE;
+		CLASSES['\r'] = NEWLINE;
+		CLASSES['\n'] = NEWLINE;
+		CLASSES['-'] = MINUS;
+		CLASSES[':'] = COLON;
+		CLASSES['!'] = BANG;
+		CLASSES['<'] = COMPARE;
+		CLASSES['>'] = COMPARE;
+		CLASSES['='] = EQUAL;
+		
+		for(char c: "+*/();,".toCharArray()) {
+			CLASSES[c] = SINGLE;
+		}
+		
+		Arrays.fill(TRANSITIONS, ERROR);
+		
+		setTransition(START, LETTER, NAME);
+		setTransition(START, DIGIT, INTEGER);
+		setTransition(START, DOT, POINT);
+		setTransition(START, QUOTE, STRING);
+		setTransition(START, MINUS, DASH);
+		setTransition(START, COLON, ASSIGN);
+		setTransition(START, BANG, NOT);
+		setTransition(START, COMPARE, RELATION);
+		setTransition(START, EQUAL, OPERATOR_END);
+		setTransition(START, SINGLE, OPERATOR_END);
+		
+		setTransition(NAME, LETTER, NAME);
+		setTransition(NAME, DIGIT, NAME);
+		
+		setTransition(INTEGER, DIGIT, INTEGER);
+		setTransition(INTEGER, DOT, POINT);
+		setTransition(POINT, DIGIT, FRACTION);
+		setTransition(FRACTION, DIGIT, FRACTION);
+		
+		setTransition(DASH, MINUS, COMMENT);
+		setTransition(ASSIGN, EQUAL, OPERATOR_END);
+		setTransition(NOT, EQUAL, OPERATOR_END);
+		setTransition(RELATION, EQUAL, OPERATOR_END);
+		
+		//A string is any bytes up to the next quote and a comment any bytes up to the end of the line.
+		for(int c = 0; c < CLASS_COUNT; c++) {
+			setTransition(STRING, c, (c == QUOTE) ? STRING_END : STRING);
+			setTransition(COMMENT, c, (c == NEWLINE) ? COMMENT_END : COMMENT);
+		}
+		
+		ACCEPTS[NAME * CLASS_COUNT] = ACCEPT_NAME;
+		ACCEPTS[INTEGER * CLASS_COUNT] = ACCEPT_INTEGER;
+		ACCEPTS[FRACTION * CLASS_COUNT] = ACCEPT_FLOAT;
+		ACCEPTS[STRING_END * CLASS_COUNT] = ACCEPT_STRING;
+		ACCEPTS[DASH * CLASS_COUNT] = ACCEPT_OPERATOR;
+		ACCEPTS[RELATION * CLASS_COUNT] = ACCEPT_OPERATOR;
+		ACCEPTS[OPERATOR_END * CLASS_COUNT] = ACCEPT_OPERATOR;
+		ACCEPTS[COMMENT_END * CLASS_COUNT] = ACCEPT_COMMENT;
+		
+		for(int type = 1; type <= LittleParser.VOCABULARY.getMaxTokenType(); type++) {
+			
+			String literal = LittleParser.VOCABULARY.getLiteralName(type);
+			
+			if(literal != null) {
+				LITERAL_TYPES.put(literal.substring(1, literal.length() - 1), type);
+			}
+		}
+		
+		for(String operator: OPERATORS) {
+			
+			int type = (getLiteralType(operator) == Token.INVALID_TYPE) ? LittleParser.OPERATOR : getLiteralType(operator);
+			
+			if(operator.length() == 1) {
+				SINGLE_TYPES[operator.charAt(0)] = type;
+			}
+			else {
+				DOUBLE_TYPES[operator.charAt(0)] = type;
+			}
+		}
+		
+		for(int letter = 0; letter < 26; letter++) {
+			KEYWORD_BYTES[letter] = new byte[0][];
+			KEYWORD_TYPES[letter] = new int[0];
+		}
+		
+		for(String keyword: KEYWORDS) {
+			
+			int letter = keyword.charAt(0) - 'A';
+			int count = KEYWORD_TYPES[letter].length;
+			
+			KEYWORD_BYTES[letter] = Arrays.copyOf(KEYWORD_BYTES[letter], count + 1);
+			KEYWORD_TYPES[letter] = Arrays.copyOf(KEYWORD_TYPES[letter], count + 1);
+			
+			KEYWORD_BYTES[letter][count] = keyword.getBytes(StandardCharsets.US_ASCII);
+			KEYWORD_TYPES[letter][count] = (getLiteralType(keyword) == Token.INVALID_TYPE) ? LittleParser.KEYWORD : getLiteralType(keyword);
+		}
+	}
+	
+	private byte[] source;
+	
+	//Tokens in order, without the skipped ones and the end of file.
+	private int count = 0;
+	private int[] types;
+	private int[] starts;
+	private int[] lengths;
+	private int[] lines;
+	
+	//Offset of the first byte of each line, from line 1.
+	private int lineCount = 0;
+	private int[] lineStarts;
+	
+	//Scans the whole source, throws a RuntimeException on the first byte that starts no token.
+	public LittleScanner(byte[] source) {
+		
+		this.source = source;
+		
+		int capacity = Math.max(16, source.length / 4);
+		
+		this.types = new int[capacity];
+		this.starts = new int[capacity];
+		this.lengths = new int[capacity];
+		this.lines = new int[capacity];
+		this.lineStarts = new int[Math.max(16, source.length / 16)];
+		
+		this.scan();
+	}
+	
+	//Scans the whole of a stream, the source on standard input for Driver.
+	public LittleScanner(InputStream in) throws IOException {
+		
+		this(readAll(in));
+	}
+	
+	public static void main(String[] args) throws IOException {
+		
+		if(args.length < 1) {
+			System.err.println("usage: java LittleScanner <source file>...");
+			System.exit(1);
+		}
+		
+		for(String file: args) {
+			
+			byte[] source = Files.readAllBytes(Paths.get(file));
+			
+			CharStream chars = CharStreams.fromString(new String(source, StandardCharsets.UTF_8));
+			
+			String difference = compare(new LittleScanner(source), chars);
+			
+			if(difference != null) {
+				System.out.println(file + ": " + difference);
+				continue;
+			}
+			
+			//Repeats each lexer for about a second after a run to warm up.
+			long scanTime = 0;
+			long lexTime = 0;
+			int scans = 0;
+			int lexes = 0;
+			int tokens = 0;
+			
+			for(long start = System.nanoTime(), end = start; end - start < 1000000000L || scans < 2; scans++) {
+				
+				tokens = new LittleScanner(source).getTokenCount();
+				
+				long now = System.nanoTime();
+				
+				if(scans > 0) {
+					scanTime += now - end;
+				}
+				
+				end = now;
+			}
+			
+			for(long start = System.nanoTime(), end = start; end - start < 1000000000L || lexes < 2; lexes++) {
+				
+				//The tokens are kept, as the token stream of the parser keeps them.
+				chars.seek(0);
+				new LittleLexer(chars).getAllTokens();
+				
+				long now = System.nanoTime();
+				
+				if(lexes > 0) {
+					lexTime += now - end;
+				}
+				
+				end = now;
+			}
+			
+			double scanRate = (double) source.length * (scans - 1) / scanTime * 1000;
+			double lexRate = (double) source.length * (lexes - 1) / lexTime * 1000;
+			
+			System.out.println(String.format("%s: %d bytes, %d tokens, LittleScanner %.1f MB/s, LittleLexer %.1f MB/s, %.1fx", file,
+					source.length, tokens, scanRate, lexRate, scanRate / lexRate));
+		}
+	}
+	
+	//Reads a whole stream.
+	private static byte[] readAll(InputStream in) throws IOException {
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		
+		for(int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+			bytes.write(buffer, 0, read);
+		}
+		
+		return bytes.toByteArray();
+	}
+	
+	//Compares the tokens with those of LittleLexer, returns the first difference or null if there is none.
+	static String compare(LittleScanner scanner, CharStream chars) {
+		
+		LittleLexer lexer = new LittleLexer(chars);
+		
+		lexer.removeErrorListeners();
+		lexer.addErrorListener(new AnyErrorListener());
+		
+		TokenSource tokens = scanner.getTokenSource();
+		
+		for(int i = 0; ; i++) {
+			
+			Token expected = lexer.nextToken();
+			Token actual = tokens.nextToken();
+			
+			if(expected.getType() != actual.getType() || !expected.getText().equals(actual.getText()) ||
+					expected.getLine() != actual.getLine() || expected.getCharPositionInLine() != actual.getCharPositionInLine()) {
+						
+				return "token " + i + " is " + actual + ", LittleLexer has " + expected;
+			}
+			
+			if(expected.getType() == Token.EOF) {
+				return null;
+			}
+		}
+	}
+	
+	//Token type of a literal of the grammar, a reserved word or an operator, Token.INVALID_TYPE if it is not one.
+	static int getLiteralType(String literal) {
+		
+		Integer type = LITERAL_TYPES.get(literal);
+		
+		return (type == null) ? Token.INVALID_TYPE : type;
+	}
+	
+	//States are kept as their index in TRANSITIONS, state * CLASS_COUNT.
+	private static void setTransition(int state, int characterClass, int next) {
+		TRANSITIONS[state * CLASS_COUNT + characterClass] = next * CLASS_COUNT;
+	}
+	
+	//Runs the DFA from each token start to its longest match.
+	private void scan() {
+		
+		byte[] source = this.source;
+		int length = source.length;
+		
+		this.addLine(0);
+		
+		int position = 0;
+		
+		while(true) {
+			
+			//Whitespace between the tokens, the lines are counted here instead of as a token.
+			while(position < length) {
+				
+				int characterClass = CLASSES[source[position] & 0xFF];
+				
+				if(characterClass == NEWLINE) {
+					
+					if(source[position] == '\n') {
+						this.addLine(position + 1);
+					}
+				}
+				else if(characterClass != SPACE) {
+					break;
+				}
+				
+				position++;
+			}
+			
+			if(position == length) {
+				return;
+			}
+			
+			int state = START;
+			int index = position;
+			
+			//The DFA runs until there is no transition, then backs up if it stopped in a state that accepts nothing.
+			while(index < length) {
+				
+				int next = TRANSITIONS[state + CLASSES[source[index] & 0xFF]];
+				
+				if(next == ERROR) {
+					break;
+				}
+				
+				state = next;
+				index++;
+			}
+			
+			int accept = ACCEPTS[state];
+			
+			//Backs up to the last accepting state, as in "1." which is an integer then an error, or "--" at the end of the source.
+			if(accept == NONE) {
+				
+				index = this.getLongestMatch(position);
+				
+				if(index < 0) {
+					throw new RuntimeException("Unexpected '" + (char) (source[position] & 0xFF) + "' at line " + this.lineCount + ":" +
+							(position - this.lineStarts[this.lineCount - 1]));
+				}
+				
+				accept = ACCEPTS[this.getState(position, index)];
+			}
+			
+			//A comment ends with its new line, only a string can have new lines inside.
+			if(accept == ACCEPT_COMMENT) {
+				
+				if(source[index - 1] == '\n') {
+					this.addLine(index);
+				}
+			}
+			else {
+				
+				this.addToken(this.getType(accept, position, index - position), position, index - position);
+				
+				if(accept == ACCEPT_STRING) {
+					
+					for(int i = position; i < index; i++) {
+						
+						if(source[i] == '\n') {
+							this.addLine(i + 1);
+						}
+					}
+				}
+			}
+			
+			position = index;
+		}
+	}
+	
+	//End of the longest token from a position, -1 if there is none.
+	private int getLongestMatch(int position) {
+		
+		int state = START;
+		int end = -1;
+		
+		for(int index = position; index < this.source.length; index++) {
+			
+			state = TRANSITIONS[state + CLASSES[this.source[index] & 0xFF]];
+			
+			if(state == ERROR) {
+				break;
+			}
+			
+			if(ACCEPTS[state] != NONE) {
+				end = index + 1;
+			}
+		}
+		
+		return end;
+	}
+	
+	//State of the DFA after the bytes from start to end.
+	private int getState(int start, int end) {
+		
+		int state = START;
+		
+		for(int index = start; index < end; index++) {
+			state = TRANSITIONS[state + CLASSES[this.source[index] & 0xFF]];
+		}
+		
+		return state;
+	}
+	
+	//Type of an accepted token, names and operators by their text.
+	private int getType(int accept, int start, int length) {
+		
+		switch(accept) {
+			
+			case ACCEPT_NAME:
+				return this.getNameType(start, length);
+				
+			case ACCEPT_INTEGER:
+				return LittleParser.INTLITERAL;
+				
+			case ACCEPT_FLOAT:
+				return LittleParser.FLOATLITERAL;
+				
+			case ACCEPT_STRING:
+				return LittleParser.STRINGLITERAL;
+				
+			default:
+				return (length == 1) ? SINGLE_TYPES[this.source[start]] : DOUBLE_TYPES[this.source[start]];
+		}
+	}
+	
+	//Type of a reserved word, IDENTIFIER for other names.
+	private int getNameType(int start, int length) {
+		
+		int letter = this.source[start] - 'A';
+		
+		if(letter < 0 || letter >= 26) {
+			return LittleParser.IDENTIFIER;
+		}
+		
+		byte[][] keywords = KEYWORD_BYTES[letter];
+		
+		for(int k = 0; k < keywords.length; k++) {
+			
+			if(keywords[k].length == length && this.isMatch(keywords[k], start)) {
+				return KEYWORD_TYPES[letter][k];
+			}
+		}
+		
+		return LittleParser.IDENTIFIER;
+	}
+	
+	private boolean isMatch(byte[] keyword, int start) {
+		
+		for(int i = 1; i < keyword.length; i++) {
+			
+			if(keyword[i] != this.source[start + i]) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	private void addToken(int type, int start, int length) {
+		
+		if(this.count == this.types.length) {
+			
+			int capacity = this.count * 2;
+			
+			this.types = Arrays.copyOf(this.types, capacity);
+			this.starts = Arrays.copyOf(this.starts, capacity);
+			this.lengths = Arrays.copyOf(this.lengths, capacity);
+			this.lines = Arrays.copyOf(this.lines, capacity);
+		}
+		
+		this.types[this.count] = type;
+		this.starts[this.count] = start;
+		this.lengths[this.count] = length;
+		this.lines[this.count] = this.lineCount;
+		this.count++;
+	}
+	
+	private void addLine(int start) {
+		
+		if(this.lineCount == this.lineStarts.length) {
+			this.lineStarts = Arrays.copyOf(this.lineStarts, this.lineCount * 2);
+		}
+		
+		this.lineStarts[this.lineCount++] = start;
+	}
+	
+	public int getTokenCount() {
+		return this.count;
+	}
+	
+	//Token type of LittleLexer.
+	public int getType(int token) {
+		return this.types[token];
+	}
+	
+	//Offset of the first byte of a token in the source.
+	public int getStart(int token) {
+		return this.starts[token];
+	}
+	
+	public int getLength(int token) {
+		return this.lengths[token];
+	}
+	
+	public int getLine(int token) {
+		return this.lines[token];
+	}
+	
+	public int getColumn(int token) {
+		return this.starts[token] - this.lineStarts[this.lines[token] - 1];
+	}
+	
+	public String getText(int token) {
+		return new String(this.source, this.starts[token], this.lengths[token], StandardCharsets.UTF_8);
+	}
+	
+	//Line and column of the end of the source, where the end of file token is.
+	public int getEndLine() {
+		return this.lineCount;
+	}
+	
+	public int getEndColumn() {
+		return this.source.length - this.lineStarts[this.lineCount - 1];
+	}
+	
+	public int getSourceLength() {
+		return this.source.length;
+	}
+	
+	//Tokens for the parser, a token object is only made when the parser asks for it.
+	public TokenSource getTokenSource() {
+		return new ScannedTokenSource(this);
+	}
+}
+
+//Adapts the tokens of LittleScanner to the ANTLR TokenSource of a CommonTokenStream.
+class ScannedTokenSource implements TokenSource{
+	
+	private LittleScanner scanner;
+	
+	//Next token to return.
+	private int index = 0;
+	
+	private TokenFactory<?> factory = CommonTokenFactory.DEFAULT;
+	
+	private Pair<TokenSource, CharStream> source;
+	
+	public ScannedTokenSource(LittleScanner scanner) {
+		this.scanner = scanner;
+		this.source = new Pair<TokenSource, CharStream>(this, null);
+	}
+	
+	@Override
+	public Token nextToken() {
+		
+		if(this.index == this.scanner.getTokenCount()) {
+			
+			int end = this.scanner.getSourceLength();
+			
+			return this.factory.create(this.source, Token.EOF, "<EOF>", Token.DEFAULT_CHANNEL, end, end - 1, this.scanner.getEndLine(),
+					this.scanner.getEndColumn());
+		}
+		
+		int token = this.index++;
+		int start = this.scanner.getStart(token);
+		
+		return this.factory.create(this.source, this.scanner.getType(token), this.scanner.getText(token), Token.DEFAULT_CHANNEL, start,
+				start + this.scanner.getLength(token) - 1, this.scanner.getLine(token), this.scanner.getColumn(token));
+	}
+	
+	@Override
+	public int getLine() {
+		return (this.index == this.scanner.getTokenCount()) ? this.scanner.getEndLine() : this.scanner.getLine(this.index);
+	}
+	
+	@Override
+	public int getCharPositionInLine() {
+		return (this.index == this.scanner.getTokenCount()) ? this.scanner.getEndColumn() : this.scanner.getColumn(this.index);
+	}
+	
+	//There is no character stream, the text of each token is given when it is made.
+	@Override
+	public CharStream getInputStream() {
+		return null;
+	}
+	
+	@Override
+	public String getSourceName() {
+		return IntStream.UNKNOWN_SOURCE_NAME;
+	}
+	
+	@Override
+	public void setTokenFactory(TokenFactory<?> factory) {
+		this.factory = factory;
+	}
+	
+	@Override
+	public TokenFactory<?> getTokenFactory() {
+		return this.factory;
+	}
+}
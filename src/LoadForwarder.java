@@ -0,0 +1,151 @@
+//Standard Libraries
+import java.util.HashMap;
+import java.util.LinkedList;
+
+/*
+ * Forwards values already held in registers in the tiny assembly of a unit. The value each register holds is tracked in
+ * program order, a variable or literal it was loaded from or stored to. A move of a value into a register that already
+ * holds it, or of a register back to the variable it holds, is removed. A variable read from memory by a move or an
+ * operation is read from a register holding it instead, a register operand is faster than a memory one. What a register
+ * holds is forgotten when it is written, when its variable is written and at any label, jump or call.
+ */
+class LoadForwarder implements CodePass{
+	
+	@Override
+	public LinkedList<String> run(LinkedList<String> assembly) {
+		
+		LinkedList<String> result = new LinkedList<String>();
+		
+		//Variable or literal each register holds.
+		HashMap<String, String> holds = new HashMap<String, String>();
+		
+		for(String instruction: assembly) {
+			
+			String[] elements = instruction.split(" ");
+			
+			String opcode = elements[0];
+			String op1 = (elements.length > 1) ? elements[1] : null;
+			String op2 = (elements.length > 2) ? elements[2] : null;
+			
+			switch(opcode) {
+				
+				case "var":
+				case "str":
+				case ";line":
+					break;
+					
+				case "move":
+					
+					//Load into a register.
+					if(this.isRegister(op2)) {
+						
+						String value = this.isRegister(op1) ? holds.get(op1) : op1;
+						
+						if(op1.equals(op2) || (value != null && value.equals(holds.get(op2)))) {
+							continue;
+						}
+						
+						instruction = "move " + this.forward(op1, holds) + " " + op2;
+						
+						this.put(holds, op2, value);
+					}
+					
+					//Store of a register or literal to a variable.
+					else {
+						
+						if(this.isRegister(op1) && op2.equals(holds.get(op1))) {
+							continue;
+						}
+						
+						this.forget(holds, op2);
+						
+						if(this.isRegister(op1)) {
+							holds.put(op1, op2);
+						}
+					}
+					break;
+					
+				case "addi":
+				case "subi":
+				case "muli":
+				case "divi":
+				case "addr":
+				case "subr":
+				case "mulr":
+				case "divr":
+					instruction = opcode + " " + this.forward(op1, holds) + " " + op2;
+					holds.remove(op2);
+					break;
+					
+				case "inci":
+				case "deci":
+					holds.remove(op1);
+					break;
+					
+				case "sys":
+					
+					//A read writes its variable, writes and halt change nothing.
+					if(op1.startsWith("read")) {
+						this.forget(holds, op2);
+					}
+					break;
+					
+				//Compares read their operands as they are, any other instruction can reach or leave the code between.
+				case "cmpi":
+				case "cmpr":
+					break;
+					
+				default:
+					holds.clear();
+					break;
+			}
+			
+			result.add(instruction);
+		}
+		
+		return result;
+	}
+	
+	//Operand of a variable or stack slot read from the register holding it, any other operand as it is.
+	private String forward(String operand, HashMap<String, String> holds) {
+		
+		if(this.isRegister(operand) || (!Character.isLetter(operand.charAt(0)) && operand.charAt(0) != '$')) {
+			return operand;
+		}
+		
+		for(String register: holds.keySet()) {
+			
+			if(operand.equals(holds.get(register))) {
+				return register;
+			}
+		}
+		
+		return operand;
+	}
+	
+	//Records the value a register holds, or that it is unknown.
+	private void put(HashMap<String, String> holds, String register, String value) {
+		
+		if(value == null) {
+			holds.remove(register);
+		}
+		else {
+			holds.put(register, value);
+		}
+	}
+	
+	//Forgets the registers holding a variable that is written.
+	private void forget(HashMap<String, String> holds, String variable) {
+		
+		for(String register: new LinkedList<String>(holds.keySet())) {
+			
+			if(holds.get(register).equals(variable)) {
+				holds.remove(register);
+			}
+		}
+	}
+	
+	private boolean isRegister(String operand) {
+		return operand.matches("[rR][0-9]+");
+	}
+}
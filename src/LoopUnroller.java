@@ -0,0 +1,450 @@
+//Standard Libraries
+import java.util.ArrayList;
+
+/*
+ * Unrolls the counted WHILE loops of an AST. A loop is counted when its condition compares an INT variable with a literal
+ * or a variable the body does not write, the last statement of its body steps the variable by a literal and no other
+ * statement writes it. When the statement before the loop assigns the variable a literal and the bound is a literal the
+ * trip count is known: a loop of few trips is replaced by a copy of its body for each trip, a longer one by a loop running
+ * the body factor times for as many whole trips of factor as there are followed by a copy of the body for each trip left.
+ * A loop with an unknown trip count runs the body factor times while the variable is factor - 1 steps short of the bound,
+ * then the original loop runs the trips left. The steps are taken off the bound rather than added to the variable, a
+ * variable bound only when that can not overflow. e.g. with a factor of 2
+ *
+ *     WHILE (i < n) s; i := i + 1; ENDWHILE
+ *
+ * becomes
+ *
+ *     IF (n > -16777216) WHILE (i < n - 1) s; i := i + 1; s; i := i + 1; ENDWHILE ENDIF
+ *     WHILE (i < n) s; i := i + 1; ENDWHILE
+ *
+ * A loop is unrolled only while the copies add at most a budget of nodes. Inner loops are unrolled before the loops around
+ * them, the copies are new nodes with the source position of the statement they copy.
+ */
+class LoopUnroller{
+	
+	//Largest trip count of a loop that is replaced by copies of its body.
+	private static final int MAX_FULL_TRIPS = 16;
+	
+	//Nodes the copies of the body of a loop may add.
+	private static final int NODE_BUDGET = 256;
+	
+	//Largest INT a tiny literal holds exactly, the simulator reads every literal as a float. The initial value, bound and
+	//step of a counted loop are literals within it.
+	private static final int MAX_EXACT_LITERAL = 1 << 24;
+	
+	private AST ast;
+	
+	//Copies of the body run by each trip of a partly unrolled loop.
+	private int factor;
+	
+	public LoopUnroller(AST ast, int factor) {
+		this.ast = ast;
+		this.factor = factor;
+	}
+	
+	//Unrolls the counted loops of the AST, its statements are replaced in order.
+	public void optimize() {
+		
+		ArrayList<int[]> statements = new ArrayList<int[]>();
+		
+		for(int i = 0; i < this.ast.getRootCount(); i++) {
+			statements.add(new int[] {this.ast.getRoot(i), this.ast.getRootLine(i), this.ast.getRootColumn(i)});
+		}
+		
+		ArrayList<int[]> unrolled = this.unroll(statements, 0, statements.size());
+		
+		this.ast.clearRoots();
+		
+		for(int[] statement: unrolled) {
+			this.ast.addRoot(statement[0], statement[1], statement[2]);
+		}
+	}
+	
+	//Unrolls the loops of the statements from a start up to an end index. A statement is its root, line and column.
+	private ArrayList<int[]> unroll(ArrayList<int[]> statements, int start, int end) {
+		
+		ArrayList<int[]> unrolled = new ArrayList<int[]>();
+		
+		for(int i = start; i < end; i++) {
+			
+			if(this.ast.getCodeType(statements.get(i)[0]) != CodeType.While) {
+				unrolled.add(statements.get(i));
+				continue;
+			}
+			
+			//The end of the loop is the first ENDWHILE not closing a loop inside it.
+			int close = i + 1;
+			
+			for(int depth = 0; depth > 0 || this.ast.getCodeType(statements.get(close)[0]) != CodeType.EndWhile; close++) {
+				
+				if(this.ast.getCodeType(statements.get(close)[0]) == CodeType.While) {
+					depth++;
+				}
+				else if(this.ast.getCodeType(statements.get(close)[0]) == CodeType.EndWhile) {
+					depth--;
+				}
+			}
+			
+			ArrayList<int[]> body = this.unroll(statements, i + 1, close);
+			
+			int[] previous = unrolled.isEmpty() ? null : unrolled.get(unrolled.size() - 1);
+			
+			unrolled.addAll(this.unrollLoop(statements.get(i), body, statements.get(close), previous));
+			
+			i = close;
+		}
+		
+		return unrolled;
+	}
+	
+	//Statements replacing a loop, the loop as it is when it is not counted or unrolling it would add too much code.
+	private ArrayList<int[]> unrollLoop(int[] loop, ArrayList<int[]> body, int[] close, int[] previous) {
+		
+		ArrayList<int[]> unrolled = new ArrayList<int[]>();
+		
+		int compare = this.ast.getLChild(loop[0]);
+		int counter = this.ast.getLChild(compare);
+		int bound = this.ast.getRChild(compare);
+		
+		int step = this.getStep(compare, body);
+		int size = this.countNodes(body);
+		
+		if(step == 0) {
+			
+			unrolled.add(loop);
+			unrolled.addAll(body);
+			unrolled.add(close);
+			
+			return unrolled;
+		}
+		
+		String initial = this.getInitialValue(counter, previous);
+		long trips = this.countTrips(compare, initial, step);
+		
+		//Value of the variable after the whole trips of factor of a loop of known trips.
+		long last = (trips >= 0) ? Long.parseLong(initial) + (trips / this.factor) * this.factor * step : 0;
+		
+		//Known trip count, few trips.
+		if(trips >= 0 && trips <= MAX_FULL_TRIPS && (trips - 1) * size <= NODE_BUDGET) {
+			
+			for(int trip = 0; trip < trips; trip++) {
+				unrolled.addAll((trip == 0) ? body : this.copyStatements(body));
+			}
+			
+			return unrolled;
+		}
+		
+		//Known trip count, whole trips of factor in the loop and the rest after it. The loop ends once the variable reaches
+		//its value after the whole trips.
+		if(trips >= this.factor && this.factor > 1 && (this.factor - 1 + trips % this.factor) * size <= NODE_BUDGET && this.isExact(last)) {
+			
+			this.ast.setCode(compare, (step > 0) ? "<" : ">");
+			this.ast.setRChild(compare, this.createLiteral(Long.toString(last), compare));
+			
+			unrolled.add(loop);
+			
+			for(int copy = 0; copy < this.factor; copy++) {
+				unrolled.addAll((copy == 0) ? body : this.copyStatements(body));
+			}
+			
+			unrolled.add(close);
+			
+			for(int trip = 0; trip < trips % this.factor; trip++) {
+				unrolled.addAll(this.copyStatements(body));
+			}
+			
+			return unrolled;
+		}
+		
+		String operator = this.ast.getCode(compare);
+		
+		//Steps of factor - 1 trips.
+		long ahead = Math.abs((long) (this.factor - 1) * step);
+		
+		//Unknown trip count, a loop that moves the variable towards its bound runs factor trips while there are as many left
+		//and the loop itself runs the rest. The bound is moved by the steps, a literal one at compile time. A variable one is
+		//only moved when it is at least MAX_EXACT_LITERAL from the end of the INT range it is moved towards.
+		if(trips < 0 && this.factor > 1 && this.factor * size <= NODE_BUDGET && this.isExact(ahead) &&
+				((step > 0 && operator.startsWith("<")) || (step < 0 && operator.startsWith(">")))) {
+			
+			int aheadBound;
+			int[] guard = null;
+			
+			if(this.isIntLiteral(bound)) {
+				
+				long moved = Long.parseLong(this.ast.getCode(bound)) + ((step > 0) ? -ahead : ahead);
+				
+				aheadBound = this.isExact(moved) ? this.createLiteral(Long.toString(moved), AST.NIL) : AST.NIL;
+			}
+			else {
+				
+				aheadBound = this.ast.addNode(CodeType.Operator, (step > 0) ? "-" : "+");
+				
+				int boundCopy = this.copyTree(bound);
+				
+				this.ast.setDataType(aheadBound, "INT");
+				this.ast.setLChild(aheadBound, boundCopy);
+				this.ast.setRChild(aheadBound, this.createLiteral(Long.toString(ahead), aheadBound));
+				this.ast.setParent(boundCopy, aheadBound);
+				
+				//IF (n > -MAX_EXACT_LITERAL) for a loop counting up, IF (n < MAX_EXACT_LITERAL) for one counting down.
+				int limit = (step > 0) ? -MAX_EXACT_LITERAL : MAX_EXACT_LITERAL;
+				
+				guard = new int[] {this.ast.addNode(CodeType.If, "IF"), loop[1], loop[2]};
+				
+				this.ast.setLChild(guard[0], this.createCompare((step > 0) ? ">" : "<", this.copyTree(bound), this.createLiteral(Integer.toString(limit), AST.NIL)));
+				this.ast.setParent(this.ast.getLChild(guard[0]), guard[0]);
+			}
+			
+			if(aheadBound != AST.NIL) {
+				
+				int aheadLoop = this.ast.addNode(CodeType.While, this.ast.getCode(loop[0]));
+				
+				this.ast.setLChild(aheadLoop, this.createCompare(operator, this.copyTree(counter), aheadBound));
+				this.ast.setParent(this.ast.getLChild(aheadLoop), aheadLoop);
+				
+				if(guard != null) {
+					unrolled.add(guard);
+				}
+				
+				unrolled.add(new int[] {aheadLoop, loop[1], loop[2]});
+				
+				for(int copy = 0; copy < this.factor; copy++) {
+					unrolled.addAll(this.copyStatements(body));
+				}
+				
+				unrolled.add(new int[] {this.copyTree(close[0]), close[1], close[2]});
+				
+				if(guard != null) {
+					unrolled.add(new int[] {this.ast.addNode(CodeType.EndIf, "ENDIF"), close[1], close[2]});
+				}
+			}
+		}
+		
+		unrolled.add(loop);
+		unrolled.addAll(body);
+		unrolled.add(close);
+		
+		return unrolled;
+	}
+	
+	//Step of the variable of a counted loop, 0 when the loop is not counted. The condition compares the INT variable with a
+	//literal or a variable, the last statement of the body adds a literal to the variable or subtracts one from it, and no
+	//other statement writes either. A global can be written by a call, a body with a call must have neither be a global.
+	private int getStep(int compare, ArrayList<int[]> body) {
+		
+		int counter = this.ast.getLChild(compare);
+		int bound = this.ast.getRChild(compare);
+		
+		if(!"INT".equals(this.ast.getDataType(compare)) || this.ast.getCode(compare).equals("=") || body.isEmpty() ||
+				this.ast.getCodeType(counter) != CodeType.RValue || this.ast.getKind(counter) != ValueKind.Identifier ||
+				this.ast.getCodeType(bound) != CodeType.RValue || this.ast.getKind(bound) == ValueKind.FloatLiteral ||
+				(this.isIntLiteral(bound) && !this.isExactLiteral(bound)) ||
+				this.ast.getCode(counter).equals(this.ast.getCode(bound))) {
+			return 0;
+		}
+		
+		String variable = this.ast.getCode(counter);
+		
+		int increment = body.get(body.size() - 1)[0];
+		
+		if(this.ast.getCodeType(increment) != CodeType.Operator || !this.ast.getCode(increment).equals(":=") ||
+				!this.ast.getCode(this.ast.getLChild(increment)).equals(variable)) {
+			return 0;
+		}
+		
+		int sum = this.ast.getRChild(increment);
+		
+		if(this.ast.getCodeType(sum) != CodeType.Operator || !(this.ast.getCode(sum).equals("+") || this.ast.getCode(sum).equals("-"))) {
+			return 0;
+		}
+		
+		int left = this.ast.getLChild(sum);
+		int right = this.ast.getRChild(sum);
+		
+		//The literal is on the right of a subtraction and on either side of an addition.
+		if(this.ast.getCode(sum).equals("+") && this.isIntLiteral(left)) {
+			int swap = left;
+			left = right;
+			right = swap;
+		}
+		
+		if(this.ast.getCodeType(left) != CodeType.RValue || this.ast.getKind(left) != ValueKind.Identifier ||
+				!this.ast.getCode(left).equals(variable) || !this.isExactLiteral(right)) {
+			return 0;
+		}
+		
+		int step = Integer.parseInt(this.ast.getCode(right)) * (this.ast.getCode(sum).equals("+") ? 1 : -1);
+		
+		boolean isGlobal = !variable.startsWith("$") || (this.ast.getKind(bound) == ValueKind.Identifier && !this.ast.getCode(bound).startsWith("$"));
+		
+		for(int i = 0; i < body.size(); i++) {
+			
+			for(int node: this.findNodes(body.get(i)[0])) {
+				
+				CodeType type = this.ast.getCodeType(node);
+				
+				if((type == CodeType.LValue || type == CodeType.Read) && (this.ast.getCode(node).equals(this.ast.getCode(bound)) ||
+						(this.ast.getCode(node).equals(variable) && i < body.size() - 1))) {
+					return 0;
+				}
+				
+				if(type == CodeType.Call && isGlobal) {
+					return 0;
+				}
+			}
+		}
+		
+		return step;
+	}
+	
+	//Value the statement before a loop assigns its variable, null when it is not the assignment of a literal.
+	private String getInitialValue(int counter, int[] previous) {
+		
+		if(previous == null || this.ast.getCodeType(previous[0]) != CodeType.Operator || !this.ast.getCode(previous[0]).equals(":=") ||
+				!this.ast.getCode(this.ast.getLChild(previous[0])).equals(this.ast.getCode(counter))) {
+			return null;
+		}
+		
+		int value = this.ast.getRChild(previous[0]);
+		
+		return this.isExactLiteral(value) ? this.ast.getCode(value) : null;
+	}
+	
+	//Trips of a counted loop from the initial value of its variable, -1 when they are not known or the loop would not end.
+	private long countTrips(int compare, String initial, int step) {
+		
+		int bound = this.ast.getRChild(compare);
+		
+		if(initial == null || !this.isExactLiteral(bound)) {
+			return -1;
+		}
+		
+		long first = Long.parseLong(initial);
+		long last = Long.parseLong(this.ast.getCode(bound));
+		
+		switch(this.ast.getCode(compare)) {
+			case "<":
+				return (first >= last) ? 0 : (step > 0) ? (last - first + step - 1) / step : -1;
+			case "<=":
+				return (first > last) ? 0 : (step > 0) ? (last - first) / step + 1 : -1;
+			case ">":
+				return (first <= last) ? 0 : (step < 0) ? (first - last - step - 1) / -step : -1;
+			case ">=":
+				return (first < last) ? 0 : (step < 0) ? (first - last) / -step + 1 : -1;
+			case "!=":
+				return (first == last) ? 0 : ((last - first) % step == 0 && (last - first) / step > 0) ? (last - first) / step : -1;
+			default:
+				return -1;
+		}
+	}
+	
+	private boolean isIntLiteral(int node) {
+		return this.ast.getCodeType(node) == CodeType.RValue && this.ast.getKind(node) == ValueKind.IntLiteral;
+	}
+	
+	//Check if a node is an INT literal the simulator reads exactly.
+	private boolean isExactLiteral(int node) {
+		return this.isIntLiteral(node) && this.ast.getCode(node).matches("-?[0-9]{1,9}") && this.isExact(Long.parseLong(this.ast.getCode(node)));
+	}
+	
+	private boolean isExact(long value) {
+		return value >= -MAX_EXACT_LITERAL && value <= MAX_EXACT_LITERAL;
+	}
+	
+	//Creates an INT comparison of two nodes, with it as their parent.
+	private int createCompare(String operator, int left, int right) {
+		
+		int compare = this.ast.addNode(CodeType.Operator, operator);
+		
+		this.ast.setDataType(compare, "INT");
+		this.ast.setLChild(compare, left);
+		this.ast.setRChild(compare, right);
+		this.ast.setParent(left, compare);
+		this.ast.setParent(right, compare);
+		
+		return compare;
+	}
+	
+	//Creates an INT literal node with a parent.
+	private int createLiteral(String value, int parent) {
+		
+		int literal = this.ast.addNode(CodeType.RValue, value);
+		
+		this.ast.setKind(literal, ValueKind.IntLiteral);
+		this.ast.setDataType(literal, "INT");
+		this.ast.setParent(literal, parent);
+		
+		return literal;
+	}
+	
+	//Copies of statements with new nodes at the same source positions.
+	private ArrayList<int[]> copyStatements(ArrayList<int[]> statements) {
+		
+		ArrayList<int[]> copies = new ArrayList<int[]>();
+		
+		for(int[] statement: statements) {
+			copies.add(new int[] {this.copyTree(statement[0]), statement[1], statement[2]});
+		}
+		
+		return copies;
+	}
+	
+	//Copies a node and its subtree, the copy has no parent.
+	private int copyTree(int node) {
+		
+		int copy = this.ast.addNode(this.ast.getCodeType(node), this.ast.getCode(node));
+		
+		if(this.ast.getKind(node) != null) {
+			this.ast.setKind(copy, this.ast.getKind(node));
+		}
+		
+		this.ast.setDataType(copy, this.ast.getDataType(node));
+		
+		if(this.ast.getLChild(node) != AST.NIL) {
+			this.ast.setLChild(copy, this.copyTree(this.ast.getLChild(node)));
+			this.ast.setParent(this.ast.getLChild(copy), copy);
+		}
+		
+		if(this.ast.getRChild(node) != AST.NIL) {
+			this.ast.setRChild(copy, this.copyTree(this.ast.getRChild(node)));
+			this.ast.setParent(this.ast.getRChild(copy), copy);
+		}
+		
+		return copy;
+	}
+	
+	//Nodes of the statements, each root and its subtree.
+	private int countNodes(ArrayList<int[]> statements) {
+		
+		int count = 0;
+		
+		for(int[] statement: statements) {
+			count += this.findNodes(statement[0]).size();
+		}
+		
+		return count;
+	}
+	
+	//A node and the nodes of its subtree.
+	private ArrayList<Integer> findNodes(int root) {
+		
+		ArrayList<Integer> nodes = new ArrayList<Integer>();
+		
+		nodes.add(root);
+		
+		for(int i = 0; i < nodes.size(); i++) {
+			
+			if(this.ast.getLChild(nodes.get(i)) != AST.NIL) {
+				nodes.add(this.ast.getLChild(nodes.get(i)));
+			}
+			
+			if(this.ast.getRChild(nodes.get(i)) != AST.NIL) {
+				nodes.add(this.ast.getRChild(nodes.get(i)));
+			}
+		}
+		
+		return nodes;
+	}
+}
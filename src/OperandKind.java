@@ -0,0 +1,6 @@
+// Kind of a tiny instruction operand, the simulator charges memory operands more than registers and literals.
+public enum OperandKind {
+	Literal,
+	Register,
+	Memory,
+}
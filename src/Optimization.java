@@ -0,0 +1,90 @@
+//Standard Libraries
+import java.util.EnumSet;
+
+// Optimizations of the compiler. A pass rewrites the units of the whole program, or the AST, the IR or the tiny assembly of
+// a unit on its own, and can be run in any order within its stage, the others are options of the IR generation or the
+// conversion. Each can be turned on with -f<flag> and off with -fno-<flag>.
+public enum Optimization {
+	FunctionCloning("clone", Stage.Program),
+	CallConstants("call-constants", Stage.Program),
+	DeadFunctionElimination("dead-function", Stage.Program),
+	LoopUnrolling("unroll", Stage.AST),
+	ASTSimplification("simplify", Stage.AST),
+	DeadStoreElimination("dead-store", Stage.IR),
+	TailCallElimination("tail-call", Stage.IR),
+	RegisterOrdering("register-order", Stage.Generation),
+	ConstantPropagation("constant-propagation", Stage.Conversion),
+	CostSelection("cost-selection", Stage.Conversion),
+	LoadForwarding("load-forward", Stage.Assembly),
+	PartialEvaluation("partial-eval", Stage.ProgramIR),
+	StringPooling("string-pool", Stage.ProgramIR);
+	
+	// Code an optimization works on, in the order the stages run.
+	public enum Stage {
+		Program,
+		AST,
+		Generation,
+		IR,
+		Conversion,
+		Assembly,
+		// The IR of the whole program, once all of its units are compiled.
+		ProgramIR
+	}
+	
+	private final String flag;
+	
+	private final Stage stage;
+	
+	private Optimization(String flag, Stage stage) {
+		this.flag = flag;
+		this.stage = stage;
+	}
+	
+	public String getFlag() {
+		return this.flag;
+	}
+	
+	public Stage getStage() {
+		return this.stage;
+	}
+	
+	// Check if the optimization is a pass of its own rather than an option of a phase.
+	public boolean isPass() {
+		return this.stage == Stage.Program || this.stage == Stage.AST || this.stage == Stage.IR || this.stage == Stage.Assembly || this.stage == Stage.ProgramIR;
+	}
+	
+	// Returns the optimization with a flag, null if there is none.
+	public static Optimization fromFlag(String flag) {
+		
+		for(Optimization optimization: values()) {
+			
+			if(optimization.flag.equals(flag)) {
+				return optimization;
+			}
+		}
+		
+		return null;
+	}
+	
+	// Optimizations of a level, O0 has none, O1 the ones that cost little compile time, O2 all but the register ordering and
+	// Os those but the cloning of functions and the unrolling of loops, which add code. The register ordering saves registers
+	// at the cost of cycles, tiny has more registers than a function uses and an instruction waits for the last one to write
+	// a register it reuses. The partial evaluation, which may run the program for long, is not in O1. Os also selects
+	// instructions by size instead of cycles, that is a cost model and not an optimization. Returns null for an unknown
+	// level.
+	public static EnumSet<Optimization> forLevel(String level) {
+		
+		switch(level) {
+			case "0":
+				return EnumSet.noneOf(Optimization.class);
+			case "1":
+				return EnumSet.of(DeadFunctionElimination, ASTSimplification, DeadStoreElimination, TailCallElimination, ConstantPropagation, StringPooling);
+			case "2":
+				return EnumSet.complementOf(EnumSet.of(RegisterOrdering));
+			case "s":
+				return EnumSet.complementOf(EnumSet.of(FunctionCloning, LoopUnrolling, RegisterOrdering));
+			default:
+				return null;
+		}
+	}
+}
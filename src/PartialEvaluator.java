@@ -0,0 +1,430 @@
+//Standard Libraries
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+
+/*
+ * Partial evaluation of the IR of a whole program at compile time. The program is run on its IR with the semantics of the
+ * tiny simulator: every variable, slot of the stack and temporary has an INT and a FLOAT half, a literal or a copy sets both,
+ * an INT operation only the INT half of its result and a FLOAT operation only the FLOAT half. A program that halts within a
+ * budget of steps without reading any input is replaced by a write of its output and a halt. The evaluation gives up and
+ * the program is kept as it is when it reads, runs out of steps or output, divides an INT by zero, reads a half of a cell
+ * that is not known for certain or writes output a tiny string can not hold. It is all or nothing: no residual program is
+ * made of the code after the first read. Resuming there would take the frames and return addresses of the calls under way
+ * rebuilt and both halves of every cell set as the simulator holds them, and an IR store sets both halves to one literal.
+ */
+class PartialEvaluator{
+	
+	//Instructions run before the evaluation gives up.
+	private static final int STEP_BUDGET = 1000000;
+	
+	//Characters of output the program reduced to its output may write.
+	private static final int MAX_OUTPUT = 65536;
+	
+	//Elements of each IR instruction, a string declaration is its opcode, name and value.
+	private String[][] instructions;
+	
+	//Instruction of each label.
+	private HashMap<String, Integer> labels;
+	
+	//Text of each string as the simulator writes it.
+	private HashMap<String, String> strings;
+	
+	//Global variables and temporaries by name.
+	private HashMap<String, EvaluatedCell> variables;
+	
+	private ArrayList<EvaluatedCell> stack;
+	
+	//Index of the saved frame pointer of the frame on top of the stack, its slots are relative to it.
+	private int fp;
+	
+	private StringBuilder output;
+	
+	//The IR of the units is run joined in program order.
+	public PartialEvaluator(ArrayList<LinkedList<String>> units) {
+		
+		int size = 0;
+		
+		for(LinkedList<String> unit: units) {
+			size += unit.size();
+		}
+		
+		this.instructions = new String[size][];
+		this.labels = new HashMap<String, Integer>();
+		this.strings = new HashMap<String, String>();
+		
+		int pc = 0;
+		
+		for(LinkedList<String> unit: units) {
+			
+			for(String instruction: unit) {
+				
+				String[] elements = instruction.startsWith("STRING ") ? instruction.split(" ", 3) : instruction.split(" ");
+				
+				if(elements[0].equals("LABEL")) {
+					this.labels.put(elements[1], pc);
+				}
+				else if(elements[0].equals("STRING")) {
+					this.strings.put(elements[1], StringPool.decode(elements[2]));
+				}
+				
+				this.instructions[pc++] = elements;
+			}
+		}
+	}
+	
+	//IR of the program reduced to the write of its output, null when the program can not be evaluated.
+	public LinkedList<String> evaluate() {
+		
+		this.variables = new HashMap<String, EvaluatedCell>();
+		this.stack = new ArrayList<EvaluatedCell>();
+		this.fp = 0;
+		this.output = new StringBuilder();
+		
+		try {
+			this.run();
+			
+		}catch(RuntimeException e) {
+			return null;
+		}
+		
+		String value = StringPool.encode(this.output.toString());
+		
+		if(value == null) {
+			return null;
+		}
+		
+		LinkedList<String> residual = new LinkedList<String>();
+		
+		if(this.output.length() > 0) {
+			residual.add("STRING output " + value);
+			residual.add("WRITES output");
+		}
+		
+		residual.add("HALT");
+		
+		return residual;
+	}
+	
+	//Runs the program until it halts or runs past its last instruction, stops with an exception where it can not go on.
+	private void run() {
+		
+		int pc = 0;
+		
+		for(int steps = 0; pc < this.instructions.length; steps++) {
+			
+			if(steps == STEP_BUDGET) {
+				throw new RuntimeException("Out of steps");
+			}
+			
+			String[] elements = this.instructions[pc++];
+			String opcode = elements[0];
+			
+			switch(opcode) {
+				
+				case "STOREI":
+				case "STOREF":
+					this.store(elements[2], this.getValue(elements[1]));
+					break;
+					
+				case "ADDI":
+				case "SUBI":
+				case "MULI":
+				case "DIVI":
+					this.store(elements[3], EvaluatedCell.ofInt(this.operate(opcode, this.getValue(elements[1]).getInt(), this.getValue(elements[2]).getInt())));
+					break;
+					
+				case "ADDF":
+				case "SUBF":
+				case "MULF":
+				case "DIVF":
+					this.store(elements[3], EvaluatedCell.ofReal(this.operate(opcode, this.getValue(elements[1]).getReal(), this.getValue(elements[2]).getReal())));
+					break;
+					
+				case "PUSH":
+					this.stack.add((elements.length == 1) ? EvaluatedCell.ofLiteral(0) : this.getValue(elements[1]));
+					break;
+					
+				//The value is stored before it is popped, like the simulator does.
+				case "POP":
+					if(elements.length > 1) {
+						this.store(elements[1], this.stack.get(this.stack.size() - 1));
+					}
+					
+					this.stack.remove(this.stack.size() - 1);
+					break;
+					
+				case "JSR":
+					this.stack.add(EvaluatedCell.ofAddress(pc));
+					pc = this.getLabel(elements[1]);
+					break;
+					
+				case "LINK":
+					this.stack.add(EvaluatedCell.ofAddress(this.fp));
+					this.fp = this.stack.size() - 1;
+					
+					for(int i = 0; i < Integer.parseInt(elements[1]); i++) {
+						this.stack.add(EvaluatedCell.ofLiteral(0));
+					}
+					break;
+					
+				//A tail call leaves its frame without returning.
+				case "UNLINK":
+				case "RETURN":
+					while(this.stack.size() > this.fp + 1) {
+						this.stack.remove(this.stack.size() - 1);
+					}
+					
+					this.fp = this.stack.remove(this.stack.size() - 1).getAddress();
+					
+					if(opcode.equals("RETURN")) {
+						pc = this.stack.remove(this.stack.size() - 1).getAddress();
+					}
+					break;
+					
+				case "JUMP":
+					pc = this.getLabel(elements[1]);
+					break;
+					
+				case "WRITEI":
+					this.write(Integer.toString(this.getValue(elements[1]).getInt()));
+					break;
+					
+				case "WRITEF":
+					this.write(TinyMachine.formatReal(this.getValue(elements[1]).getReal()));
+					break;
+					
+				case "WRITES":
+					if(!this.strings.containsKey(elements[1])) {
+						throw new RuntimeException("Write of " + elements[1] + " is not a string");
+					}
+					
+					this.write(this.strings.get(elements[1]));
+					break;
+					
+				case "HALT":
+					return;
+					
+				case "READI":
+				case "READF":
+					throw new RuntimeException("The program reads input");
+					
+				case "LABEL":
+				case "LINE":
+				case "VAR":
+				case "STRING":
+					break;
+					
+				default:
+					if(this.isTaken(opcode, this.getValue(elements[1]), this.getValue(elements[2]))) {
+						pc = this.getLabel(elements[3]);
+					}
+					break;
+			}
+		}
+	}
+	
+	//Result of an INT operation, a division by zero or one that does not fit stops the simulator.
+	private int operate(String opcode, int a, int b) {
+		
+		switch(opcode) {
+			case "ADDI":
+				return a + b;
+			case "SUBI":
+				return a - b;
+			case "DIVI":
+				if(b == 0 || (a == Integer.MIN_VALUE && b == -1)) {
+					throw new RuntimeException("Integer division by zero");
+				}
+				return a / b;
+			default:
+				return a * b;
+		}
+	}
+	
+	private float operate(String opcode, float a, float b) {
+		
+		switch(opcode) {
+			case "ADDF":
+				return a + b;
+			case "SUBF":
+				return a - b;
+			case "DIVF":
+				return a / b;
+			default:
+				return a * b;
+		}
+	}
+	
+	//Check if a conditional jump is taken. A comparison with NaN is left to the simulator.
+	private boolean isTaken(String opcode, EvaluatedCell a, EvaluatedCell b) {
+		
+		int order;
+		
+		if(opcode.endsWith("I")) {
+			order = Integer.compare(a.getInt(), b.getInt());
+		}
+		else if(opcode.endsWith("F")) {
+			
+			if(Float.isNaN(a.getReal()) || Float.isNaN(b.getReal())) {
+				throw new RuntimeException("Comparison with NaN");
+			}
+			
+			order = (a.getReal() < b.getReal()) ? -1 : (a.getReal() > b.getReal()) ? 1 : 0;
+		}
+		else {
+			throw new RuntimeException("Unknown IR instruction " + opcode);
+		}
+		
+		switch(opcode.substring(0, 2)) {
+			case "GT":
+				return order > 0;
+			case "GE":
+				return order >= 0;
+			case "LT":
+				return order < 0;
+			case "LE":
+				return order <= 0;
+			case "EQ":
+				return order == 0;
+			case "NE":
+				return order != 0;
+			default:
+				throw new RuntimeException("Unknown IR instruction " + opcode);
+		}
+	}
+	
+	//Value of an operand, a literal, a temporary, a slot of the frame or a global. A global starts as 0 in both halves.
+	private EvaluatedCell getValue(String operand) {
+		
+		char first = operand.charAt(0);
+		
+		if(Character.isDigit(first) || first == '.' || first == '-') {
+			
+			//The simulator reads every literal as a float.
+			float literal = (float) Double.parseDouble(operand);
+			
+			if(Math.abs(literal) >= 0x1p31f) {
+				throw new RuntimeException("Literal out of range " + operand);
+			}
+			
+			return EvaluatedCell.ofLiteral(literal);
+		}
+		
+		if(first == '$' && !operand.startsWith("$T")) {
+			return this.stack.get(this.getSlot(operand));
+		}
+		
+		EvaluatedCell cell = this.variables.get(operand);
+		
+		if(cell == null) {
+			
+			if(operand.startsWith("$T")) {
+				throw new RuntimeException(operand + " read before it is written");
+			}
+			
+			cell = EvaluatedCell.ofLiteral(0);
+		}
+		
+		return cell;
+	}
+	
+	private void store(String operand, EvaluatedCell value) {
+		
+		if(operand.startsWith("$") && !operand.startsWith("$T")) {
+			this.stack.set(this.getSlot(operand), value);
+		}
+		else {
+			this.variables.put(operand, value);
+		}
+	}
+	
+	//Index of a slot of the frame on the stack, $k is k below the saved frame pointer and $-k k above it.
+	private int getSlot(String operand) {
+		
+		int slot = this.fp - Integer.parseInt(operand.substring(1));
+		
+		if(slot < 0 || slot >= this.stack.size()) {
+			throw new RuntimeException("Slot " + operand + " is not on the stack");
+		}
+		
+		return slot;
+	}
+	
+	private int getLabel(String label) {
+		
+		if(!this.labels.containsKey(label)) {
+			throw new RuntimeException("Unknown label " + label);
+		}
+		
+		return this.labels.get(label);
+	}
+	
+	private void write(String text) {
+		
+		this.output.append(text);
+		
+		if(this.output.length() > MAX_OUTPUT) {
+			throw new RuntimeException("Out of output");
+		}
+	}
+}
+
+//Value of a cell during the partial evaluation, its INT and FLOAT halves and which of them are known.
+class EvaluatedCell{
+	
+	private final int intValue;
+	
+	private final float realValue;
+	
+	private final boolean isIntKnown;
+	
+	private final boolean isRealKnown;
+	
+	private EvaluatedCell(int intValue, float realValue, boolean isIntKnown, boolean isRealKnown) {
+		this.intValue = intValue;
+		this.realValue = realValue;
+		this.isIntKnown = isIntKnown;
+		this.isRealKnown = isRealKnown;
+	}
+	
+	//A literal sets both halves, the INT half to the float truncated.
+	public static EvaluatedCell ofLiteral(float literal) {
+		return new EvaluatedCell((int) literal, literal, true, true);
+	}
+	
+	public static EvaluatedCell ofInt(int value) {
+		return new EvaluatedCell(value, 0, true, false);
+	}
+	
+	public static EvaluatedCell ofReal(float value) {
+		return new EvaluatedCell(0, value, false, true);
+	}
+	
+	//A return address or saved frame pointer.
+	public static EvaluatedCell ofAddress(int address) {
+		return new EvaluatedCell(address, 0, true, false);
+	}
+	
+	public int getInt() {
+		
+		if(!this.isIntKnown) {
+			throw new RuntimeException("INT half is not known");
+		}
+		
+		return this.intValue;
+	}
+	
+	public float getReal() {
+		
+		if(!this.isRealKnown) {
+			throw new RuntimeException("FLOAT half is not known");
+		}
+		
+		return this.realValue;
+	}
+	
+	public int getAddress() {
+		return this.getInt();
+	}
+}
@@ -0,0 +1,714 @@
+//Standard Libraries
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+
+/*
+ * Runs the optimizations of a unit. The stages run in a fixed order: the program passes on all the units before any is
+ * compiled, then on each unit the AST passes, the IR generation, the IR passes, the conversion to tiny assembly and the
+ * assembly passes, and last the passes on the IR of the whole program. The passes of a stage run in a configurable order
+ * and a pass may run more than once, the optimizations that are options of the generation or conversion are handed to
+ * them. Each pass and phase is timed, with the size of the code before and after it, the nodes of all the ASTs for the
+ * program passes, the operations of the AST or the instructions of the IR and assembly. With verification on the code is
+ * checked after each of them, a pass that breaks it stops the compile naming the pass. Units may be run at the same time,
+ * the statistics are summed over all of them.
+ */
+class PassManager{
+	
+	private static final String GENERATION = "generate";
+	
+	private static final String CONVERSION = "convert";
+	
+	//Optimizations that are turned on.
+	private EnumSet<Optimization> optimizations;
+	
+	//Passes in the order they run within their stage.
+	private LinkedList<Optimization> passes;
+	
+	//Cost of tiny instructions for the instruction selection.
+	private CostModel costModel;
+	
+	private boolean isVerifying;
+	
+	//The IR and assembly of each statement are marked with its source position, for a source map.
+	private boolean isMapping;
+	
+	//Copies of the body in each trip of a partly unrolled loop.
+	private int unrollFactor;
+	
+	//Statistics of each pass and phase by name in pipeline order: nanoseconds, size before and size after.
+	private LinkedHashMap<String, long[]> statistics;
+	
+	//The passes that are turned on run once each, in the order they are declared.
+	public PassManager(EnumSet<Optimization> optimizations, CostModel costModel, boolean isVerifying) {
+		
+		this.optimizations = optimizations;
+		this.costModel = costModel;
+		this.isVerifying = isVerifying;
+		this.unrollFactor = 4;
+		this.passes = new LinkedList<Optimization>();
+		
+		for(Optimization optimization: optimizations) {
+			
+			if(optimization.isPass()) {
+				this.passes.add(optimization);
+			}
+		}
+		
+		this.resetStatistics();
+	}
+	
+	//Sets the passes to run and their order within each stage, these are turned on and all others off.
+	public void setPasses(LinkedList<Optimization> passes) {
+		
+		for(Optimization pass: passes) {
+			
+			if(!pass.isPass()) {
+				throw new RuntimeException(pass.getFlag() + " is an option of " + pass.getStage() + ", not a pass");
+			}
+		}
+		
+		for(Optimization optimization: Optimization.values()) {
+			
+			if(optimization.isPass()) {
+				this.optimizations.remove(optimization);
+			}
+		}
+		
+		this.optimizations.addAll(passes);
+		this.passes = passes;
+		
+		this.resetStatistics();
+	}
+	
+	//Marks the code of each statement with its source position, the markers are kept by every pass.
+	public void setMapping(boolean isMapping) {
+		this.isMapping = isMapping;
+	}
+	
+	//Sets the copies of the body in each trip of a partly unrolled loop, 1 only unrolls loops fully.
+	public void setUnrollFactor(int unrollFactor) {
+		this.unrollFactor = unrollFactor;
+	}
+	
+	//Check if a program pass is on that rewrites the ASTs of functions, clone or call-constants, the units of the program are
+	//then only compiled once all of them are known. dead-function only drops units, they can be compiled as they come and
+	//the dead ones dropped once the call graph is complete (findDeadFunctions).
+	public boolean isHoldingUnits() {
+		
+		for(Optimization pass: this.passes) {
+			
+			if(pass.getStage() == Optimization.Stage.Program && pass != Optimization.DeadFunctionElimination) {
+				return true;
+			}
+		}
+		
+		return false;
+	}
+	
+	//Drops the code of the units of functions main does not reach, for units compiled as they come with the function of each
+	//and the call graph of all of them. Nothing is dropped when dead-function is off or the program has no main. The size of
+	//the code is counted in IR instructions.
+	public void dropDeadUnits(ArrayList<String> scopes, HashMap<String, HashSet<String>> callGraph, ArrayList<LinkedList<String>> unitIR,
+			ArrayList<LinkedList<String>> unitAssembly) {
+		
+		if(!this.passes.contains(Optimization.DeadFunctionElimination)) {
+			return;
+		}
+		
+		long start = System.nanoTime();
+		int before = this.countInstructions(unitIR);
+		
+		HashSet<String> reached = CallGraphOptimizer.findReachable(callGraph);
+		
+		for(int i = scopes.size() - 1; i >= 0 && reached != null; i--) {
+			
+			if(!scopes.get(i).equals("GLOBAL") && !reached.contains(scopes.get(i))) {
+				unitIR.remove(i);
+				unitAssembly.remove(i);
+			}
+		}
+		
+		this.record(Optimization.DeadFunctionElimination.getFlag(), start, before, this.countInstructions(unitIR));
+	}
+	
+	//Runs the program passes on the units of a program in program order, returns the units to compile. The profile of an
+	//earlier run, null when there is none, chooses the functions to clone.
+	public ArrayList<FunctionUnit> optimizeProgram(ArrayList<FunctionUnit> units, ExecutionProfile profile) {
+		
+		for(Optimization pass: this.passes) {
+			
+			if(pass.getStage() != Optimization.Stage.Program) {
+				continue;
+			}
+			
+			long start = System.nanoTime();
+			int before = this.countNodes(units);
+			
+			CallGraphOptimizer optimizer = new CallGraphOptimizer(units, profile);
+			
+			switch(pass) {
+				case FunctionCloning:
+					units = optimizer.cloneFunctions();
+					break;
+				case CallConstants:
+					units = optimizer.propagateConstants();
+					break;
+				case DeadFunctionElimination:
+					units = optimizer.eliminateDeadFunctions();
+					break;
+				default:
+					throw new RuntimeException(pass.getFlag() + " is not a program pass");
+			}
+			
+			this.record(pass.getFlag(), start, before, this.countNodes(units));
+			
+			if(this.isVerifying) {
+				
+				for(FunctionUnit unit: units) {
+					this.check(pass.getFlag(), CodeVerifier.verifyAST(unit.getAST()));
+				}
+			}
+		}
+		
+		return units;
+	}
+	
+	//Runs the passes on the IR of the whole program once all of its units are compiled, given by unit in program order.
+	//Returns the IR of each unit, the same list for a unit no pass changed.
+	public ArrayList<LinkedList<String>> optimizeProgramIR(ArrayList<LinkedList<String>> units) {
+		
+		for(Optimization pass: this.passes) {
+			
+			if(pass.getStage() != Optimization.Stage.ProgramIR) {
+				continue;
+			}
+			
+			long start = System.nanoTime();
+			int before = this.countInstructions(units);
+			
+			switch(pass) {
+				case PartialEvaluation:
+					LinkedList<String> residual = new PartialEvaluator(units).evaluate();
+					
+					if(residual != null) {
+						units = new ArrayList<LinkedList<String>>();
+						units.add(residual);
+					}
+					break;
+				case StringPooling:
+					units = new StringPool(units).run();
+					break;
+				default:
+					throw new RuntimeException(pass.getFlag() + " is not a pass on the IR of the program");
+			}
+			
+			this.record(pass.getFlag(), start, before, this.countInstructions(units));
+			
+			if(this.isVerifying) {
+				
+				for(LinkedList<String> unit: units) {
+					this.check(pass.getFlag(), CodeVerifier.verifyIR(unit));
+				}
+			}
+		}
+		
+		return units;
+	}
+	
+	//Unrolls the loops and simplifies the AST of a unit, generates its IR and runs the IR passes on it. With a profile of an
+	//earlier run, null when there is none, the loops of a function that did not run are not unrolled.
+	public LinkedList<String> generate(FunctionUnit unit, ExecutionProfile profile) {
+		
+		AST ast = unit.getAST();
+		
+		for(Optimization pass: this.passes) {
+			
+			if(pass.getStage() != Optimization.Stage.AST) {
+				continue;
+			}
+			
+			long start = System.nanoTime();
+			int before = this.countOperations(ast);
+			
+			if(pass == Optimization.LoopUnrolling) {
+				
+				if(profile == null || profile.getFunctionInstructions(unit.getScope()) > 0) {
+					new LoopUnroller(ast, this.unrollFactor).optimize();
+				}
+			}
+			else {
+				new ASTOptimizer(ast).optimize();
+			}
+			
+			this.record(pass.getFlag(), start, before, this.countOperations(ast));
+			
+			if(this.isVerifying) {
+				this.check(pass.getFlag(), CodeVerifier.verifyAST(ast));
+			}
+		}
+		
+		long start = System.nanoTime();
+		
+		LinkedList<String> ir = new CodeGenerator(this.optimizations.contains(Optimization.RegisterOrdering), this.isMapping).generateIR(unit);
+		
+		this.record(GENERATION, start, this.countOperations(ast), this.countInstructions(ir));
+		
+		if(this.isVerifying) {
+			this.check(GENERATION, CodeVerifier.verifyIR(ir));
+		}
+		
+		return this.runPasses(Optimization.Stage.IR, ir);
+	}
+	
+	//Converts the IR of a unit into tiny assembly and runs the assembly passes on it. The IR given is kept.
+	public LinkedList<String> convert(LinkedList<String> ir, ExecutionProfile profile) {
+		
+		long start = System.nanoTime();
+		
+		LinkedList<String> assembly = new InstructionConverter(profile, this.costModel, this.optimizations).convertToAssembly(new LinkedList<String>(ir));
+		
+		this.record(CONVERSION, start, this.countInstructions(ir), this.countInstructions(assembly));
+		
+		if(this.isVerifying) {
+			this.check(CONVERSION, CodeVerifier.verifyAssembly(assembly));
+		}
+		
+		return this.runPasses(Optimization.Stage.Assembly, assembly);
+	}
+	
+	//Prints the time of each pass and phase and how much it changed the size of the code.
+	public synchronized void writeReport(PrintStream out) {
+		
+		long total = 0;
+		
+		out.println(String.format("%-24s %10s %10s %10s %10s", "pass", "time ms", "before", "after", "change"));
+		
+		for(String name: this.statistics.keySet()) {
+			
+			long[] statistic = this.statistics.get(name);
+			
+			out.println(String.format("%-24s %10.3f %10d %10d %+10d", name, statistic[0] / 1e6, statistic[1], statistic[2], statistic[2] - statistic[1]));
+			
+			total += statistic[0];
+		}
+		
+		out.println(String.format("%-24s %10.3f", "total", total / 1e6));
+	}
+	
+	//Runs the passes of a stage on the code of a unit in their order.
+	private LinkedList<String> runPasses(Optimization.Stage stage, LinkedList<String> code) {
+		
+		for(Optimization pass: this.passes) {
+			
+			if(pass.getStage() != stage) {
+				continue;
+			}
+			
+			long start = System.nanoTime();
+			int before = this.countInstructions(code);
+			
+			code = this.createPass(pass).run(code);
+			
+			this.record(pass.getFlag(), start, before, this.countInstructions(code));
+			
+			if(this.isVerifying) {
+				this.check(pass.getFlag(), (stage == Optimization.Stage.IR) ? CodeVerifier.verifyIR(code) : CodeVerifier.verifyAssembly(code));
+			}
+		}
+		
+		return code;
+	}
+	
+	private CodePass createPass(Optimization pass) {
+		
+		switch(pass) {
+			case DeadStoreElimination:
+				return new DeadStoreEliminator();
+			case TailCallElimination:
+				return new TailCallEliminator();
+			case LoadForwarding:
+				return new LoadForwarder();
+			default:
+				throw new RuntimeException(pass.getFlag() + " is not an IR or assembly pass");
+		}
+	}
+	
+	//Stops the compile when a pass left invalid code.
+	private void check(String name, String error) {
+		
+		if(error != null) {
+			throw new RuntimeException("Invalid code after " + name + ": " + error);
+		}
+	}
+	
+	private synchronized void record(String name, long start, long before, long after) {
+		
+		long[] statistic = this.statistics.get(name);
+		
+		statistic[0] += System.nanoTime() - start;
+		statistic[1] += before;
+		statistic[2] += after;
+	}
+	
+	//Creates the statistics of each pass and phase in the order they run.
+	private void resetStatistics() {
+		
+		this.statistics = new LinkedHashMap<String, long[]>();
+		
+		for(Optimization.Stage stage: Optimization.Stage.values()) {
+			
+			if(stage == Optimization.Stage.Generation) {
+				this.statistics.put(GENERATION, new long[3]);
+			}
+			
+			if(stage == Optimization.Stage.Conversion) {
+				this.statistics.put(CONVERSION, new long[3]);
+			}
+			
+			for(Optimization pass: this.passes) {
+				
+				if(pass.getStage() == stage && !this.statistics.containsKey(pass.getFlag())) {
+					this.statistics.put(pass.getFlag(), new long[3]);
+				}
+			}
+		}
+	}
+	
+	//Instructions of IR or assembly, declarations and source positions are not counted.
+	private int countInstructions(LinkedList<String> code) {
+		
+		int count = 0;
+		
+		for(String instruction: code) {
+			
+			if(!instruction.startsWith("VAR") && !instruction.startsWith("STRING") && !instruction.startsWith("var") && !instruction.startsWith("str") &&
+					!instruction.startsWith("LINE ") && !instruction.startsWith(";")) {
+				count++;
+			}
+		}
+		
+		return count;
+	}
+	
+	//Instructions of the IR of all the units.
+	private int countInstructions(ArrayList<LinkedList<String>> units) {
+		
+		int count = 0;
+		
+		for(LinkedList<String> unit: units) {
+			count += this.countInstructions(unit);
+		}
+		
+		return count;
+	}
+	
+	//Nodes of the statements of all the units, the global declarations have none.
+	private int countNodes(ArrayList<FunctionUnit> units) {
+		
+		int count = 0;
+		
+		for(FunctionUnit unit: units) {
+			
+			AST ast = unit.getAST();
+			
+			LinkedList<Integer> stack = new LinkedList<Integer>();
+			
+			for(int i = 0; i < ast.getRootCount(); i++) {
+				stack.push(ast.getRoot(i));
+			}
+			
+			while(!stack.isEmpty()) {
+				
+				int node = stack.pop();
+				
+				count++;
+				
+				if(ast.getLChild(node) != AST.NIL) {
+					stack.push(ast.getLChild(node));
+				}
+				
+				if(ast.getRChild(node) != AST.NIL) {
+					stack.push(ast.getRChild(node));
+				}
+			}
+		}
+		
+		return count;
+	}
+	
+	//Operators in the expressions of an AST.
+	private int countOperations(AST ast) {
+		
+		int count = 0;
+		
+		for(int i = 0; i < ast.getRootCount(); i++) {
+			
+			LinkedList<Integer> stack = new LinkedList<Integer>();
+			
+			stack.push(ast.getRChild(ast.getRoot(i)));
+			
+			while(!stack.isEmpty()) {
+				
+				int node = stack.pop();
+				
+				if(node != AST.NIL && ast.getCodeType(node) == CodeType.Operator) {
+					count++;
+					stack.push(ast.getLChild(node));
+					stack.push(ast.getRChild(node));
+				}
+			}
+		}
+		
+		return count;
+	}
+}
+
+//Checks the code of a unit between passes. Each check returns a description of the first error found, null if there is none.
+class CodeVerifier{
+	
+	private static final int REGISTER_COUNT = 200;
+	
+	//Every operator of an assignment or return expression or a condition has two operands that name it as their parent,
+	//every leaf is a value and every argument of a call is an expression.
+	public static String verifyAST(AST ast) {
+		
+		for(int i = 0; i < ast.getRootCount(); i++) {
+			
+			int root = ast.getRoot(i);
+			int expression = AST.NIL;
+			
+			if(ast.getCodeType(root) == CodeType.Operator) {
+				expression = ast.getRChild(root);
+			}
+			else if(ast.getCodeType(root) == CodeType.Return || ast.getCodeType(root) == CodeType.If || ast.getCodeType(root) == CodeType.While) {
+				expression = ast.getLChild(root);
+			}
+			
+			if(expression == AST.NIL) {
+				continue;
+			}
+			
+			LinkedList<Integer> stack = new LinkedList<Integer>();
+			
+			stack.push(expression);
+			
+			while(!stack.isEmpty()) {
+				
+				int node = stack.pop();
+				
+				if(ast.getCodeType(node) == CodeType.RValue) {
+					continue;
+				}
+				
+				//A call has a chain of arguments, each with its expression.
+				if(ast.getCodeType(node) == CodeType.Call || ast.getCodeType(node) == CodeType.Argument) {
+					
+					if(ast.getCodeType(node) == CodeType.Argument && ast.getLChild(node) == AST.NIL) {
+						return "argument of a call is missing its expression";
+					}
+					
+					for(int child: new int[] {ast.getLChild(node), ast.getRChild(node)}) {
+						
+						if(child != AST.NIL && ast.getParent(child) != node) {
+							return "argument of a call " + ast.getCode(node) + " names another parent";
+						}
+						
+						if(child != AST.NIL) {
+							stack.push(child);
+						}
+					}
+					
+					continue;
+				}
+				
+				if(ast.getCodeType(node) != CodeType.Operator) {
+					return "node " + ast.getCode(node) + " is not a value or an operator";
+				}
+				
+				for(int child: new int[] {ast.getLChild(node), ast.getRChild(node)}) {
+					
+					if(child == AST.NIL || ast.getParent(child) != node) {
+						return "operator " + ast.getCode(node) + " is missing an operand";
+					}
+					
+					stack.push(child);
+				}
+			}
+		}
+		
+		return null;
+	}
+	
+	//Every instruction is known and has its operands, and every temporary is read once after it is written. A temporary is
+	//written again only after its value has been read.
+	public static String verifyIR(LinkedList<String> ir) {
+		
+		//Temporaries written and not yet read.
+		HashSet<String> live = new HashSet<String>();
+		
+		for(String instruction: ir) {
+			
+			String[] elements = instruction.split(" ");
+			String opcode = elements[0];
+			
+			String[] read = new String[0];
+			String target = null;
+			int length = 2;
+			
+			if(opcode.equals("STOREI") || opcode.equals("STOREF")) {
+				read = new String[] {elements[1]};
+				target = elements[2];
+				length = 3;
+			}
+			else if(opcode.matches("(ADD|SUB|MUL|DIV)[IF]")) {
+				read = new String[] {elements[1], elements[2]};
+				target = elements[3];
+				length = 4;
+			}
+			else if(opcode.matches("(GT|GE|LT|LE|EQ|NE)[IF]")) {
+				read = new String[] {elements[1], elements[2]};
+				length = 4;
+			}
+			//A push or pop of a value, or of an empty slot.
+			else if(opcode.equals("PUSH") || opcode.equals("POP")) {
+				read = (elements.length > 1) ? new String[] {elements[1]} : read;
+				length = Math.min(elements.length, 2);
+			}
+			else if(opcode.equals("RETURN") || opcode.equals("UNLINK") || opcode.equals("HALT")) {
+				length = 1;
+			}
+			else if(opcode.equals("STRING") || opcode.equals("LINE")) {
+				continue;
+			}
+			else if(!opcode.matches("READ[IF]|WRITE[IFS]|LABEL|VAR|LINK|JSR|JUMP")) {
+				return "unknown IR instruction " + instruction;
+			}
+			
+			if(elements.length != length) {
+				return "wrong operands in " + instruction;
+			}
+			
+			for(String operand: read) {
+				
+				if(operand.startsWith("$T") && !live.remove(operand)) {
+					return operand + " read before it is written in " + instruction;
+				}
+			}
+			
+			if(target != null && target.startsWith("$T") && !live.add(target)) {
+				return target + " written again before it is read in " + instruction;
+			}
+		}
+		
+		return null;
+	}
+	
+	//Every instruction is known and has its operands, a result goes to a register or a variable as the instruction allows,
+	//registers are in range and each register is written before it is read since the last label or call.
+	public static String verifyAssembly(LinkedList<String> assembly) {
+		
+		HashSet<String> written = new HashSet<String>();
+		
+		for(String instruction: assembly) {
+			
+			String[] elements = instruction.split(" ");
+			String opcode = elements[0];
+			
+			for(int i = 1; i < elements.length && !opcode.equals("str"); i++) {
+				
+				if(isRegister(elements[i]) && Integer.parseInt(elements[i].substring(1)) >= REGISTER_COUNT) {
+					return "register out of range in " + instruction;
+				}
+			}
+			
+			switch(opcode) {
+				
+				case "var":
+				case "str":
+				case "sys":
+					break;
+					
+				//A label can be reached from elsewhere and a call uses any register.
+				case "label":
+				case "jsr":
+					written.clear();
+					continue;
+					
+				case "pop":
+					if(elements.length > 1 && isRegister(elements[1])) {
+						written.add(elements[1]);
+					}
+					continue;
+					
+				case "move":
+					if(elements.length != 3 || (isMemory(elements[1]) && isMemory(elements[2]))) {
+						return "move from memory to memory in " + instruction;
+					}
+					if(isLiteral(elements[2])) {
+						return "move to a literal in " + instruction;
+					}
+					break;
+					
+				case "addi":
+				case "subi":
+				case "muli":
+				case "divi":
+				case "addr":
+				case "subr":
+				case "mulr":
+				case "divr":
+				case "cmpi":
+				case "cmpr":
+					if(elements.length != 3 || !isRegister(elements[2])) {
+						return "second operand is not a register in " + instruction;
+					}
+					break;
+					
+				case "inci":
+				case "deci":
+					if(elements.length != 2 || !isRegister(elements[1])) {
+						return "operand is not a register in " + instruction;
+					}
+					break;
+					
+				//Jumps, returns and the stack are not checked beyond their registers.
+				default:
+					continue;
+			}
+			
+			//Operands read, the second of a move is written and the second of an operation read and written.
+			for(int i = 1; i < elements.length && !opcode.equals("str") && !opcode.equals("var") && !opcode.equals("sys"); i++) {
+				
+				boolean isRead = !(opcode.equals("move") && i == 2);
+				
+				if(isRead && isRegister(elements[i]) && !written.contains(elements[i])) {
+					return elements[i] + " read before it is written in " + instruction;
+				}
+			}
+			
+			if(opcode.equals("move") && isRegister(elements[2])) {
+				written.add(elements[2]);
+			}
+		}
+		
+		return null;
+	}
+	
+	private static boolean isRegister(String operand) {
+		return operand.matches("[rR][0-9]+");
+	}
+	
+	private static boolean isMemory(String operand) {
+		return !isRegister(operand) && !isLiteral(operand);
+	}
+	
+	//Variables begin with a letter and stack slots with $.
+	private static boolean isLiteral(String operand) {
+		return !Character.isLetter(operand.charAt(0)) && operand.charAt(0) != '$';
+	}
+}
@@ -0,0 +1,623 @@
+//Standard Libraries
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RecursiveAction;
+
+//ANTLR runtime libraries:
+import org.antlr.v4.runtime.misc.ParseCancellationException;
+import org.antlr.v4.runtime.tree.*;
+
+/*
+ * Runs the compiler phases on the units of a program (the global declarations then each function): code extraction, then
+ * IR generation and conversion to tiny assembly with their optimization passes run by a PassManager. Each unit is compiled on its own with temporaries and
+ * registers numbered within the unit, so units can be compiled in any order and their code joined in program order.
+ * The phases either run one after another on the full parse tree, concurrently as a pipeline, or in parallel on the units.
+ * In the pipeline each function is extracted as soon as it has been parsed and is passed through bounded queues, each with a
+ * single producer and a single consumer, to a thread for IR generation and then a thread for conversion while the rest of
+ * the program is parsed, program passes make the IR generation wait for the last unit. In parallel the units of the full
+ * parse tree are compiled as fork join tasks. All three produce the same output. Last the passes on the IR of the whole
+ * program run, such as the partial evaluation that replaces a program running to its end without input by the code of its
+ * output, and the units they changed are converted again.
+ */
+class PhasePipeline{
+	
+	//Number of units or IR parts a queue holds before its producer waits.
+	private static final int QUEUE_CAPACITY = 16;
+	
+	//End of stream markers, compared by reference.
+	private static final FunctionUnit END_OF_UNITS = new FunctionUnit(null, null);
+	
+	private static final LinkedList<String> END_OF_CODE = new LinkedList<String>();
+	
+	//IR of all units in program order.
+	private LinkedList<String> IRCode;
+	
+	//Tiny assembly of the program.
+	private LinkedList<String> assemblyCode;
+	
+	//IR and tiny assembly of each unit in program order, joined once the passes on the IR of the program have run.
+	private ArrayList<LinkedList<String>> unitIR;
+	
+	private ArrayList<LinkedList<String>> unitAssembly;
+	
+	//Function of each unit and the functions it calls, for the units compiled concurrently with the parse before all of
+	//them are known. The units of dead functions are dropped when the code is joined.
+	private ArrayList<String> unitScopes;
+	
+	private HashMap<String, HashSet<String>> callGraph;
+	
+	//Profile of an earlier run guiding the cloning, unrolling and conversion, null when there is none.
+	private ExecutionProfile profile;
+	
+	//Cost of tiny instructions for the cycle estimate.
+	private CostModel costModel;
+	
+	//Runs the optimization passes and phases of each unit.
+	private PassManager passManager;
+	
+	//Source positions the code is marked with are printed as comments in the listing, otherwise they are left out.
+	private boolean isListingPositions;
+	
+	public PhasePipeline(ExecutionProfile profile, CostModel costModel, PassManager passManager) {
+		this.profile = profile;
+		this.costModel = costModel;
+		this.passManager = passManager;
+		this.reset();
+	}
+	
+	//Runs the phases one after another on the parse tree of the full program.
+	public void compile(ParseTree tree) {
+		
+		this.compileUnits(this.extract(tree));
+	}
+	
+	//Runs the phases one after another on the units of the recursive descent parser, there is no parse tree.
+	public void compile(LittleScanner tokens) {
+		
+		this.compileUnits(this.extract(tokens));
+	}
+	
+	//Compiles the units of the full parse tree in parallel, each unit is a fork join task. The code of the units is joined
+	//in program order.
+	public void compileParallel(ParseTree tree) {
+		
+		this.compileUnitsParallel(this.extract(tree));
+	}
+	
+	//Compiles the units of the recursive descent parser in parallel.
+	public void compileParallel(LittleScanner tokens) {
+		
+		this.compileUnitsParallel(this.extract(tokens));
+	}
+	
+	//Runs the phases concurrently with the parse. The parse uses SLL prediction and stops at the first error, units already
+	//handed off can not be taken back so then the parser is rewound and the program compiled again one phase after another.
+	public void compileConcurrent(LittleParser parser) throws Exception {
+		
+		BlockingQueue<FunctionUnit> units = new ArrayBlockingQueue<FunctionUnit>(QUEUE_CAPACITY);
+		BlockingQueue<LinkedList<String>> ir = new ArrayBlockingQueue<LinkedList<String>>(QUEUE_CAPACITY);
+		
+		ExecutorService stages = Executors.newFixedThreadPool(2);
+		
+		Future<Void> irStage = stages.submit(new IRStage(units, ir));
+		Future<Void> assemblyStage = stages.submit(new AssemblyStage(ir));
+		
+		stages.shutdown();
+		
+		//The extraction runs from the parse listener on each part of the program as it is parsed.
+		parser.addParseListener(new UnitWalker(new CodeExtractor(units)));
+		
+		Driver.setBailingSLL(parser);
+		
+		boolean isCancelled = false;
+		
+		try {
+			parser.program();
+			
+		}catch(ParseCancellationException e) {
+			isCancelled = true;
+			
+		}finally {
+			//The stages always see the end of the units, they finish even when the parse has failed.
+			units.put(END_OF_UNITS);
+		}
+		
+		//After a cancelled parse the stages worked on a partial program, their failures do not matter.
+		try {
+			this.join(irStage);
+			this.join(assemblyStage);
+			
+		}catch(Exception e) {
+			
+			if(!isCancelled) {
+				throw e;
+			}
+		}
+		
+		if(isCancelled) {
+			
+			parser.removeParseListeners();
+			
+			this.reset();
+			this.compile(Driver.parseLL(parser));
+		}
+		else {
+			this.dropDeadUnits();
+			this.optimizeProgramIR();
+		}
+	}
+	
+	public void setListingPositions(boolean isListingPositions) {
+		this.isListingPositions = isListingPositions;
+	}
+	
+	//Prints all the generated IR Code then all the Tiny Assembly code.
+	public void write(PrintStream out) {
+		
+		out.println(";"+"IR Code");
+		
+		for(String irLine: this.IRCode) {
+			
+			if(this.isListed(irLine)) {
+				out.println(";"+irLine);
+			}
+		}
+		
+		out.println(";"+"Tiny Code");
+		
+		for(String instruction: this.assemblyCode) {
+			
+			if(this.isListed(instruction)) {
+				out.println(instruction);
+			}
+		}
+	}
+	
+	//Writes the source map of the Tiny Assembly code, the code has to be marked with its source positions. Each instruction
+	//has a line of its index in the object, the line of the listing written by write and the file, line and column of the
+	//source it was generated from, "<instruction> <listing line> <file>:<line>:<column>". Instructions before the first
+	//position have "-" for their source.
+	public void writeSourceMap(String fileName, String sourceName) throws IOException {
+		
+		PrintStream out = new PrintStream(new FileOutputStream(fileName), false);
+		
+		try {
+			
+			//The IR listing and its two headers come first.
+			int listingLine = 2;
+			
+			for(String irLine: this.IRCode) {
+				
+				if(this.isListed(irLine)) {
+					listingLine++;
+				}
+			}
+			
+			int instruction = 0;
+			String position = "-";
+			
+			for(String line: this.assemblyCode) {
+				
+				if(this.isListed(line)) {
+					listingLine++;
+				}
+				
+				if(line.startsWith(";line ")) {
+					position = sourceName + ":" + line.substring(6);
+				}
+				else if(!line.startsWith("var ") && !line.startsWith("str ")) {
+					out.println(instruction++ + " " + listingLine + " " + position);
+				}
+			}
+			
+		}finally {
+			out.close();
+		}
+	}
+	
+	//Writes the Tiny Assembly code as a binary object (TinyObject).
+	public void writeObject(String fileName) throws IOException {
+		
+		TinyObject.assemble(this.assemblyCode).write(fileName);
+	}
+	
+	//Prints the estimated cycles of each function by the cost model, counting its code once from its label to the next. The
+	//labels of its control flow, <function>_<n>, are within the function. The call of main and the halt before the first
+	//function are only counted in the total.
+	public void writeCycleReport(PrintStream out) {
+		
+		CycleEstimator estimator = new CycleEstimator(this.costModel);
+		
+		String function = null;
+		int start = 0;
+		
+		out.println("Estimated cycles (" + this.costModel.getClass().getSimpleName() + ")");
+		
+		for(String instruction: this.assemblyCode) {
+			
+			if(instruction.startsWith("label ") && !instruction.contains("_")) {
+				
+				if(function != null) {
+					out.println("  " + function + " " + (estimator.getCycles() - start));
+				}
+				
+				function = instruction.substring(6);
+				start = estimator.getCycles();
+			}
+			
+			estimator.add(instruction);
+		}
+		
+		if(function != null) {
+			out.println("  " + function + " " + (estimator.getCycles() - start));
+		}
+		
+		out.println("  total " + estimator.getCycles());
+	}
+	
+	//Check if a line of IR or assembly is printed, a source position only when positions are listed.
+	private boolean isListed(String line) {
+		return this.isListingPositions || !(line.startsWith("LINE ") || line.startsWith(";line "));
+	}
+	
+	//Extracts the units of a parse tree by walking it.
+	private ArrayList<FunctionUnit> extract(ParseTree tree) {
+		
+		LinkedBlockingQueue<FunctionUnit> units = new LinkedBlockingQueue<FunctionUnit>();
+		
+		new ParseTreeWalker().walk(new CodeExtractor(units), tree);
+		
+		return new ArrayList<FunctionUnit>(units);
+	}
+	
+	//Extracts the units as the recursive descent parser parses the tokens.
+	private ArrayList<FunctionUnit> extract(LittleScanner tokens) {
+		
+		LinkedBlockingQueue<FunctionUnit> units = new LinkedBlockingQueue<FunctionUnit>();
+		
+		new LittleDescentParser(tokens, new CodeExtractor(units)).parseProgram();
+		
+		return new ArrayList<FunctionUnit>(units);
+	}
+	
+	//Runs the phases one after another on each unit.
+	private void compileUnits(ArrayList<FunctionUnit> units) {
+		
+		units = this.passManager.optimizeProgram(units, this.profile);
+		
+		for(FunctionUnit unit: units) {
+			
+			LinkedList<String> unitIR = this.generate(unit);
+			
+			this.unitIR.add(unitIR);
+			this.unitAssembly.add(this.convert(unitIR));
+		}
+		
+		this.optimizeProgramIR();
+	}
+	
+	//Compiles the units in parallel as fork join tasks and joins their code in program order.
+	private void compileUnitsParallel(ArrayList<FunctionUnit> units) {
+		
+		units = this.passManager.optimizeProgram(units, this.profile);
+		
+		UnitTask task = new UnitTask(units, 0, units.size());
+		
+		ForkJoinPool.commonPool().invoke(task);
+		
+		this.unitIR.addAll(task.unitIR);
+		this.unitAssembly.addAll(task.unitAssembly);
+		
+		this.optimizeProgramIR();
+	}
+	
+	//Simplifies the expressions of a unit, generates its IR and runs the IR passes.
+	private LinkedList<String> generate(FunctionUnit unit) {
+		
+		return this.passManager.generate(unit, this.profile);
+	}
+	
+	//Converts the IR of a unit into Tiny Assembly and runs the assembly passes.
+	private LinkedList<String> convert(LinkedList<String> unitIR) {
+		
+		return this.passManager.convert(unitIR, this.profile);
+	}
+	
+	//Drops the code of the units of functions main does not reach, they were compiled as they came. Held units were
+	//already dropped by the program passes.
+	private void dropDeadUnits() {
+		
+		if(!this.unitScopes.isEmpty()) {
+			this.passManager.dropDeadUnits(this.unitScopes, this.callGraph, this.unitIR, this.unitAssembly);
+		}
+	}
+	
+	//Runs the passes on the IR of the whole program and joins the code of the units in program order, a unit whose IR a pass
+	//replaced is converted again.
+	private void optimizeProgramIR() {
+		
+		ArrayList<LinkedList<String>> optimized = this.passManager.optimizeProgramIR(this.unitIR);
+		
+		for(int i = 0; i < optimized.size(); i++) {
+			
+			LinkedList<String> ir = optimized.get(i);
+			
+			this.IRCode.addAll(ir);
+			this.assemblyCode.addAll((i < this.unitIR.size() && ir == this.unitIR.get(i)) ? this.unitAssembly.get(i) : this.convert(ir));
+		}
+		
+		//The simulator takes declarations only before all code, the strings declared in functions come after the code of
+		//the program unit.
+		this.hoist(this.IRCode, "STRING ");
+		this.hoist(this.assemblyCode, "str ");
+	}
+	
+	//Moves the lines of code starting with a prefix to its front, in the order they are in.
+	private void hoist(LinkedList<String> code, String prefix) {
+		
+		LinkedList<String> hoisted = new LinkedList<String>();
+		
+		for(Iterator<String> lines = code.iterator(); lines.hasNext();) {
+			
+			String line = lines.next();
+			
+			if(line.startsWith(prefix)) {
+				hoisted.add(line);
+				lines.remove();
+			}
+		}
+		
+		code.addAll(0, hoisted);
+	}
+	
+	//Waits for a stage to finish, an exception thrown by the stage is thrown again here.
+	private void join(Future<Void> stage) throws Exception {
+		
+		try {
+			stage.get();
+			
+		}catch(ExecutionException e) {
+			
+			if(e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			
+			throw e;
+		}
+	}
+	
+	//Starts the phases with no generated code.
+	private void reset() {
+		
+		this.IRCode = new LinkedList<String>();
+		this.assemblyCode = new LinkedList<String>();
+		this.unitIR = new ArrayList<LinkedList<String>>();
+		this.unitAssembly = new ArrayList<LinkedList<String>>();
+		this.unitScopes = new ArrayList<String>();
+		this.callGraph = new HashMap<String, HashSet<String>>();
+	}
+	
+	//IR generation stage, takes units until their end and passes the IR of each on. When a program pass rewrites functions
+	//the units are held until the end and optimized together first, otherwise each is compiled as it comes and its calls are
+	//recorded for the dead functions. After a failure the remaining units are still taken so the parse is never left waiting
+	//on a full queue, the failure is thrown once the end is reached.
+	private class IRStage implements Callable<Void>{
+		
+		private BlockingQueue<FunctionUnit> units;
+		
+		private BlockingQueue<LinkedList<String>> ir;
+		
+		public IRStage(BlockingQueue<FunctionUnit> units, BlockingQueue<LinkedList<String>> ir) {
+			this.units = units;
+			this.ir = ir;
+		}
+		
+		@Override
+		public Void call() throws Exception {
+			
+			RuntimeException failure = null;
+			
+			ArrayList<FunctionUnit> held = PhasePipeline.this.passManager.isHoldingUnits() ? new ArrayList<FunctionUnit>() : null;
+			
+			for(FunctionUnit unit = this.units.take(); unit != END_OF_UNITS; unit = this.units.take()) {
+				
+				if(failure != null) {
+					continue;
+				}
+				
+				if(held != null) {
+					held.add(unit);
+					continue;
+				}
+				
+				try {
+					ArrayList<FunctionUnit> single = new ArrayList<FunctionUnit>();
+					
+					single.add(unit);
+					
+					PhasePipeline.this.callGraph.putAll(new CallGraphOptimizer(single, null).getCallGraph());
+					PhasePipeline.this.unitScopes.add(unit.getScope());
+					
+					this.generate(unit);
+					
+				}catch(RuntimeException e) {
+					failure = e;
+				}
+			}
+			
+			if(held != null) {
+				
+				try {
+					for(FunctionUnit unit: PhasePipeline.this.passManager.optimizeProgram(held, PhasePipeline.this.profile)) {
+						this.generate(unit);
+					}
+					
+				}catch(RuntimeException e) {
+					failure = e;
+				}
+			}
+			
+			this.ir.put(END_OF_CODE);
+			
+			if(failure != null) {
+				throw failure;
+			}
+			
+			return null;
+		}
+		
+		private void generate(FunctionUnit unit) throws InterruptedException {
+			
+			LinkedList<String> unitIR = PhasePipeline.this.generate(unit);
+			
+			PhasePipeline.this.unitIR.add(unitIR);
+			
+			this.ir.put(unitIR);
+		}
+	}
+	
+	//Conversion stage, takes IR until its end and converts it to Tiny Assembly. Fails the same way as the IR stage.
+	private class AssemblyStage implements Callable<Void>{
+		
+		private BlockingQueue<LinkedList<String>> ir;
+		
+		public AssemblyStage(BlockingQueue<LinkedList<String>> ir) {
+			this.ir = ir;
+		}
+		
+		@Override
+		public Void call() throws Exception {
+			
+			RuntimeException failure = null;
+			
+			for(LinkedList<String> unitIR = this.ir.take(); unitIR != END_OF_CODE; unitIR = this.ir.take()) {
+				
+				if(failure != null) {
+					continue;
+				}
+				
+				try {
+					PhasePipeline.this.unitAssembly.add(PhasePipeline.this.convert(unitIR));
+					
+				}catch(RuntimeException e) {
+					failure = e;
+				}
+			}
+			
+			if(failure != null) {
+				throw failure;
+			}
+			
+			return null;
+		}
+	}
+	
+	//Fork join task compiling a range of units, the range is split in half until a single unit is left. The IR and assembly
+	//of each unit are stored by its position in the program.
+	private class UnitTask extends RecursiveAction{
+		
+		private static final long serialVersionUID = 1L;
+		
+		private ArrayList<FunctionUnit> units;
+		
+		private int start;
+		
+		private int end;
+		
+		//Code of each unit, shared by all tasks splitting the same range. Each task only sets the positions of its units.
+		private ArrayList<LinkedList<String>> unitIR;
+		
+		private ArrayList<LinkedList<String>> unitAssembly;
+		
+		public UnitTask(ArrayList<FunctionUnit> units, int start, int end) {
+			
+			this(units, start, end, new ArrayList<LinkedList<String>>(), new ArrayList<LinkedList<String>>());
+			
+			for(int i = 0; i < units.size(); i++) {
+				this.unitIR.add(null);
+				this.unitAssembly.add(null);
+			}
+		}
+		
+		private UnitTask(ArrayList<FunctionUnit> units, int start, int end, ArrayList<LinkedList<String>> unitIR, ArrayList<LinkedList<String>> unitAssembly) {
+			this.units = units;
+			this.start = start;
+			this.end = end;
+			this.unitIR = unitIR;
+			this.unitAssembly = unitAssembly;
+		}
+		
+		@Override
+		protected void compute() {
+			
+			if(this.end - this.start == 1) {
+				
+				LinkedList<String> ir = PhasePipeline.this.generate(this.units.get(this.start));
+				
+				this.unitIR.set(this.start, ir);
+				this.unitAssembly.set(this.start, PhasePipeline.this.convert(ir));
+			}
+			
+			else if(this.end - this.start > 1) {
+				
+				int middle = (this.start + this.end) / 2;
+				
+				invokeAll(new UnitTask(this.units, this.start, middle, this.unitIR, this.unitAssembly),
+						new UnitTask(this.units, middle, this.end, this.unitIR, this.unitAssembly));
+			}
+		}
+	}
+}
+
+//Parse listener that runs the code extraction on each part of the program as soon as it has been parsed, the global
+//declarations and then each function. A parse that stops on an error still exits its open rules, those are not extracted.
+class UnitWalker extends LittleBaseListener{
+	
+	private CodeExtractor extractor;
+	
+	private ParseTreeWalker walker;
+	
+	public UnitWalker(CodeExtractor extractor) {
+		this.extractor = extractor;
+		this.walker = new ParseTreeWalker();
+	}
+	
+	//The global scope is opened before anything is parsed.
+	@Override
+	public void enterProgram(LittleParser.ProgramContext ctx) {
+		this.extractor.enterProgram(ctx);
+	}
+	
+	//The global declarations are complete.
+	@Override
+	public void exitDecl(LittleParser.DeclContext ctx) {
+		
+		if(ctx.exception == null && ctx.getParent() instanceof LittleParser.Pgm_bodyContext) {
+			this.walker.walk(this.extractor, ctx);
+		}
+	}
+	
+	//A function is complete.
+	@Override
+	public void exitFunc_decl(LittleParser.Func_declContext ctx) {
+		
+		if(ctx.exception == null) {
+			this.walker.walk(this.extractor, ctx);
+		}
+	}
+}
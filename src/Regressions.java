@@ -0,0 +1,368 @@
+//Standard Libraries
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+//ANTLR runtime libraries:
+import org.antlr.v4.runtime.CharStreams;
+
+/*
+ * Regression checks of the optimizations. Each check compiles a small Little program, at every optimization level or with
+ * and without one optimization, and looks at the listing or at a run of it in TinyInterpreter. The failed checks are printed
+ * and the exit status is 1 when there is any.
+ *
+ *     java Regressions
+ */
+public class Regressions {
+	
+	//Optimization levels a program is compiled at when a check is about every level.
+	private static final String[] LEVELS = {"0", "1", "2", "s"};
+	
+	private static final Pattern REGISTER = Pattern.compile("\\br\\d+\\b");
+	
+	//IR branch on a temporary, an expression compared with a bound.
+	private static final Pattern BRANCH_ON_TEMPORARY = Pattern.compile(";(GT|GE|LT|LE|EQ|NE)I \\$T");
+	
+	private LinkedList<String> failures;
+	
+	private int checks;
+	
+	public Regressions() {
+		this.failures = new LinkedList<String>();
+		this.checks = 0;
+	}
+	
+	public static void main(String[] args) throws Exception {
+		
+		Regressions regressions = new Regressions();
+		
+		regressions.checkTrappingProduct();
+		regressions.checkRegisterOrder();
+		regressions.checkProfile();
+		regressions.checkLocalStrings();
+		regressions.checkPipelinedDeadFunctions();
+		regressions.checkTailCalls();
+		regressions.checkInexactFolds();
+		regressions.checkUnrolledBounds();
+		
+		for(String failure: regressions.failures) {
+			System.out.println("FAIL " + failure);
+		}
+		
+		System.out.println(regressions.checks + " checks, " + regressions.failures.size() + " failed");
+		
+		System.exit(regressions.failures.isEmpty() ? 0 : 1);
+	}
+	
+	//x * 0 is not folded to 0 when x divides an INT by a zero, the program stops at the division at every level.
+	private void checkTrappingProduct() {
+		
+		String source = "PROGRAM trap\nBEGIN\n"
+				+ "\tINT a, z, b;\n"
+				+ "\tFUNCTION VOID main()\n\tBEGIN\n"
+				+ "\t\ta := 5;\n\t\tz := 0;\n\t\tb := (a / z) * 0;\n\t\tWRITE(b);\n"
+				+ "\tEND\nEND\n";
+				
+		for(String level: LEVELS) {
+			
+			String output = this.run(this.compile(source, this.createPassManager(Optimization.forLevel(level)), null), "");
+			
+			this.check(output == null, "-O" + level + " (a / z) * 0 with z = 0 did not stop, it wrote \"" + output + "\"");
+		}
+	}
+	
+	//The instruction selection evaluates the operands of an operation in the order register ordering gives them in the IR.
+	//The product needing two registers is evaluated before the difference needing one, the statement needs two registers
+	//instead of three.
+	private void checkRegisterOrder() {
+		
+		String source = "PROGRAM order\nBEGIN\n"
+				+ "\tINT a, b, c, d, e, f, g;\n"
+				+ "\tFUNCTION VOID main()\n\tBEGIN\n"
+				+ "\t\tREAD(b, c, d, e, f, g);\n\t\ta := b - c - (d + e) * (f + g);\n\t\tWRITE(a);\n"
+				+ "\tEND\nEND\n";
+		
+		EnumSet<Optimization> optimizations = Optimization.forLevel("2");
+		
+		String unordered = this.compile(source, this.createPassManager(optimizations), null);
+		
+		optimizations.add(Optimization.RegisterOrdering);
+		
+		String ordered = this.compile(source, this.createPassManager(optimizations), null);
+		
+		this.check(this.countRegisters(ordered) == 2 && this.countRegisters(unordered) == 3, "-fregister-order used " +
+				this.countRegisters(ordered) + " registers and -fno-register-order " + this.countRegisters(unordered) + ", not 2 and 3");
+		
+		this.check("-78".equals(this.run(ordered, "1\n2\n3\n4\n5\n6\n")), "-fregister-order changed the output");
+	}
+	
+	//A profile of a run in which report never ran keeps its loop rolled and clones scale only for the calls main makes, the
+	//program writes the same.
+	private void checkProfile() throws IOException {
+		
+		String source = "PROGRAM profiled\nBEGIN\n"
+				+ "\tINT n, s;\n"
+				+ "\tFUNCTION INT scale(INT x, INT k)\n\tBEGIN\n\t\tRETURN x * k;\n\tEND\n"
+				+ "\tFUNCTION INT report()\n\tBEGIN\n"
+				+ "\t\tINT i;\n\t\ti := 0;\n\t\tWHILE (i < 8)\n\t\t\ts := s + scale(i, 3);\n\t\t\ti := i + 1;\n\t\tENDWHILE\n\t\tRETURN s;\n"
+				+ "\tEND\n"
+				+ "\tFUNCTION VOID main()\n\tBEGIN\n"
+				+ "\t\tREAD(n);\n\t\ts := scale(n, 2) + scale(n, 5);\n\t\tIF (n > 100)\n\t\t\ts := report();\n\t\tENDIF\n\t\tWRITE(s);\n"
+				+ "\tEND\nEND\n";
+		
+		//Recorded by the simulator from the -O2 build run with n = 3.
+		String recorded = "label - 0 3\nlabel scale.1 0 0\nlabel scale.2 1 6\nlabel scale.3 1 6\nlabel report 0 0\n"
+				+ "label main 1 22\nlabel main_1 1 3\ncall main 1\ncall scale.2 1\ncall scale.3 1\nvar n 4\nvar s 2\n";
+		
+		File file = File.createTempFile("regressions", ".prof");
+		
+		ExecutionProfile profile;
+		
+		try {
+			Files.write(file.toPath(), recorded.getBytes());
+			profile = new ExecutionProfile(file.getPath());
+			
+		}finally {
+			file.delete();
+		}
+		
+		String plain = this.compile(source, this.createPassManager(Optimization.forLevel("2")), null);
+		String profiled = this.compile(source, this.createPassManager(Optimization.forLevel("2")), profile);
+		
+		this.check(plain.contains("\nlabel scale.3\n") && !plain.contains("\nlabel report_1\n"),
+				"without a profile scale is not cloned 3 times or the loop of report is not unrolled");
+		this.check(!profiled.contains("\nlabel scale.3\n") && profiled.contains("\nlabel report_1\n"),
+				"the profile did not stop the cloning of scale for report or the unrolling of report");
+		
+		for(String input: new String[] {"3\n", "200\n"}) {
+			this.check(this.run(plain, input) != null && this.run(plain, input).equals(this.run(profiled, input)), "the profile changed the output for n = " + input.trim());
+		}
+	}
+	
+	//Strings of the same name declared in two functions with different texts are both declared and each function writes its
+	//own, at every level. The declarations come before all code, the simulator takes no other order without mix.
+	private void checkLocalStrings() {
+		
+		String source = "PROGRAM separators\nBEGIN\n"
+				+ "\tINT a;\n"
+				+ "\tFUNCTION INT show(INT x)\n\tBEGIN\n\t\tSTRING sep := \", \";\n\t\tWRITE(x, sep, x);\n\t\tRETURN x;\n\tEND\n"
+				+ "\tFUNCTION VOID main()\n\tBEGIN\n"
+				+ "\t\tSTRING sep := \" | \";\n\t\tREAD(a);\n\t\ta := show(a);\n\t\tWRITE(sep, a);\n"
+				+ "\tEND\nEND\n";
+		
+		for(String level: LEVELS) {
+			
+			String listing = this.compile(source, this.createPassManager(Optimization.forLevel(level)), null);
+			String output = this.run(listing, "7\n");
+			
+			this.check("7, 7 | 7".equals(output), "-O" + level + " wrote \"" + output + "\" instead of \"7, 7 | 7\"");
+			this.check(this.isDeclaredFirst(listing), "-O" + level + " declares a variable or string after code");
+		}
+	}
+	
+	//At -O1 the units compiled concurrently with the parse are not held for dead-function, the function main does not call
+	//is still dropped and the listing is the one of the sequential compile.
+	private void checkPipelinedDeadFunctions() throws Exception {
+		
+		String source = "PROGRAM dead\nBEGIN\n"
+				+ "\tINT a;\n"
+				+ "\tFUNCTION INT unused(INT x)\n\tBEGIN\n\t\tRETURN x + 1;\n\tEND\n"
+				+ "\tFUNCTION INT twice(INT x)\n\tBEGIN\n\t\tRETURN x + x;\n\tEND\n"
+				+ "\tFUNCTION VOID main()\n\tBEGIN\n\t\tREAD(a);\n\t\ta := twice(a);\n\t\tWRITE(a);\n\tEND\nEND\n";
+		
+		ByteArrayOutputStream listing = new ByteArrayOutputStream();
+		
+		PhasePipeline pipeline = new PhasePipeline(null, new TinyCostModel(), this.createPassManager(Optimization.forLevel("1")));
+		
+		pipeline.compileConcurrent(Driver.createParser(CharStreams.fromString(source)));
+		pipeline.write(new PrintStream(listing));
+		
+		String pipelined = listing.toString();
+		
+		this.check(!pipelined.contains("\nlabel unused\n") && pipelined.contains("\nlabel twice\n"),
+				"-O1 -pipeline did not drop unused or dropped twice");
+		this.check(pipelined.equals(this.compile(source, this.createPassManager(Optimization.forLevel("1")), null)),
+				"-O1 -pipeline wrote another listing than the sequential compile");
+		this.check("14".equals(this.run(pipelined, "7\n")), "-O1 -pipeline changed the output");
+	}
+	
+	//Calls in tail position, of the function itself and of another function with as many parameters, are jumps at every
+	//level but -O0 and the program writes the same. Only the calls of main are left.
+	private void checkTailCalls() {
+		
+		String source = "PROGRAM tail\nBEGIN\n"
+				+ "\tINT n, s;\n"
+				+ "\tFUNCTION INT sum(INT k, INT acc)\n\tBEGIN\n"
+				+ "\t\tIF (k = 0)\n\t\t\tRETURN acc;\n\t\tENDIF\n\t\tRETURN sum(k - 1, acc + k);\n\tEND\n"
+				+ "\tFUNCTION INT even(INT k)\n\tBEGIN\n"
+				+ "\t\tIF (k = 0)\n\t\t\tRETURN 1;\n\t\tENDIF\n\t\tRETURN odd(k - 1);\n\tEND\n"
+				+ "\tFUNCTION INT odd(INT k)\n\tBEGIN\n"
+				+ "\t\tIF (k = 0)\n\t\t\tRETURN 0;\n\t\tENDIF\n\t\tRETURN even(k - 1);\n\tEND\n"
+				+ "\tFUNCTION VOID main()\n\tBEGIN\n"
+				+ "\t\tREAD(n);\n\t\ts := sum(n, 0);\n\t\tWRITE(s);\n\t\ts := even(n);\n\t\tWRITE(s);\n"
+				+ "\tEND\nEND\n";
+		
+		for(String level: LEVELS) {
+			
+			String listing = this.compile(source, this.createPassManager(Optimization.forLevel(level)), null);
+			String output = this.run(listing, "1000\n");
+			int calls = this.countCalls(listing);
+			
+			this.check("5005001".equals(output), "-O" + level + " wrote \"" + output + "\" instead of \"5005001\"");
+			this.check(calls == (level.equals("0") ? 6 : 3), "-O" + level + " left " + calls + " calls");
+		}
+	}
+	
+	//INT operations on constants a tiny literal does not hold exactly are left to the simulator, which reads every literal as
+	//a float, at every level. TinyInterpreter converts a float too large for an INT unlike the simulator, so the listing is
+	//checked rather than the output.
+	private void checkInexactFolds() {
+		
+		String source = "PROGRAM inexact\nBEGIN\n"
+				+ "\tINT big, m;\n"
+				+ "\tFUNCTION VOID main()\n\tBEGIN\n"
+				+ "\t\tbig := 2147483647;\n\t\tbig := big + 1;\n\t\tWRITE(big);\n"
+				+ "\t\tm := 16777216;\n\t\tm := m * 3;\n\t\tWRITE(m);\n"
+				+ "\tEND\nEND\n";
+		
+		for(String level: LEVELS) {
+			
+			String listing = this.compile(source, this.createPassManager(Optimization.forLevel(level)), null);
+			
+			this.check(!listing.contains(" -2147483648 ") && !listing.contains(" 50331648 "), "-O" + level + " folded an INT operation on a literal that is not exact");
+		}
+	}
+	
+	//A loop whose bounds a tiny literal does not hold exactly is not unrolled by a trip count the simulator would not run,
+	//every level writes what -O0 writes. The loop of unknown trips running factor trips at a time compares the variable with
+	//the bound moved by the steps, the variable moved by them would overflow from 2147479551 and loop for ever.
+	private void checkUnrolledBounds() {
+		
+		String source = "PROGRAM bounds\nBEGIN\n"
+				+ "\tINT i, c, n, m;\n"
+				+ "\tFUNCTION VOID main()\n\tBEGIN\n"
+				+ "\t\tREAD(n, m);\n"
+				+ "\t\tc := 0;\n\t\ti := 999999990;\n\t\tWHILE (i < 999999999)\n\t\t\tc := c + 1;\n\t\t\ti := i + 1;\n\t\tENDWHILE\n\t\tWRITE(c);\n"
+				+ "\t\tc := 0;\n\t\ti := n;\n\t\tWHILE (i < m)\n\t\t\tc := c + 1;\n\t\t\ti := i + 4096;\n\t\tENDWHILE\n\t\tWRITE(c);\n"
+				+ "\tEND\nEND\n";
+		
+		String expected = this.run(this.compile(source, this.createPassManager(Optimization.forLevel("0")), null), "0\n100000\n");
+		
+		for(String level: LEVELS) {
+			
+			String listing = this.compile(source, this.createPassManager(Optimization.forLevel(level)), null);
+			String output = this.run(listing, "0\n100000\n");
+			
+			this.check(expected != null && expected.equals(output), "-O" + level + " wrote \"" + output + "\" instead of \"" + expected + "\"");
+			this.check(!BRANCH_ON_TEMPORARY.matcher(listing).find(), "-O" + level + " compares the variable of a loop moved by its steps");
+		}
+	}
+	
+	//Listing of a program, both the IR and the tiny code.
+	private String compile(String source, PassManager passManager, ExecutionProfile profile) {
+		
+		ByteArrayOutputStream listing = new ByteArrayOutputStream();
+		
+		PhasePipeline pipeline = new PhasePipeline(profile, new TinyCostModel(), passManager);
+		
+		pipeline.compile(Driver.parse(Driver.createParser(CharStreams.fromString(source))));
+		pipeline.write(new PrintStream(listing));
+		
+		return listing.toString();
+	}
+	
+	//Pass manager of a set of optimizations, every pass is verified.
+	private PassManager createPassManager(EnumSet<Optimization> optimizations) {
+		return new PassManager(EnumSet.copyOf(optimizations), new TinyCostModel(), true);
+	}
+	
+	//Output of a run of a listing in TinyInterpreter on an input, null when the run stops with an error such as an INT
+	//division by zero.
+	private String run(String listing, String input) {
+		
+		try {
+			TinyInterpreter interpreter = new TinyInterpreter(TinyObject.assemble(Arrays.asList(listing.split("\n"))), null);
+			
+			return interpreter.execute(new TinyInput(input.getBytes())).getOutput().toString();
+			
+		}catch(RuntimeException e) {
+			return null;
+		}
+	}
+	
+	//Check if the declarations of the tiny code of a listing come before all of its instructions.
+	private boolean isDeclaredFirst(String listing) {
+		
+		boolean isCode = false;
+		
+		for(String line: listing.split("\n")) {
+			
+			if(line.isEmpty() || line.startsWith(";")) {
+				continue;
+			}
+			
+			boolean isDeclaration = line.startsWith("var ") || line.startsWith("str ");
+			
+			if(isCode && isDeclaration) {
+				return false;
+			}
+			
+			isCode = isCode || !isDeclaration;
+		}
+		
+		return true;
+	}
+	
+	//Calls in the tiny code of a listing.
+	private int countCalls(String listing) {
+		
+		int calls = 0;
+		
+		for(String line: listing.split("\n")) {
+			
+			if(line.startsWith("jsr ")) {
+				calls++;
+			}
+		}
+		
+		return calls;
+	}
+	
+	//Registers named by the tiny code of a listing.
+	private int countRegisters(String listing) {
+		
+		HashSet<String> registers = new HashSet<String>();
+		
+		for(String line: listing.split("\n")) {
+			
+			if(line.startsWith(";")) {
+				continue;
+			}
+			
+			Matcher register = REGISTER.matcher(line);
+			
+			while(register.find()) {
+				registers.add(register.group());
+			}
+		}
+		
+		return registers.size();
+	}
+	
+	private void check(boolean isPassed, String failure) {
+		
+		this.checks++;
+		
+		if(!isPassed) {
+			this.failures.add(failure);
+		}
+	}
+}
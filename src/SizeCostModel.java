@@ -0,0 +1,11 @@
+/*
+ * Cost model for the smallest code (-Os). Every instruction costs one whatever its operands, so the instruction selection
+ * chooses the tiling with the fewest instructions and between equal counts the first one found.
+ */
+class SizeCostModel implements CostModel{
+	
+	@Override
+	public int latency(String opcode, OperandKind op1, OperandKind op2) {
+		return 1;
+	}
+}
@@ -0,0 +1,210 @@
+//Standard Libraries
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Source map of a compiled program, written by Driver -source-map. Each tiny instruction, by its index in the object and by
+ * its line in the listing, is mapped to the file, line and column of the Little statement it was generated from. The main
+ * method attributes the instructions executed in a run to the statements, from a simulator profile (tiny out.tiny
+ * profile=file), which counts them by listing line, or from a run of the program in TinyInterpreter, which counts them by
+ * instruction. Labels are not counted. The statements are printed most executed first, with their share of all executed
+ * instructions and their source line when the source file can be read.
+ *
+ *     java SourceMap <source map> <simulator profile>
+ *     java SourceMap <source map> -run <object or tiny assembly> < input
+ */
+public class SourceMap {
+	
+	//Source position of each instruction, "-" for none.
+	private ArrayList<String> positions;
+	
+	//Source position of the instruction on each line of the listing.
+	private HashMap<Integer, String> listingPositions;
+	
+	public SourceMap(String fileName) throws IOException {
+		
+		this.positions = new ArrayList<String>();
+		this.listingPositions = new HashMap<Integer, String>();
+		
+		for(String line: Files.readAllLines(Paths.get(fileName))) {
+			
+			String[] record = line.split(" ");
+			
+			if(Integer.parseInt(record[0]) != this.positions.size()) {
+				throw new RuntimeException("Instruction " + record[0] + " out of order in " + fileName);
+			}
+			
+			this.positions.add(record[2]);
+			this.listingPositions.put(Integer.parseInt(record[1]), record[2]);
+		}
+	}
+	
+	public static void main(String[] args) throws IOException {
+		
+		if(args.length < 2 || (args[1].equals("-run") && args.length < 3)) {
+			System.err.println("usage: java SourceMap <source map> <simulator profile> | -run <object or tiny assembly> < input");
+			System.exit(1);
+		}
+		
+		SourceMap map = new SourceMap(args[0]);
+		
+		LinkedHashMap<String, Long> executions;
+		
+		if(args[1].equals("-run")) {
+			
+			TinyObject object = TinyInterpreter.loadProgram(args[2]);
+			
+			TinyMachine machine = new TinyInterpreter(object, null).execute(new TinyInput(TinyInterpreter.readAll(System.in)));
+			
+			executions = map.attribute(object, machine.getExecutions());
+		}
+		else {
+			
+			executions = map.attributeProfile(args[1]);
+		}
+		
+		map.writeReport(executions, System.out);
+	}
+	
+	public int getInstructionCount() {
+		return this.positions.size();
+	}
+	
+	//Source position of an instruction, "-" when it has none.
+	public String getPosition(int instruction) {
+		return this.positions.get(instruction);
+	}
+	
+	//Source position of the instruction on a line of the listing, null when the line is not an instruction.
+	public String getListingPosition(int line) {
+		return this.listingPositions.get(line);
+	}
+	
+	//Sums the executions of each instruction of an object by source position, in the order the positions are first reached.
+	public LinkedHashMap<String, Long> attribute(TinyObject object, long[] executions) {
+		
+		LinkedHashMap<String, Long> attributed = new LinkedHashMap<String, Long>();
+		
+		for(int instruction = 0; instruction < executions.length; instruction++) {
+			
+			if(executions[instruction] > 0 && object.getOpcode(instruction) != TinyOpcode.Label) {
+				this.add(attributed, this.getPosition(instruction), executions[instruction]);
+			}
+		}
+		
+		return attributed;
+	}
+	
+	//Sums the executions of each listing line of a simulator profile by source position, from its records
+	//"line <listing line> <label> <opcode> <executions>".
+	public LinkedHashMap<String, Long> attributeProfile(String fileName) throws IOException {
+		
+		LinkedHashMap<String, Long> attributed = new LinkedHashMap<String, Long>();
+		
+		BufferedReader reader = new BufferedReader(new FileReader(fileName));
+		
+		try {
+			
+			for(String line = reader.readLine(); line != null; line = reader.readLine()) {
+				
+				String[] record = line.trim().split(" ");
+				
+				if(!record[0].equals("line") || record[3].equals("label")) {
+					continue;
+				}
+				
+				String position = this.getListingPosition(Integer.parseInt(record[1]));
+				
+				if(position == null) {
+					throw new RuntimeException("Line " + record[1] + " of the profile is not an instruction of the source map");
+				}
+				
+				this.add(attributed, position, Long.parseLong(record[4]));
+			}
+			
+		}finally {
+			reader.close();
+		}
+		
+		return attributed;
+	}
+	
+	//Prints the executions of each source position, most first, with their share of the total and the line of source.
+	public void writeReport(LinkedHashMap<String, Long> executions, PrintStream out) throws IOException {
+		
+		long total = 0;
+		
+		for(long count: executions.values()) {
+			total += count;
+		}
+		
+		ArrayList<Map.Entry<String, Long>> entries = new ArrayList<Map.Entry<String, Long>>(executions.entrySet());
+		
+		Collections.sort(entries, new Comparator<Map.Entry<String, Long>>() {
+			
+			@Override
+			public int compare(Map.Entry<String, Long> a, Map.Entry<String, Long> b) {
+				return Long.compare(b.getValue(), a.getValue());
+			}
+		});
+		
+		//Lines of each source file read so far, null for a file that can not be read.
+		HashMap<String, List<String>> sources = new HashMap<String, List<String>>();
+		
+		out.println(String.format("%14s %7s  %s", "executions", "share", "source"));
+		
+		for(Map.Entry<String, Long> entry: entries) {
+			
+			out.println(String.format("%14d %6.2f%%  %-24s %s", entry.getValue(), 100.0 * entry.getValue() / Math.max(1, total), entry.getKey(),
+					this.getSourceLine(entry.getKey(), sources)));
+		}
+		
+		out.println(String.format("%14d %6.2f%%  total", total, 100.0));
+	}
+	
+	//Text of the source line of a position "<file>:<line>:<column>", empty when the file can not be read.
+	private String getSourceLine(String position, HashMap<String, List<String>> sources) {
+		
+		int column = position.lastIndexOf(':');
+		int line = (column > 0) ? position.lastIndexOf(':', column - 1) : -1;
+		
+		if(line < 0) {
+			return "";
+		}
+		
+		String file = position.substring(0, line);
+		
+		if(!sources.containsKey(file)) {
+			
+			try {
+				sources.put(file, Files.readAllLines(Paths.get(file)));
+				
+			}catch(IOException e) {
+				sources.put(file, null);
+			}
+		}
+		
+		List<String> lines = sources.get(file);
+		int number = Integer.parseInt(position.substring(line + 1, column));
+		
+		return (lines == null || number < 1 || number > lines.size()) ? "" : lines.get(number - 1).trim();
+	}
+	
+	private void add(LinkedHashMap<String, Long> attributed, String position, long executions) {
+		
+		Long count = attributed.get(position);
+		
+		attributed.put(position, ((count == null) ? 0 : count) + executions);
+	}
+}
@@ -0,0 +1,281 @@
+//Standard Libraries
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+
+/*
+ * Pool of the strings of a program, on the IR of all of its units. First each run of writes whose text is known at compile
+ * time, of strings and of INT and FLOAT variables set to a literal earlier in the same block, is merged into the write of
+ * one string holding the text of the run. Then the strings are declared once for each text, in a pool at the start of the
+ * program, and the writes name the string of the pool with their text. Strings no write reads are dropped. Each name is
+ * declared once with one text, a string declared in a function is named by the function.
+ */
+class StringPool{
+	
+	//Prefix of the strings of merged writes, a Little identifier has no dot so they are unique.
+	private static final String MERGED_PREFIX = "string.";
+	
+	private ArrayList<LinkedList<String>> units;
+	
+	//Text of each string as the simulator writes it.
+	private HashMap<String, String> texts;
+	
+	//Value of each string as it is declared, with its quotes.
+	private HashMap<String, String> values;
+	
+	//Name of the string of the pool for each text, in the order the texts are first declared or merged.
+	private LinkedHashMap<String, String> pool;
+	
+	//Strings of merged writes so far.
+	private int merged;
+	
+	public StringPool(ArrayList<LinkedList<String>> units) {
+		this.units = units;
+	}
+	
+	//Returns the IR of each unit, the same list for a unit that is left as it is.
+	public ArrayList<LinkedList<String>> run() {
+		
+		this.texts = new HashMap<String, String>();
+		this.values = new HashMap<String, String>();
+		this.pool = new LinkedHashMap<String, String>();
+		this.merged = 0;
+		
+		for(LinkedList<String> unit: this.units) {
+			
+			for(String instruction: unit) {
+				
+				if(instruction.startsWith("STRING ")) {
+					this.declare(instruction);
+				}
+			}
+		}
+		
+		//The first name declared with a text is the name of its string in the pool.
+		for(LinkedList<String> unit: this.units) {
+			
+			for(String instruction: unit) {
+				
+				String name = instruction.startsWith("STRING ") ? instruction.split(" ")[1] : null;
+				
+				if(name != null && !this.pool.containsKey(this.texts.get(name))) {
+					this.pool.put(this.texts.get(name), name);
+				}
+			}
+		}
+		
+		ArrayList<LinkedList<String>> pooled = new ArrayList<LinkedList<String>>();
+		
+		for(LinkedList<String> unit: this.units) {
+			pooled.add(this.coalesce(unit));
+		}
+		
+		//Strings of the pool a write reads.
+		HashSet<String> read = new HashSet<String>();
+		
+		for(int i = 0; i < pooled.size(); i++) {
+			pooled.set(i, this.rename(pooled.get(i), read));
+		}
+		
+		LinkedList<String> declarations = new LinkedList<String>();
+		
+		for(String text: this.pool.keySet()) {
+			
+			String name = this.pool.get(text);
+			
+			if(read.contains(name)) {
+				declarations.add("STRING " + name + " " + this.values.get(name));
+			}
+		}
+		
+		if(!pooled.isEmpty()) {
+			pooled.get(0).addAll(0, declarations);
+		}
+		
+		for(int i = 0; i < pooled.size(); i++) {
+			
+			if(pooled.get(i).equals(this.units.get(i))) {
+				pooled.set(i, this.units.get(i));
+			}
+		}
+		
+		return pooled;
+	}
+	
+	//Text of a declared string value with its quotes, as the tiny simulator reads it: \n is a new line and there is no other
+	//escape.
+	public static String decode(String value) {
+		return value.substring(1, value.length() - 1).replace("\\n", "\n");
+	}
+	
+	//Declared value with its quotes of a text, null when a tiny string can not hold it: it ends at a quote and a backslash
+	//before an n would make a new line.
+	public static String encode(String text) {
+		
+		if(text.contains("\"") || text.contains("\\n")) {
+			return null;
+		}
+		
+		return "\"" + text.replace("\n", "\\n") + "\"";
+	}
+	
+	//Records the text of a string, a name declared again with another text would make the writes of it ambiguous.
+	private void declare(String instruction) {
+		
+		String[] elements = instruction.split(" ", 3);
+		String text = decode(elements[2]);
+		
+		if(this.texts.containsKey(elements[1]) && !this.texts.get(elements[1]).equals(text)) {
+			throw new RuntimeException("String " + elements[1] + " is declared with different texts");
+		}
+		
+		this.texts.put(elements[1], text);
+		this.values.put(elements[1], elements[2]);
+	}
+	
+	//Merges each run of at least two writes of known text into the write of a string of the pool. Variables are known from
+	//the literal stored into them, or copied from one that is, since the last label or call.
+	private LinkedList<String> coalesce(LinkedList<String> unit) {
+		
+		LinkedList<String> code = new LinkedList<String>();
+		
+		//Literal each variable holds.
+		HashMap<String, String> literals = new HashMap<String, String>();
+		
+		LinkedList<String> run = new LinkedList<String>();
+		StringBuilder text = new StringBuilder();
+		
+		for(String instruction: unit) {
+			
+			String written = this.getWrittenText(instruction, literals);
+			
+			if(written != null) {
+				run.add(instruction);
+				text.append(written);
+				continue;
+			}
+			
+			this.merge(run, text.toString(), code);
+			
+			run.clear();
+			text.setLength(0);
+			
+			code.add(instruction);
+			
+			String[] elements = instruction.split(" ");
+			String opcode = elements[0];
+			
+			if(opcode.equals("LABEL") || opcode.equals("JSR")) {
+				literals.clear();
+			}
+			else if(opcode.equals("STOREI") || opcode.equals("STOREF")) {
+				
+				String literal = this.isLiteral(elements[1]) ? elements[1] : literals.get(elements[1]);
+				
+				if(literal != null) {
+					literals.put(elements[2], literal);
+				}
+				else {
+					literals.remove(elements[2]);
+				}
+			}
+			else if(opcode.matches("(ADD|SUB|MUL|DIV)[IF]")) {
+				literals.remove(elements[3]);
+			}
+			else if(opcode.matches("READ[IF]|POP") && elements.length > 1) {
+				literals.remove(elements[1]);
+			}
+		}
+		
+		this.merge(run, text.toString(), code);
+		
+		return code;
+	}
+	
+	//Adds the writes of a run to the code, merged into one write when there are at least two and a string can hold their
+	//text.
+	private void merge(LinkedList<String> run, String text, LinkedList<String> code) {
+		
+		if(run.size() < 2 || encode(text) == null) {
+			code.addAll(run);
+			return;
+		}
+		
+		if(!this.pool.containsKey(text)) {
+			
+			String name = MERGED_PREFIX + (++this.merged);
+			
+			this.pool.put(text, name);
+			this.values.put(name, encode(text));
+		}
+		
+		code.add("WRITES " + this.pool.get(text));
+	}
+	
+	//Text a write prints when it is known at compile time, otherwise null. A variable holds a literal in both halves, the
+	//INT half truncated.
+	private String getWrittenText(String instruction, HashMap<String, String> literals) {
+		
+		String[] elements = instruction.split(" ");
+		
+		if(elements[0].equals("WRITES")) {
+			return this.texts.get(elements[1]);
+		}
+		
+		if(!elements[0].equals("WRITEI") && !elements[0].equals("WRITEF")) {
+			return null;
+		}
+		
+		String literal = literals.get(elements[1]);
+		
+		if(literal == null) {
+			return null;
+		}
+		
+		//The simulator reads every literal as a float.
+		float value = (float) Double.parseDouble(literal);
+		
+		if(Math.abs(value) >= 0x1p31f) {
+			return null;
+		}
+		
+		return elements[0].equals("WRITEI") ? Integer.toString((int) value) : TinyMachine.formatReal(value);
+	}
+	
+	//Drops the declarations of the strings of the pool from a unit and names the string of the pool in each write of one.
+	private LinkedList<String> rename(LinkedList<String> unit, HashSet<String> read) {
+		
+		LinkedList<String> code = new LinkedList<String>();
+		
+		for(String instruction: unit) {
+			
+			String[] elements = instruction.split(" ");
+			
+			if(elements[0].equals("STRING")) {
+				continue;
+			}
+			
+			if(elements[0].equals("WRITES")) {
+				
+				String text = this.texts.get(elements[1]);
+				String name = (text != null) ? this.pool.get(text) : elements[1];
+				
+				read.add(name);
+				instruction = "WRITES " + name;
+			}
+			
+			code.add(instruction);
+		}
+		
+		return code;
+	}
+	
+	private boolean isLiteral(String operand) {
+		
+		char first = operand.charAt(0);
+		
+		return Character.isDigit(first) || first == '.' || first == '-';
+	}
+}
@@ -1,18 +1,22 @@
 //Holds data related to symbols their type (STRING, INT, FLOAT) and in the case of s STRING its value. 
-//(For INT and FLOAT value is null)
+//(For INT and FLOAT value is null). Parameters and local variables live in the stack frame of their function and have the
+//stack reference of their slot as storage, globals are stored under their own name and have null.
 class SymbolAttibutes{
 	
 	private String type;
 	private String value;
+	private String storage;
 	
 	public SymbolAttibutes() {
 		this.type = null;
 		this.value = null;
+		this.storage = null;
 	}
 	
 	public SymbolAttibutes(String type, String value) {
 		this.type = type;
 		this.value = value;
+		this.storage = null;
 	}
 	
 	public String getType(){
@@ -30,4 +34,12 @@ class SymbolAttibutes{
 	public void setValue(String v) {
 		this.value = v;
 	}
+	
+	public String getStorage() {
+		return this.storage;
+	}
+	
+	public void setStorage(String s) {
+		this.storage = s;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+//Standard Libraries
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+
+/*
+ * Turns calls in tail position into jumps in the IR of a unit. A call is in tail position when its value is popped into a
+ * local slot, stored to the slot of the value of the caller and the caller returns, RETURN f(...). The arguments on the
+ * stack are popped into the slots of the parameters of the caller instead, the frame is left and the callee is jumped to,
+ * the empty slot pushed for the value is not needed. The callee links its frame on the return address of the caller and
+ * returns straight to the caller's caller with its value where the caller would have stored it, so a recursion in tail
+ * position runs in constant stack. A function of p parameters has them in $2 to $(p + 1) and its value in $(p + 2), so a
+ * call is turned into a jump when the callee has as many parameters as the caller, mutual recursion included.
+ */
+class TailCallEliminator implements CodePass{
+	
+	@Override
+	public LinkedList<String> run(LinkedList<String> ir) {
+		
+		ArrayList<String> code = new ArrayList<String>(ir);
+		
+		//Arguments of each call in tail position by its index, and the empty slots of their values pushed before the
+		//arguments, which are dropped.
+		HashMap<Integer, Integer> tailCalls = new HashMap<Integer, Integer>();
+		HashSet<Integer> slots = new HashSet<Integer>();
+		
+		for(int i = 0; i < code.size(); i++) {
+			
+			int arguments = code.get(i).startsWith("JSR ") ? this.countTailArguments(code, i) : -1;
+			int slot = (arguments >= 0) ? this.findValueSlot(code, i, arguments) : -1;
+			
+			if(slot >= 0) {
+				tailCalls.put(i, arguments);
+				slots.add(slot);
+			}
+		}
+		
+		LinkedList<String> result = new LinkedList<String>();
+		
+		for(int i = 0; i < code.size(); i++) {
+			
+			if(slots.contains(i)) {
+				continue;
+			}
+			
+			if(!tailCalls.containsKey(i)) {
+				result.add(code.get(i));
+				continue;
+			}
+			
+			int arguments = tailCalls.get(i);
+			
+			//The last argument is on top of the stack and goes to $2.
+			for(int slot = 2; slot < arguments + 2; slot++) {
+				result.add("POP $" + slot);
+			}
+			
+			result.add("UNLINK");
+			result.add("JUMP " + code.get(i).split(" ")[1]);
+			
+			//Past the pops, the store and the return of the call.
+			i += arguments + 3;
+		}
+		
+		return result;
+	}
+	
+	//Arguments of the call at an index when it is in tail position and its value goes to the slot its callee stores it to,
+	//otherwise -1.
+	private int countTailArguments(ArrayList<String> code, int call) {
+		
+		int index = call + 1;
+		
+		while(index < code.size() && code.get(index).equals("POP")) {
+			index++;
+		}
+		
+		if(index + 2 >= code.size() || !code.get(index).startsWith("POP $-") || !code.get(index + 2).equals("RETURN")) {
+			return -1;
+		}
+		
+		int arguments = index - call - 1;
+		String value = code.get(index).split(" ")[1];
+		String store = code.get(index + 1);
+		
+		if(!store.equals("STOREI " + value + " $" + (arguments + 2)) && !store.equals("STOREF " + value + " $" + (arguments + 2))) {
+			return -1;
+		}
+		
+		return arguments;
+	}
+	
+	//Index of the empty slot of the value of a call pushed before its arguments, -1 when it is not found. The arguments have
+	//no calls of their own, the calls in an expression are generated first.
+	private int findValueSlot(ArrayList<String> code, int call, int arguments) {
+		
+		for(int index = call - 1; index >= 0; index--) {
+			
+			String instruction = code.get(index);
+			
+			if(instruction.equals("PUSH")) {
+				return (arguments == 0) ? index : -1;
+			}
+			
+			if(instruction.startsWith("PUSH ")) {
+				arguments--;
+			}
+			else if(instruction.startsWith("POP") || instruction.startsWith("JSR ") || instruction.startsWith("LABEL ")) {
+				return -1;
+			}
+		}
+		
+		return -1;
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Cost model of the tiny simulator statistics. An instruction takes the latency of its slowest operand, a memory operand
+ * is slower than a register or literal, for moves, INT operations and FLOAT operations.
+ */
+class TinyCostModel implements CostModel{
+	
+	private static final int MOVE_REGISTER = 1;
+	private static final int MOVE_MEMORY = 5;
+	private static final int INT_REGISTER = 1;
+	private static final int INT_MEMORY = 6;
+	private static final int FLOAT_REGISTER = 3;
+	private static final int FLOAT_MEMORY = 8;
+	
+	@Override
+	public int latency(String opcode, OperandKind op1, OperandKind op2) {
+		
+		switch(opcode) {
+			case "move":
+			case "push":
+			case "pop":
+				return this.slowest(op1, op2, MOVE_REGISTER, MOVE_MEMORY);
+			case "addi":
+			case "subi":
+			case "muli":
+			case "divi":
+			case "cmpi":
+				return this.slowest(op1, op2, INT_REGISTER, INT_MEMORY);
+			case "addr":
+			case "subr":
+			case "mulr":
+			case "divr":
+			case "cmpr":
+				return this.slowest(op1, op2, FLOAT_REGISTER, FLOAT_MEMORY);
+			default:
+				return INT_REGISTER;
+		}
+	}
+	
+	//Latency of the slower of two operands.
+	private int slowest(OperandKind op1, OperandKind op2, int register, int memory) {
+		
+		return (op1 == OperandKind.Memory || op2 == OperandKind.Memory) ? memory : register;
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Input of a run read by readi and readr, numbers separated by white space. It reads like the C++ stream of the simulator:
+ * a number that can not be read reads as 0 and every read after it, like a read at the end of the input, leaves the value
+ * of the last read of its type.
+ */
+class TinyInput{
+	
+	private byte[] bytes;
+	
+	private int position;
+	
+	private boolean failed;
+	
+	//Value of the last integer and float read.
+	private int lastInt;
+	
+	private float lastReal;
+	
+	public TinyInput(byte[] bytes) {
+		this.bytes = bytes;
+	}
+	
+	public int readInt() {
+		
+		if(!this.skipSpace()) {
+			return this.lastInt;
+		}
+		
+		boolean isNegative = this.bytes[this.position] == '-';
+		
+		if(isNegative || this.bytes[this.position] == '+') {
+			this.position++;
+		}
+		
+		int digits = this.position;
+		
+		//Magnitude, it stops growing once it is out of range.
+		long value = 0;
+		
+		while(this.position < this.bytes.length && Character.isDigit(this.bytes[this.position])) {
+			
+			value = Math.min(10 * value + (this.bytes[this.position] - '0'), 1L << 32);
+			this.position++;
+		}
+		
+		if(this.position == digits) {
+			this.failed = true;
+			this.lastInt = 0;
+			return 0;
+		}
+		
+		value = isNegative ? -value : value;
+		
+		//Out of range, the closest integer.
+		if(value > Integer.MAX_VALUE || value < Integer.MIN_VALUE) {
+			this.failed = true;
+			this.lastInt = isNegative ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+			return this.lastInt;
+		}
+		
+		this.lastInt = (int) value;
+		
+		return this.lastInt;
+	}
+	
+	public float readReal() {
+		
+		if(!this.skipSpace()) {
+			return this.lastReal;
+		}
+		
+		int start = this.position;
+		
+		if(this.bytes[this.position] == '-' || this.bytes[this.position] == '+') {
+			this.position++;
+		}
+		
+		this.position = this.skipDigits(this.position);
+		
+		boolean isMantissa = this.position > start && Character.isDigit(this.bytes[this.position - 1]);
+		
+		if(this.position < this.bytes.length && this.bytes[this.position] == '.') {
+			
+			int fraction = this.position + 1;
+			
+			this.position = this.skipDigits(fraction);
+			isMantissa = isMantissa || this.position > fraction;
+		}
+		
+		if(isMantissa && this.position < this.bytes.length && (this.bytes[this.position] == 'e' || this.bytes[this.position] == 'E')) {
+			
+			this.position++;
+			
+			if(this.position < this.bytes.length && (this.bytes[this.position] == '-' || this.bytes[this.position] == '+')) {
+				this.position++;
+			}
+			
+			this.position = this.skipDigits(this.position);
+		}
+		
+		String text = new String(this.bytes, start, this.position - start);
+		
+		float value;
+		
+		try {
+			value = Float.parseFloat(text);
+			
+		}catch(NumberFormatException e) {
+			
+			this.failed = true;
+			this.lastReal = 0;
+			return 0;
+		}
+		
+		//Out of range, the largest float.
+		if(Float.isInfinite(value)) {
+			this.failed = true;
+			value = (value > 0) ? Float.MAX_VALUE : -Float.MAX_VALUE;
+		}
+		
+		this.lastReal = value;
+		
+		return value;
+	}
+	
+	//Skips white space, returns false if nothing can be read.
+	private boolean skipSpace() {
+		
+		if(this.failed) {
+			return false;
+		}
+		
+		while(this.position < this.bytes.length && Character.isWhitespace(this.bytes[this.position])) {
+			this.position++;
+		}
+		
+		if(this.position == this.bytes.length) {
+			this.failed = true;
+			return false;
+		}
+		
+		return true;
+	}
+	
+	private int skipDigits(int position) {
+		
+		while(position < this.bytes.length && Character.isDigit(this.bytes[position])) {
+			position++;
+		}
+		
+		return position;
+	}
+}
@@ -0,0 +1,534 @@
+//Standard Libraries
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+
+/*
+ * Tiny execution engine, runs a binary object with the output and statistics of the tiny simulator. The object is decoded
+ * once into arrays of handlers and operands. Short sequences that are frequent in compiled code, a load, an operation and a
+ * store, a compare and its jump, the unlink and return of a function, are fused into superinstructions whose handler runs
+ * every instruction of the sequence with a single dispatch. A label is only ever the first instruction of a superinstruction
+ * and a jump, call or return only the last, so control never enters or leaves one in the middle. Where sequences overlap the
+ * ones saving the most dispatches are fused first, counted over the code or over the executions of an earlier run.
+ *
+ * The statistics do not depend on the values computed, the counts each instruction adds are known when it is decoded. They
+ * are added up from the executions of each instruction when the run ends, only the cycle count is kept while running.
+ *
+ *     java TinyInterpreter <object or tiny assembly> [stats|nostats] [mix]
+ */
+class TinyInterpreter{
+	
+	//Handlers of single instructions. Operations do the integer and the float operation the way the simulator does, so the
+	//add, sub and mul handlers serve both types. The conditional jumps are one handler with a mask of the outcomes they take.
+	static final int LABEL = 0;
+	static final int MOVE = 1;
+	static final int ADD = 2;
+	static final int SUB = 3;
+	static final int MUL = 4;
+	static final int DIVI = 5;
+	static final int DIVR = 6;
+	static final int INC = 7;
+	static final int DEC = 8;
+	static final int CMPI = 9;
+	static final int CMPR = 10;
+	static final int PUSH = 11;
+	static final int POP = 12;
+	static final int JSR = 13;
+	static final int RET = 14;
+	static final int LINK = 15;
+	static final int UNLNK = 16;
+	static final int JMP = 17;
+	static final int BRANCH = 18;
+	static final int SYS = 19;
+	static final int DISCARD = 20;
+	
+	//Handlers of superinstructions, in the order of SHAPES.
+	static final int MOVE_ADD = 21;
+	static final int MOVE_SUB = 22;
+	static final int MOVE_MUL = 23;
+	static final int MOVE_DIVI = 24;
+	static final int MOVE_DIVR = 25;
+	static final int ADD_MOVE = 26;
+	static final int SUB_MOVE = 27;
+	static final int MUL_MOVE = 28;
+	static final int DIVI_MOVE = 29;
+	static final int DIVR_MOVE = 30;
+	static final int MOVE_ADD_MOVE = 31;
+	static final int MOVE_SUB_MOVE = 32;
+	static final int MOVE_MUL_MOVE = 33;
+	static final int MOVE_DIVI_MOVE = 34;
+	static final int MOVE_DIVR_MOVE = 35;
+	static final int CMPI_BRANCH = 36;
+	static final int CMPR_BRANCH = 37;
+	static final int MOVE_CMPI_BRANCH = 38;
+	static final int MOVE_CMPR_BRANCH = 39;
+	static final int MOVE_MOVE = 40;
+	static final int UNLNK_RET = 41;
+	static final int MOVE_UNLNK_RET = 42;
+	static final int PUSH_PUSH = 43;
+	static final int PUSH_JSR = 44;
+	static final int DISCARD_POP = 45;
+	static final int LABEL_MOVE = 46;
+	static final int LABEL_LINK = 47;
+	
+	private static final int FUSED = MOVE_ADD;
+	
+	//Instructions of each superinstruction.
+	private static final int[][] SHAPES = {
+		{MOVE, ADD}, {MOVE, SUB}, {MOVE, MUL}, {MOVE, DIVI}, {MOVE, DIVR},
+		{ADD, MOVE}, {SUB, MOVE}, {MUL, MOVE}, {DIVI, MOVE}, {DIVR, MOVE},
+		{MOVE, ADD, MOVE}, {MOVE, SUB, MOVE}, {MOVE, MUL, MOVE}, {MOVE, DIVI, MOVE}, {MOVE, DIVR, MOVE},
+		{CMPI, BRANCH}, {CMPR, BRANCH}, {MOVE, CMPI, BRANCH}, {MOVE, CMPR, BRANCH},
+		{MOVE, MOVE}, {UNLNK, RET}, {MOVE, UNLNK, RET},
+		{PUSH, PUSH}, {PUSH, JSR}, {DISCARD, POP},
+		{LABEL, MOVE}, {LABEL, LINK},
+	};
+	
+	//Cells of the memory of a run: the registers, a cell that is always zero for a missing operand, the variables and the
+	//literals. The stack follows the cells.
+	static final int ZERO = TinyObject.REGISTERS;
+	static final int VARIABLES = ZERO + 1;
+	
+	//Outcomes of a compare, bits of the branch masks. Unordered is a float compare with NaN, only jne takes it.
+	static final int LESS = 0;
+	static final int EQUAL = 1;
+	static final int GREATER = 2;
+	static final int UNORDERED = 3;
+	
+	private TinyObject object;
+	
+	private int instructionCount;
+	
+	//Handler of each single instruction.
+	private int[] instructions;
+	
+	//Handler and number of instructions run from each instruction, a superinstruction or the single instruction. Only the
+	//first instruction of a superinstruction is dispatched.
+	private int[] handlers;
+	
+	private int[] lengths;
+	
+	//Operands as addresses in the memory of a run. The address of a stack operand is its offset from the frame pointer and
+	//its frame mask is -1, for a cell the mask is 0. The first operand of a system call is the number of the call.
+	private int[] addresses1;
+	
+	private int[] frames1;
+	
+	private int[] addresses2;
+	
+	private int[] frames2;
+	
+	//Integer and float value each cell starts with, zero except for the literals.
+	private int[] cellInts;
+	
+	private float[] cellReals;
+	
+	//Instruction a jump goes to and the outcomes a conditional jump takes.
+	private int[] targets;
+	
+	private int[] masks;
+	
+	//Cycles until the target of an instruction is free, the simulator latency.
+	private int[] latencies;
+	
+	//String of each cell, empty for a cell that is not a string constant.
+	private String[] strings;
+	
+	//Literal cells by the bits of their float.
+	private HashMap<Integer, Integer> literals;
+	
+	//Loads an object. The superinstructions are chosen by the executions of each instruction in an earlier run, or by their
+	//count in the code when the profile is null. Nothing is fused with a profile of only zeros.
+	public TinyInterpreter(TinyObject object, long[] profile) {
+		
+		this.object = object;
+		this.instructionCount = object.getInstructionCount();
+		
+		int count = this.instructionCount;
+		
+		this.instructions = new int[count];
+		this.addresses1 = new int[count];
+		this.frames1 = new int[count];
+		this.addresses2 = new int[count];
+		this.frames2 = new int[count];
+		this.targets = new int[count];
+		this.masks = new int[count];
+		this.latencies = new int[count];
+		this.literals = new HashMap<Integer, Integer>();
+		
+		for(int pc = 0; pc < count; pc++) {
+			this.decode(pc);
+		}
+		
+		int cells = VARIABLES + object.getSymbolCount() + this.literals.size();
+		
+		this.cellInts = new int[cells];
+		this.cellReals = new float[cells];
+		this.strings = new String[cells];
+		
+		Arrays.fill(this.strings, "");
+		
+		for(int symbol = 0; symbol < object.getSymbolCount(); symbol++) {
+			
+			if(object.getSymbolString(symbol) != null) {
+				this.strings[VARIABLES + symbol] = object.getSymbolString(symbol);
+			}
+		}
+		
+		for(int bits: this.literals.keySet()) {
+			
+			int cell = this.literals.get(bits);
+			
+			this.cellReals[cell] = Float.intBitsToFloat(bits);
+			this.cellInts[cell] = (int) this.cellReals[cell];
+		}
+		
+		this.fuse(profile);
+	}
+	
+	public static void main(String[] args) throws IOException {
+		
+		if(args.length < 1) {
+			System.err.println("usage: java TinyInterpreter <object or tiny assembly> [stats|nostats] [mix]");
+			System.exit(1);
+		}
+		
+		TinyMachine machine = new TinyInterpreter(loadProgram(args[0]), null).execute(new TinyInput(readAll(System.in)));
+		
+		StringBuilder output = machine.getOutput();
+		
+		if(args.length < 2 || !args[1].equals("nostats")) {
+			machine.writeStatistics(output);
+		}
+		
+		PrintStream out = new PrintStream(System.out, false);
+		
+		out.print(output);
+		out.flush();
+	}
+	
+	//Loads a program from an object, or assembles it from a file that is not one.
+	static TinyObject loadProgram(String fileName) throws IOException {
+		
+		try {
+			return TinyObject.load(fileName);
+			
+		}catch(IOException e) {
+			
+			return TinyObject.assemble(Files.readAllLines(Paths.get(fileName)));
+		}
+	}
+	
+	//Runs the program on an input in a machine of its own, any number of runs can be made at the same time.
+	public TinyMachine execute(TinyInput input) {
+		
+		TinyMachine machine = new TinyMachine(this, input);
+		
+		machine.run();
+		
+		return machine;
+	}
+	
+	public TinyObject getObject() {
+		return this.object;
+	}
+	
+	public int getInstructionCount() {
+		return this.instructionCount;
+	}
+	
+	public int[] getHandlers() {
+		return this.handlers;
+	}
+	
+	public int[] getLengths() {
+		return this.lengths;
+	}
+	
+	public int[] getAddresses1() {
+		return this.addresses1;
+	}
+	
+	public int[] getFrames1() {
+		return this.frames1;
+	}
+	
+	public int[] getAddresses2() {
+		return this.addresses2;
+	}
+	
+	public int[] getFrames2() {
+		return this.frames2;
+	}
+	
+	public int[] getCellInts() {
+		return this.cellInts;
+	}
+	
+	public float[] getCellReals() {
+		return this.cellReals;
+	}
+	
+	public int[] getTargets() {
+		return this.targets;
+	}
+	
+	public int[] getMasks() {
+		return this.masks;
+	}
+	
+	public int[] getLatencies() {
+		return this.latencies;
+	}
+	
+	public String[] getStrings() {
+		return this.strings;
+	}
+	
+	//Number of superinstructions in the code.
+	public int getFusedCount() {
+		
+		int fused = 0;
+		
+		for(int pc = 0; pc < this.instructionCount; pc += this.lengths[pc]) {
+			
+			if(this.handlers[pc] >= FUSED) {
+				fused++;
+			}
+		}
+		
+		return fused;
+	}
+	
+	//Decodes the handler, operands and latency of an instruction.
+	private void decode(int pc) {
+		
+		TinyOpcode opcode = this.object.getOpcode(pc);
+		
+		for(int operand = 1; operand <= 2; operand++) {
+			
+			int kind = this.object.getKind(pc, operand);
+			int value = this.object.getValue(pc, operand);
+			
+			int address = ZERO;
+			int frame = 0;
+			
+			switch(kind) {
+				case TinyObject.REGISTER:
+				case TinyObject.SYSTEM:
+					address = value;
+					break;
+				case TinyObject.VARIABLE:
+					address = VARIABLES + value;
+					break;
+				case TinyObject.STACK:
+					address = -value;
+					frame = -1;
+					break;
+				case TinyObject.LITERAL:
+					address = this.getLiteral(value);
+					break;
+				case TinyObject.TARGET:
+					this.targets[pc] = value;
+					break;
+			}
+			
+			if(operand == 1) {
+				this.addresses1[pc] = address;
+				this.frames1[pc] = frame;
+			}
+			else {
+				this.addresses2[pc] = address;
+				this.frames2[pc] = frame;
+			}
+		}
+		
+		this.instructions[pc] = this.getHandler(opcode, pc);
+		this.latencies[pc] = TinyStatistics.getLatency(this.object, pc);
+	}
+	
+	//Cell of a literal, the cells of the literals follow the variables.
+	private int getLiteral(int bits) {
+		
+		if(!this.literals.containsKey(bits)) {
+			this.literals.put(bits, VARIABLES + this.object.getSymbolCount() + this.literals.size());
+		}
+		
+		return this.literals.get(bits);
+	}
+	
+	//Handler of a single instruction, the mask of a conditional jump is set with it.
+	private int getHandler(TinyOpcode opcode, int pc) {
+		
+		switch(opcode) {
+			case Label:
+				return LABEL;
+			case Move:
+				return MOVE;
+			case AddI:
+			case AddR:
+				return ADD;
+			case SubI:
+			case SubR:
+				return SUB;
+			case MulI:
+			case MulR:
+				return MUL;
+			case DivI:
+				return DIVI;
+			case DivR:
+				return DIVR;
+			case IncI:
+				return INC;
+			case DecI:
+				return DEC;
+			case CmpI:
+				return CMPI;
+			case CmpR:
+				return CMPR;
+			case Push:
+				return PUSH;
+			case Pop:
+				return (this.object.getKind(pc, 1) == TinyObject.NONE) ? DISCARD : POP;
+			case Jsr:
+				return JSR;
+			case Ret:
+				return RET;
+			case Link:
+				return LINK;
+			case Unlnk:
+				return UNLNK;
+			case Jmp:
+				return JMP;
+			case Jgt:
+				this.masks[pc] = 1 << GREATER;
+				return BRANCH;
+			case Jlt:
+				this.masks[pc] = 1 << LESS;
+				return BRANCH;
+			case Jge:
+				this.masks[pc] = (1 << GREATER) | (1 << EQUAL);
+				return BRANCH;
+			case Jle:
+				this.masks[pc] = (1 << LESS) | (1 << EQUAL);
+				return BRANCH;
+			case Jeq:
+				this.masks[pc] = 1 << EQUAL;
+				return BRANCH;
+			case Jne:
+				this.masks[pc] = (1 << LESS) | (1 << GREATER) | (1 << UNORDERED);
+				return BRANCH;
+			default:
+				return SYS;
+		}
+	}
+	
+	//Chooses the superinstructions. Each shape is weighted by the dispatches it saves where it matches, the executions of its
+	//first instruction in the profile or one for each match, and the shapes are fused in order of weight where none of their
+	//instructions is fused already. The remaining instructions are dispatched on their own.
+	private void fuse(long[] profile) {
+		
+		int count = this.instructionCount;
+		
+		this.handlers = new int[count];
+		this.lengths = new int[count];
+		
+		final long[] weights = new long[SHAPES.length];
+		
+		ArrayList<Integer> shapes = new ArrayList<Integer>();
+		
+		for(int shape = 0; shape < SHAPES.length; shape++) {
+			
+			for(int pc = 0; pc < count; pc++) {
+				
+				if(this.matches(SHAPES[shape], pc)) {
+					weights[shape] += ((profile != null) ? profile[pc] : 1) * (SHAPES[shape].length - 1);
+				}
+			}
+			
+			if(weights[shape] > 0) {
+				shapes.add(shape);
+			}
+		}
+		
+		Collections.sort(shapes, new Comparator<Integer>() {
+			
+			@Override
+			public int compare(Integer shape1, Integer shape2) {
+				return Long.compare(weights[shape2], weights[shape1]);
+			}
+		});
+		
+		for(int shape: shapes) {
+			
+			for(int pc = 0; pc < count; pc++) {
+				
+				if(this.matches(SHAPES[shape], pc) && this.isFree(pc, SHAPES[shape].length)) {
+					
+					this.handlers[pc] = FUSED + shape;
+					this.lengths[pc] = SHAPES[shape].length;
+				}
+			}
+		}
+		
+		for(int pc = 0; pc < count; pc += this.lengths[pc]) {
+			
+			if(this.lengths[pc] == 0) {
+				this.handlers[pc] = this.instructions[pc];
+				this.lengths[pc] = 1;
+			}
+		}
+	}
+	
+	//Check if the instructions from pc are a shape. A label can only be first and a jump, call, return or system call only
+	//last, the shapes are made that way.
+	private boolean matches(int[] shape, int pc) {
+		
+		if(pc + shape.length > this.instructionCount) {
+			return false;
+		}
+		
+		for(int i = 0; i < shape.length; i++) {
+			
+			if(this.instructions[pc + i] != shape[i]) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	//Check if none of the instructions from pc is part of a superinstruction yet.
+	private boolean isFree(int pc, int length) {
+		
+		for(int start = Math.max(0, pc - 2); start < pc + length; start++) {
+			
+			if(this.lengths[start] > 0 && start + this.lengths[start] > pc) {
+				return false;
+			}
+		}
+		
+		return true;
+	}
+	
+	//Reads a whole stream.
+	static byte[] readAll(InputStream in) throws IOException {
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		
+		for(int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+			bytes.write(buffer, 0, read);
+		}
+		
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,659 @@
+//Standard Libraries
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Arrays;
+
+/*
+ * State of one run of a program: the cells and the stack in primitive arrays, the input and the output. The cycles are
+ * counted the way the simulator counts them. An instruction issues when its operands and its target are free, the target is
+ * free again after its latency, a conditional jump waits for its compare and a return or the halt wait for every register
+ * and variable write.
+ */
+class TinyMachine{
+	
+	private static final int STACK_SIZE = 1024;
+	
+	private final int[] handlers;
+	private final int[] lengths;
+	private final int[] addresses1;
+	private final int[] frames1;
+	private final int[] addresses2;
+	private final int[] frames2;
+	private final int[] targets;
+	private final int[] masks;
+	private final int[] latencies;
+	private final String[] strings;
+	
+	private TinyInterpreter interpreter;
+	
+	//Integer and float value and the cycle each cell and stack slot is free at, the simulator keeps both values of each. The
+	//cells come first, then the stack. A frame pointer or return address is kept as the integer value.
+	private int[] ints;
+	
+	private float[] reals;
+	
+	private int[] free;
+	
+	//Number of cells, only a write of a cell is waited for by a return or the halt.
+	private int cells;
+	
+	//Address of the next free stack slot and of the frame pointer saved by the last link.
+	private int sp;
+	
+	private int fp;
+	
+	//Outcome of the last compare.
+	private int outcome;
+	
+	//Cycle the next instruction issues at, the last compare is done and the last cell write is done.
+	private int cycles;
+	
+	private int compareTime;
+	
+	private int latestTime;
+	
+	//Times each superinstruction or single instruction was dispatched.
+	private long[] dispatches;
+	
+	private TinyInput input;
+	
+	private StringBuilder output;
+	
+	public TinyMachine(TinyInterpreter interpreter, TinyInput input) {
+		
+		this.interpreter = interpreter;
+		this.handlers = interpreter.getHandlers();
+		this.lengths = interpreter.getLengths();
+		this.addresses1 = interpreter.getAddresses1();
+		this.frames1 = interpreter.getFrames1();
+		this.addresses2 = interpreter.getAddresses2();
+		this.frames2 = interpreter.getFrames2();
+		this.targets = interpreter.getTargets();
+		this.masks = interpreter.getMasks();
+		this.latencies = interpreter.getLatencies();
+		this.strings = interpreter.getStrings();
+		
+		this.cells = this.strings.length;
+		
+		this.ints = Arrays.copyOf(interpreter.getCellInts(), this.cells + STACK_SIZE);
+		this.reals = Arrays.copyOf(interpreter.getCellReals(), this.cells + STACK_SIZE);
+		this.free = new int[this.cells + STACK_SIZE];
+		
+		//The stack starts with the frame pointer at its first slot like the simulator's.
+		this.sp = this.cells;
+		this.fp = this.cells;
+		
+		this.dispatches = new long[interpreter.getInstructionCount()];
+		
+		this.input = input;
+		this.output = new StringBuilder();
+	}
+	
+	//Runs the program until it halts or runs past its last instruction.
+	public void run() {
+		
+		final int[] handlers = this.handlers;
+		final long[] dispatches = this.dispatches;
+		final int end = handlers.length;
+		
+		int pc = 0;
+		
+		try {
+			
+			while(pc < end) {
+				
+				dispatches[pc]++;
+				
+				switch(handlers[pc]) {
+					case TinyInterpreter.LABEL:
+						this.cycles++;
+						pc++;
+						break;
+					case TinyInterpreter.MOVE:
+						this.move(pc);
+						pc++;
+						break;
+					case TinyInterpreter.ADD:
+						this.add(pc);
+						pc++;
+						break;
+					case TinyInterpreter.SUB:
+						this.sub(pc);
+						pc++;
+						break;
+					case TinyInterpreter.MUL:
+						this.mul(pc);
+						pc++;
+						break;
+					case TinyInterpreter.DIVI:
+						this.divi(pc);
+						pc++;
+						break;
+					case TinyInterpreter.DIVR:
+						this.divr(pc);
+						pc++;
+						break;
+					case TinyInterpreter.INC:
+						this.increment(pc, 1);
+						pc++;
+						break;
+					case TinyInterpreter.DEC:
+						this.increment(pc, -1);
+						pc++;
+						break;
+					case TinyInterpreter.CMPI:
+						this.cmpi(pc);
+						pc++;
+						break;
+					case TinyInterpreter.CMPR:
+						this.cmpr(pc);
+						pc++;
+						break;
+					case TinyInterpreter.PUSH:
+						this.push(pc);
+						pc++;
+						break;
+					case TinyInterpreter.POP:
+						this.pop(pc);
+						pc++;
+						break;
+					case TinyInterpreter.DISCARD:
+						this.discard();
+						pc++;
+						break;
+					case TinyInterpreter.JSR:
+						pc = this.jsr(pc);
+						break;
+					case TinyInterpreter.RET:
+						pc = this.ret();
+						break;
+					case TinyInterpreter.LINK:
+						this.link(pc);
+						pc++;
+						break;
+					case TinyInterpreter.UNLNK:
+						this.unlink();
+						pc++;
+						break;
+					case TinyInterpreter.JMP:
+						this.cycles++;
+						pc = this.targets[pc];
+						break;
+					case TinyInterpreter.BRANCH:
+						pc = this.branch(pc);
+						break;
+					case TinyInterpreter.SYS:
+						if(this.system(pc)) {
+							return;
+						}
+						pc++;
+						break;
+					case TinyInterpreter.MOVE_ADD:
+						this.move(pc);
+						this.add(pc + 1);
+						pc += 2;
+						break;
+					case TinyInterpreter.MOVE_SUB:
+						this.move(pc);
+						this.sub(pc + 1);
+						pc += 2;
+						break;
+					case TinyInterpreter.MOVE_MUL:
+						this.move(pc);
+						this.mul(pc + 1);
+						pc += 2;
+						break;
+					case TinyInterpreter.MOVE_DIVI:
+						this.move(pc);
+						this.divi(pc + 1);
+						pc += 2;
+						break;
+					case TinyInterpreter.MOVE_DIVR:
+						this.move(pc);
+						this.divr(pc + 1);
+						pc += 2;
+						break;
+					case TinyInterpreter.ADD_MOVE:
+						this.add(pc);
+						this.move(pc + 1);
+						pc += 2;
+						break;
+					case TinyInterpreter.SUB_MOVE:
+						this.sub(pc);
+						this.move(pc + 1);
+						pc += 2;
+						break;
+					case TinyInterpreter.MUL_MOVE:
+						this.mul(pc);
+						this.move(pc + 1);
+						pc += 2;
+						break;
+					case TinyInterpreter.DIVI_MOVE:
+						this.divi(pc);
+						this.move(pc + 1);
+						pc += 2;
+						break;
+					case TinyInterpreter.DIVR_MOVE:
+						this.divr(pc);
+						this.move(pc + 1);
+						pc += 2;
+						break;
+					case TinyInterpreter.MOVE_ADD_MOVE:
+						this.move(pc);
+						this.add(pc + 1);
+						this.move(pc + 2);
+						pc += 3;
+						break;
+					case TinyInterpreter.MOVE_SUB_MOVE:
+						this.move(pc);
+						this.sub(pc + 1);
+						this.move(pc + 2);
+						pc += 3;
+						break;
+					case TinyInterpreter.MOVE_MUL_MOVE:
+						this.move(pc);
+						this.mul(pc + 1);
+						this.move(pc + 2);
+						pc += 3;
+						break;
+					case TinyInterpreter.MOVE_DIVI_MOVE:
+						this.move(pc);
+						this.divi(pc + 1);
+						this.move(pc + 2);
+						pc += 3;
+						break;
+					case TinyInterpreter.MOVE_DIVR_MOVE:
+						this.move(pc);
+						this.divr(pc + 1);
+						this.move(pc + 2);
+						pc += 3;
+						break;
+					case TinyInterpreter.CMPI_BRANCH:
+						this.cmpi(pc);
+						pc = this.branch(pc + 1);
+						break;
+					case TinyInterpreter.CMPR_BRANCH:
+						this.cmpr(pc);
+						pc = this.branch(pc + 1);
+						break;
+					case TinyInterpreter.MOVE_CMPI_BRANCH:
+						this.move(pc);
+						this.cmpi(pc + 1);
+						pc = this.branch(pc + 2);
+						break;
+					case TinyInterpreter.MOVE_CMPR_BRANCH:
+						this.move(pc);
+						this.cmpr(pc + 1);
+						pc = this.branch(pc + 2);
+						break;
+					case TinyInterpreter.MOVE_MOVE:
+						this.move(pc);
+						this.move(pc + 1);
+						pc += 2;
+						break;
+					case TinyInterpreter.UNLNK_RET:
+						this.unlink();
+						pc = this.ret();
+						break;
+					case TinyInterpreter.MOVE_UNLNK_RET:
+						this.move(pc);
+						this.unlink();
+						pc = this.ret();
+						break;
+					case TinyInterpreter.PUSH_PUSH:
+						this.push(pc);
+						this.push(pc + 1);
+						pc += 2;
+						break;
+					case TinyInterpreter.PUSH_JSR:
+						this.push(pc);
+						pc = this.jsr(pc + 1);
+						break;
+					case TinyInterpreter.DISCARD_POP:
+						this.discard();
+						this.pop(pc + 1);
+						pc += 2;
+						break;
+					case TinyInterpreter.LABEL_MOVE:
+						this.cycles++;
+						this.move(pc + 1);
+						pc += 2;
+						break;
+					case TinyInterpreter.LABEL_LINK:
+						this.cycles++;
+						this.link(pc + 1);
+						pc += 2;
+						break;
+				}
+			}
+			
+		}catch(ArithmeticException e) {
+			throw new RuntimeException("Integer division by zero at instruction " + pc);
+		}
+	}
+	
+	public StringBuilder getOutput() {
+		return this.output;
+	}
+	
+	public int getCycles() {
+		return this.cycles;
+	}
+	
+	//Executions of each instruction, a profile for choosing the superinstructions of a later run.
+	public long[] getExecutions() {
+		
+		long[] executions = new long[this.dispatches.length];
+		
+		for(int pc = 0; pc < executions.length; pc += this.lengths[pc]) {
+			
+			for(int i = 0; i < this.lengths[pc]; i++) {
+				executions[pc + i] = this.dispatches[pc];
+			}
+		}
+		
+		return executions;
+	}
+	
+	public TinyStatistics getStatistics() {
+		return new TinyStatistics(this.interpreter.getObject(), this.getExecutions());
+	}
+	
+	//Writes the statistics of the run as the simulator prints them.
+	public void writeStatistics(StringBuilder out) {
+		
+		this.getStatistics().write(out, this.cycles);
+	}
+	
+	private void move(int pc) {
+		
+		int source = this.addresses1[pc] + (this.frames1[pc] & this.fp);
+		int target = this.addresses2[pc] + (this.frames2[pc] & this.fp);
+		
+		this.issue(pc, source, target);
+		
+		this.ints[target] = this.ints[source];
+		this.reals[target] = this.reals[source];
+	}
+	
+	private void add(int pc) {
+		
+		int source = this.addresses1[pc] + (this.frames1[pc] & this.fp);
+		int target = this.addresses2[pc] + (this.frames2[pc] & this.fp);
+		
+		this.issue(pc, source, target);
+		
+		this.ints[target] += this.ints[source];
+		this.reals[target] += this.reals[source];
+	}
+	
+	private void sub(int pc) {
+		
+		int source = this.addresses1[pc] + (this.frames1[pc] & this.fp);
+		int target = this.addresses2[pc] + (this.frames2[pc] & this.fp);
+		
+		this.issue(pc, source, target);
+		
+		this.ints[target] -= this.ints[source];
+		this.reals[target] -= this.reals[source];
+	}
+	
+	private void mul(int pc) {
+		
+		int source = this.addresses1[pc] + (this.frames1[pc] & this.fp);
+		int target = this.addresses2[pc] + (this.frames2[pc] & this.fp);
+		
+		this.issue(pc, source, target);
+		
+		this.ints[target] *= this.ints[source];
+		this.reals[target] *= this.reals[source];
+	}
+	
+	private void divi(int pc) {
+		
+		int source = this.addresses1[pc] + (this.frames1[pc] & this.fp);
+		int target = this.addresses2[pc] + (this.frames2[pc] & this.fp);
+		
+		this.issue(pc, source, target);
+		
+		this.ints[target] /= this.ints[source];
+	}
+	
+	private void divr(int pc) {
+		
+		int source = this.addresses1[pc] + (this.frames1[pc] & this.fp);
+		int target = this.addresses2[pc] + (this.frames2[pc] & this.fp);
+		
+		this.issue(pc, source, target);
+		
+		this.reals[target] /= this.reals[source];
+	}
+	
+	//Cycles of a move or an operation, it waits for both operands and writes the second.
+	private void issue(int pc, int source, int target) {
+		
+		int time = Math.max(this.cycles, Math.max(this.free[source], this.free[target]));
+		
+		this.setFree(target, time + this.latencies[pc]);
+		this.cycles = time + 1;
+	}
+	
+	private void increment(int pc, int step) {
+		
+		int target = this.addresses1[pc] + (this.frames1[pc] & this.fp);
+		
+		int time = Math.max(this.cycles, this.free[target]);
+		
+		this.setFree(target, time + this.latencies[pc]);
+		this.cycles = time + 1;
+		
+		this.ints[target] += step;
+	}
+	
+	private void cmpi(int pc) {
+		
+		int address1 = this.addresses1[pc] + (this.frames1[pc] & this.fp);
+		int address2 = this.addresses2[pc] + (this.frames2[pc] & this.fp);
+		
+		int time = Math.max(this.cycles, Math.max(this.free[address1], this.free[address2]));
+		
+		this.compareTime = time + this.latencies[pc];
+		this.cycles = time + 1;
+		
+		int value1 = this.ints[address1];
+		int value2 = this.ints[address2];
+		
+		this.outcome = (value1 < value2) ? TinyInterpreter.LESS : (value1 == value2) ? TinyInterpreter.EQUAL : TinyInterpreter.GREATER;
+	}
+	
+	private void cmpr(int pc) {
+		
+		int address1 = this.addresses1[pc] + (this.frames1[pc] & this.fp);
+		int address2 = this.addresses2[pc] + (this.frames2[pc] & this.fp);
+		
+		int time = Math.max(this.cycles, Math.max(this.free[address1], this.free[address2]));
+		
+		this.compareTime = time + this.latencies[pc];
+		this.cycles = time + 1;
+		
+		float value1 = this.reals[address1];
+		float value2 = this.reals[address2];
+		
+		if(value1 < value2) {
+			this.outcome = TinyInterpreter.LESS;
+		}
+		else if(value1 == value2) {
+			this.outcome = TinyInterpreter.EQUAL;
+		}
+		else if(value1 > value2) {
+			this.outcome = TinyInterpreter.GREATER;
+		}
+		else {
+			this.outcome = TinyInterpreter.UNORDERED;
+		}
+	}
+	
+	//Conditional jump, returns the next instruction.
+	private int branch(int pc) {
+		
+		this.cycles = Math.max(this.cycles, this.compareTime) + 1;
+		
+		return ((this.masks[pc] >> this.outcome & 1) != 0) ? this.targets[pc] : pc + 1;
+	}
+	
+	//Push of an operand, a push without one reads the zero cell.
+	private void push(int pc) {
+		
+		int source = this.addresses1[pc] + (this.frames1[pc] & this.fp);
+		
+		this.cycles = Math.max(this.cycles, this.free[source]) + 1;
+		
+		this.pushValue(this.ints[source], this.reals[source]);
+	}
+	
+	private void pop(int pc) {
+		
+		int target = this.addresses1[pc] + (this.frames1[pc] & this.fp);
+		
+		int time = Math.max(this.cycles, this.free[target]);
+		
+		this.setFree(target, time + this.latencies[pc]);
+		this.cycles = time + 1;
+		
+		this.sp--;
+		
+		this.ints[target] = this.ints[this.sp];
+		this.reals[target] = this.reals[this.sp];
+	}
+	
+	//Pop without an operand.
+	private void discard() {
+		
+		this.cycles++;
+		this.sp--;
+	}
+	
+	//Call, returns the first instruction of the subroutine.
+	private int jsr(int pc) {
+		
+		this.cycles++;
+		this.pushValue(pc + 1, 0);
+		
+		return this.targets[pc];
+	}
+	
+	//Return, returns the instruction after the call.
+	private int ret() {
+		
+		this.cycles = Math.max(this.cycles, this.latestTime) + 1;
+		
+		return this.ints[--this.sp];
+	}
+	
+	private void link(int pc) {
+		
+		this.cycles++;
+		
+		this.pushValue(this.fp, 0);
+		this.fp = this.sp - 1;
+		
+		for(int slot = this.ints[this.addresses1[pc]]; slot > 0; slot--) {
+			this.pushValue(0, 0);
+		}
+	}
+	
+	private void unlink() {
+		
+		this.cycles++;
+		
+		this.sp = this.fp;
+		this.fp = this.ints[this.sp];
+	}
+	
+	//System call, returns true for the halt.
+	private boolean system(int pc) {
+		
+		int address = this.addresses2[pc] + (this.frames2[pc] & this.fp);
+		
+		switch(this.addresses1[pc]) {
+			case 0:
+				this.ints[address] = this.input.readInt();
+				break;
+			case 1:
+				this.reals[address] = this.input.readReal();
+				break;
+			case 2:
+				this.output.append(this.ints[address]);
+				break;
+			case 3:
+				this.output.append(formatReal(this.reals[address]));
+				break;
+			case 4:
+				this.output.append((address < this.cells) ? this.strings[address] : "");
+				break;
+			default:
+				this.cycles = Math.max(this.cycles, this.latestTime) + 1;
+				return true;
+		}
+		
+		this.cycles++;
+		
+		return false;
+	}
+	
+	private void pushValue(int value, float real) {
+		
+		if(this.sp == this.ints.length) {
+			
+			this.ints = Arrays.copyOf(this.ints, 2 * this.sp);
+			this.reals = Arrays.copyOf(this.reals, 2 * this.sp);
+			this.free = Arrays.copyOf(this.free, 2 * this.sp);
+		}
+		
+		this.ints[this.sp] = value;
+		this.reals[this.sp] = real;
+		this.free[this.sp] = 0;
+		this.sp++;
+	}
+	
+	//Sets the cycle a target is free at.
+	private void setFree(int address, int time) {
+		
+		this.free[address] = time;
+		
+		if(address < this.cells) {
+			this.latestTime = Math.max(this.latestTime, time);
+		}
+	}
+	
+	//A float as the simulator prints it, the shortest of fixed and scientific notation with 6 significant digits (%g).
+	static String formatReal(float real) {
+		
+		if(Float.isNaN(real)) {
+			return (Float.floatToRawIntBits(real) < 0) ? "-nan" : "nan";
+		}
+		
+		if(Float.isInfinite(real)) {
+			return (real < 0) ? "-inf" : "inf";
+		}
+		
+		if(real == 0) {
+			return (1 / real < 0) ? "-0" : "0";
+		}
+		
+		BigDecimal rounded = new BigDecimal((double) real).round(new MathContext(6, RoundingMode.HALF_EVEN)).stripTrailingZeros();
+		
+		int exponent = rounded.precision() - rounded.scale() - 1;
+		
+		if(exponent >= -4 && exponent < 6) {
+			return rounded.toPlainString();
+		}
+		
+		String digits = rounded.unscaledValue().abs().toString();
+		String mantissa = digits.substring(0, 1) + ((digits.length() > 1) ? "." + digits.substring(1) : "");
+		String power = Integer.toString(Math.abs(exponent));
+		
+		return ((rounded.signum() < 0) ? "-" : "") + mantissa + "e" + ((exponent < 0) ? "-" : "+") + ((power.length() < 2) ? "0" : "") + power;
+	}
+}
@@ -0,0 +1,431 @@
+//Standard Libraries
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+
+/*
+ * Binary object of a tiny program. The assembly is parsed and linked once when the object is assembled, so a program run
+ * many times is neither parsed nor linked again. Every instruction has the same size and the code starts at a fixed offset,
+ * so the code of a loaded object is read straight from the mapped file. Layout, big endian:
+ *
+ *   header    "TINY", version, instruction count, offset of the symbols                        16 bytes
+ *   code      per instruction its opcode, kind of op1, kind of op2, 0, value of op1, value of op2  12 bytes each
+ *   symbols   count, per variable or string constant its name, then 0, or 1 and the string
+ *   labels    count, per label its name and the index of its instruction
+ *
+ * The value of an operand is a register number, a stack offset, the bits of a float literal (the simulator reads literals
+ * as floats), the index of a symbol, the index of the label instruction a jump or call goes to, or the number of a system
+ * call. Names and strings are written by DataOutput.writeUTF.
+ */
+class TinyObject{
+	
+	//Kinds of operands.
+	public static final int NONE = 0;
+	public static final int REGISTER = 1;
+	public static final int STACK = 2;
+	public static final int LITERAL = 3;
+	public static final int VARIABLE = 4;
+	public static final int TARGET = 5;
+	public static final int SYSTEM = 6;
+	
+	//System calls by number.
+	public static final String[] SYSTEM_CALLS = {"readi", "readr", "writei", "writer", "writes", "halt"};
+	
+	public static final int REGISTERS = 200;
+	
+	private static final int MAGIC = 0x54494E59;
+	private static final int VERSION = 1;
+	
+	private static final int HEADER_SIZE = 16;
+	private static final int INSTRUCTION_SIZE = 12;
+	
+	//The whole object, the mapped file of a loaded object. Only absolute reads are used so it is never moved.
+	private ByteBuffer data;
+	
+	private int instructionCount;
+	
+	//Names of the variables and string constants in symbol order, the string of a variable is null.
+	private ArrayList<String> symbolNames;
+	
+	private ArrayList<String> symbolStrings;
+	
+	//Instruction index of each label.
+	private HashMap<String, Integer> labels;
+	
+	private TinyObject(ByteBuffer data) throws IOException {
+		
+		this.data = data;
+		
+		if(data.limit() < HEADER_SIZE || data.getInt(0) != MAGIC) {
+			throw new IOException("Not a tiny object");
+		}
+		
+		if(data.getInt(4) != VERSION) {
+			throw new IOException("Tiny object version " + data.getInt(4) + " is not supported");
+		}
+		
+		this.instructionCount = data.getInt(8);
+		
+		//The symbols and labels are few, they are read into tables. The code stays in the buffer.
+		int symbolOffset = data.getInt(12);
+		
+		byte[] tables = new byte[data.limit() - symbolOffset];
+		
+		for(int i = 0; i < tables.length; i++) {
+			tables[i] = data.get(symbolOffset + i);
+		}
+		
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(tables));
+		
+		this.symbolNames = new ArrayList<String>();
+		this.symbolStrings = new ArrayList<String>();
+		
+		for(int count = in.readInt(); count > 0; count--) {
+			
+			this.symbolNames.add(in.readUTF());
+			this.symbolStrings.add(in.readBoolean() ? in.readUTF() : null);
+		}
+		
+		this.labels = new HashMap<String, Integer>();
+		
+		for(int count = in.readInt(); count > 0; count--) {
+			
+			String label = in.readUTF();
+			this.labels.put(label, in.readInt());
+		}
+	}
+	
+	//Assembles a tiny assembly listing. Comments after ';' and empty lines are skipped and an 'end' line ends the program
+	//like in the simulator. Names are linked to the first variable or label of the name, an undefined name or an unknown
+	//opcode stops the assembly.
+	public static TinyObject assemble(List<String> assembly) {
+		
+		ArrayList<String[]> instructions = new ArrayList<String[]>();
+		
+		LinkedList<String> symbolNames = new LinkedList<String>();
+		LinkedList<String> symbolStrings = new LinkedList<String>();
+		HashMap<String, Integer> symbols = new HashMap<String, Integer>();
+		
+		LinkedList<String> labelNames = new LinkedList<String>();
+		HashMap<String, Integer> labels = new HashMap<String, Integer>();
+		
+		//Declarations and labels first, a name can be used before it is declared.
+		for(String line: assembly) {
+			
+			String[] elements = split(line);
+			
+			if(elements == null) {
+				continue;
+			}
+			
+			if(elements[0].equals("end")) {
+				break;
+			}
+			
+			if(elements[0].equals("var") || elements[0].equals("str")) {
+				
+				if(!symbols.containsKey(elements[1])) {
+					
+					symbols.put(elements[1], symbols.size());
+					symbolNames.add(elements[1]);
+					symbolStrings.add(elements[0].equals("str") ? elements[2] : null);
+				}
+				continue;
+			}
+			
+			if(elements[0].equals("label") && !labels.containsKey(elements[1])) {
+				
+				labels.put(elements[1], instructions.size());
+				labelNames.add(elements[1]);
+			}
+			
+			instructions.add(elements);
+		}
+		
+		try {
+			
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(instructions.size());
+			out.writeInt(HEADER_SIZE + INSTRUCTION_SIZE * instructions.size());
+			
+			for(String[] elements: instructions) {
+				
+				TinyOpcode opcode = TinyOpcode.fromMnemonic(elements[0]);
+				
+				if(opcode == null) {
+					throw new RuntimeException("Unknown opcode " + elements[0]);
+				}
+				
+				int[] op1 = encode(opcode, (elements.length > 1) ? elements[1] : null, true, symbols, labels);
+				int[] op2 = encode(opcode, (elements.length > 2) ? elements[2] : null, false, symbols, labels);
+				
+				out.writeByte(opcode.ordinal());
+				out.writeByte(op1[0]);
+				out.writeByte(op2[0]);
+				out.writeByte(0);
+				out.writeInt(op1[1]);
+				out.writeInt(op2[1]);
+			}
+			
+			out.writeInt(symbolNames.size());
+			
+			while(!symbolNames.isEmpty()) {
+				
+				out.writeUTF(symbolNames.removeFirst());
+				
+				String string = symbolStrings.removeFirst();
+				
+				out.writeBoolean(string != null);
+				
+				if(string != null) {
+					out.writeUTF(string);
+				}
+			}
+			
+			out.writeInt(labelNames.size());
+			
+			for(String label: labelNames) {
+				
+				out.writeUTF(label);
+				out.writeInt(labels.get(label));
+			}
+			
+			out.flush();
+			
+			return new TinyObject(ByteBuffer.wrap(bytes.toByteArray()));
+			
+		}catch(IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	//Loads an object by mapping its file, the code is read from the file as it is used.
+	public static TinyObject load(String fileName) throws IOException {
+		
+		RandomAccessFile file = new RandomAccessFile(fileName, "r");
+		
+		try {
+			return new TinyObject(file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length()));
+			
+		}finally {
+			file.close();
+		}
+	}
+	
+	public void write(String fileName) throws IOException {
+		
+		FileOutputStream out = new FileOutputStream(fileName);
+		
+		try {
+			ByteBuffer bytes = this.data.duplicate();
+			bytes.position(0);
+			
+			while(bytes.hasRemaining()) {
+				out.getChannel().write(bytes);
+			}
+			
+		}finally {
+			out.close();
+		}
+	}
+	
+	public int getInstructionCount() {
+		return this.instructionCount;
+	}
+	
+	public TinyOpcode getOpcode(int instruction) {
+		return TinyOpcode.fromOrdinal(this.data.get(HEADER_SIZE + INSTRUCTION_SIZE * instruction));
+	}
+	
+	//Kind of the first (1) or second (2) operand of an instruction.
+	public int getKind(int instruction, int operand) {
+		return this.data.get(HEADER_SIZE + INSTRUCTION_SIZE * instruction + operand);
+	}
+	
+	//Value of the first (1) or second (2) operand of an instruction.
+	public int getValue(int instruction, int operand) {
+		return this.data.getInt(HEADER_SIZE + INSTRUCTION_SIZE * instruction + 4 * operand);
+	}
+	
+	public int getSymbolCount() {
+		return this.symbolNames.size();
+	}
+	
+	public String getSymbolName(int symbol) {
+		return this.symbolNames.get(symbol);
+	}
+	
+	//String of a string constant, null for a variable.
+	public String getSymbolString(int symbol) {
+		return this.symbolStrings.get(symbol);
+	}
+	
+	//Instruction index of a label, -1 if there is no such label.
+	public int getLabel(String label) {
+		
+		Integer instruction = this.labels.get(label);
+		
+		return (instruction == null) ? -1 : instruction;
+	}
+	
+	//Tiny assembly of the object, the declarations then the code. It runs the same as the assembly the object was assembled
+	//from, literals are written as the float the simulator reads.
+	public LinkedList<String> disassemble() {
+		
+		LinkedList<String> assembly = new LinkedList<String>();
+		
+		for(int symbol = 0; symbol < this.getSymbolCount(); symbol++) {
+			
+			String string = this.getSymbolString(symbol);
+			
+			if(string == null) {
+				assembly.add("var " + this.getSymbolName(symbol));
+			}
+			else {
+				assembly.add("str " + this.getSymbolName(symbol) + " \"" + string.replace("\n", "\\n") + "\"");
+			}
+		}
+		
+		String[] labelNames = new String[this.instructionCount];
+		
+		for(String label: this.labels.keySet()) {
+			labelNames[this.labels.get(label)] = label;
+		}
+		
+		for(int instruction = 0; instruction < this.instructionCount; instruction++) {
+			
+			String line = this.getOpcode(instruction).getMnemonic();
+			
+			for(int operand = 1; operand <= 2; operand++) {
+				
+				int value = this.getValue(instruction, operand);
+				
+				switch(this.getKind(instruction, operand)) {
+					case REGISTER:
+						line += " r" + value;
+						break;
+					case STACK:
+						line += " $" + value;
+						break;
+					case LITERAL:
+						float literal = Float.intBitsToFloat(value);
+						line += " " + ((literal == (int) literal) ? Integer.toString((int) literal) : Float.toString(literal));
+						break;
+					case VARIABLE:
+						line += " " + this.getSymbolName(value);
+						break;
+					case TARGET:
+						line += " " + labelNames[value];
+						break;
+					case SYSTEM:
+						line += " " + SYSTEM_CALLS[value];
+						break;
+				}
+			}
+			
+			assembly.add(line);
+		}
+		
+		return assembly;
+	}
+	
+	//Opcode and operands of a line, null for a line without an instruction. The string of a str declaration is its second
+	//operand with \n read as a newline the way the simulator reads it.
+	private static String[] split(String line) {
+		
+		String trimmed = line.trim();
+		
+		if(trimmed.startsWith("str ") && trimmed.indexOf('"') > 0) {
+			
+			int start = trimmed.indexOf('"');
+			int end = trimmed.indexOf('"', start + 1);
+			
+			if(end < 0) {
+				throw new RuntimeException("Unterminated string in " + line);
+			}
+			
+			String name = trimmed.substring(4, start).trim();
+			
+			return new String[] {"str", name, trimmed.substring(start + 1, end).replace("\\n", "\n")};
+		}
+		
+		int comment = trimmed.indexOf(';');
+		
+		if(comment >= 0) {
+			trimmed = trimmed.substring(0, comment).trim();
+		}
+		
+		if(trimmed.isEmpty()) {
+			return null;
+		}
+		
+		String[] elements = trimmed.split("\\s+");
+		
+		elements[0] = elements[0].toLowerCase();
+		
+		return elements;
+	}
+	
+	//Kind and value of an operand of an instruction, {NONE, 0} for a missing one.
+	private static int[] encode(TinyOpcode opcode, String operand, boolean isFirst, HashMap<String, Integer> symbols, HashMap<String, Integer> labels) {
+		
+		if(operand == null) {
+			return new int[] {NONE, 0};
+		}
+		
+		//The system call or the label of a jump, call or label instruction.
+		if(isFirst && opcode == TinyOpcode.Sys) {
+			
+			for(int call = 0; call < SYSTEM_CALLS.length; call++) {
+				
+				if(SYSTEM_CALLS[call].equals(operand)) {
+					return new int[] {SYSTEM, call};
+				}
+			}
+			
+			throw new RuntimeException("Unknown system call " + operand);
+		}
+		
+		if(isFirst && (opcode.isJump() || opcode == TinyOpcode.Label)) {
+			
+			if(!labels.containsKey(operand)) {
+				throw new RuntimeException("Jump target " + operand + " is not defined");
+			}
+			
+			return new int[] {TARGET, labels.get(operand)};
+		}
+		
+		if(operand.matches("[rR][0-9]+") && Integer.parseInt(operand.substring(1)) < REGISTERS) {
+			return new int[] {REGISTER, Integer.parseInt(operand.substring(1))};
+		}
+		
+		if(operand.charAt(0) == '$') {
+			return new int[] {STACK, Integer.parseInt(operand.substring(1))};
+		}
+		
+		if(Character.isLetter(operand.charAt(0))) {
+			
+			if(!symbols.containsKey(operand)) {
+				throw new RuntimeException("Identifier " + operand + " is not defined");
+			}
+			
+			return new int[] {VARIABLE, symbols.get(operand)};
+		}
+		
+		return new int[] {LITERAL, Float.floatToIntBits((float) Double.parseDouble(operand))};
+	}
+}
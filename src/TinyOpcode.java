@@ -0,0 +1,62 @@
+// Opcodes of executed tiny instructions, a binary object stores an instruction by the ordinal of its opcode. Declarations
+// (var, str) are not instructions, they are the symbols of the object.
+public enum TinyOpcode {
+	Label,
+	Move,
+	AddI,
+	AddR,
+	SubI,
+	SubR,
+	MulI,
+	MulR,
+	DivI,
+	DivR,
+	IncI,
+	DecI,
+	CmpI,
+	CmpR,
+	Push,
+	Pop,
+	Jsr,
+	Ret,
+	Link,
+	Unlnk,
+	Jmp,
+	Jgt,
+	Jlt,
+	Jge,
+	Jle,
+	Jeq,
+	Jne,
+	Sys;
+	
+	private static final TinyOpcode[] OPCODES = values();
+	
+	//Name of the opcode in tiny assembly.
+	public String getMnemonic() {
+		return this.name().toLowerCase();
+	}
+	
+	//Check if the first operand of the opcode is a label, the jumps and the call.
+	public boolean isJump() {
+		return this == Jsr || (this.compareTo(Jmp) >= 0 && this.compareTo(Jne) <= 0);
+	}
+	
+	// Returns the opcode of a mnemonic in any case, null if there is none.
+	public static TinyOpcode fromMnemonic(String mnemonic) {
+		
+		for(TinyOpcode opcode: OPCODES) {
+			
+			if(opcode.getMnemonic().equalsIgnoreCase(mnemonic)) {
+				return opcode;
+			}
+		}
+		
+		return null;
+	}
+	
+	// Returns the opcode of an ordinal stored in an object.
+	public static TinyOpcode fromOrdinal(int ordinal) {
+		return OPCODES[ordinal];
+	}
+}
@@ -0,0 +1,228 @@
+//Standard Libraries
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Runs a compiled program on many inputs in parallel, without a simulator process for each run. The program is loaded and
+ * decoded once and shared read only, each run has a machine (TinyMachine) of its own with its own memory, stack, input and
+ * output, so the runs need no locks and as many run at the same time as there are threads. The output and statistics of
+ * each input are written next to it as <input>.out and a line with its instructions and cycles is printed, in the order of
+ * the inputs. With -lines each line of a single input file is an input of its own.
+ *
+ *     java TinyRunner <object or tiny assembly> [-threads n] [-nostats] [-lines] <input file>...
+ */
+public class TinyRunner {
+	
+	private TinyInterpreter interpreter;
+	
+	private boolean isStatistics;
+	
+	public TinyRunner(TinyInterpreter interpreter, boolean isStatistics) {
+		this.interpreter = interpreter;
+		this.isStatistics = isStatistics;
+	}
+	
+	public static void main(String[] args) throws Exception {
+		
+		int threads = Runtime.getRuntime().availableProcessors();
+		boolean isStatistics = true;
+		boolean isLines = false;
+		
+		ArrayList<String> files = new ArrayList<String>();
+		
+		for(int i = 0; i < args.length; i++) {
+			
+			if(args[i].equals("-threads")) {
+				threads = Integer.parseInt(args[++i]);
+			}
+			else if(args[i].equals("-nostats")) {
+				isStatistics = false;
+			}
+			else if(args[i].equals("-lines")) {
+				isLines = true;
+			}
+			else {
+				files.add(args[i]);
+			}
+		}
+		
+		if(files.size() < 2) {
+			System.err.println("usage: java TinyRunner <object or tiny assembly> [-threads n] [-nostats] [-lines] <input file>...");
+			System.exit(1);
+		}
+		
+		TinyRunner runner = new TinyRunner(new TinyInterpreter(TinyInterpreter.loadProgram(files.get(0)), null), isStatistics);
+		
+		//Names the outputs are written to and the inputs.
+		ArrayList<String> names = new ArrayList<String>();
+		ArrayList<byte[]> inputs = new ArrayList<byte[]>();
+		
+		for(String file: files.subList(1, files.size())) {
+			
+			if(isLines) {
+				
+				List<String> lines = Files.readAllLines(Paths.get(file));
+				
+				for(int line = 0; line < lines.size(); line++) {
+					
+					names.add(file + "." + (line + 1));
+					inputs.add(lines.get(line).getBytes(StandardCharsets.US_ASCII));
+				}
+			}
+			else {
+				
+				names.add(file);
+				inputs.add(Files.readAllBytes(Paths.get(file)));
+			}
+		}
+		
+		long start = System.nanoTime();
+		
+		ArrayList<TinyResult> results = runner.run(inputs, threads);
+		
+		long time = System.nanoTime() - start;
+		
+		long instructions = 0;
+		int failures = 0;
+		
+		for(int i = 0; i < results.size(); i++) {
+			
+			TinyResult result = results.get(i);
+			
+			FileOutputStream out = new FileOutputStream(names.get(i) + ".out");
+			
+			try {
+				out.write(result.getOutput().getBytes(StandardCharsets.UTF_8));
+				
+			}finally {
+				out.close();
+			}
+			
+			if(result.getFailure() != null) {
+				
+				System.out.println(names.get(i) + " failed: " + result.getFailure());
+				failures++;
+			}
+			else {
+				
+				System.out.println(names.get(i) + " " + result.getInstructions() + " instructions " + result.getCycles() + " cycles");
+				instructions += result.getInstructions();
+			}
+		}
+		
+		System.out.println(results.size() + " runs, " + failures + " failed, " + threads + " threads, " + (time / 1000000) + " ms, " + (instructions * 1000 / Math.max(1, time)) + " million instructions/s");
+	}
+	
+	//Runs the program on each input with a number of threads, returns the results in the order of the inputs.
+	public ArrayList<TinyResult> run(List<byte[]> inputs, int threads) throws InterruptedException {
+		
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		
+		ArrayList<TinyResult> results = new ArrayList<TinyResult>();
+		
+		try {
+			
+			ArrayList<Future<TinyResult>> runs = new ArrayList<Future<TinyResult>>();
+			
+			for(byte[] input: inputs) {
+				runs.add(pool.submit(new RunTask(input)));
+			}
+			
+			for(Future<TinyResult> run: runs) {
+				
+				try {
+					results.add(run.get());
+					
+				}catch(ExecutionException e) {
+					
+					//Only an error of the runner itself, failures of a run are in its result.
+					throw new RuntimeException(e.getCause());
+				}
+			}
+			
+		}finally {
+			pool.shutdown();
+		}
+		
+		return results;
+	}
+	
+	//One run of the program, a failure is kept with the output written before it.
+	private class RunTask implements Callable<TinyResult>{
+		
+		private byte[] input;
+		
+		public RunTask(byte[] input) {
+			this.input = input;
+		}
+		
+		@Override
+		public TinyResult call() {
+			
+			TinyMachine machine = new TinyMachine(TinyRunner.this.interpreter, new TinyInput(this.input));
+			
+			try {
+				machine.run();
+				
+			}catch(RuntimeException e) {
+				
+				return new TinyResult(machine.getOutput().toString(), 0, 0, e.getMessage());
+			}
+			
+			StringBuilder output = machine.getOutput();
+			
+			TinyStatistics statistics = machine.getStatistics();
+			
+			if(TinyRunner.this.isStatistics) {
+				statistics.write(output, machine.getCycles());
+			}
+			
+			return new TinyResult(output.toString(), statistics.getInstructions(), machine.getCycles(), null);
+		}
+	}
+}
+
+//Output and statistics of one run, or the failure that stopped it.
+class TinyResult{
+	
+	private String output;
+	
+	private int instructions;
+	
+	private int cycles;
+	
+	private String failure;
+	
+	public TinyResult(String output, int instructions, int cycles, String failure) {
+		this.output = output;
+		this.instructions = instructions;
+		this.cycles = cycles;
+		this.failure = failure;
+	}
+	
+	public String getOutput() {
+		return this.output;
+	}
+	
+	public int getInstructions() {
+		return this.instructions;
+	}
+	
+	public int getCycles() {
+		return this.cycles;
+	}
+	
+	//Reason the run stopped early, null if it ran to the end.
+	public String getFailure() {
+		return this.failure;
+	}
+}
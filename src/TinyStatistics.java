@@ -0,0 +1,254 @@
+/*
+ * Statistics of a run counted the way the simulator counts them, from the number of times each instruction was executed.
+ * The counts an instruction adds depend only on its opcode and operands. Counters are ints like the simulator's.
+ */
+class TinyStatistics{
+	
+	private static final int MOVE_REGISTER = 1;
+	private static final int MOVE_MEMORY = 5;
+	private static final int INT_REGISTER = 1;
+	private static final int INT_MEMORY = 6;
+	private static final int FLOAT_REGISTER = 3;
+	private static final int FLOAT_MEMORY = 8;
+	
+	private int instructions;
+	private int moveMemory;
+	private int moveRegister;
+	private int intMemory;
+	private int intRegister;
+	private int floatMemory;
+	private int floatRegister;
+	private int memory;
+	private int intOperations;
+	private int floatOperations;
+	private int peepholes;
+	private int branches;
+	private int[] registers;
+	
+	public TinyStatistics(TinyObject object, long[] executions) {
+		
+		this.registers = new int[TinyObject.REGISTERS];
+		
+		for(int pc = 0; pc < executions.length; pc++) {
+			
+			if(executions[pc] > 0) {
+				this.count(object, pc, executions[pc]);
+			}
+		}
+	}
+	
+	public int getInstructions() {
+		return this.instructions;
+	}
+	
+	//Latency of an instruction by the kinds of its operands, the time until its target is free.
+	public static int getLatency(TinyObject object, int pc) {
+		
+		int kind1 = object.getKind(pc, 1);
+		int kind2 = object.getKind(pc, 2);
+		
+		switch(object.getOpcode(pc)) {
+			case Move:
+			case Push:
+			case Pop:
+				return (kind1 == TinyObject.VARIABLE || kind2 == TinyObject.VARIABLE) ? MOVE_MEMORY : MOVE_REGISTER;
+			case AddI:
+			case SubI:
+			case MulI:
+			case DivI:
+			case CmpI:
+				return isMemory(kind1) || isMemory(kind2) ? INT_MEMORY : INT_REGISTER;
+			case AddR:
+			case SubR:
+			case MulR:
+			case DivR:
+			case CmpR:
+				return isMemory(kind1) || isMemory(kind2) ? FLOAT_MEMORY : FLOAT_REGISTER;
+			default:
+				return INT_REGISTER;
+		}
+	}
+	
+	//Prints the statistics like the simulator, after the output.
+	public void write(StringBuilder out, int cycles) {
+		
+		int allRegisters = 0;
+		
+		for(int register: this.registers) {
+			allRegisters += register;
+		}
+		
+		out.append("\nSTATISTICS _____________________________\n");
+		out.append("   #Instructions:").append(this.instructions).append("\n");
+		out.append("    (move-ops mem:").append(this.moveMemory).append(", reglit:").append(this.moveRegister).append(")\n");
+		out.append("    ( int-ops mem:").append(this.intMemory).append(", reglit:").append(this.intRegister).append(")\n");
+		out.append("    (  fp-ops mem:").append(this.floatMemory).append(", reglit:").append(this.floatRegister).append(")\n");
+		out.append("   Memory Usage (mem:").append(this.memory).append(",reg:").append(allRegisters).append(")\n");
+		out.append("      register-use[").append(this.registers[0]);
+		
+		for(int register = 1; register < this.registers.length; register++) {
+			out.append(",").append(this.registers[register]);
+		}
+		
+		out.append("]\n");
+		out.append("   Total Cycles = ").append(cycles).append("\n");
+		out.append("OTHER STATSvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvvv\n");
+		out.append("    (int-ops:").append(this.intOperations).append(", fp-ops:").append(this.floatOperations).append(")\n");
+		out.append("    (branches:").append(this.branches).append(")\n");
+		out.append("      peephole-ops:").append(this.peepholes).append("\n");
+	}
+	
+	//Adds the counts of an instruction executed a number of times. A stack operand is memory for operations and compares but
+	//not for moves, pushes and pops, the first operand of a system call is its name and counts as memory.
+	private void count(TinyObject object, int pc, long times) {
+		
+		int n = (int) times;
+		
+		int kind1 = object.getKind(pc, 1);
+		int kind2 = object.getKind(pc, 2);
+		
+		boolean isMemory = false;
+		
+		switch(object.getOpcode(pc)) {
+			case Label:
+				return;
+				
+			case Move:
+			case Push:
+			case Pop:
+				this.instructions += n;
+				
+				for(int operand = 1; operand <= 2; operand++) {
+					
+					int kind = (operand == 1) ? kind1 : kind2;
+					
+					if(kind == TinyObject.VARIABLE) {
+						this.memory += n;
+						isMemory = true;
+					}
+					else if(kind == TinyObject.REGISTER) {
+						this.registers[object.getValue(pc, operand)] += n;
+					}
+				}
+				
+				if(isMemory) {
+					this.moveMemory += n;
+				}
+				else {
+					this.moveRegister += n;
+				}
+				return;
+				
+			case IncI:
+			case DecI:
+				this.instructions += n;
+				this.intOperations += n;
+				this.peepholes += n;
+				this.intRegister += n;
+				return;
+				
+			case AddI:
+			case SubI:
+			case MulI:
+			case DivI:
+			case CmpI:
+				this.instructions += n;
+				this.intOperations += n;
+				
+				if(this.countOperands(object, pc, n)) {
+					this.intMemory += n;
+				}
+				else {
+					this.intRegister += n;
+				}
+				return;
+				
+			case AddR:
+			case SubR:
+			case MulR:
+			case DivR:
+			case CmpR:
+				this.instructions += n;
+				this.floatOperations += n;
+				
+				if(this.countOperands(object, pc, n)) {
+					this.floatMemory += n;
+				}
+				else {
+					this.floatRegister += n;
+				}
+				return;
+				
+			case Jsr:
+			case Jmp:
+			case Jgt:
+			case Jlt:
+			case Jge:
+			case Jle:
+			case Jeq:
+			case Jne:
+				this.branches += n;
+				this.instructions += n;
+				this.intRegister += n;
+				return;
+				
+			case Link:
+			case Unlnk:
+			case Ret:
+				this.instructions += n;
+				this.intRegister += n;
+				return;
+				
+			case Sys:
+				this.instructions += n;
+				
+				switch(TinyObject.SYSTEM_CALLS[object.getValue(pc, 1)]) {
+					case "readi":
+					case "writei":
+						this.memory += n;
+						this.intMemory += n;
+						break;
+					case "readr":
+					case "writer":
+						this.floatOperations += n;
+						this.memory += n;
+						this.floatMemory += n;
+						break;
+					case "writes":
+						this.intOperations += n;
+						this.memory += n;
+						this.intMemory += n;
+						break;
+					default:
+						this.intRegister += n;
+						break;
+				}
+				return;
+		}
+	}
+	
+	//Counts the registers and memory accesses of both operands of an operation, returns true if one is in memory.
+	private boolean countOperands(TinyObject object, int pc, int n) {
+		
+		boolean isMemory = false;
+		
+		for(int operand = 1; operand <= 2; operand++) {
+			
+			int kind = object.getKind(pc, operand);
+			
+			if(isMemory(kind)) {
+				this.memory += n;
+				isMemory = true;
+			}
+			else if(kind == TinyObject.REGISTER) {
+				this.registers[object.getValue(pc, operand)] += n;
+			}
+		}
+		
+		return isMemory;
+	}
+	
+	private static boolean isMemory(int kind) {
+		return kind == TinyObject.VARIABLE || kind == TinyObject.STACK;
+	}
+}
@@ -0,0 +1,6 @@
+// Lexical kind of a value node, taken from the token the value was scanned as.
+public enum ValueKind {
+	Identifier,
+	IntLiteral,
+	FloatLiteral,
+}